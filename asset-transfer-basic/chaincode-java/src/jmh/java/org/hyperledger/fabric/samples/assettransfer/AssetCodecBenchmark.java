@@ -0,0 +1,97 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.assettransfer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares encoding and decoding an asset with Genson, org.json and the binary codec.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AssetCodecBenchmark {
+
+    private final Asset asset = new Asset("asset1", "blue", 5, "Tomoko", 300);
+
+    private final AssetCodec gensonCodec = new JsonAssetCodec();
+    private final AssetCodec orgJsonCodec = new OrgJsonAssetCodec();
+    private final AssetCodec binaryCodec = new BinaryAssetCodec();
+
+    private final byte[] gensonState = gensonCodec.encode(asset);
+    private final byte[] orgJsonState = orgJsonCodec.encode(asset);
+    private final byte[] binaryState = binaryCodec.encode(asset);
+
+    /**
+     * Stores assets as JSON using org.json, for comparison with Genson.
+     */
+    private static final class OrgJsonAssetCodec implements AssetCodec {
+
+        @Override
+        public byte[] encode(final Asset asset) {
+            return new JSONObject()
+                    .put("appraisedValue", asset.getAppraisedValue())
+                    .put("assetID", asset.getAssetID())
+                    .put("color", asset.getColor())
+                    .put("owner", asset.getOwner())
+                    .put("size", asset.getSize())
+                    .toString()
+                    .getBytes(UTF_8);
+        }
+
+        @Override
+        public Asset decode(final byte[] state) {
+            JSONObject json = new JSONObject(new String(state, UTF_8));
+            return new Asset(json.getString("assetID"), json.getString("color"), json.getInt("size"),
+                    json.getString("owner"), json.getInt("appraisedValue"));
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeGenson() {
+        return gensonCodec.encode(asset);
+    }
+
+    @Benchmark
+    public byte[] encodeOrgJson() {
+        return orgJsonCodec.encode(asset);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return binaryCodec.encode(asset);
+    }
+
+    @Benchmark
+    public Asset decodeGenson() {
+        return gensonCodec.decode(gensonState);
+    }
+
+    @Benchmark
+    public Asset decodeOrgJson() {
+        return orgJsonCodec.decode(orgJsonState);
+    }
+
+    @Benchmark
+    public Asset decodeBinary() {
+        return binaryCodec.decode(binaryState);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.assettransfer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.samples.testing.InMemoryChaincodeStub;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Drives each AssetTransfer transaction function against an {@link InMemoryChaincodeStub} holding
+ * {@code assets} assets. Every operation is one transaction: the contract call followed by a commit.
+ *
+ * <p>Each transaction gets a new context from {@link AssetTransfer#createContext}, as the contract router
+ * creates one, so its {@link StateCache} lives for that transaction only. Creating the context parses the client
+ * certificate; {@link #createContext()} measures that cost on its own.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AssetTransferBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"10000"})
+    private int assets;
+
+    private final AssetTransfer contract = new AssetTransfer();
+    private InMemoryChaincodeStub stub;
+    private String[] assetIDs;
+    private int next;
+    private int created;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stub = new InMemoryChaincodeStub();
+        assetIDs = new String[assets];
+        for (int i = 0; i < assets; i++) {
+            assetIDs[i] = String.format("asset%07d", i);
+            contract.CreateAsset(contract.createContext(stub), assetIDs[i], "blue", i % 20, "Tomoko", i % 1000);
+            stub.commit();
+        }
+    }
+
+    private String nextAssetID() {
+        String assetID = assetIDs[next];
+        next = (next + 1) % assets;
+        return assetID;
+    }
+
+    @Benchmark
+    public Context createContext() {
+        return contract.createContext(stub);
+    }
+
+    @Benchmark
+    public Asset createAsset() {
+        Asset asset = contract.CreateAsset(contract.createContext(stub), "new" + created++, "red", 10, "Brad", 400);
+        stub.commit();
+        return asset;
+    }
+
+    @Benchmark
+    public Asset readAsset() {
+        Asset asset = contract.ReadAsset(contract.createContext(stub), nextAssetID());
+        stub.commit();
+        return asset;
+    }
+
+    @Benchmark
+    public boolean assetExists() {
+        boolean exists = contract.AssetExists(contract.createContext(stub), nextAssetID());
+        stub.commit();
+        return exists;
+    }
+
+    @Benchmark
+    public Asset updateAsset() {
+        Asset asset = contract.UpdateAsset(contract.createContext(stub), nextAssetID(), "green", 15, "Jin Soo", 600);
+        stub.commit();
+        return asset;
+    }
+
+    @Benchmark
+    public String transferAsset() {
+        String oldOwner = contract.TransferAsset(contract.createContext(stub), nextAssetID(), "Max");
+        stub.commit();
+        return oldOwner;
+    }
+
+    @Benchmark
+    public void createAndDeleteAsset() {
+        String assetID = "new" + created++;
+        contract.CreateAsset(contract.createContext(stub), assetID, "red", 10, "Brad", 400);
+        stub.commit();
+        contract.DeleteAsset(contract.createContext(stub), assetID);
+        stub.commit();
+    }
+
+    @Benchmark
+    public String getAllAssets() {
+        String assetsJSON = contract.GetAllAssets(contract.createContext(stub));
+        stub.commit();
+        return assetsJSON;
+    }
+
+    @Benchmark
+    public String getAssetsWithPagination() {
+        String page = contract.GetAssetsWithPagination(contract.createContext(stub), PAGE_SIZE, nextAssetID());
+        stub.commit();
+        return page;
+    }
+}
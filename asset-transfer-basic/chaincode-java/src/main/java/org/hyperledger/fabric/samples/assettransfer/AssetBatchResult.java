@@ -0,0 +1,63 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.assettransfer;
+
+import java.util.Objects;
+
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+import com.owlike.genson.annotation.JsonProperty;
+
+@DataType()
+public final class AssetBatchResult {
+
+    public static final String OK = "OK";
+
+    @Property()
+    private final String assetID;
+
+    @Property()
+    private final String status;
+
+    public String getAssetID() {
+        return assetID;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public AssetBatchResult(@JsonProperty("assetID") final String assetID, @JsonProperty("status") final String status) {
+        this.assetID = assetID;
+        this.status = status;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+
+        AssetBatchResult other = (AssetBatchResult) obj;
+
+        return Objects.equals(getAssetID(), other.getAssetID()) && Objects.equals(getStatus(), other.getStatus());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getAssetID(), getStatus());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode()) + " [assetID=" + assetID + ", status="
+                + status + "]";
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.assettransfer;
+
+/**
+ * Converts assets to and from the bytes stored in world state.
+ */
+public interface AssetCodec {
+
+    /**
+     * Encodes an asset for storage in world state.
+     *
+     * @param asset the asset to encode
+     * @return the encoded asset
+     */
+    byte[] encode(Asset asset);
+
+    /**
+     * Decodes an asset previously written by {@link #encode(Asset)}.
+     *
+     * @param state the encoded asset
+     * @return the decoded asset
+     */
+    Asset decode(byte[] state);
+}
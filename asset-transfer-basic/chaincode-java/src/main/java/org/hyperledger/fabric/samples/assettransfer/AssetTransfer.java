@@ -4,9 +4,12 @@
 
 package org.hyperledger.fabric.samples.assettransfer;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-
+import java.util.Map;
 
 import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.contract.ContractInterface;
@@ -16,12 +19,15 @@ import org.hyperledger.fabric.contract.annotation.Default;
 import org.hyperledger.fabric.contract.annotation.Info;
 import org.hyperledger.fabric.contract.annotation.License;
 import org.hyperledger.fabric.contract.annotation.Transaction;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResponseMetadata;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
 import org.hyperledger.fabric.shim.ledger.KeyValue;
 import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
 
 import com.owlike.genson.Genson;
+import com.owlike.genson.JsonBindingException;
 
 @Contract(
         name = "basic",
@@ -39,11 +45,48 @@ import com.owlike.genson.Genson;
 @Default
 public final class AssetTransfer implements ContractInterface {
 
+    /** Environment variable selecting the format new asset state is written in: json (default) or binary. */
+    static final String STATE_FORMAT_ENV = "ASSET_STATE_FORMAT";
+
     private final Genson genson = new Genson();
+    private final AssetCodec jsonCodec = new JsonAssetCodec();
+    private final AssetCodec binaryCodec = new BinaryAssetCodec();
+    private final AssetCodec writeCodec;
 
     private enum AssetTransferErrors {
         ASSET_NOT_FOUND,
-        ASSET_ALREADY_EXISTS
+        ASSET_ALREADY_EXISTS,
+        INVALID_PAGE_SIZE,
+        INVALID_BATCH
+    }
+
+    /**
+     * Creates the contract, writing asset state in the format named by the {@value #STATE_FORMAT_ENV}
+     * environment variable.
+     */
+    public AssetTransfer() {
+        this(System.getenv(STATE_FORMAT_ENV));
+    }
+
+    AssetTransfer(final String stateFormat) {
+        if (stateFormat == null || stateFormat.isEmpty() || "json".equalsIgnoreCase(stateFormat)) {
+            writeCodec = jsonCodec;
+        } else if ("binary".equalsIgnoreCase(stateFormat)) {
+            writeCodec = binaryCodec;
+        } else {
+            throw new IllegalArgumentException("Unknown asset state format: " + stateFormat);
+        }
+    }
+
+    /**
+     * Creates a context with a world state cache for each transaction.
+     *
+     * @param stub the chaincode stub for the transaction
+     * @return the transaction context
+     */
+    @Override
+    public Context createContext(final ChaincodeStub stub) {
+        return new AssetTransferContext(stub);
     }
 
     /**
@@ -78,18 +121,16 @@ public final class AssetTransfer implements ContractInterface {
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public Asset CreateAsset(final Context ctx, final String assetID, final String color, final int size,
         final String owner, final int appraisedValue) {
-        ChaincodeStub stub = ctx.getStub();
+        StateCache state = stateOf(ctx);
 
-        if (AssetExists(ctx, assetID)) {
+        if (state.exists(assetID)) {
             String errorMessage = String.format("Asset %s already exists", assetID);
             System.out.println(errorMessage);
             throw new ChaincodeException(errorMessage, AssetTransferErrors.ASSET_ALREADY_EXISTS.toString());
         }
 
         Asset asset = new Asset(assetID, color, size, owner, appraisedValue);
-        //Use Genson to convert the Asset into string, sort it alphabetically and serialize it into a json string
-        String sortedJson = genson.serialize(asset);
-        stub.putStringState(assetID, sortedJson);
+        state.putState(assetID, writeCodec.encode(asset));
 
         return asset;
     }
@@ -103,16 +144,15 @@ public final class AssetTransfer implements ContractInterface {
      */
     @Transaction(intent = Transaction.TYPE.EVALUATE)
     public Asset ReadAsset(final Context ctx, final String assetID) {
-        ChaincodeStub stub = ctx.getStub();
-        String assetJSON = stub.getStringState(assetID);
+        byte[] assetState = stateOf(ctx).getState(assetID);
 
-        if (assetJSON == null || assetJSON.isEmpty()) {
+        if (assetState.length == 0) {
             String errorMessage = String.format("Asset %s does not exist", assetID);
             System.out.println(errorMessage);
             throw new ChaincodeException(errorMessage, AssetTransferErrors.ASSET_NOT_FOUND.toString());
         }
 
-        Asset asset = genson.deserialize(assetJSON, Asset.class);
+        Asset asset = decodeAsset(assetState);
         return asset;
     }
 
@@ -130,18 +170,16 @@ public final class AssetTransfer implements ContractInterface {
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public Asset UpdateAsset(final Context ctx, final String assetID, final String color, final int size,
         final String owner, final int appraisedValue) {
-        ChaincodeStub stub = ctx.getStub();
+        StateCache state = stateOf(ctx);
 
-        if (!AssetExists(ctx, assetID)) {
+        if (!state.exists(assetID)) {
             String errorMessage = String.format("Asset %s does not exist", assetID);
             System.out.println(errorMessage);
             throw new ChaincodeException(errorMessage, AssetTransferErrors.ASSET_NOT_FOUND.toString());
         }
 
         Asset newAsset = new Asset(assetID, color, size, owner, appraisedValue);
-        //Use Genson to convert the Asset into string, sort it alphabetically and serialize it into a json string
-        String sortedJson = genson.serialize(newAsset);
-        stub.putStringState(assetID, sortedJson);
+        state.putState(assetID, writeCodec.encode(newAsset));
         return newAsset;
     }
 
@@ -153,15 +191,15 @@ public final class AssetTransfer implements ContractInterface {
      */
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public void DeleteAsset(final Context ctx, final String assetID) {
-        ChaincodeStub stub = ctx.getStub();
+        StateCache state = stateOf(ctx);
 
-        if (!AssetExists(ctx, assetID)) {
+        if (!state.exists(assetID)) {
             String errorMessage = String.format("Asset %s does not exist", assetID);
             System.out.println(errorMessage);
             throw new ChaincodeException(errorMessage, AssetTransferErrors.ASSET_NOT_FOUND.toString());
         }
 
-        stub.delState(assetID);
+        state.delState(assetID);
     }
 
     /**
@@ -173,10 +211,7 @@ public final class AssetTransfer implements ContractInterface {
      */
     @Transaction(intent = Transaction.TYPE.EVALUATE)
     public boolean AssetExists(final Context ctx, final String assetID) {
-        ChaincodeStub stub = ctx.getStub();
-        String assetJSON = stub.getStringState(assetID);
-
-        return (assetJSON != null && !assetJSON.isEmpty());
+        return stateOf(ctx).exists(assetID);
     }
 
     /**
@@ -189,21 +224,19 @@ public final class AssetTransfer implements ContractInterface {
      */
     @Transaction(intent = Transaction.TYPE.SUBMIT)
     public String TransferAsset(final Context ctx, final String assetID, final String newOwner) {
-        ChaincodeStub stub = ctx.getStub();
-        String assetJSON = stub.getStringState(assetID);
+        StateCache state = stateOf(ctx);
+        byte[] assetState = state.getState(assetID);
 
-        if (assetJSON == null || assetJSON.isEmpty()) {
+        if (assetState.length == 0) {
             String errorMessage = String.format("Asset %s does not exist", assetID);
             System.out.println(errorMessage);
             throw new ChaincodeException(errorMessage, AssetTransferErrors.ASSET_NOT_FOUND.toString());
         }
 
-        Asset asset = genson.deserialize(assetJSON, Asset.class);
+        Asset asset = decodeAsset(assetState);
 
         Asset newAsset = new Asset(asset.getAssetID(), asset.getColor(), asset.getSize(), newOwner, asset.getAppraisedValue());
-        //Use a Genson to conver the Asset into string, sort it alphabetically and serialize it into a json string
-        String sortedJson = genson.serialize(newAsset);
-        stub.putStringState(assetID, sortedJson);
+        state.putState(assetID, writeCodec.encode(newAsset));
 
         return asset.getOwner();
     }
@@ -227,7 +260,7 @@ public final class AssetTransfer implements ContractInterface {
         QueryResultsIterator<KeyValue> results = stub.getStateByRange("", "");
 
         for (KeyValue result: results) {
-            Asset asset = genson.deserialize(result.getStringValue(), Asset.class);
+            Asset asset = decodeAsset(result.getValue());
             System.out.println(asset);
             queryResults.add(asset);
         }
@@ -236,4 +269,248 @@ public final class AssetTransfer implements ContractInterface {
 
         return response;
     }
+
+    /**
+     * Retrieves a page of assets from the ledger.
+     *
+     * <p>Assets stored as JSON are copied into the response as-is, so the page is built without
+     * deserializing and re-serializing each asset; binary encoded assets are converted to JSON.
+     * Pass the returned bookmark to fetch the next page; an empty bookmark starts from the first
+     * asset.
+     *
+     * @param ctx the transaction context
+     * @param pageSize the maximum number of assets to return
+     * @param bookmark the bookmark returned by the previous page, or empty for the first page
+     * @return JSON object with the assets, the number of records fetched and the bookmark for the next page
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String GetAssetsWithPagination(final Context ctx, final int pageSize, final String bookmark) {
+        ChaincodeStub stub = ctx.getStub();
+
+        if (pageSize <= 0) {
+            String errorMessage = String.format("Page size %d must be greater than zero", pageSize);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, AssetTransferErrors.INVALID_PAGE_SIZE.toString());
+        }
+
+        StringBuilder response = new StringBuilder("{\"records\":[");
+        try (QueryResultsIteratorWithMetadata<KeyValue> results =
+                stub.getStateByRangeWithPagination("", "", pageSize, bookmark)) {
+            boolean first = true;
+            for (KeyValue result: results) {
+                if (!first) {
+                    response.append(',');
+                }
+                appendAssetJson(response, result.getValue());
+                first = false;
+            }
+
+            QueryResponseMetadata metadata = results.getMetadata();
+            response.append("],\"fetchedRecordsCount\":").append(metadata.getFetchedRecordsCount())
+                    .append(",\"bookmark\":").append(genson.serialize(metadata.getBookmark()))
+                    .append('}');
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ChaincodeException("Failed to close the query results: " + e.getMessage());
+        }
+
+        return response.toString();
+    }
+
+    /**
+     * Creates a batch of new assets on the ledger in a single transaction.
+     *
+     * <p>Assets that already exist, including duplicates earlier in the same batch, are skipped and
+     * reported in the result rather than failing the whole batch.
+     *
+     * @param ctx the transaction context
+     * @param assetsJSON JSON array of the assets to create
+     * @return JSON array with the status of each asset, in request order
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public String CreateAssets(final Context ctx, final String assetsJSON) {
+        Asset[] assets = parseBatch(assetsJSON, Asset[].class);
+        AssetBatch batch = new AssetBatch(stateOf(ctx));
+        List<AssetBatchResult> results = new ArrayList<>(assets.length);
+
+        for (Asset asset : assets) {
+            if (asset == null || isEmpty(asset.getAssetID())) {
+                throw invalidBatch("Each asset must have an assetID");
+            }
+
+            String assetID = asset.getAssetID();
+            if (batch.exists(assetID)) {
+                results.add(new AssetBatchResult(assetID, AssetTransferErrors.ASSET_ALREADY_EXISTS.toString()));
+                continue;
+            }
+
+            batch.put(assetID, writeCodec.encode(asset));
+            results.add(new AssetBatchResult(assetID, AssetBatchResult.OK));
+        }
+
+        batch.commit();
+        return genson.serialize(results);
+    }
+
+    /**
+     * Changes the owner of a batch of assets on the ledger in a single transaction.
+     *
+     * <p>Each transfer is encoded as an {@code [assetID, newOwner]} pair. Assets that do not exist are
+     * skipped and reported in the result; an asset transferred more than once ends with the last owner.
+     *
+     * @param ctx the transaction context
+     * @param transfersJSON JSON array of {@code [assetID, newOwner]} pairs
+     * @return JSON array with the status of each transfer, in request order
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public String TransferAssets(final Context ctx, final String transfersJSON) {
+        String[][] transfers = parseBatch(transfersJSON, String[][].class);
+        AssetBatch batch = new AssetBatch(stateOf(ctx));
+        List<AssetBatchResult> results = new ArrayList<>(transfers.length);
+
+        for (String[] transfer : transfers) {
+            if (transfer == null || transfer.length != 2 || isEmpty(transfer[0])) {
+                throw invalidBatch("Each transfer must be an [assetID, newOwner] pair");
+            }
+
+            String assetID = transfer[0];
+            if (!batch.exists(assetID)) {
+                results.add(new AssetBatchResult(assetID, AssetTransferErrors.ASSET_NOT_FOUND.toString()));
+                continue;
+            }
+
+            Asset asset = decodeAsset(batch.getState(assetID));
+            Asset newAsset = new Asset(asset.getAssetID(), asset.getColor(), asset.getSize(), transfer[1], asset.getAppraisedValue());
+            batch.put(assetID, writeCodec.encode(newAsset));
+            results.add(new AssetBatchResult(assetID, AssetBatchResult.OK));
+        }
+
+        batch.commit();
+        return genson.serialize(results);
+    }
+
+    /**
+     * Deletes a batch of assets on the ledger in a single transaction.
+     *
+     * <p>Assets that do not exist, including duplicates earlier in the same batch, are skipped and
+     * reported in the result.
+     *
+     * @param ctx the transaction context
+     * @param assetIDsJSON JSON array of the IDs of the assets to delete
+     * @return JSON array with the status of each asset, in request order
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public String DeleteAssets(final Context ctx, final String assetIDsJSON) {
+        String[] assetIDs = parseBatch(assetIDsJSON, String[].class);
+        AssetBatch batch = new AssetBatch(stateOf(ctx));
+        List<AssetBatchResult> results = new ArrayList<>(assetIDs.length);
+
+        for (String assetID : assetIDs) {
+            if (isEmpty(assetID)) {
+                throw invalidBatch("Each asset ID must be non-empty");
+            }
+
+            if (!batch.exists(assetID)) {
+                results.add(new AssetBatchResult(assetID, AssetTransferErrors.ASSET_NOT_FOUND.toString()));
+                continue;
+            }
+
+            batch.delete(assetID);
+            results.add(new AssetBatchResult(assetID, AssetBatchResult.OK));
+        }
+
+        batch.commit();
+        return genson.serialize(results);
+    }
+
+    private <T> T parseBatch(final String json, final Class<T> type) {
+        T batch;
+        try {
+            batch = genson.deserialize(json, type);
+        } catch (JsonBindingException e) {
+            throw invalidBatch("Batch is not valid JSON: " + e.getMessage());
+        }
+
+        if (batch == null) {
+            throw invalidBatch("Batch must not be empty");
+        }
+
+        return batch;
+    }
+
+    private static boolean isEmpty(final String value) {
+        return value == null || value.isEmpty();
+    }
+
+    private ChaincodeException invalidBatch(final String errorMessage) {
+        System.out.println(errorMessage);
+        return new ChaincodeException(errorMessage, AssetTransferErrors.INVALID_BATCH.toString());
+    }
+
+    private Asset decodeAsset(final byte[] state) {
+        return BinaryAssetCodec.isEncoded(state) ? binaryCodec.decode(state) : jsonCodec.decode(state);
+    }
+
+    private void appendAssetJson(final StringBuilder json, final byte[] state) {
+        if (BinaryAssetCodec.isEncoded(state)) {
+            json.append(genson.serialize(binaryCodec.decode(state)));
+        } else {
+            json.append(new String(state, UTF_8));
+        }
+    }
+
+    private static StateCache stateOf(final Context ctx) {
+        if (ctx instanceof AssetTransferContext) {
+            return ((AssetTransferContext) ctx).getStateCache();
+        }
+        return new StateCache(ctx.getStub());
+    }
+
+    /**
+     * Stages the writes of a batch so that each key is written at most once, however many operations
+     * in the batch touch it. Reads see the staged values and otherwise go through the state cache.
+     */
+    private static final class AssetBatch {
+
+        private final StateCache state;
+        private final Map<String, byte[]> changes = new LinkedHashMap<>();
+
+        AssetBatch(final StateCache state) {
+            this.state = state;
+        }
+
+        byte[] getState(final String key) {
+            if (changes.containsKey(key)) {
+                byte[] value = changes.get(key);
+                return value == null ? new byte[0] : value;
+            }
+            return state.getState(key);
+        }
+
+        boolean exists(final String key) {
+            if (changes.containsKey(key)) {
+                return changes.get(key) != null;
+            }
+            return state.exists(key);
+        }
+
+        void put(final String key, final byte[] value) {
+            changes.put(key, value);
+        }
+
+        void delete(final String key) {
+            changes.put(key, null);
+        }
+
+        void commit() {
+            for (Map.Entry<String, byte[]> change : changes.entrySet()) {
+                if (change.getValue() == null) {
+                    state.delState(change.getKey());
+                } else {
+                    state.putState(change.getKey(), change.getValue());
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,31 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.assettransfer;
+
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+
+/**
+ * Transaction context for the asset transfer contract, adding a world state cache that lives for
+ * the duration of a single transaction.
+ */
+public class AssetTransferContext extends Context {
+
+    private final StateCache stateCache;
+
+    public AssetTransferContext(final ChaincodeStub stub) {
+        super(stub);
+        this.stateCache = new StateCache(stub);
+    }
+
+    /**
+     * Returns the world state cache for this transaction.
+     *
+     * @return the state cache
+     */
+    public StateCache getStateCache() {
+        return stateCache;
+    }
+}
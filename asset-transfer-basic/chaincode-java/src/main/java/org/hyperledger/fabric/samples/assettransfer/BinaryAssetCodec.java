@@ -0,0 +1,161 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.assettransfer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Stores assets in a compact binary format.
+ *
+ * <p>The value starts with {@link #FORMAT_TAG}, which can never be the first byte of a JSON value,
+ * followed by the asset ID, color, size, owner and appraised value. Strings are written as a varint
+ * of the UTF-8 length plus one (zero meaning null) followed by the UTF-8 bytes. Integers are written
+ * as zigzag varints, so small values of either sign take a single byte.
+ */
+public final class BinaryAssetCodec implements AssetCodec {
+
+    /** First byte of every value written by this codec. */
+    public static final byte FORMAT_TAG = 0x01;
+
+    private static final int VARINT_PAYLOAD_BITS = 7;
+    private static final int VARINT_PAYLOAD_MASK = 0x7F;
+    private static final int VARINT_CONTINUATION = 0x80;
+    private static final int MAX_VARINT_SHIFT = 28;
+
+    /**
+     * Checks whether a state value was written by this codec.
+     *
+     * @param state the state value
+     * @return true if the value starts with the binary format tag
+     */
+    public static boolean isEncoded(final byte[] state) {
+        return state.length > 0 && state[0] == FORMAT_TAG;
+    }
+
+    @Override
+    public byte[] encode(final Asset asset) {
+        byte[] assetID = utf8(asset.getAssetID());
+        byte[] color = utf8(asset.getColor());
+        byte[] owner = utf8(asset.getOwner());
+        int size = zigzag(asset.getSize());
+        int appraisedValue = zigzag(asset.getAppraisedValue());
+
+        byte[] state = new byte[1 + stringLength(assetID) + stringLength(color) + varintLength(size)
+                + stringLength(owner) + varintLength(appraisedValue)];
+        state[0] = FORMAT_TAG;
+        int position = 1;
+        position = writeString(state, position, assetID);
+        position = writeString(state, position, color);
+        position = writeVarint(state, position, size);
+        position = writeString(state, position, owner);
+        writeVarint(state, position, appraisedValue);
+
+        return state;
+    }
+
+    @Override
+    public Asset decode(final byte[] state) {
+        if (!isEncoded(state)) {
+            throw new IllegalArgumentException("State is not a binary encoded asset");
+        }
+
+        Reader reader = new Reader(state);
+        String assetID = reader.readString();
+        String color = reader.readString();
+        int size = unzigzag(reader.readVarint());
+        String owner = reader.readString();
+        int appraisedValue = unzigzag(reader.readVarint());
+
+        return new Asset(assetID, color, size, owner, appraisedValue);
+    }
+
+    private static byte[] utf8(final String value) {
+        return value == null ? null : value.getBytes(UTF_8);
+    }
+
+    private static int zigzag(final int value) {
+        return (value << 1) ^ (value >> (Integer.SIZE - 1));
+    }
+
+    private static int unzigzag(final int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varintLength(final int value) {
+        int length = 1;
+        for (int remaining = value >>> VARINT_PAYLOAD_BITS; remaining != 0; remaining >>>= VARINT_PAYLOAD_BITS) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int stringLength(final byte[] value) {
+        return value == null ? 1 : varintLength(value.length + 1) + value.length;
+    }
+
+    private static int writeVarint(final byte[] buffer, final int offset, final int value) {
+        int position = offset;
+        int remaining = value;
+        while ((remaining & ~VARINT_PAYLOAD_MASK) != 0) {
+            buffer[position++] = (byte) ((remaining & VARINT_PAYLOAD_MASK) | VARINT_CONTINUATION);
+            remaining >>>= VARINT_PAYLOAD_BITS;
+        }
+        buffer[position++] = (byte) remaining;
+        return position;
+    }
+
+    private static int writeString(final byte[] buffer, final int offset, final byte[] value) {
+        if (value == null) {
+            return writeVarint(buffer, offset, 0);
+        }
+
+        int position = writeVarint(buffer, offset, value.length + 1);
+        System.arraycopy(value, 0, buffer, position, value.length);
+        return position + value.length;
+    }
+
+    private static final class Reader {
+
+        private final byte[] buffer;
+        private int position = 1;
+
+        Reader(final byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift <= MAX_VARINT_SHIFT; shift += VARINT_PAYLOAD_BITS) {
+                byte b = next();
+                value |= (b & VARINT_PAYLOAD_MASK) << shift;
+                if ((b & VARINT_CONTINUATION) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in binary encoded asset");
+        }
+
+        String readString() {
+            int length = readVarint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > buffer.length - position) {
+                throw new IllegalArgumentException("Truncated string in binary encoded asset");
+            }
+
+            String value = new String(buffer, position, length, UTF_8);
+            position += length;
+            return value;
+        }
+
+        private byte next() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("Truncated binary encoded asset");
+            }
+            return buffer[position++];
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.assettransfer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.owlike.genson.Genson;
+
+/**
+ * Stores assets as JSON with the properties sorted alphabetically, which keeps the values readable
+ * by CouchDB rich queries.
+ */
+public final class JsonAssetCodec implements AssetCodec {
+
+    private final Genson genson = new Genson();
+
+    @Override
+    public byte[] encode(final Asset asset) {
+        return genson.serialize(asset).getBytes(UTF_8);
+    }
+
+    @Override
+    public Asset decode(final byte[] state) {
+        return genson.deserialize(state, Asset.class);
+    }
+}
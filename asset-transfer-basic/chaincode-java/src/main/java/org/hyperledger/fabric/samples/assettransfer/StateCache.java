@@ -0,0 +1,78 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.assettransfer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hyperledger.fabric.shim.ChaincodeStub;
+
+/**
+ * Read-through cache of world state for a single transaction.
+ *
+ * <p>Each key is fetched from the peer at most once. Writes go straight to the stub and are also
+ * recorded in the cache, so later reads in the same transaction see the written value rather than
+ * the value committed before the transaction started.
+ */
+public final class StateCache {
+
+    private static final byte[] ABSENT = new byte[0];
+
+    private final ChaincodeStub stub;
+    private final Map<String, byte[]> values = new HashMap<>();
+
+    public StateCache(final ChaincodeStub stub) {
+        this.stub = stub;
+    }
+
+    /**
+     * Returns the value of a key, fetching it from the peer only on the first read.
+     *
+     * @param key the key to read
+     * @return the value, or an empty array if the key does not exist
+     */
+    public byte[] getState(final String key) {
+        byte[] value = values.get(key);
+        if (value == null) {
+            value = stub.getState(key);
+            if (value == null) {
+                value = ABSENT;
+            }
+            values.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Checks whether a key exists without decoding its value.
+     *
+     * @param key the key to check
+     * @return true if the key has a non-empty value
+     */
+    public boolean exists(final String key) {
+        return getState(key).length > 0;
+    }
+
+    /**
+     * Writes a value to the ledger and caches it for later reads in this transaction.
+     *
+     * @param key the key to write
+     * @param value the value to write
+     */
+    public void putState(final String key, final byte[] value) {
+        stub.putState(key, value);
+        values.put(key, value);
+    }
+
+    /**
+     * Deletes a key from the ledger and records it as absent for later reads in this transaction.
+     *
+     * @param key the key to delete
+     */
+    public void delState(final String key) {
+        stub.delState(key);
+        values.put(key, ABSENT);
+    }
+}
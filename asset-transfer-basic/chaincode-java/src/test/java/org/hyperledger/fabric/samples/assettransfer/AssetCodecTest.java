@@ -0,0 +1,95 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.assettransfer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.ThrowableAssert.catchThrowable;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public final class AssetCodecTest {
+
+    @Nested
+    class Json {
+
+        @Test
+        public void encodesSortedJson() {
+            AssetCodec codec = new JsonAssetCodec();
+
+            byte[] state = codec.encode(new Asset("asset1", "blue", 5, "Tomoko", 300));
+
+            assertThat(new String(state, UTF_8))
+                    .isEqualTo("{\"appraisedValue\":300,\"assetID\":\"asset1\",\"color\":\"blue\",\"owner\":\"Tomoko\",\"size\":5}");
+        }
+
+        @Test
+        public void roundTrips() {
+            AssetCodec codec = new JsonAssetCodec();
+            Asset asset = new Asset("asset1", "blue", 45, "Siobhán", 60);
+
+            assertThat(codec.decode(codec.encode(asset))).isEqualTo(asset);
+        }
+    }
+
+    @Nested
+    class Binary {
+
+        @Test
+        public void encodesCompactTaggedValue() {
+            AssetCodec codec = new BinaryAssetCodec();
+
+            byte[] state = codec.encode(new Asset("asset1", "blue", 5, "Tomoko", 300));
+
+            assertThat(state).containsExactly(
+                    0x01,
+                    0x07, 'a', 's', 's', 'e', 't', '1',
+                    0x05, 'b', 'l', 'u', 'e',
+                    0x0A,
+                    0x07, 'T', 'o', 'm', 'o', 'k', 'o',
+                    0xD8, 0x04);
+            assertThat(BinaryAssetCodec.isEncoded(state)).isTrue();
+        }
+
+        @Test
+        public void roundTripsUnicodeNullsAndExtremeValues() {
+            AssetCodec codec = new BinaryAssetCodec();
+            Asset asset = new Asset("asset1", null, Integer.MIN_VALUE, "Siobhán", Integer.MAX_VALUE);
+
+            assertThat(codec.decode(codec.encode(asset))).isEqualTo(asset);
+        }
+
+        @Test
+        public void isSmallerThanJson() {
+            Asset asset = new Asset("asset1", "blue", 5, "Tomoko", 300);
+
+            assertThat(new BinaryAssetCodec().encode(asset).length).isLessThan(new JsonAssetCodec().encode(asset).length / 2);
+        }
+
+        @Test
+        public void doesNotRecogniseJson() {
+            byte[] json = new JsonAssetCodec().encode(new Asset("asset1", "blue", 5, "Tomoko", 300));
+
+            assertThat(BinaryAssetCodec.isEncoded(json)).isFalse();
+            assertThat(BinaryAssetCodec.isEncoded(new byte[0])).isFalse();
+        }
+
+        @Test
+        public void rejectsTruncatedValue() {
+            AssetCodec codec = new BinaryAssetCodec();
+            byte[] state = codec.encode(new Asset("asset1", "blue", 5, "Tomoko", 300));
+
+            Throwable thrown = catchThrowable(() -> {
+                codec.decode(Arrays.copyOf(state, state.length - 1));
+            });
+
+            assertThat(thrown).isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Truncated binary encoded asset");
+        }
+    }
+}
@@ -4,10 +4,13 @@
 
 package org.hyperledger.fabric.samples.assettransfer;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.ThrowableAssert.catchThrowable;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
@@ -16,10 +19,14 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResponseMetadata;
+import org.hyperledger.fabric.samples.testing.InMemoryChaincodeStub;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
 import org.hyperledger.fabric.shim.ledger.KeyValue;
 import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
+import org.json.JSONObject;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.mockito.InOrder;
@@ -89,6 +96,38 @@ public final class AssetTransferTest {
 
     }
 
+    private final class MockAssetResultsIteratorWithMetadata implements QueryResultsIteratorWithMetadata<KeyValue> {
+
+        private final List<KeyValue> assetList;
+        private final String bookmark;
+        private boolean closed;
+
+        MockAssetResultsIteratorWithMetadata(final List<KeyValue> assetList, final String bookmark) {
+            super();
+            this.assetList = assetList;
+            this.bookmark = bookmark;
+        }
+
+        @Override
+        public Iterator<KeyValue> iterator() {
+            return assetList.iterator();
+        }
+
+        @Override
+        public QueryResponseMetadata getMetadata() {
+            return QueryResponseMetadata.newBuilder()
+                    .setFetchedRecordsCount(assetList.size())
+                    .setBookmark(bookmark)
+                    .build();
+        }
+
+        @Override
+        public void close() throws Exception {
+            closed = true;
+        }
+
+    }
+
     @Test
     public void invokeUnknownTransaction() {
         AssetTransfer contract = new AssetTransfer();
@@ -114,8 +153,8 @@ public final class AssetTransferTest {
             Context ctx = mock(Context.class);
             ChaincodeStub stub = mock(ChaincodeStub.class);
             when(ctx.getStub()).thenReturn(stub);
-            when(stub.getStringState("asset1"))
-                    .thenReturn("{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 5, \"owner\": \"Tomoko\", \"appraisedValue\": 300 }");
+            when(stub.getState("asset1"))
+                    .thenReturn("{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 5, \"owner\": \"Tomoko\", \"appraisedValue\": 300 }".getBytes(UTF_8));
 
             Asset asset = contract.ReadAsset(ctx, "asset1");
 
@@ -128,7 +167,7 @@ public final class AssetTransferTest {
             Context ctx = mock(Context.class);
             ChaincodeStub stub = mock(ChaincodeStub.class);
             when(ctx.getStub()).thenReturn(stub);
-            when(stub.getStringState("asset1")).thenReturn("");
+            when(stub.getState("asset1")).thenReturn(new byte[0]);
 
             Throwable thrown = catchThrowable(() -> {
                 contract.ReadAsset(ctx, "asset1");
@@ -150,11 +189,11 @@ public final class AssetTransferTest {
         contract.InitLedger(ctx);
 
         InOrder inOrder = inOrder(stub);
-        inOrder.verify(stub).putStringState("asset1", "{\"appraisedValue\":300,\"assetID\":\"asset1\",\"color\":\"blue\",\"owner\":\"Tomoko\",\"size\":5}");
-        inOrder.verify(stub).putStringState("asset2", "{\"appraisedValue\":400,\"assetID\":\"asset2\",\"color\":\"red\",\"owner\":\"Brad\",\"size\":5}");
-        inOrder.verify(stub).putStringState("asset3", "{\"appraisedValue\":500,\"assetID\":\"asset3\",\"color\":\"green\",\"owner\":\"Jin Soo\",\"size\":10}");
-        inOrder.verify(stub).putStringState("asset4", "{\"appraisedValue\":600,\"assetID\":\"asset4\",\"color\":\"yellow\",\"owner\":\"Max\",\"size\":10}");
-        inOrder.verify(stub).putStringState("asset5", "{\"appraisedValue\":700,\"assetID\":\"asset5\",\"color\":\"black\",\"owner\":\"Adrian\",\"size\":15}");
+        inOrder.verify(stub).putState("asset1", "{\"appraisedValue\":300,\"assetID\":\"asset1\",\"color\":\"blue\",\"owner\":\"Tomoko\",\"size\":5}".getBytes(UTF_8));
+        inOrder.verify(stub).putState("asset2", "{\"appraisedValue\":400,\"assetID\":\"asset2\",\"color\":\"red\",\"owner\":\"Brad\",\"size\":5}".getBytes(UTF_8));
+        inOrder.verify(stub).putState("asset3", "{\"appraisedValue\":500,\"assetID\":\"asset3\",\"color\":\"green\",\"owner\":\"Jin Soo\",\"size\":10}".getBytes(UTF_8));
+        inOrder.verify(stub).putState("asset4", "{\"appraisedValue\":600,\"assetID\":\"asset4\",\"color\":\"yellow\",\"owner\":\"Max\",\"size\":10}".getBytes(UTF_8));
+        inOrder.verify(stub).putState("asset5", "{\"appraisedValue\":700,\"assetID\":\"asset5\",\"color\":\"black\",\"owner\":\"Adrian\",\"size\":15}".getBytes(UTF_8));
 
     }
 
@@ -167,8 +206,8 @@ public final class AssetTransferTest {
             Context ctx = mock(Context.class);
             ChaincodeStub stub = mock(ChaincodeStub.class);
             when(ctx.getStub()).thenReturn(stub);
-            when(stub.getStringState("asset1"))
-                    .thenReturn("{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 5, \"owner\": \"Tomoko\", \"appraisedValue\": 300 }");
+            when(stub.getState("asset1"))
+                    .thenReturn("{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 5, \"owner\": \"Tomoko\", \"appraisedValue\": 300 }".getBytes(UTF_8));
 
             Throwable thrown = catchThrowable(() -> {
                 contract.CreateAsset(ctx, "asset1", "blue", 45, "Siobhán", 60);
@@ -185,7 +224,7 @@ public final class AssetTransferTest {
             Context ctx = mock(Context.class);
             ChaincodeStub stub = mock(ChaincodeStub.class);
             when(ctx.getStub()).thenReturn(stub);
-            when(stub.getStringState("asset1")).thenReturn("");
+            when(stub.getState("asset1")).thenReturn(new byte[0]);
 
             Asset asset = contract.CreateAsset(ctx, "asset1", "blue", 45, "Siobhán", 60);
 
@@ -212,6 +251,63 @@ public final class AssetTransferTest {
 
     }
 
+    @Nested
+    class InvokeGetAssetsWithPaginationTransaction {
+
+        @Test
+        public void whenPageHasAssets() {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            List<KeyValue> page = new ArrayList<KeyValue>();
+            page.add(new MockKeyValue("asset1",
+                    "{\"appraisedValue\":300,\"assetID\":\"asset1\",\"color\":\"blue\",\"owner\":\"Tomoko\",\"size\":5}"));
+            page.add(new MockKeyValue("asset2",
+                    "{\"appraisedValue\":400,\"assetID\":\"asset2\",\"color\":\"red\",\"owner\":\"Brad\",\"size\":5}"));
+            MockAssetResultsIteratorWithMetadata results = new MockAssetResultsIteratorWithMetadata(page, "asset3");
+            when(stub.getStateByRangeWithPagination("", "", 2, "")).thenReturn(results);
+
+            String assets = contract.GetAssetsWithPagination(ctx, 2, "");
+
+            assertThat(assets).isEqualTo("{\"records\":["
+                    + "{\"appraisedValue\":300,\"assetID\":\"asset1\",\"color\":\"blue\",\"owner\":\"Tomoko\",\"size\":5},"
+                    + "{\"appraisedValue\":400,\"assetID\":\"asset2\",\"color\":\"red\",\"owner\":\"Brad\",\"size\":5}"
+                    + "],\"fetchedRecordsCount\":2,\"bookmark\":\"asset3\"}");
+            assertThat(results.closed).isTrue();
+        }
+
+        @Test
+        public void whenPageIsEmpty() {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            when(stub.getStateByRangeWithPagination("", "", 10, "asset7"))
+                    .thenReturn(new MockAssetResultsIteratorWithMetadata(new ArrayList<KeyValue>(), ""));
+
+            String assets = contract.GetAssetsWithPagination(ctx, 10, "asset7");
+
+            assertThat(assets).isEqualTo("{\"records\":[],\"fetchedRecordsCount\":0,\"bookmark\":\"\"}");
+        }
+
+        @Test
+        public void whenPageSizeIsInvalid() {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+
+            Throwable thrown = catchThrowable(() -> {
+                contract.GetAssetsWithPagination(ctx, 0, "");
+            });
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Page size 0 must be greater than zero");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("INVALID_PAGE_SIZE".getBytes());
+        }
+    }
+
     @Nested
     class TransferAssetTransaction {
 
@@ -221,8 +317,8 @@ public final class AssetTransferTest {
             Context ctx = mock(Context.class);
             ChaincodeStub stub = mock(ChaincodeStub.class);
             when(ctx.getStub()).thenReturn(stub);
-            when(stub.getStringState("asset1"))
-                    .thenReturn("{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 5, \"owner\": \"Tomoko\", \"appraisedValue\": 300 }");
+            when(stub.getState("asset1"))
+                    .thenReturn("{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 5, \"owner\": \"Tomoko\", \"appraisedValue\": 300 }".getBytes(UTF_8));
 
             String oldOwner = contract.TransferAsset(ctx, "asset1", "Dr Evil");
 
@@ -235,7 +331,7 @@ public final class AssetTransferTest {
             Context ctx = mock(Context.class);
             ChaincodeStub stub = mock(ChaincodeStub.class);
             when(ctx.getStub()).thenReturn(stub);
-            when(stub.getStringState("asset1")).thenReturn("");
+            when(stub.getState("asset1")).thenReturn(new byte[0]);
 
             Throwable thrown = catchThrowable(() -> {
                 contract.TransferAsset(ctx, "asset1", "Dr Evil");
@@ -256,8 +352,8 @@ public final class AssetTransferTest {
             Context ctx = mock(Context.class);
             ChaincodeStub stub = mock(ChaincodeStub.class);
             when(ctx.getStub()).thenReturn(stub);
-            when(stub.getStringState("asset1"))
-                    .thenReturn("{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 45, \"owner\": \"Arturo\", \"appraisedValue\": 60 }");
+            when(stub.getState("asset1"))
+                    .thenReturn("{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 45, \"owner\": \"Arturo\", \"appraisedValue\": 60 }".getBytes(UTF_8));
 
             Asset asset = contract.UpdateAsset(ctx, "asset1", "pink", 45, "Arturo", 600);
 
@@ -270,7 +366,7 @@ public final class AssetTransferTest {
             Context ctx = mock(Context.class);
             ChaincodeStub stub = mock(ChaincodeStub.class);
             when(ctx.getStub()).thenReturn(stub);
-            when(stub.getStringState("asset1")).thenReturn("");
+            when(stub.getState("asset1")).thenReturn(new byte[0]);
 
             Throwable thrown = catchThrowable(() -> {
                 contract.TransferAsset(ctx, "asset1", "Alex");
@@ -291,7 +387,7 @@ public final class AssetTransferTest {
             Context ctx = mock(Context.class);
             ChaincodeStub stub = mock(ChaincodeStub.class);
             when(ctx.getStub()).thenReturn(stub);
-            when(stub.getStringState("asset1")).thenReturn("");
+            when(stub.getState("asset1")).thenReturn(new byte[0]);
 
             Throwable thrown = catchThrowable(() -> {
                 contract.DeleteAsset(ctx, "asset1");
@@ -302,4 +398,261 @@ public final class AssetTransferTest {
             assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("ASSET_NOT_FOUND".getBytes());
         }
     }
+
+    @Nested
+    class BatchTransactions {
+
+        @Test
+        public void createAssetsSkipsExistingAndDuplicateAssets() {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            when(stub.getState("asset1"))
+                    .thenReturn("{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 5, \"owner\": \"Tomoko\", \"appraisedValue\": 300 }".getBytes(UTF_8));
+            when(stub.getState("asset2")).thenReturn(new byte[0]);
+
+            String results = contract.CreateAssets(ctx, "["
+                    + "{\"assetID\":\"asset1\",\"color\":\"blue\",\"size\":5,\"owner\":\"Tomoko\",\"appraisedValue\":300},"
+                    + "{\"assetID\":\"asset2\",\"color\":\"red\",\"size\":5,\"owner\":\"Brad\",\"appraisedValue\":400},"
+                    + "{\"assetID\":\"asset2\",\"color\":\"red\",\"size\":5,\"owner\":\"Max\",\"appraisedValue\":400}]");
+
+            assertThat(results).isEqualTo("[{\"assetID\":\"asset1\",\"status\":\"ASSET_ALREADY_EXISTS\"},"
+                    + "{\"assetID\":\"asset2\",\"status\":\"OK\"},"
+                    + "{\"assetID\":\"asset2\",\"status\":\"ASSET_ALREADY_EXISTS\"}]");
+            verify(stub, times(1)).getState("asset2");
+            verify(stub, times(1)).putState("asset2",
+                    "{\"appraisedValue\":400,\"assetID\":\"asset2\",\"color\":\"red\",\"owner\":\"Brad\",\"size\":5}".getBytes(UTF_8));
+        }
+
+        @Test
+        public void transferAssetsWritesEachAssetOnce() {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            when(stub.getState("asset1"))
+                    .thenReturn("{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 5, \"owner\": \"Tomoko\", \"appraisedValue\": 300 }".getBytes(UTF_8));
+            when(stub.getState("asset9")).thenReturn(new byte[0]);
+
+            String results = contract.TransferAssets(ctx, "[[\"asset1\",\"Brad\"],[\"asset9\",\"Max\"],[\"asset1\",\"Jin Soo\"]]");
+
+            assertThat(results).isEqualTo("[{\"assetID\":\"asset1\",\"status\":\"OK\"},"
+                    + "{\"assetID\":\"asset9\",\"status\":\"ASSET_NOT_FOUND\"},"
+                    + "{\"assetID\":\"asset1\",\"status\":\"OK\"}]");
+            verify(stub, times(1)).getState("asset1");
+            verify(stub, times(1)).putState("asset1",
+                    "{\"appraisedValue\":300,\"assetID\":\"asset1\",\"color\":\"blue\",\"owner\":\"Jin Soo\",\"size\":5}".getBytes(UTF_8));
+        }
+
+        @Test
+        public void deleteAssetsSkipsMissingAndDuplicateAssets() {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            when(stub.getState("asset1"))
+                    .thenReturn("{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 5, \"owner\": \"Tomoko\", \"appraisedValue\": 300 }".getBytes(UTF_8));
+            when(stub.getState("asset2")).thenReturn(new byte[0]);
+
+            String results = contract.DeleteAssets(ctx, "[\"asset1\",\"asset2\",\"asset1\"]");
+
+            assertThat(results).isEqualTo("[{\"assetID\":\"asset1\",\"status\":\"OK\"},"
+                    + "{\"assetID\":\"asset2\",\"status\":\"ASSET_NOT_FOUND\"},"
+                    + "{\"assetID\":\"asset1\",\"status\":\"ASSET_NOT_FOUND\"}]");
+            verify(stub, times(1)).getState("asset1");
+            verify(stub, times(1)).delState("asset1");
+        }
+
+        @Test
+        public void whenBatchIsMalformed() {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+
+            Throwable thrown = catchThrowable(() -> {
+                contract.TransferAssets(ctx, "[[\"asset1\"]]");
+            });
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Each transfer must be an [assetID, newOwner] pair");
+            assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo("INVALID_BATCH".getBytes());
+        }
+    }
+
+    @Nested
+    class StateCacheRoundTrips {
+
+        private void readAndTransfer(final AssetTransfer contract, final Context ctx) {
+            contract.AssetExists(ctx, "asset1");
+            contract.ReadAsset(ctx, "asset1");
+            contract.TransferAsset(ctx, "asset1", "Dr Evil");
+            Asset asset = contract.ReadAsset(ctx, "asset1");
+
+            assertThat(asset.getOwner()).isEqualTo("Dr Evil");
+        }
+
+        @Test
+        public void readsEachKeyOncePerTransaction() {
+            AssetTransfer contract = new AssetTransfer();
+            AssetTransferContext ctx = mock(AssetTransferContext.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            when(ctx.getStateCache()).thenReturn(new StateCache(stub));
+            when(stub.getState("asset1"))
+                    .thenReturn("{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 5, \"owner\": \"Tomoko\", \"appraisedValue\": 300 }".getBytes(UTF_8));
+
+            readAndTransfer(contract, ctx);
+
+            verify(stub, times(1)).getState("asset1");
+            verify(stub, times(1)).putState("asset1",
+                    "{\"appraisedValue\":300,\"assetID\":\"asset1\",\"color\":\"blue\",\"owner\":\"Dr Evil\",\"size\":5}".getBytes(UTF_8));
+        }
+
+        @Test
+        public void readsEachKeyPerCallWithoutTransactionContext() {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            when(stub.getState("asset1"))
+                    .thenReturn("{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 5, \"owner\": \"Tomoko\", \"appraisedValue\": 300 }".getBytes(UTF_8),
+                            "{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 5, \"owner\": \"Tomoko\", \"appraisedValue\": 300 }".getBytes(UTF_8),
+                            "{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 5, \"owner\": \"Tomoko\", \"appraisedValue\": 300 }".getBytes(UTF_8),
+                            "{ \"assetID\": \"asset1\", \"color\": \"blue\", \"size\": 5, \"owner\": \"Dr Evil\", \"appraisedValue\": 300 }".getBytes(UTF_8));
+
+            readAndTransfer(contract, ctx);
+
+            verify(stub, times(4)).getState("asset1");
+        }
+
+        @Test
+        public void servesCreatedAssetFromCache() {
+            AssetTransfer contract = new AssetTransfer();
+            AssetTransferContext ctx = mock(AssetTransferContext.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            when(ctx.getStateCache()).thenReturn(new StateCache(stub));
+            when(stub.getState("asset1")).thenReturn(new byte[0]);
+
+            contract.CreateAsset(ctx, "asset1", "blue", 5, "Tomoko", 300);
+            contract.UpdateAsset(ctx, "asset1", "red", 5, "Tomoko", 300);
+            contract.DeleteAsset(ctx, "asset1");
+
+            assertThat(contract.AssetExists(ctx, "asset1")).isFalse();
+            verify(stub, times(1)).getState("asset1");
+            verify(stub, times(1)).delState("asset1");
+        }
+    }
+
+    @Nested
+    class BinaryStateFormat {
+
+        @Test
+        public void writesBinaryState() {
+            AssetTransfer contract = new AssetTransfer("binary");
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            when(stub.getState("asset1")).thenReturn(new byte[0]);
+
+            Asset asset = contract.CreateAsset(ctx, "asset1", "blue", 5, "Tomoko", 300);
+
+            verify(stub).putState("asset1", new BinaryAssetCodec().encode(asset));
+        }
+
+        @Test
+        public void readsBothFormats() {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            when(stub.getState("asset1")).thenReturn(new BinaryAssetCodec().encode(new Asset("asset1", "blue", 5, "Tomoko", 300)));
+            when(stub.getState("asset2")).thenReturn(new JsonAssetCodec().encode(new Asset("asset2", "red", 5, "Brad", 400)));
+
+            assertThat(contract.ReadAsset(ctx, "asset1")).isEqualTo(new Asset("asset1", "blue", 5, "Tomoko", 300));
+            assertThat(contract.ReadAsset(ctx, "asset2")).isEqualTo(new Asset("asset2", "red", 5, "Brad", 400));
+        }
+
+        @Test
+        public void returnsJsonForBinaryStateInPages() {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            KeyValue binaryAsset = mock(KeyValue.class);
+            when(binaryAsset.getValue()).thenReturn(new BinaryAssetCodec().encode(new Asset("asset1", "blue", 5, "Tomoko", 300)));
+            List<KeyValue> page = new ArrayList<KeyValue>();
+            page.add(binaryAsset);
+            when(stub.getStateByRangeWithPagination("", "", 1, ""))
+                    .thenReturn(new MockAssetResultsIteratorWithMetadata(page, ""));
+
+            String assets = contract.GetAssetsWithPagination(ctx, 1, "");
+
+            assertThat(assets).isEqualTo("{\"records\":["
+                    + "{\"appraisedValue\":300,\"assetID\":\"asset1\",\"color\":\"blue\",\"owner\":\"Tomoko\",\"size\":5}"
+                    + "],\"fetchedRecordsCount\":1,\"bookmark\":\"\"}");
+        }
+    }
+
+    @Nested
+    class InMemoryLedger {
+
+        private final AssetTransfer contract = new AssetTransfer();
+        private final InMemoryChaincodeStub stub = new InMemoryChaincodeStub();
+
+        private void createAssets(final int count) {
+            for (int i = 0; i < count; i++) {
+                contract.CreateAsset(contract.createContext(stub), String.format("asset%02d", i), "blue", 5, "Tomoko",
+                        300);
+                stub.commit();
+            }
+        }
+
+        @Test
+        public void pagesThroughAllAssets() {
+            createAssets(25);
+
+            List<Integer> pageSizes = new ArrayList<>();
+            String bookmark = "";
+            do {
+                JSONObject page = new JSONObject(
+                        contract.GetAssetsWithPagination(contract.createContext(stub), 10, bookmark));
+                pageSizes.add(page.getInt("fetchedRecordsCount"));
+                bookmark = page.getString("bookmark");
+            } while (!bookmark.isEmpty());
+
+            assertThat(pageSizes).containsExactly(10, 10, 5);
+        }
+
+        @Test
+        public void concurrentTransfersOfOneAssetConflict() {
+            createAssets(2);
+
+            contract.TransferAsset(contract.createContext(stub), "asset00", "Max");
+            InMemoryChaincodeStub.ReadWriteSet first = stub.endorse();
+            contract.TransferAsset(contract.createContext(stub), "asset00", "Jin Soo");
+            InMemoryChaincodeStub.ReadWriteSet second = stub.endorse();
+            contract.TransferAsset(contract.createContext(stub), "asset01", "Jin Soo");
+            InMemoryChaincodeStub.ReadWriteSet third = stub.endorse();
+
+            assertThat(stub.commit(first).isValid()).isTrue();
+            assertThat(stub.commit(second).getConflicts()).containsExactly("asset00");
+            assertThat(stub.commit(third).isValid()).isTrue();
+            assertThat(contract.ReadAsset(contract.createContext(stub), "asset00").getOwner()).isEqualTo("Max");
+        }
+
+        @Test
+        public void getAllAssetsConflictsWithCreate() {
+            createAssets(2);
+
+            contract.GetAllAssets(contract.createContext(stub));
+            InMemoryChaincodeStub.ReadWriteSet reader = stub.endorse();
+            contract.CreateAsset(contract.createContext(stub), "asset02", "red", 5, "Max", 300);
+            stub.commit();
+
+            assertThat(stub.commit(reader).isValid()).isFalse();
+        }
+    }
 }
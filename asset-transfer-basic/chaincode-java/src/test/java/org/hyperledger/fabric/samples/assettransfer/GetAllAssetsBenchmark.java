@@ -0,0 +1,206 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.assettransfer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResponseMetadata;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Compares GetAllAssets with GetAssetsWithPagination over a mocked stub holding a large number of assets.
+ *
+ * <p>GetAllAssets prints every asset, so standard output is discarded while the functions are timed; otherwise
+ * the comparison would mostly measure console output.
+ *
+ * <p>Excluded from the default test run; use {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public final class GetAllAssetsBenchmark {
+
+    private static final int PAGE_SIZE = 1000;
+
+    private static String key(final int index) {
+        return String.format("asset%07d", index);
+    }
+
+    private static final class GeneratedKeyValue implements KeyValue {
+
+        private final String key;
+        private final String value;
+
+        GeneratedKeyValue(final int index) {
+            this.key = key(index);
+            this.value = "{\"appraisedValue\":" + (index % 1000) + ",\"assetID\":\"" + key
+                    + "\",\"color\":\"blue\",\"owner\":\"Tomoko\",\"size\":" + (index % 20) + "}";
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public String getStringValue() {
+            return value;
+        }
+
+        @Override
+        public byte[] getValue() {
+            return value.getBytes();
+        }
+    }
+
+    /**
+     * Generates assets on demand so the keyspace itself does not dominate the measured heap.
+     */
+    private static final class GeneratedResultsIterator
+            implements QueryResultsIterator<KeyValue>, QueryResultsIteratorWithMetadata<KeyValue> {
+
+        private final int start;
+        private final int end;
+        private final int total;
+
+        GeneratedResultsIterator(final int start, final int end, final int total) {
+            this.start = start;
+            this.end = end;
+            this.total = total;
+        }
+
+        @Override
+        public Iterator<KeyValue> iterator() {
+            return new Iterator<KeyValue>() {
+                private int next = start;
+
+                @Override
+                public boolean hasNext() {
+                    return next < end;
+                }
+
+                @Override
+                public KeyValue next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return new GeneratedKeyValue(next++);
+                }
+            };
+        }
+
+        @Override
+        public QueryResponseMetadata getMetadata() {
+            return QueryResponseMetadata.newBuilder()
+                    .setFetchedRecordsCount(end - start)
+                    .setBookmark(end < total ? key(end) : "")
+                    .build();
+        }
+
+        @Override
+        public void close() {
+            // do nothing
+        }
+    }
+
+    private static Context mockContext(final int total) {
+        Context ctx = mock(Context.class);
+        ChaincodeStub stub = mock(ChaincodeStub.class);
+        when(ctx.getStub()).thenReturn(stub);
+        when(stub.getStateByRange("", "")).thenAnswer(invocation -> new GeneratedResultsIterator(0, total, total));
+        when(stub.getStateByRangeWithPagination(eq(""), eq(""), anyInt(), anyString())).thenAnswer(invocation -> {
+            int pageSize = invocation.getArgument(2);
+            String bookmark = invocation.getArgument(3);
+            int start = bookmark.isEmpty() ? 0 : Integer.parseInt(bookmark.substring("asset".length()));
+            return new GeneratedResultsIterator(start, Math.min(start + pageSize, total), total);
+        });
+        return ctx;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static <T> T withoutStandardOutput(final Supplier<T> call) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            return call.get();
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private static void report(final String name, final int total, final long nanos, final long allocated,
+            final long largestResponse) {
+        System.out.printf("%-24s keys=%,9d  time=%,8d ms  allocated=%,7d MB  largest response=%,8d KB%n", name, total,
+                nanos / 1_000_000, allocated >> 20, (largestResponse * Character.BYTES) >> 10);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10_000, 100_000, 1_000_000})
+    void getAllAssets(final int total) {
+        AssetTransfer contract = new AssetTransfer();
+        Context ctx = mockContext(total);
+
+        System.gc();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        String response = withoutStandardOutput(() -> contract.GetAllAssets(ctx));
+
+        long elapsed = System.nanoTime() - start;
+        report("GetAllAssets", total, elapsed, allocatedBytes() - allocatedBefore, response.length());
+        assertThat(response).startsWith("[{");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10_000, 100_000, 1_000_000})
+    void getAssetsWithPagination(final int total) {
+        AssetTransfer contract = new AssetTransfer();
+        Context ctx = mockContext(total);
+
+        System.gc();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        long[] results = withoutStandardOutput(() -> {
+            int fetched = 0;
+            long largestPage = 0;
+            String bookmark = "";
+            do {
+                String response = contract.GetAssetsWithPagination(ctx, PAGE_SIZE, bookmark);
+                largestPage = Math.max(largestPage, response.length());
+                JSONObject page = new JSONObject(response);
+                fetched += page.getInt("fetchedRecordsCount");
+                bookmark = page.getString("bookmark");
+            } while (!bookmark.isEmpty());
+            return new long[] {fetched, largestPage};
+        });
+
+        long elapsed = System.nanoTime() - start;
+        report("GetAssetsWithPagination", total, elapsed, allocatedBytes() - allocatedBefore, results[1]);
+        assertThat(results[0]).isEqualTo(total);
+    }
+}
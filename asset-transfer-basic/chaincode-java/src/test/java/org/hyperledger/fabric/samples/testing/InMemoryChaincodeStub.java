@@ -0,0 +1,770 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.testing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.hyperledger.fabric.protos.msp.Identities.SerializedIdentity;
+import org.hyperledger.fabric.protos.peer.ChaincodeEventPackage.ChaincodeEvent;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResponseMetadata;
+import org.hyperledger.fabric.protos.peer.ProposalPackage.SignedProposal;
+import org.hyperledger.fabric.shim.Chaincode.Response;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyModification;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * A {@link ChaincodeStub} backed by a sorted in-memory world state and private data collections.
+ *
+ * <p>As on a peer, a transaction reads committed state only and its writes are buffered in a
+ * {@link ReadWriteSet}, along with the version of every key and range it read. {@link #endorse()}
+ * ends the transaction and returns that set; {@link #commit(ReadWriteSet)} validates it against the
+ * current state, rejecting it on an MVCC read conflict or phantom read, and applies its writes if
+ * it is valid. Endorsing several transactions before committing them shows which keys conflict,
+ * see {@link #getConflictCounts()}. Operations the contracts in this sample do not use throw
+ * {@link UnsupportedOperationException}.
+ *
+ * <p>The Java samples share identical copies of this class; edit the one in asset-transfer-basic and run
+ * {@code ci/scripts/sync-java-test-fixtures.sh} to update the others.
+ */
+public final class InMemoryChaincodeStub implements ChaincodeStub {
+
+    /** Keys of simple (non-composite) state sort after this, as on a peer. */
+    private static final String MIN_SIMPLE_KEY = "\u0001";
+
+    /** Collection name under which the public world state is kept. */
+    private static final String WORLD_STATE = "";
+
+    private static final String CHANNEL_ID = "mychannel";
+
+    private final Map<String, Namespace> namespaces = new HashMap<>();
+    private final Map<String, Integer> conflictCounts = new TreeMap<>();
+    private Map<String, byte[]> transientData = Collections.emptyMap();
+
+    private String mspId;
+    private byte[] creator;
+    private long txNumber;
+    private long committed;
+    private ReadWriteSet rwset;
+    private Instant txTimestamp;
+    private String eventName;
+    private byte[] eventPayload;
+
+    /**
+     * Creates an empty ledger invoked by the default Org1 client.
+     */
+    public InMemoryChaincodeStub() {
+        setCreator(TestIdentities.ORG1_MSP, TestIdentities.ORG1_USER_CERT);
+        beginTransaction();
+    }
+
+    /**
+     * Sets the client identity returned by {@link #getCreator()}.
+     *
+     * @param clientMspId the MSP ID of the client
+     * @param pemCertificate the PEM encoded certificate of the client
+     */
+    public void setCreator(final String clientMspId, final String pemCertificate) {
+        this.mspId = clientMspId;
+        this.creator = SerializedIdentity.newBuilder()
+                .setMspid(clientMspId)
+                .setIdBytes(ByteString.copyFromUtf8(pemCertificate))
+                .build()
+                .toByteArray();
+    }
+
+    /**
+     * Sets the transient data passed to the current and following transactions.
+     *
+     * @param transientMap the transient data
+     */
+    public void setTransient(final Map<String, byte[]> transientMap) {
+        this.transientData = Collections.unmodifiableMap(new HashMap<>(transientMap));
+    }
+
+    /**
+     * Ends the current transaction without committing it and starts the next one.
+     *
+     * @return the reads and writes of the ended transaction
+     */
+    public ReadWriteSet endorse() {
+        ReadWriteSet endorsed = rwset;
+        beginTransaction();
+        return endorsed;
+    }
+
+    /**
+     * Ends the current transaction, commits it and starts the next one.
+     *
+     * @return the reads and writes of the committed transaction
+     */
+    public ReadWriteSet commit() {
+        return commit(endorse());
+    }
+
+    /**
+     * Validates an endorsed transaction against the committed state and applies its writes if no
+     * key or range it read has changed since.
+     *
+     * @param endorsed the transaction to commit
+     * @return the same transaction, marked valid or with its conflicts
+     */
+    public ReadWriteSet commit(final ReadWriteSet endorsed) {
+        validate(endorsed);
+        if (!endorsed.isValid()) {
+            for (String conflict : endorsed.getConflicts()) {
+                conflictCounts.merge(conflict, 1, Integer::sum);
+            }
+            return endorsed;
+        }
+        committed++;
+        for (Map.Entry<String, Map<String, byte[]>> writes : endorsed.writes.entrySet()) {
+            Namespace namespace = namespace(writes.getKey());
+            for (Map.Entry<String, byte[]> write : writes.getValue().entrySet()) {
+                namespace.apply(write.getKey(), write.getValue(), committed);
+            }
+        }
+        return endorsed;
+    }
+
+    /**
+     * Returns the number of times each key caused a transaction to be rejected. Private data keys
+     * are prefixed with their collection name and a slash.
+     *
+     * @return rejected transactions by key, in key order
+     */
+    public Map<String, Integer> getConflictCounts() {
+        return Collections.unmodifiableMap(conflictCounts);
+    }
+
+    /**
+     * Returns the number of keys in the committed world state.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return namespace(WORLD_STATE).values.size();
+    }
+
+    @Override
+    public String getTxId() {
+        return rwset.getTxId();
+    }
+
+    @Override
+    public String getChannelId() {
+        return CHANNEL_ID;
+    }
+
+    @Override
+    public Instant getTxTimestamp() {
+        return txTimestamp;
+    }
+
+    @Override
+    public byte[] getCreator() {
+        return creator;
+    }
+
+    @Override
+    public String getMspId() {
+        return mspId;
+    }
+
+    @Override
+    public Map<String, byte[]> getTransient() {
+        return transientData;
+    }
+
+    @Override
+    public byte[] getState(final String key) {
+        return read(WORLD_STATE, key);
+    }
+
+    @Override
+    public void putState(final String key, final byte[] value) {
+        write(WORLD_STATE, key, value);
+    }
+
+    @Override
+    public void delState(final String key) {
+        write(WORLD_STATE, key, null);
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getStateByRange(final String startKey, final String endKey) {
+        String start = startKey == null || startKey.isEmpty() ? MIN_SIMPLE_KEY : startKey;
+        return rangeQuery(WORLD_STATE, new RangeRead(start, endKey, null), true);
+    }
+
+    @Override
+    public QueryResultsIteratorWithMetadata<KeyValue> getStateByRangeWithPagination(final String startKey,
+            final String endKey, final int pageSize, final String bookmark) {
+        String start = bookmark == null || bookmark.isEmpty() ? startKey : bookmark;
+        return new StatePage(getStateByRange(start, endKey), pageSize);
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getStateByPartialCompositeKey(final String compositeKey) {
+        return getStateByPartialCompositeKey(CompositeKey.parseCompositeKey(compositeKey));
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getStateByPartialCompositeKey(final String objectType,
+            final String... attributes) {
+        return getStateByPartialCompositeKey(new CompositeKey(objectType, attributes));
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getStateByPartialCompositeKey(final CompositeKey compositeKey) {
+        String prefix = compositeKey.toString();
+        return rangeQuery(WORLD_STATE, new RangeRead(prefix, null, prefix), true);
+    }
+
+    @Override
+    public QueryResultsIteratorWithMetadata<KeyValue> getStateByPartialCompositeKeyWithPagination(
+            final CompositeKey compositeKey, final int pageSize, final String bookmark) {
+        String prefix = compositeKey.toString();
+        String start = bookmark == null || bookmark.isEmpty() ? prefix : bookmark;
+        return new StatePage(rangeQuery(WORLD_STATE, new RangeRead(start, null, prefix), true), pageSize);
+    }
+
+    @Override
+    public CompositeKey createCompositeKey(final String objectType, final String... attributes) {
+        return new CompositeKey(objectType, attributes);
+    }
+
+    @Override
+    public CompositeKey splitCompositeKey(final String compositeKey) {
+        return CompositeKey.parseCompositeKey(compositeKey);
+    }
+
+    @Override
+    public byte[] getPrivateData(final String collection, final String key) {
+        return read(checkCollection(collection), key);
+    }
+
+    @Override
+    public byte[] getPrivateDataHash(final String collection, final String key) {
+        byte[] value = read(checkCollection(collection), key);
+        if (value.length == 0) {
+            return value;
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void putPrivateData(final String collection, final String key, final byte[] value) {
+        write(checkCollection(collection), key, value);
+    }
+
+    @Override
+    public void delPrivateData(final String collection, final String key) {
+        write(checkCollection(collection), key, null);
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getPrivateDataByRange(final String collection, final String startKey,
+            final String endKey) {
+        String start = startKey == null || startKey.isEmpty() ? MIN_SIMPLE_KEY : startKey;
+        return rangeQuery(checkCollection(collection), new RangeRead(start, endKey, null), false);
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getPrivateDataByPartialCompositeKey(final String collection,
+            final String compositeKey) {
+        return getPrivateDataByPartialCompositeKey(collection, CompositeKey.parseCompositeKey(compositeKey));
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getPrivateDataByPartialCompositeKey(final String collection,
+            final CompositeKey compositeKey) {
+        String prefix = compositeKey.toString();
+        return rangeQuery(checkCollection(collection), new RangeRead(prefix, null, prefix), false);
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getPrivateDataByPartialCompositeKey(final String collection,
+            final String objectType, final String... attributes) {
+        return getPrivateDataByPartialCompositeKey(collection, new CompositeKey(objectType, attributes));
+    }
+
+    @Override
+    public void setEvent(final String name, final byte[] payload) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("event name can not be nil string");
+        }
+        this.eventName = name;
+        this.eventPayload = payload;
+    }
+
+    @Override
+    public ChaincodeEvent getEvent() {
+        if (eventName == null) {
+            return null;
+        }
+        return ChaincodeEvent.newBuilder()
+                .setEventName(eventName)
+                .setPayload(eventPayload == null ? ByteString.EMPTY : ByteString.copyFrom(eventPayload))
+                .setTxId(getTxId())
+                .build();
+    }
+
+    @Override
+    public List<byte[]> getArgs() {
+        throw unsupported("getArgs");
+    }
+
+    @Override
+    public List<String> getStringArgs() {
+        throw unsupported("getStringArgs");
+    }
+
+    @Override
+    public String getFunction() {
+        throw unsupported("getFunction");
+    }
+
+    @Override
+    public List<String> getParameters() {
+        throw unsupported("getParameters");
+    }
+
+    @Override
+    public Response invokeChaincode(final String chaincodeName, final List<byte[]> args, final String channel) {
+        throw unsupported("invokeChaincode");
+    }
+
+    @Override
+    public byte[] getStateValidationParameter(final String key) {
+        throw unsupported("getStateValidationParameter");
+    }
+
+    @Override
+    public void setStateValidationParameter(final String key, final byte[] value) {
+        throw unsupported("setStateValidationParameter");
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getQueryResult(final String query) {
+        throw unsupported("getQueryResult");
+    }
+
+    @Override
+    public QueryResultsIteratorWithMetadata<KeyValue> getQueryResultWithPagination(final String query,
+            final int pageSize, final String bookmark) {
+        throw unsupported("getQueryResultWithPagination");
+    }
+
+    @Override
+    public QueryResultsIterator<KeyModification> getHistoryForKey(final String key) {
+        throw unsupported("getHistoryForKey");
+    }
+
+    @Override
+    public byte[] getPrivateDataValidationParameter(final String collection, final String key) {
+        throw unsupported("getPrivateDataValidationParameter");
+    }
+
+    @Override
+    public void setPrivateDataValidationParameter(final String collection, final String key,
+            final byte[] value) {
+        throw unsupported("setPrivateDataValidationParameter");
+    }
+
+    @Override
+    public QueryResultsIterator<KeyValue> getPrivateDataQueryResult(final String collection, final String query) {
+        throw unsupported("getPrivateDataQueryResult");
+    }
+
+    @Override
+    public SignedProposal getSignedProposal() {
+        throw unsupported("getSignedProposal");
+    }
+
+    @Override
+    public byte[] getBinding() {
+        throw unsupported("getBinding");
+    }
+
+    private void beginTransaction() {
+        rwset = new ReadWriteSet("tx" + (++txNumber));
+        txTimestamp = Instant.now();
+        eventName = null;
+        eventPayload = null;
+    }
+
+    private Namespace namespace(final String collection) {
+        return namespaces.computeIfAbsent(collection, name -> new Namespace());
+    }
+
+    private byte[] read(final String collection, final String key) {
+        Namespace namespace = namespace(collection);
+        rwset.recordRead(collection, key, namespace.versions.get(key));
+        byte[] value = namespace.values.get(key);
+        return value == null ? new byte[0] : value;
+    }
+
+    private void write(final String collection, final String key, final byte[] value) {
+        if (key == null || key.isEmpty()) {
+            throw new IllegalArgumentException("key must not be an empty string");
+        }
+        rwset.recordWrite(collection, key, value);
+    }
+
+    private QueryResultsIterator<KeyValue> rangeQuery(final String collection, final RangeRead range,
+            final boolean record) {
+        if (record) {
+            rwset.rangeReads.add(range);
+        }
+        return new StateIterator(namespace(collection), range, record);
+    }
+
+    private void validate(final ReadWriteSet endorsed) {
+        for (Map.Entry<String, Map<String, Long>> reads : endorsed.reads.entrySet()) {
+            Namespace namespace = namespace(reads.getKey());
+            for (Map.Entry<String, Long> read : reads.getValue().entrySet()) {
+                if (!Objects.equals(namespace.versions.get(read.getKey()), read.getValue())) {
+                    endorsed.conflicts.add(qualify(reads.getKey(), read.getKey()));
+                }
+            }
+        }
+        Namespace worldState = namespace(WORLD_STATE);
+        for (RangeRead range : endorsed.rangeReads) {
+            String phantom = range.findPhantom(worldState);
+            if (phantom != null) {
+                endorsed.conflicts.add(phantom);
+            }
+        }
+    }
+
+    private static String qualify(final String collection, final String key) {
+        return collection.isEmpty() ? key : collection + "/" + key;
+    }
+
+    private static String checkCollection(final String collection) {
+        if (collection == null || collection.isEmpty()) {
+            throw new IllegalArgumentException("collection must not be an empty string");
+        }
+        return collection;
+    }
+
+    private static UnsupportedOperationException unsupported(final String operation) {
+        return new UnsupportedOperationException(operation + " is not supported by InMemoryChaincodeStub");
+    }
+
+    /**
+     * The reads and buffered writes of one transaction.
+     */
+    public static final class ReadWriteSet {
+
+        private final String txId;
+        private final Map<String, Map<String, Long>> reads = new LinkedHashMap<>();
+        private final Map<String, Map<String, byte[]>> writes = new LinkedHashMap<>();
+        private final List<RangeRead> rangeReads = new ArrayList<>();
+        private final Set<String> conflicts = new LinkedHashSet<>();
+
+        ReadWriteSet(final String txId) {
+            this.txId = txId;
+        }
+
+        /**
+         * Returns the ID of the transaction.
+         *
+         * @return the transaction ID
+         */
+        public String getTxId() {
+            return txId;
+        }
+
+        /**
+         * Returns the world state keys read, each with the version it had when first read or null
+         * if it did not exist. Keys returned by range queries are included.
+         *
+         * @return versions by key, in the order first read
+         */
+        public Map<String, Long> getReads() {
+            return getPrivateReads(WORLD_STATE);
+        }
+
+        /**
+         * Returns the world state keys written, each with its new value or null if it is deleted.
+         *
+         * @return values by key, in the order first written
+         */
+        public Map<String, byte[]> getWrites() {
+            return getPrivateWrites(WORLD_STATE);
+        }
+
+        /**
+         * Returns the keys read from a private data collection, as for {@link #getReads()}.
+         *
+         * @param collection the collection name
+         * @return versions by key, in the order first read
+         */
+        public Map<String, Long> getPrivateReads(final String collection) {
+            return Collections.unmodifiableMap(reads.getOrDefault(collection, Collections.emptyMap()));
+        }
+
+        /**
+         * Returns the keys written to a private data collection, as for {@link #getWrites()}.
+         *
+         * @param collection the collection name
+         * @return values by key, in the order first written
+         */
+        public Map<String, byte[]> getPrivateWrites(final String collection) {
+            return Collections.unmodifiableMap(writes.getOrDefault(collection, Collections.emptyMap()));
+        }
+
+        /**
+         * Returns the keys whose version changed between endorsement and commit, or which appeared
+         * in or disappeared from a range read in that time.
+         *
+         * @return the conflicting keys, empty unless the transaction was rejected
+         */
+        public Set<String> getConflicts() {
+            return Collections.unmodifiableSet(conflicts);
+        }
+
+        /**
+         * Returns whether the transaction has no conflicts.
+         *
+         * @return true unless the transaction was rejected on commit
+         */
+        public boolean isValid() {
+            return conflicts.isEmpty();
+        }
+
+        private void recordRead(final String collection, final String key, final Long version) {
+            Map<String, Long> collectionReads = reads.computeIfAbsent(collection, name -> new LinkedHashMap<>());
+            if (!collectionReads.containsKey(key)) {
+                collectionReads.put(key, version);
+            }
+        }
+
+        private void recordWrite(final String collection, final String key, final byte[] value) {
+            writes.computeIfAbsent(collection, name -> new LinkedHashMap<>()).put(key, value);
+        }
+    }
+
+    /**
+     * Committed values of the world state or a private data collection, with the number of the
+     * commit that last wrote each key as its version.
+     */
+    private static final class Namespace {
+
+        private final NavigableMap<String, byte[]> values = new TreeMap<>();
+        private final Map<String, Long> versions = new HashMap<>();
+
+        void apply(final String key, final byte[] value, final long version) {
+            if (value == null || value.length == 0) {
+                values.remove(key);
+                versions.remove(key);
+            } else {
+                values.put(key, value);
+                versions.put(key, version);
+            }
+        }
+
+        NavigableMap<String, byte[]> range(final String start, final String end) {
+            return end == null || end.isEmpty() ? values.tailMap(start, true) : values.subMap(start, true, end, false);
+        }
+    }
+
+    /**
+     * A range query, with the keys and versions it returned so that it can be re-run on commit.
+     */
+    private static final class RangeRead {
+
+        private final String start;
+        private final String end;
+        private final String prefix;
+        private final Map<String, Long> results = new LinkedHashMap<>();
+        private boolean exhausted;
+
+        RangeRead(final String start, final String end, final String prefix) {
+            this.start = start;
+            this.end = end;
+            this.prefix = prefix;
+        }
+
+        boolean includes(final String key) {
+            return prefix == null || key.startsWith(prefix);
+        }
+
+        /**
+         * Re-runs the query up to the last key returned, or to the end of the range if it was read
+         * to the end, and returns the first key that differs.
+         */
+        String findPhantom(final Namespace namespace) {
+            Iterator<String> expected = results.keySet().iterator();
+            for (String key : namespace.range(start, end).keySet()) {
+                if (!includes(key)) {
+                    break;
+                }
+                if (!expected.hasNext()) {
+                    return exhausted ? key : null;
+                }
+                String expectedKey = expected.next();
+                if (!expectedKey.equals(key)) {
+                    return expectedKey.compareTo(key) < 0 ? expectedKey : key;
+                }
+                if (!Objects.equals(results.get(key), namespace.versions.get(key))) {
+                    return key;
+                }
+            }
+            return expected.hasNext() ? expected.next() : null;
+        }
+    }
+
+    private static final class StateKeyValue implements KeyValue {
+
+        private final String key;
+        private final byte[] value;
+
+        StateKeyValue(final String key, final byte[] value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public byte[] getValue() {
+            return value;
+        }
+
+        @Override
+        public String getStringValue() {
+            return new String(value, UTF_8);
+        }
+    }
+
+    /**
+     * Iterates over a range of committed state, recording each key returned if the range is part of
+     * the read set.
+     */
+    private final class StateIterator implements QueryResultsIterator<KeyValue> {
+
+        private final Namespace namespace;
+        private final RangeRead range;
+        private final boolean record;
+
+        StateIterator(final Namespace namespace, final RangeRead range, final boolean record) {
+            this.namespace = namespace;
+            this.range = range;
+            this.record = record;
+        }
+
+        @Override
+        public Iterator<KeyValue> iterator() {
+            Iterator<Map.Entry<String, byte[]>> entries = namespace.range(range.start, range.end).entrySet().iterator();
+            ReadWriteSet reader = rwset;
+            return new Iterator<KeyValue>() {
+                private Map.Entry<String, byte[]> next = advance();
+
+                private Map.Entry<String, byte[]> advance() {
+                    if (entries.hasNext()) {
+                        Map.Entry<String, byte[]> entry = entries.next();
+                        if (range.includes(entry.getKey())) {
+                            return entry;
+                        }
+                    }
+                    range.exhausted = true;
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public KeyValue next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    KeyValue result = new StateKeyValue(next.getKey(), next.getValue());
+                    if (record) {
+                        Long version = namespace.versions.get(next.getKey());
+                        range.results.put(next.getKey(), version);
+                        reader.recordRead(WORLD_STATE, next.getKey(), version);
+                    }
+                    next = advance();
+                    return result;
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+    }
+
+    /**
+     * Reads at most {@code pageSize} results, keeping the key of the next one as the bookmark.
+     */
+    private static final class StatePage implements QueryResultsIteratorWithMetadata<KeyValue> {
+
+        private final List<KeyValue> results = new ArrayList<>();
+        private final String bookmark;
+
+        StatePage(final QueryResultsIterator<KeyValue> range, final int pageSize) {
+            Iterator<KeyValue> iterator = range.iterator();
+            while (results.size() < pageSize && iterator.hasNext()) {
+                results.add(iterator.next());
+            }
+            bookmark = iterator.hasNext() ? iterator.next().getKey() : "";
+        }
+
+        @Override
+        public Iterator<KeyValue> iterator() {
+            return results.iterator();
+        }
+
+        @Override
+        public QueryResponseMetadata getMetadata() {
+            return QueryResponseMetadata.newBuilder()
+                    .setFetchedRecordsCount(results.size())
+                    .setBookmark(bookmark)
+                    .build();
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+    }
+}
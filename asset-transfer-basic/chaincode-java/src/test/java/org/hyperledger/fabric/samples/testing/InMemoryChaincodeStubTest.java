@@ -0,0 +1,284 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.testing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.samples.testing.InMemoryChaincodeStub.ReadWriteSet;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public final class InMemoryChaincodeStubTest {
+
+    private InMemoryChaincodeStub stub;
+
+    @BeforeEach
+    void setUp() {
+        stub = new InMemoryChaincodeStub();
+    }
+
+    private static List<String> keys(final Iterable<KeyValue> results) {
+        List<String> keys = new ArrayList<>();
+        for (KeyValue result : results) {
+            keys.add(result.getKey());
+        }
+        return keys;
+    }
+
+    private void commitState(final String... keys) {
+        for (String key : keys) {
+            stub.putStringState(key, key);
+        }
+        stub.commit();
+    }
+
+    @Nested
+    class Queries {
+
+        @Test
+        public void writesAreVisibleOnlyAfterCommit() {
+            stub.putStringState("asset1", "blue");
+
+            assertThat(stub.getStringState("asset1")).isEmpty();
+            stub.commit();
+            assertThat(stub.getStringState("asset1")).isEqualTo("blue");
+        }
+
+        @Test
+        public void emptyValueDeletesKey() {
+            commitState("asset1");
+
+            stub.putState("asset1", new byte[0]);
+            stub.commit();
+
+            assertThat(stub.getState("asset1")).isEmpty();
+            assertThat(stub.size()).isZero();
+        }
+
+        @Test
+        public void rangeExcludesCompositeKeys() {
+            commitState("asset1", "asset2", "asset3", stub.createCompositeKey("owner", "Tom").toString());
+
+            assertThat(keys(stub.getStateByRange("", ""))).containsExactly("asset1", "asset2", "asset3");
+            assertThat(keys(stub.getStateByRange("asset2", ""))).containsExactly("asset2", "asset3");
+            assertThat(keys(stub.getStateByRange("asset1", "asset3"))).containsExactly("asset1", "asset2");
+        }
+
+        @Test
+        public void partialCompositeKeyMatchesWholeAttributes() {
+            CompositeKey tom1 = stub.createCompositeKey("owner", "Tom", "asset1");
+            CompositeKey tom2 = stub.createCompositeKey("owner", "Tom", "asset2");
+            CompositeKey tomas = stub.createCompositeKey("owner", "Tomas", "asset3");
+            commitState(tom1.toString(), tom2.toString(), tomas.toString(), "asset1");
+
+            assertThat(keys(stub.getStateByPartialCompositeKey("owner", "Tom")))
+                    .containsExactly(tom1.toString(), tom2.toString());
+            assertThat(keys(stub.getStateByPartialCompositeKey(stub.createCompositeKey("owner"))))
+                    .containsExactly(tom1.toString(), tom2.toString(), tomas.toString());
+        }
+
+        @Test
+        public void rangePagesFollowBookmarks() {
+            commitState("asset1", "asset2", "asset3");
+
+            QueryResultsIteratorWithMetadata<KeyValue> first = stub.getStateByRangeWithPagination("", "", 2, "");
+            assertThat(keys(first)).containsExactly("asset1", "asset2");
+            assertThat(first.getMetadata().getFetchedRecordsCount()).isEqualTo(2);
+            assertThat(first.getMetadata().getBookmark()).isEqualTo("asset3");
+
+            QueryResultsIteratorWithMetadata<KeyValue> second = stub.getStateByRangeWithPagination("", "", 2,
+                    "asset3");
+            assertThat(keys(second)).containsExactly("asset3");
+            assertThat(second.getMetadata().getBookmark()).isEmpty();
+        }
+
+        @Test
+        public void compositeKeyPagesFollowBookmarks() {
+            CompositeKey tom1 = stub.createCompositeKey("owner", "Tom", "asset1");
+            CompositeKey tom2 = stub.createCompositeKey("owner", "Tom", "asset2");
+            commitState(tom1.toString(), tom2.toString(), stub.createCompositeKey("owner", "Zoe", "a").toString());
+            CompositeKey tom = stub.createCompositeKey("owner", "Tom");
+
+            QueryResultsIteratorWithMetadata<KeyValue> first =
+                    stub.getStateByPartialCompositeKeyWithPagination(tom, 1, "");
+            assertThat(keys(first)).containsExactly(tom1.toString());
+            assertThat(first.getMetadata().getBookmark()).isEqualTo(tom2.toString());
+
+            QueryResultsIteratorWithMetadata<KeyValue> second =
+                    stub.getStateByPartialCompositeKeyWithPagination(tom, 1, tom2.toString());
+            assertThat(keys(second)).containsExactly(tom2.toString());
+            assertThat(second.getMetadata().getBookmark()).isEmpty();
+        }
+
+        @Test
+        public void eventsAndTransactionIdsArePerTransaction() {
+            String txId = stub.getTxId();
+            stub.setEvent("Created", "asset1".getBytes(UTF_8));
+
+            assertThat(stub.getEvent().getEventName()).isEqualTo("Created");
+            assertThat(stub.getEvent().getTxId()).isEqualTo(txId);
+            stub.commit();
+            assertThat(stub.getEvent()).isNull();
+            assertThat(stub.getTxId()).isNotEqualTo(txId);
+        }
+
+        @Test
+        public void creatorIsAClientIdentity() {
+            stub.setCreator(TestIdentities.ORG2_MSP, TestIdentities.ORG2_USER_CERT);
+
+            Context ctx = new Context(stub);
+
+            assertThat(ctx.getClientIdentity().getMSPID()).isEqualTo(TestIdentities.ORG2_MSP);
+            assertThat(ctx.getClientIdentity().getId()).contains("CN=org2user");
+        }
+    }
+
+    @Nested
+    class PrivateData {
+
+        @Test
+        public void collectionsAreSeparateFromWorldState() {
+            stub.putPrivateData("Org1Collection", "asset1", "secret");
+            stub.commit();
+
+            assertThat(stub.getPrivateDataUTF8("Org1Collection", "asset1")).isEqualTo("secret");
+            assertThat(stub.getPrivateData("Org2Collection", "asset1")).isEmpty();
+            assertThat(stub.getState("asset1")).isEmpty();
+            assertThat(keys(stub.getPrivateDataByRange("Org1Collection", "", ""))).containsExactly("asset1");
+        }
+
+        @Test
+        public void hashIsSha256OfValue() throws Exception {
+            stub.putPrivateData("Org1Collection", "asset1", "secret");
+            stub.commit();
+
+            byte[] expected = MessageDigest.getInstance("SHA-256").digest("secret".getBytes(UTF_8));
+            assertThat(stub.getPrivateDataHash("Org1Collection", "asset1")).isEqualTo(expected);
+            assertThat(stub.getPrivateDataHash("Org1Collection", "asset2")).isEmpty();
+        }
+
+        @Test
+        public void transientDataIsPassedThrough() {
+            stub.setTransient(Collections.singletonMap("asset_properties", "{}".getBytes(UTF_8)));
+
+            assertThat(stub.getTransient()).containsKey("asset_properties");
+        }
+
+        @Test
+        public void conflictsAreQualifiedByCollection() {
+            stub.putPrivateData("Org1Collection", "asset1", "secret");
+            stub.commit();
+
+            stub.getPrivateData("Org1Collection", "asset1");
+            stub.putPrivateData("Org1Collection", "asset1", "updated");
+            ReadWriteSet first = stub.endorse();
+            stub.getPrivateData("Org1Collection", "asset1");
+            ReadWriteSet second = stub.endorse();
+
+            assertThat(first.getPrivateReads("Org1Collection")).containsOnlyKeys("asset1");
+            assertThat(first.getPrivateWrites("Org1Collection")).containsOnlyKeys("asset1");
+            assertThat(stub.commit(first).isValid()).isTrue();
+            assertThat(stub.commit(second).getConflicts()).containsExactly("Org1Collection/asset1");
+        }
+    }
+
+    @Nested
+    class ReadWriteSets {
+
+        @Test
+        public void recordsVersionsOfKeysRead() {
+            commitState("asset1");
+
+            stub.getState("asset1");
+            stub.getState("asset2");
+            stub.putStringState("asset2", "red");
+            stub.delState("asset1");
+            ReadWriteSet rwset = stub.commit();
+
+            assertThat(rwset.getReads()).containsEntry("asset1", 1L).containsEntry("asset2", null);
+            assertThat(rwset.getWrites()).containsOnlyKeys("asset2", "asset1").containsEntry("asset1", null);
+            assertThat(rwset.isValid()).isTrue();
+        }
+
+        @Test
+        public void rejectsStaleReads() {
+            commitState("asset1", "asset2");
+
+            stub.getState("asset1");
+            stub.putStringState("asset1", "first");
+            ReadWriteSet first = stub.endorse();
+            stub.getState("asset1");
+            stub.getState("asset2");
+            stub.putStringState("asset1", "second");
+            ReadWriteSet second = stub.endorse();
+
+            assertThat(stub.commit(first).isValid()).isTrue();
+            assertThat(stub.commit(second).getConflicts()).containsExactly("asset1");
+            assertThat(stub.getStringState("asset1")).isEqualTo("first");
+            assertThat(stub.getConflictCounts()).containsOnlyKeys("asset1").containsEntry("asset1", 1);
+        }
+
+        @Test
+        public void blindWritesDoNotConflict() {
+            stub.putStringState("asset1", "first");
+            ReadWriteSet first = stub.endorse();
+            stub.putStringState("asset1", "second");
+            ReadWriteSet second = stub.endorse();
+
+            assertThat(stub.commit(first).isValid()).isTrue();
+            assertThat(stub.commit(second).isValid()).isTrue();
+            assertThat(stub.getStringState("asset1")).isEqualTo("second");
+        }
+
+        @Test
+        public void rejectsPhantomReads() {
+            commitState("asset1", "asset3");
+
+            keys(stub.getStateByRange("asset1", "asset9"));
+            ReadWriteSet reader = stub.endorse();
+            stub.putStringState("asset2", "inserted");
+            stub.commit();
+
+            assertThat(stub.commit(reader).getConflicts()).containsExactly("asset2");
+        }
+
+        @Test
+        public void ignoresChangesBeyondThePartOfTheRangeRead() {
+            commitState("asset1", "asset2", "asset3");
+
+            stub.getStateByRangeWithPagination("", "", 1, "");
+            ReadWriteSet reader = stub.endorse();
+            stub.putStringState("asset4", "appended");
+            stub.commit();
+
+            assertThat(reader.getReads()).containsOnlyKeys("asset1", "asset2");
+            assertThat(stub.commit(reader).isValid()).isTrue();
+        }
+
+        @Test
+        public void rejectsDeletedCompositeKeys() {
+            CompositeKey tom1 = stub.createCompositeKey("owner", "Tom", "asset1");
+            commitState(tom1.toString());
+
+            keys(stub.getStateByPartialCompositeKey("owner", "Tom"));
+            ReadWriteSet reader = stub.endorse();
+            stub.delState(tom1.toString());
+            stub.commit();
+
+            assertThat(stub.commit(reader).getConflicts()).containsExactly(tom1.toString());
+        }
+    }
+}
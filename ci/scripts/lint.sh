@@ -10,6 +10,9 @@ function print() {
 
 go install golang.org/x/tools/cmd/goimports@latest
 
+print "Checking Java test fixture and shared source copies"
+./ci/scripts/sync-java-test-fixtures.sh --check
+
 dirs=("$(find . -name "*-go" -o -name "*-java" -o -name "*-javascript" -o -name "*-typescript"  -not -path '*/.*')")
 for dir in $dirs; do
   if [[ -d $dir ]] && [[ ! $dir =~ node_modules  ]]; then
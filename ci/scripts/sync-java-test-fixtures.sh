@@ -0,0 +1,59 @@
+#!/bin/bash
+#
+# The Java chaincode samples each carry a copy of the in-memory chaincode stub used by their tests and benchmarks,
+# since every sample builds on its own. The copies in asset-transfer-basic are the source: edit those, then run this
+# script to copy them to the other samples. The ERC20 and ERC721 samples likewise share the JSON writer and metadata
+# cache in their main sources, copied from token-erc-20. With --check, report any copy that differs from its source
+# instead.
+#
+set -euo pipefail
+
+FIXTURES_PACKAGE=org/hyperledger/fabric/samples/testing
+FIXTURES_SOURCE_DIR=asset-transfer-basic/chaincode-java/src/test/java/${FIXTURES_PACKAGE}
+FIXTURES=(InMemoryChaincodeStub.java TestIdentities.java)
+FIXTURES_TARGET_DIRS=(
+  "token-erc-20/chaincode-java/src/test/java/${FIXTURES_PACKAGE}"
+  "token-erc-721/chaincode-java/src/test/java/${FIXTURES_PACKAGE}"
+  "ins-fraud-check/chaincode-java/src/jmh/java/${FIXTURES_PACKAGE}"
+)
+
+SHARED_PACKAGE=org/hyperledger/fabric/samples/shared
+SHARED_SOURCE_DIR=token-erc-20/chaincode-java/src/main/java/${SHARED_PACKAGE}
+SHARED=(JsonWriter.java TokenMetadataCache.java)
+SHARED_TARGET_DIRS=(
+  "token-erc-721/chaincode-java/src/main/java/${SHARED_PACKAGE}"
+)
+
+cd "$(dirname "$0")/../.."
+
+check=false
+if [[ "${1:-}" == "--check" ]]; then
+  check=true
+fi
+
+status=0
+
+# sync <source dir> <space separated files> <target dir>...
+function sync() {
+  local source_dir=$1
+  local files=($2)
+  shift 2
+  for dir in "$@"; do
+    for file in "${files[@]}"; do
+      if [[ "${check}" == true ]]; then
+        if ! cmp -s "${source_dir}/${file}" "${dir}/${file}"; then
+          echo "${dir}/${file} differs from ${source_dir}/${file}; run $0 to update it"
+          status=1
+        fi
+      else
+        mkdir -p "${dir}"
+        cp "${source_dir}/${file}" "${dir}/${file}"
+      fi
+    done
+  done
+}
+
+sync "${FIXTURES_SOURCE_DIR}" "${FIXTURES[*]}" "${FIXTURES_TARGET_DIRS[@]}"
+sync "${SHARED_SOURCE_DIR}" "${SHARED[*]}" "${SHARED_TARGET_DIRS[@]}"
+
+exit "${status}"
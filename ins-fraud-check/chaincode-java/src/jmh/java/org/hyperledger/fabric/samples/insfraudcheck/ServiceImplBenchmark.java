@@ -0,0 +1,167 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.insfraudcheck;
+
+import java.util.concurrent.TimeUnit;
+
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.samples.testing.InMemoryChaincodeStub;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Drives each ServiceImpl transaction function against an {@link InMemoryChaincodeStub} holding
+ * {@code records} claims, customers and insurances. Every operation is one transaction: the
+ * contract call followed by a commit.
+ *
+ * <p>The context is created once per trial, as the cost of parsing the client certificate would
+ * otherwise dominate; {@link #createContext()} measures that cost separately.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ServiceImplBenchmark {
+
+    @Param({"1000"})
+    private int records;
+
+    private final ServiceImpl contract = new ServiceImpl();
+    private InMemoryChaincodeStub stub;
+    private Context ctx;
+    private String[] ids;
+    private int next;
+    private int created;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stub = new InMemoryChaincodeStub();
+        ctx = new Context(stub);
+        ids = new String[records];
+        for (int i = 0; i < records; i++) {
+            ids[i] = String.valueOf(i);
+            createRecords(ids[i]);
+            stub.commit();
+        }
+    }
+
+    private void createRecords(final String id) {
+        contract.CreateCustomer(ctx, id, "Aniket", "Prakash", "Anerao", "Sant Namdeo Path No 2", "Gograsswadi",
+                "A-6", "Dombivli", "Maharashtra", "421201", "PANCARD", "ABDCA4364R");
+        contract.CreateInsurance(ctx, id, "cust-" + id, "comp-1", id, "2023-12-12", "COMPREHENSIVE", "SUV", "Tata",
+                "2022");
+        contract.CreateClaim(ctx, id, "vehins-" + id, 3000, "NEW_CLAIM");
+    }
+
+    private String nextId() {
+        String id = ids[next];
+        next = (next + 1) % records;
+        return id;
+    }
+
+    @Benchmark
+    public Context createContext() {
+        return contract.createContext(stub);
+    }
+
+    @Benchmark
+    public Claim createClaim() {
+        Claim claim = contract.CreateClaim(ctx, "new" + created++, "vehins-1", 3000, "NEW_CLAIM");
+        stub.commit();
+        return claim;
+    }
+
+    @Benchmark
+    public Customer createCustomer() {
+        Customer customer = contract.CreateCustomer(ctx, "new" + created++, "Aniket", "Prakash", "Anerao",
+                "Sant Namdeo Path No 2", "Gograsswadi", "A-6", "Dombivli", "Maharashtra", "421201", "PANCARD",
+                "ABDCA4364R");
+        stub.commit();
+        return customer;
+    }
+
+    @Benchmark
+    public VehInsurance createInsurance() {
+        VehInsurance insurance = contract.CreateInsurance(ctx, "new" + created++, "cust-1", "comp-1", "1",
+                "2023-12-12", "COMPREHENSIVE", "SUV", "Tata", "2022");
+        stub.commit();
+        return insurance;
+    }
+
+    @Benchmark
+    public boolean claimExists() {
+        boolean exists = contract.ClaimExists(ctx, "claim-" + nextId());
+        stub.commit();
+        return exists;
+    }
+
+    @Benchmark
+    public boolean customerExists() {
+        boolean exists = contract.CustomerExists(ctx, "cust-" + nextId());
+        stub.commit();
+        return exists;
+    }
+
+    @Benchmark
+    public boolean insuranceExists() {
+        boolean exists = contract.InsuranceExists(ctx, "vehins-" + nextId());
+        stub.commit();
+        return exists;
+    }
+
+    @Benchmark
+    public Claim readClaim() {
+        Claim claim = contract.ReadClaim(ctx, "claim-" + nextId());
+        stub.commit();
+        return claim;
+    }
+
+    @Benchmark
+    public Customer readCustomer() {
+        Customer customer = contract.ReadCustomer(ctx, "cust-" + nextId());
+        stub.commit();
+        return customer;
+    }
+
+    @Benchmark
+    public VehInsurance readInsurance() {
+        VehInsurance insurance = contract.ReadInsurance(ctx, "vehins-" + nextId());
+        stub.commit();
+        return insurance;
+    }
+
+    @Benchmark
+    public String getAllClaims() {
+        String claims = contract.GetAllClaims(ctx);
+        stub.commit();
+        return claims;
+    }
+
+    @Benchmark
+    public String getAllCustomers() {
+        String customers = contract.GetAllCustomers(ctx);
+        stub.commit();
+        return customers;
+    }
+
+    @Benchmark
+    public String getAllInsurance() {
+        String insurance = contract.GetAllInsurance(ctx);
+        stub.commit();
+        return insurance;
+    }
+}
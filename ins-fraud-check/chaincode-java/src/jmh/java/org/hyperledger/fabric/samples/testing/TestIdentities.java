@@ -0,0 +1,46 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.testing;
+
+/**
+ * Self-signed client certificates for driving contracts through {@link InMemoryChaincodeStub}.
+ */
+public final class TestIdentities {
+
+    public static final String ORG1_MSP = "Org1MSP";
+
+    public static final String ORG1_USER_CERT =
+            "-----BEGIN CERTIFICATE-----\n"
+            + "MIIBvTCCAWOgAwIBAgIUaSwCbCxyULCHxpEaxdjfDPLksGgwCgYIKoZIzj0EAwIw\n"
+            + "MzENMAsGA1UECgwET3JnMTEPMA0GA1UECwwGY2xpZW50MREwDwYDVQQDDAhvcmcx\n"
+            + "dXNlcjAgFw0yNjEwMTgxMTM1MTZaGA8yMTI2MDkyNDExMzUxNlowMzENMAsGA1UE\n"
+            + "CgwET3JnMTEPMA0GA1UECwwGY2xpZW50MREwDwYDVQQDDAhvcmcxdXNlcjBZMBMG\n"
+            + "ByqGSM49AgEGCCqGSM49AwEHA0IABGzvXaGRH90io7rsw8FxNI0XgTgqFJkjCUrM\n"
+            + "FRcD9Niw18A5y2h7d96qCM6V8+dOu0UvP72j7ySiTizpmaHZ+JyjUzBRMB0GA1Ud\n"
+            + "DgQWBBQk9rbgfk6dCG1VQO96P7CF7E6XSjAfBgNVHSMEGDAWgBQk9rbgfk6dCG1V\n"
+            + "QO96P7CF7E6XSjAPBgNVHRMBAf8EBTADAQH/MAoGCCqGSM49BAMCA0gAMEUCIQCU\n"
+            + "5vqm5Vwn6EVqCcbrpFUU/1rvg7eUUNDPpfDVb8v2FQIgUiyZ2O+T6UICq/19mSja\n"
+            + "SzWCCO8vfTfF3hLs3JjJXHE=\n"
+            + "-----END CERTIFICATE-----\n";
+
+    public static final String ORG2_MSP = "Org2MSP";
+
+    public static final String ORG2_USER_CERT =
+            "-----BEGIN CERTIFICATE-----\n"
+            + "MIIBvjCCAWOgAwIBAgIUeYtPRiOjxFGBStDhGr8b51TgcNowCgYIKoZIzj0EAwIw\n"
+            + "MzENMAsGA1UECgwET3JnMjEPMA0GA1UECwwGY2xpZW50MREwDwYDVQQDDAhvcmcy\n"
+            + "dXNlcjAgFw0yNjEwMTgxMTM1MTZaGA8yMTI2MDkyNDExMzUxNlowMzENMAsGA1UE\n"
+            + "CgwET3JnMjEPMA0GA1UECwwGY2xpZW50MREwDwYDVQQDDAhvcmcydXNlcjBZMBMG\n"
+            + "ByqGSM49AgEGCCqGSM49AwEHA0IABBj08WMNo+mJi3edGkHSOxclJS909Tiifouv\n"
+            + "zL1KyV/uC4AlfR7UyUOdcmDO7iXgE6YcIXdwS6Xkra3yPPGJjrmjUzBRMB0GA1Ud\n"
+            + "DgQWBBR4lTrAQ8eLDg/GK2xDQ28YEGz87DAfBgNVHSMEGDAWgBR4lTrAQ8eLDg/G\n"
+            + "K2xDQ28YEGz87DAPBgNVHRMBAf8EBTADAQH/MAoGCCqGSM49BAMCA0kAMEYCIQD1\n"
+            + "yJOi4T7DTH3PCLpJE77dvbYOc3TZEPzwJ5K39SCIeAIhAO3bYoOubLwc+fp3Jou2\n"
+            + "71wvtZvI8SMJJ3h27MCmtcL6\n"
+            + "-----END CERTIFICATE-----\n";
+
+    private TestIdentities() {
+    }
+}
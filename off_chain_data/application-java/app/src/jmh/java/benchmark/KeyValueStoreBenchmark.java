@@ -0,0 +1,149 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package benchmark;
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KVWrite;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up assets in a {@code KeyValueStore} holding {@code assets} asset-transfer assets, either one key at a time or
+ * as a range of 100 keys. The application classes are in the unnamed package, which benchmarks cannot import from, so
+ * they are called through method handles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1) // checkstyle:ignore-line:MagicNumber
+@Measurement(iterations = 5, time = 1) // checkstyle:ignore-line:MagicNumber
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeyValueStoreBenchmark {
+    private static final String CHANNEL_NAME = "mychannel";
+    private static final String NAMESPACE = "basic";
+    private static final int SCAN_LENGTH = 100;
+    private static final int WRITES_PER_TRANSACTION = 100;
+
+    private static final MethodHandle NEW_WRITE;
+    private static final MethodHandle NEW_STORE;
+    private static final MethodHandle STORE;
+    private static final MethodHandle GET;
+    private static final MethodHandle SCAN;
+    private static final MethodHandle SYNC;
+    private static final MethodHandle CLOSE;
+
+    static {
+        try {
+            var writeClass = Class.forName("Write");
+            var storeClass = Class.forName("KeyValueStore");
+            var lookup = MethodHandles.publicLookup();
+            NEW_WRITE = lookup.findConstructor(writeClass, MethodType.methodType(void.class, String.class, String.class, KVWrite.class));
+            NEW_STORE = lookup.findConstructor(storeClass, MethodType.methodType(void.class, Path.class));
+            STORE = lookup.findVirtual(storeClass, "store", MethodType.methodType(void.class, long.class, String.class, List.class));
+            GET = lookup.findVirtual(storeClass, "get", MethodType.methodType(Optional.class, String.class, String.class, String.class));
+            SCAN = lookup.findVirtual(storeClass, "scan",
+                    MethodType.methodType(SortedMap.class, String.class, String.class, String.class, String.class));
+            SYNC = lookup.findVirtual(storeClass, "sync", MethodType.methodType(void.class));
+            CLOSE = lookup.findVirtual(storeClass, "close", MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({"10000", "100000"})
+    private int assets;
+
+    private Path file;
+    private Object store;
+
+    /**
+     * Store the assets, in transactions of 100 writes.
+     * @throws Throwable if the store cannot be written.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        file = Files.createTempFile("state", ".db");
+        store = NEW_STORE.invoke(file);
+
+        var writes = new ArrayList<Object>();
+        for (var i = 0; i < assets; i++) {
+            var value = "{\"ID\":\"" + assetId(i) + "\",\"Color\":\"blue\",\"Size\":5,\"Owner\":\"Tomoko\",\"AppraisedValue\":300}";
+            var write = KVWrite.newBuilder()
+                    .setKey(assetId(i))
+                    .setValue(ByteString.copyFrom(value, StandardCharsets.UTF_8))
+                    .build();
+            writes.add(NEW_WRITE.invoke(CHANNEL_NAME, NAMESPACE, write));
+
+            if (writes.size() == WRITES_PER_TRANSACTION) {
+                STORE.invoke(store, 0L, "tx" + i, writes);
+                writes.clear();
+            }
+        }
+        STORE.invoke(store, 0L, "tx", writes);
+        SYNC.invoke(store);
+    }
+
+    /**
+     * Delete the store file.
+     * @throws Throwable if the store cannot be closed or deleted.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        CLOSE.invoke(store);
+        Files.delete(file);
+    }
+
+    private static String assetId(final int i) {
+        return String.format("asset%07d", i);
+    }
+
+    /**
+     * Look up the current value of a random asset.
+     * @return The value.
+     * @throws Throwable if the value cannot be read.
+     */
+    @Benchmark
+    public Optional<?> get() throws Throwable {
+        var id = assetId(ThreadLocalRandom.current().nextInt(assets));
+        return (Optional<?>) GET.invoke(store, CHANNEL_NAME, NAMESPACE, id);
+    }
+
+    /**
+     * Read the current values of 100 consecutive assets from a random position.
+     * @return The values by key.
+     * @throws Throwable if the values cannot be read.
+     */
+    @Benchmark
+    public SortedMap<?, ?> scan() throws Throwable {
+        var start = ThreadLocalRandom.current().nextInt(assets - SCAN_LENGTH);
+        return (SortedMap<?, ?>) SCAN.invoke(store, CHANNEL_NAME, NAMESPACE, assetId(start), assetId(start + SCAN_LENGTH));
+    }
+}
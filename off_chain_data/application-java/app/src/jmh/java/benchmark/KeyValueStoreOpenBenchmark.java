@@ -0,0 +1,143 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package benchmark;
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KVWrite;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens a {@code KeyValueStore} for lookups, as the getLocalAssets command does, after each of {@code assets}
+ * asset-transfer assets has been written {@code updates} times. With {@code snapshot} false, the index snapshot is
+ * deleted, so opening reads every record in the store. The application classes are in the unnamed package, which
+ * benchmarks cannot import from, so they are called through method handles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1) // checkstyle:ignore-line:MagicNumber
+@Measurement(iterations = 5, time = 1) // checkstyle:ignore-line:MagicNumber
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeyValueStoreOpenBenchmark {
+    private static final String CHANNEL_NAME = "mychannel";
+    private static final String NAMESPACE = "basic";
+    private static final int WRITES_PER_TRANSACTION = 100;
+
+    private static final MethodHandle NEW_WRITE;
+    private static final MethodHandle NEW_STORE;
+    private static final MethodHandle OPEN_READ_ONLY;
+    private static final MethodHandle STORE;
+    private static final MethodHandle CLOSE;
+
+    static {
+        try {
+            var writeClass = Class.forName("Write");
+            var storeClass = Class.forName("KeyValueStore");
+            var lookup = MethodHandles.publicLookup();
+            NEW_WRITE = lookup.findConstructor(writeClass, MethodType.methodType(void.class, String.class, String.class, KVWrite.class));
+            NEW_STORE = lookup.findConstructor(storeClass, MethodType.methodType(void.class, Path.class));
+            OPEN_READ_ONLY = lookup.findStatic(storeClass, "openReadOnly", MethodType.methodType(storeClass, Path.class));
+            STORE = lookup.findVirtual(storeClass, "store", MethodType.methodType(void.class, long.class, String.class, List.class));
+            CLOSE = lookup.findVirtual(storeClass, "close", MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({"10000", "100000"})
+    private int assets;
+
+    @Param({"10"})
+    private int updates;
+
+    @Param({"true", "false"})
+    private boolean snapshot;
+
+    private Path dir;
+    private Path file;
+
+    /**
+     * Write every asset {@code updates} times, in transactions of 100 writes, and close the store.
+     * @throws Throwable if the store cannot be written.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        dir = Files.createTempDirectory("state");
+        file = dir.resolve("state.db");
+        var store = NEW_STORE.invoke(file);
+
+        var writes = new ArrayList<Object>();
+        for (var update = 0; update < updates; update++) {
+            for (var i = 0; i < assets; i++) {
+                var id = String.format("asset%07d", i);
+                var value = "{\"ID\":\"" + id + "\",\"Color\":\"blue\",\"Size\":5,\"Owner\":\"Tomoko\",\"AppraisedValue\":" + update + "}";
+                var write = KVWrite.newBuilder()
+                        .setKey(id)
+                        .setValue(ByteString.copyFrom(value, StandardCharsets.UTF_8))
+                        .build();
+                writes.add(NEW_WRITE.invoke(CHANNEL_NAME, NAMESPACE, write));
+
+                if (writes.size() == WRITES_PER_TRANSACTION) {
+                    STORE.invoke(store, (long) update, "tx" + i, writes);
+                    writes.clear();
+                }
+            }
+        }
+        STORE.invoke(store, (long) updates, "tx", writes);
+        CLOSE.invoke(store);
+
+        if (!snapshot) {
+            Files.delete(dir.resolve("state.db.index"));
+        }
+    }
+
+    /**
+     * Delete the store files.
+     * @throws Throwable if the files cannot be deleted.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        try (var files = Files.list(dir)) {
+            for (var path : (Iterable<Path>) files::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    /**
+     * Open the store for lookups and close it again.
+     * @throws Throwable if the store cannot be read.
+     */
+    @Benchmark
+    public void openReadOnly() throws Throwable {
+        var store = OPEN_READ_ONLY.invoke(file);
+        CLOSE.invoke(store);
+    }
+}
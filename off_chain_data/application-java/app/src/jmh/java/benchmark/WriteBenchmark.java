@@ -0,0 +1,118 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package benchmark;
+
+import com.google.gson.Gson;
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KVWrite;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates a {@code Write} for a ledger write of {@code valueSize} bytes and reads its value, either as bytes for a
+ * binary store, as a view of the received bytes, or as JSON, as the listener writes it to the store file. The
+ * application classes are in the unnamed package, which benchmarks cannot import from, so they are called through
+ * method handles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1) // checkstyle:ignore-line:MagicNumber
+@Measurement(iterations = 5, time = 1) // checkstyle:ignore-line:MagicNumber
+@Fork(1)
+@State(Scope.Thread)
+public class WriteBenchmark {
+    private static final Gson GSON = new Gson();
+    private static final MethodHandle NEW_WRITE;
+    private static final MethodHandle GET_VALUE;
+    private static final MethodHandle GET_VALUE_BUFFER;
+
+    static {
+        try {
+            var writeClass = Class.forName("Write");
+            var lookup = MethodHandles.publicLookup();
+            NEW_WRITE = lookup.findConstructor(writeClass, MethodType.methodType(void.class, String.class, String.class, KVWrite.class));
+            GET_VALUE = lookup.findVirtual(writeClass, "getValue", MethodType.methodType(byte[].class));
+            GET_VALUE_BUFFER = lookup.findVirtual(writeClass, "getValueBuffer", MethodType.methodType(ByteBuffer.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({"100", "10000"})
+    private int valueSize;
+
+    private KVWrite write;
+
+    /**
+     * Build a ledger write whose value is a JSON document of the given size.
+     */
+    @Setup
+    public void setUp() {
+        var padding = new char[Math.max(0, valueSize - "{\"ID\":\"asset1\",\"Notes\":\"\"}".length())];
+        Arrays.fill(padding, 'x');
+        var value = "{\"ID\":\"asset1\",\"Notes\":\"" + new String(padding) + "\"}";
+        write = KVWrite.newBuilder()
+                .setKey("asset1")
+                .setValue(ByteString.copyFrom(value, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    /**
+     * Create a write and read its value as bytes.
+     * @return The value.
+     * @throws Throwable if the write cannot be created.
+     */
+    @Benchmark
+    public byte[] value() throws Throwable {
+        return (byte[]) GET_VALUE.invoke(newWrite());
+    }
+
+    /**
+     * Create a write and read its value without copying it.
+     * @return The value.
+     * @throws Throwable if the write cannot be created.
+     */
+    @Benchmark
+    public ByteBuffer valueBuffer() throws Throwable {
+        return (ByteBuffer) GET_VALUE_BUFFER.invoke(newWrite());
+    }
+
+    /**
+     * Create a write and serialize it as JSON.
+     * @return The JSON.
+     * @throws Throwable if the write cannot be created or the JSON fails to be written.
+     */
+    @Benchmark
+    public String json() throws Throwable {
+        try (var writer = new StringWriter()) {
+            GSON.toJson(newWrite(), writer);
+            return writer.toString();
+        }
+    }
+
+    private Object newWrite() throws Throwable {
+        return NEW_WRITE.invoke("mychannel", "basic", write);
+    }
+}
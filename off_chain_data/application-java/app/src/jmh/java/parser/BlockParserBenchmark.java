@@ -0,0 +1,106 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package parser;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a block down to the writes of each valid transaction, as the listener does, either one transaction at a time
+ * or concurrently on a pool of {@code threads} threads, and with or without a subscription to its namespaces.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1) // checkstyle:ignore-line:MagicNumber
+@Measurement(iterations = 5, time = 1) // checkstyle:ignore-line:MagicNumber
+@Fork(1)
+@State(Scope.Thread)
+public class BlockParserBenchmark {
+    @Param({"10", "100", "1000"})
+    private int transactions;
+
+    @Param({"4"})
+    private int threads;
+
+    private org.hyperledger.fabric.protos.common.Block block;
+    private ForkJoinPool pool;
+
+    /**
+     * Build the block and the parser pool.
+     */
+    @Setup
+    public void setUp() {
+        block = SyntheticBlocks.newBlock(1, transactions);
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Stop the parser pool.
+     */
+    @TearDown
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Parse the block one transaction at a time.
+     * @param blackhole Consumer of the parsed writes.
+     * @throws InvalidProtocolBufferException if the block fails to parse.
+     */
+    @Benchmark
+    public void sequential(final Blackhole blackhole) throws InvalidProtocolBufferException {
+        consumeWrites(BlockParser.parseBlock(block), blackhole);
+    }
+
+    /**
+     * Parse the transactions of the block concurrently.
+     * @param blackhole Consumer of the parsed writes.
+     * @throws InvalidProtocolBufferException if the block fails to parse.
+     */
+    @Benchmark
+    public void parallel(final Blackhole blackhole) throws InvalidProtocolBufferException {
+        consumeWrites(BlockParser.parseBlock(block, pool), blackhole);
+    }
+
+    /**
+     * Parse the transactions of the block concurrently for a listener subscribed only to a different chaincode, so that
+     * no read/write sets are decoded.
+     * @param blackhole Consumer of the parsed writes.
+     * @throws InvalidProtocolBufferException if the block fails to parse.
+     */
+    @Benchmark
+    public void parallelUnsubscribed(final Blackhole blackhole) throws InvalidProtocolBufferException {
+        consumeWrites(BlockParser.parseBlock(block, pool, "other"::equals), blackhole);
+    }
+
+    private static void consumeWrites(final Block parsedBlock, final Blackhole blackhole) throws InvalidProtocolBufferException {
+        for (var transaction : parsedBlock.getTransactions()) {
+            if (!transaction.isValid()) {
+                continue;
+            }
+            blackhole.consume(transaction.getChannelHeader().getTxId());
+            for (var readWriteSet : transaction.getNamespaceReadWriteSets()) {
+                blackhole.consume(readWriteSet.getReadWriteSet().getWritesList());
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package parser;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.hyperledger.fabric.protos.common.ChannelHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads the cached channel header of a transaction repeatedly from 4 threads, as consumers of a parsed block do. The
+ * parser's lazily parsed header is compared with caching in an {@link AtomicReference} updated by
+ * {@link AtomicReference#updateAndGet}, which was used previously.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1) // checkstyle:ignore-line:MagicNumber
+@Measurement(iterations = 5, time = 1) // checkstyle:ignore-line:MagicNumber
+@Fork(1)
+@Threads(4) // checkstyle:ignore-line:MagicNumber
+@State(Scope.Benchmark)
+public class ChannelHeaderBenchmark {
+    private Transaction transaction;
+    private final AtomicReference<ChannelHeader> cachedChannelHeader = new AtomicReference<>();
+
+    /**
+     * Parse a transaction and its channel header.
+     * @throws InvalidProtocolBufferException if the transaction fails to parse.
+     */
+    @Setup
+    public void setUp() throws InvalidProtocolBufferException {
+        transaction = BlockParser.parseBlock(SyntheticBlocks.newBlock(1, 1)).getTransactions().get(0);
+        cachedChannelHeader.set(transaction.getChannelHeader());
+    }
+
+    /**
+     * Read the channel header from the transaction.
+     * @return The transaction ID.
+     * @throws InvalidProtocolBufferException if the channel header fails to parse.
+     */
+    @Benchmark
+    public String lazy() throws InvalidProtocolBufferException {
+        return transaction.getChannelHeader().getTxId();
+    }
+
+    /**
+     * Read the channel header from an {@link AtomicReference}, as it was previously cached.
+     * @return The transaction ID.
+     */
+    @Benchmark
+    public String atomicReference() {
+        return cachedChannelHeader.updateAndGet(current -> current != null ? current : parseChannelHeader()).getTxId();
+    }
+
+    private ChannelHeader parseChannelHeader() {
+        try {
+            return ChannelHeader.parseFrom(transaction.toProto().getHeader().getChannelHeader());
+        } catch (InvalidProtocolBufferException e) {
+            throw new CompletionException(e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package parser;
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.common.BlockData;
+import org.hyperledger.fabric.protos.common.BlockHeader;
+import org.hyperledger.fabric.protos.common.BlockMetadata;
+import org.hyperledger.fabric.protos.common.BlockMetadataIndex;
+import org.hyperledger.fabric.protos.common.ChannelHeader;
+import org.hyperledger.fabric.protos.common.Envelope;
+import org.hyperledger.fabric.protos.common.Header;
+import org.hyperledger.fabric.protos.common.HeaderType;
+import org.hyperledger.fabric.protos.common.Payload;
+import org.hyperledger.fabric.protos.common.SignatureHeader;
+import org.hyperledger.fabric.protos.ledger.rwset.NsReadWriteSet;
+import org.hyperledger.fabric.protos.ledger.rwset.TxReadWriteSet;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KVRWSet;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KVRead;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KVWrite;
+import org.hyperledger.fabric.protos.peer.ChaincodeAction;
+import org.hyperledger.fabric.protos.peer.ChaincodeActionPayload;
+import org.hyperledger.fabric.protos.peer.ChaincodeEndorsedAction;
+import org.hyperledger.fabric.protos.peer.ProposalResponsePayload;
+import org.hyperledger.fabric.protos.peer.Transaction;
+import org.hyperledger.fabric.protos.peer.TransactionAction;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Builds blocks of asset-transfer-basic transactions, as delivered to the listener by a peer. Each transaction reads
+ * the chaincode definition from the {@code _lifecycle} namespace and reads and updates one asset in the {@code basic}
+ * namespace.
+ */
+public final class SyntheticBlocks {
+    private static final String CHANNEL_NAME = "mychannel";
+    private static final String CHAINCODE_NAME = "basic";
+    private static final int CREATOR_SIZE = 800; // Roughly the size of a serialized X.509 identity
+    private static final int SIGNATURE_SIZE = 72;
+    private static final int METADATA_ENTRIES = BlockMetadataIndex.COMMIT_HASH_VALUE + 1;
+
+    /**
+     * Build a block in which every transaction is valid.
+     * @param blockNumber Block number.
+     * @param transactionCount Number of transactions in the block.
+     * @return A block protobuf message.
+     */
+    public static org.hyperledger.fabric.protos.common.Block newBlock(final long blockNumber, final int transactionCount) {
+        var data = BlockData.newBuilder();
+        for (int i = 0; i < transactionCount; i++) {
+            data.addData(newEnvelope(blockNumber + "-" + i).toByteString());
+        }
+
+        var validationCodes = new byte[transactionCount];
+        Arrays.fill(validationCodes, (byte) TxValidationCode.VALID_VALUE);
+        var metadata = BlockMetadata.newBuilder();
+        for (int i = 0; i < METADATA_ENTRIES; i++) {
+            metadata.addMetadata(ByteString.EMPTY);
+        }
+        metadata.setMetadata(BlockMetadataIndex.TRANSACTIONS_FILTER_VALUE, ByteString.copyFrom(validationCodes));
+
+        return org.hyperledger.fabric.protos.common.Block.newBuilder()
+                .setHeader(BlockHeader.newBuilder().setNumber(blockNumber))
+                .setData(data)
+                .setMetadata(metadata)
+                .build();
+    }
+
+    private static Envelope newEnvelope(final String transactionId) {
+        var channelHeader = ChannelHeader.newBuilder()
+                .setType(HeaderType.ENDORSER_TRANSACTION_VALUE)
+                .setChannelId(CHANNEL_NAME)
+                .setTxId(transactionId)
+                .build();
+        var signatureHeader = SignatureHeader.newBuilder()
+                .setCreator(ByteString.copyFrom(new byte[CREATOR_SIZE]))
+                .setNonce(ByteString.copyFrom(new byte[24])) // checkstyle:ignore-line:MagicNumber
+                .build();
+        var payload = Payload.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setChannelHeader(channelHeader.toByteString())
+                        .setSignatureHeader(signatureHeader.toByteString()))
+                .setData(newTransaction(transactionId).toByteString())
+                .build();
+
+        return Envelope.newBuilder()
+                .setPayload(payload.toByteString())
+                .setSignature(ByteString.copyFrom(new byte[SIGNATURE_SIZE]))
+                .build();
+    }
+
+    private static Transaction newTransaction(final String transactionId) {
+        var assetId = "asset-" + transactionId;
+        var asset = "{\"AppraisedValue\":300,\"Color\":\"blue\",\"ID\":\"" + assetId + "\",\"Owner\":\"alice\",\"Size\":5}";
+        var assetWrites = KVRWSet.newBuilder()
+                .addReads(KVRead.newBuilder().setKey(assetId))
+                .addWrites(KVWrite.newBuilder()
+                        .setKey(assetId)
+                        .setValue(ByteString.copyFrom(asset, StandardCharsets.UTF_8)))
+                .build();
+        var lifecycleReads = KVRWSet.newBuilder()
+                .addReads(KVRead.newBuilder().setKey("namespaces/fields/" + CHAINCODE_NAME + "/Sequence"))
+                .build();
+        var readWriteSet = TxReadWriteSet.newBuilder()
+                .setDataModel(TxReadWriteSet.DataModel.KV)
+                .addNsRwset(NsReadWriteSet.newBuilder()
+                        .setNamespace("_lifecycle")
+                        .setRwset(lifecycleReads.toByteString()))
+                .addNsRwset(NsReadWriteSet.newBuilder()
+                        .setNamespace(CHAINCODE_NAME)
+                        .setRwset(assetWrites.toByteString()))
+                .build();
+
+        var chaincodeAction = ChaincodeAction.newBuilder()
+                .setResults(readWriteSet.toByteString())
+                .build();
+        var proposalResponsePayload = ProposalResponsePayload.newBuilder()
+                .setProposalHash(ByteString.copyFrom(new byte[32])) // checkstyle:ignore-line:MagicNumber
+                .setExtension(chaincodeAction.toByteString())
+                .build();
+        var actionPayload = ChaincodeActionPayload.newBuilder()
+                .setAction(ChaincodeEndorsedAction.newBuilder()
+                        .setProposalResponsePayload(proposalResponsePayload.toByteString()))
+                .build();
+
+        return Transaction.newBuilder()
+                .addActions(TransactionAction.newBuilder().setPayload(actionPayload.toByteString()))
+                .build();
+    }
+
+    private SyntheticBlocks() { }
+}
@@ -14,8 +14,10 @@ public final class App {
     private static final long SHUTDOWN_TIMEOUT_SECONDS = 3;
     private static final Map<String, Command> COMMANDS = Map.ofEntries(
             Map.entry("getAllAssets", new GetAllAssets()),
+            Map.entry("getLocalAssets", new GetLocalAssets()),
             Map.entry("transact", new Transact()),
-            Map.entry("listen", new Listen())
+            Map.entry("listen", new Listen()),
+            Map.entry("readStore", new ReadStore())
     );
 
     private final List<String> commandNames;
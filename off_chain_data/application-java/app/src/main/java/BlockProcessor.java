@@ -5,41 +5,70 @@
  */
 
 import com.google.protobuf.InvalidProtocolBufferException;
-import org.hyperledger.fabric.client.Checkpointer;
 import parser.Block;
-import parser.Transaction;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.OptionalInt;
 
 public final class BlockProcessor {
     private final Block block;
-    private final Checkpointer checkpointer;
+    private final StoreCheckpointer checkpointer;
+    private final Subscription subscription;
     private final Store store;
+    private List<TransactionProcessor> transactionProcessors;
+    private List<Integer> transactionIndexes;
 
-    public BlockProcessor(final Block block, final Checkpointer checkpointer, final Store store) {
+    public BlockProcessor(final Block block, final StoreCheckpointer checkpointer, final Subscription subscription,
+                          final Store store) {
         this.block = block;
         this.checkpointer = checkpointer;
+        this.subscription = subscription;
         this.store = store;
     }
 
+    /**
+     * Select the valid transactions after the last processed transaction, and read their writes. This is done when the
+     * block is processed if it has not already been done, but can be run ahead of processing.
+     * @param lastTransactionIndex Index within the block of the last processed transaction, if known.
+     * @param lastTransactionId ID of the last processed transaction within the block, if any.
+     * @throws InvalidProtocolBufferException if the block cannot be parsed.
+     */
+    public void extractWrites(final OptionalInt lastTransactionIndex, final Optional<String> lastTransactionId)
+            throws InvalidProtocolBufferException {
+        var transactions = block.getTransactions();
+        var processors = new ArrayList<TransactionProcessor>();
+        var indexes = new ArrayList<Integer>();
+        for (var i = getFirstNewTransactionIndex(lastTransactionIndex, lastTransactionId); i < transactions.size(); i++) {
+            var transaction = transactions.get(i);
+            if (transaction.isValid()) {
+                var processor = new TransactionProcessor(transaction, block.getNumber(), subscription, store);
+                processor.extractWrites();
+                processors.add(processor);
+                indexes.add(i);
+            }
+        }
+
+        transactionProcessors = processors;
+        transactionIndexes = indexes;
+    }
+
     public void process() {
         var blockNumber = block.getNumber();
         System.out.println("\nReceived block " + Long.toUnsignedString(blockNumber));
 
         try {
-            var validTransactions = getNewTransactions().stream()
-                    .filter(Transaction::isValid)
-                    .collect(Collectors.toList());
-
-            for (var transaction : validTransactions) {
-                new TransactionProcessor(transaction, blockNumber, store).process();
+            if (transactionProcessors == null) {
+                extractWrites(checkpointer.getTransactionIndex(), checkpointer.getTransactionId());
+            }
 
-                var transactionId = transaction.getChannelHeader().getTxId();
-                checkpointer.checkpointTransaction(blockNumber, transactionId);
+            for (var i = 0; i < transactionProcessors.size(); i++) {
+                var processor = transactionProcessors.get(i);
+                processor.process();
+                checkpointer.checkpointTransaction(blockNumber, transactionIndexes.get(i), processor.getTransactionId());
             }
 
             checkpointer.checkpointBlock(blockNumber);
@@ -48,13 +77,22 @@ public final class BlockProcessor {
         }
     }
 
-    private List<Transaction> getNewTransactions() throws InvalidProtocolBufferException {
-        var transactions = block.getTransactions();
-
-        var lastTransactionId = checkpointer.getTransactionId();
+    private int getFirstNewTransactionIndex(final OptionalInt lastTransactionIndex, final Optional<String> lastTransactionId)
+            throws InvalidProtocolBufferException {
         if (lastTransactionId.isEmpty()) {
             // No previously processed transactions within this block so all are new
-            return transactions;
+            return 0;
+        }
+
+        var transactions = block.getTransactions();
+
+        // Resume directly after the checkpoint transaction index, provided it still identifies the same transaction
+        if (lastTransactionIndex.isPresent()) {
+            var index = lastTransactionIndex.getAsInt();
+            if (index < transactions.size()
+                    && lastTransactionId.get().equals(transactions.get(index).getChannelHeader().getTxId())) {
+                return index + 1;
+            }
         }
 
         var transactionIds = new ArrayList<>();
@@ -69,6 +107,6 @@ public final class BlockProcessor {
                     + Long.toUnsignedString(block.getNumber()) + " containing transactions: " + transactionIds);
         }
 
-        return transactions.subList(lastProcessedIndex + 1, transactions.size());
+        return lastProcessedIndex + 1;
     }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Append-only store that writes each ledger write as a line of JSON to a file. The file is kept open, and writes are
+ * accumulated in a buffer across transactions and blocks. They are only guaranteed to be in the file, and on the
+ * storage device, after {@link #sync()}.
+ */
+public final class FileStore implements LogStore {
+    private static final Gson GSON = new Gson();
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final StringBuilder lines = new StringBuilder();
+    private long fileLength;
+
+    public FileStore(final Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        fileLength = channel.size();
+        channel.position(fileLength);
+    }
+
+    @Override
+    public void store(final long blockNumber, final String transactionId, final List<Write> writes) throws IOException {
+        var start = length();
+        try {
+            lines.setLength(0);
+            for (var write : writes) {
+                GSON.toJson(write, lines);
+                lines.append('\n');
+            }
+            append(lines);
+        } catch (IOException | RuntimeException e) {
+            // Do not leave part of the transaction's writes in the store
+            truncate(start);
+            throw e;
+        }
+    }
+
+    private void append(final CharSequence chars) throws IOException {
+        var in = CharBuffer.wrap(chars);
+        encoder.reset();
+        var result = encoder.encode(in, buffer, true);
+        while (result.isOverflow()) {
+            drain();
+            result = encoder.encode(in, buffer, true);
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            fileLength += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public long length() {
+        return fileLength + buffer.position();
+    }
+
+    @Override
+    public void sync() throws IOException {
+        drain();
+        channel.force(false);
+    }
+
+    @Override
+    public void truncate(final long length) throws IOException {
+        if (length >= fileLength) {
+            buffer.position(Math.toIntExact(Math.min(length - fileLength, buffer.position())));
+            return;
+        }
+
+        buffer.clear();
+        channel.truncate(length);
+        fileLength = length;
+        channel.position(length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+}
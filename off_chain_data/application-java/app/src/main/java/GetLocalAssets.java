@@ -0,0 +1,39 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import io.grpc.Channel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+/**
+ * Retrieve the current details of all assets from the world state replica maintained by the listener with a key-value
+ * store, without calling the peer.
+ */
+public final class GetLocalAssets implements Command {
+    static final String DEFAULT_STORE_FILE = "state.db";
+
+    private static final Path STORE_FILE = Paths.get(Utils.getEnvOrDefault("STORE_FILE", DEFAULT_STORE_FILE));
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    @Override
+    public void run(final Channel grpcChannel) throws IOException {
+        try (var state = KeyValueStore.openReadOnly(STORE_FILE)) {
+            var assets = new ArrayList<Asset>();
+            for (var value : state.scan(Connections.CHANNEL_NAME, Connections.CHAINCODE_NAME, "", "").values()) {
+                assets.add(GSON.fromJson(new String(value, StandardCharsets.UTF_8), Asset.class));
+            }
+
+            var assetsJson = GSON.toJson(assets);
+            System.out.println(assetsJson);
+        }
+    }
+}
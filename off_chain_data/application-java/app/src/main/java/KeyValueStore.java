@@ -0,0 +1,500 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded key-value store that holds the current value of each ledger key, as a replica of the world state. Puts and
+ * deletes are appended as records to a file, and an in-memory index sorted by channel, namespace and key locates the
+ * current value of each key in the file, for point lookups and range scans.
+ *
+ * <p>The writer saves a snapshot of the index next to the store file, with an {@code .index} suffix, when it is closed
+ * and whenever more records have been appended since the last snapshot than the index holds keys, so that saving
+ * snapshots costs at most as much as appending. Opening the store loads the snapshot and reads only the records
+ * appended after it, rather than the whole history of the store. A snapshot is ignored if the store no longer
+ * matches it, and is deleted before the store is truncated below its length.
+ *
+ * <p>Each record is a header of four 4-byte big-endian integers, followed by the UTF-8 key and the value bytes. The
+ * header holds the key length, the value length, or -1 for a delete, the CRC-32 of the key and value, and the CRC-32 of
+ * the header's first three integers. Opening the store drops only a damaged record at the very end of the file, left by
+ * a failure while writing: a header cut short, a record extending beyond the end of the file, a final record whose
+ * key and value do not match their checksum, or an end of the file that was allocated but never written, and so reads
+ * as zeros. Any other damaged record stops the store from opening, rather than losing the records after it.
+ *
+ * <p>Records are accumulated in a buffer, and are only guaranteed to be in the file, and on the storage device, after
+ * {@link #sync()}. Lookups and scans may be called from any thread.
+ */
+public final class KeyValueStore implements LogStore {
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int HEADER_LENGTH = 4 * Integer.BYTES;
+    private static final int CHECKSUMMED_HEADER_LENGTH = 3 * Integer.BYTES;
+    private static final int READ_CHUNK_SIZE = 8192;
+    private static final int DELETED = -1;
+    private static final char SEPARATOR = '\u0000';
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final int MIN_SNAPSHOT_RECORDS = 65536;
+    private static final int FINGERPRINT_LENGTH = 4096;
+
+    private final Path snapshotFile;
+    private final Path snapshotTemp;
+    private final boolean writable;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final TreeMap<String, Location> index = new TreeMap<>();
+    private final CRC32 recordCrc = new CRC32();
+    private final ByteBuffer checksummedHeader = ByteBuffer.allocate(CHECKSUMMED_HEADER_LENGTH);
+    private long fileLength;
+    private long snapshotLength = -1;
+    private long recordsSinceSnapshot = 0;
+
+    /**
+     * Open a store for writing, creating the file if it does not exist. A damaged record at the end of the file, left
+     * by a failure while writing, is removed.
+     * @param file Store file.
+     * @throws IOException if the file cannot be opened or read, or a record before the end of the file is corrupt.
+     */
+    public KeyValueStore(final Path file) throws IOException {
+        this(file, FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE),
+                true);
+        var size = channel.size();
+        if (fileLength < size) {
+            System.err.println("Removing damaged record of " + (size - fileLength) + " bytes at end of " + file);
+            channel.truncate(fileLength);
+        }
+    }
+
+    private KeyValueStore(final Path file, final FileChannel channel, final boolean writable) throws IOException {
+        this.channel = channel;
+        this.writable = writable;
+        snapshotFile = file.resolveSibling(file.getFileName() + ".index");
+        snapshotTemp = file.resolveSibling(file.getFileName() + ".index.tmp");
+        try {
+            load();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open an existing store for lookups only, such as while another process writes to it. The store contains the
+     * records in the file when it is opened.
+     * @param file Store file.
+     * @return A store.
+     * @throws IOException if the file cannot be opened or read, or a record before the end of the file is corrupt.
+     */
+    public static KeyValueStore openReadOnly(final Path file) throws IOException {
+        return new KeyValueStore(file, FileChannel.open(file, StandardOpenOption.READ), false);
+    }
+
+    private static String toIndexKey(final String channelName, final String namespace, final String key) {
+        return channelName + SEPARATOR + namespace + SEPARATOR + key;
+    }
+
+    private void load() throws IOException {
+        index.clear();
+        var size = channel.size();
+        var position = loadSnapshot(size) ? snapshotLength : 0L;
+        var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(position))));
+
+        recordsSinceSnapshot = 0;
+        var chunk = new byte[READ_CHUNK_SIZE];
+        while (size - position >= HEADER_LENGTH) {
+            var end = loadRecord(in, position, size, chunk);
+            if (end < 0) {
+                break; // Damaged final record, left by a failure while writing
+            }
+            recordsSinceSnapshot++;
+            position = end;
+        }
+
+        fileLength = position;
+        channel.position(position);
+        buffer.clear();
+    }
+
+    // Adds the record at a position to the index, returning the position of the next record, or -1 if the record is
+    // the damaged final record of the file
+    private long loadRecord(final DataInputStream in, final long position, final long size, final byte[] chunk)
+            throws IOException {
+        var keyLength = in.readInt();
+        var valueLength = in.readInt();
+        var dataChecksum = in.readInt();
+        var headerChecksum = in.readInt();
+        if (headerChecksum != headerChecksum(keyLength, valueLength, dataChecksum)) {
+            // The end of the file may have been allocated but not written before a failure
+            if ((keyLength | valueLength | dataChecksum | headerChecksum) == 0
+                    && isZeros(in, size - position - HEADER_LENGTH, chunk)) {
+                return -1;
+            }
+            throw new IOException("Corrupt record header at position " + position + " of store of length " + size);
+        }
+        if (keyLength < 0 || valueLength < DELETED) {
+            throw new IOException("Invalid record header at position " + position + " of store of length " + size);
+        }
+
+        var valuePosition = position + HEADER_LENGTH + keyLength;
+        var end = valuePosition + Math.max(valueLength, 0);
+        if (end > size) {
+            return -1; // Incomplete final record, which extends beyond the end of the file
+        }
+
+        var keyBytes = in.readNBytes(keyLength);
+        recordCrc.reset();
+        recordCrc.update(keyBytes);
+        checksum(in, end - valuePosition, chunk);
+        if ((int) recordCrc.getValue() != dataChecksum) {
+            if (end == size) {
+                return -1; // Final record only partly written before a failure
+            }
+            throw new IOException("Corrupt record at position " + position + " of store of length " + size);
+        }
+
+        update(new String(keyBytes, StandardCharsets.UTF_8),
+                valueLength != DELETED ? new Location(valuePosition, valueLength) : null);
+        return end;
+    }
+
+    // Loads the index from the snapshot, if there is one that matches the store
+    private boolean loadSnapshot(final long size) throws IOException {
+        snapshotLength = -1;
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                return false;
+            }
+            var length = in.readLong();
+            var fingerprint = in.readLong();
+            if (length > size || fingerprint != fingerprint(length)) {
+                return false;
+            }
+
+            for (var count = in.readInt(); count > 0; count--) {
+                var key = new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+                index.put(key, new Location(in.readLong(), in.readInt()));
+            }
+            snapshotLength = length;
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (EOFException e) {
+            // Snapshots are replaced atomically, so this is not a snapshot written by this class
+            index.clear();
+            return false;
+        }
+    }
+
+    // Checksum of the end of the store before a length, to detect a store replaced since a snapshot was saved
+    private long fingerprint(final long length) throws IOException {
+        var bytes = ByteBuffer.allocate((int) Math.min(length, FINGERPRINT_LENGTH));
+        var start = length - bytes.capacity();
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, start + bytes.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+
+        var crc = new CRC32();
+        crc.update(bytes.flip());
+        return crc.getValue();
+    }
+
+    // Saves the index for the records in the file, which must already be on the storage device
+    private void saveSnapshot() throws IOException {
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(snapshotTemp)))) {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(fileLength);
+            out.writeLong(fingerprint(fileLength));
+            out.writeInt(index.size());
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                var key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeLong(entry.getValue().position);
+                out.writeInt(entry.getValue().length);
+            }
+        }
+        try (var temp = FileChannel.open(snapshotTemp, StandardOpenOption.WRITE)) {
+            temp.force(false);
+        }
+        Files.move(snapshotTemp, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        snapshotLength = fileLength;
+        recordsSinceSnapshot = 0;
+    }
+
+    // Checksum of the lengths and data checksum at the start of a record header
+    private int headerChecksum(final int keyLength, final int valueLength, final int dataChecksum) {
+        checksummedHeader.clear();
+        checksummedHeader.putInt(keyLength).putInt(valueLength).putInt(dataChecksum).flip();
+        recordCrc.reset();
+        recordCrc.update(checksummedHeader);
+        return (int) recordCrc.getValue();
+    }
+
+    // Adds the next bytes of the stream to the checksum
+    private void checksum(final DataInputStream in, final long length, final byte[] chunk) throws IOException {
+        var remaining = length;
+        while (remaining > 0) {
+            var count = (int) Math.min(remaining, chunk.length);
+            in.readFully(chunk, 0, count);
+            recordCrc.update(chunk, 0, count);
+            remaining -= count;
+        }
+    }
+
+    private static boolean isZeros(final DataInputStream in, final long length, final byte[] chunk) throws IOException {
+        var remaining = length;
+        while (remaining > 0) {
+            var count = (int) Math.min(remaining, chunk.length);
+            in.readFully(chunk, 0, count);
+            for (var i = 0; i < count; i++) {
+                if (chunk[i] != 0) {
+                    return false;
+                }
+            }
+            remaining -= count;
+        }
+        return true;
+    }
+
+    private void update(final String key, final Location location) {
+        if (location != null) {
+            index.put(key, location);
+        } else {
+            index.remove(key);
+        }
+    }
+
+    @Override
+    public synchronized void store(final long blockNumber, final String transactionId, final List<Write> writes) throws IOException {
+        var start = length();
+        var keys = new ArrayList<String>(writes.size());
+        var locations = new ArrayList<Location>(writes.size());
+        try {
+            for (var write : writes) {
+                var key = toIndexKey(write.getChannelName(), write.getNamespace(), write.getKey());
+                keys.add(key);
+                locations.add(append(key.getBytes(StandardCharsets.UTF_8), write.isDelete() ? null : write.getValueBuffer()));
+            }
+        } catch (IOException | RuntimeException e) {
+            // Do not leave part of the transaction's writes in the store
+            discard(start);
+            throw e;
+        }
+
+        // Only update the index once all of the transaction's writes are stored
+        for (var i = 0; i < keys.size(); i++) {
+            update(keys.get(i), locations.get(i));
+        }
+        recordsSinceSnapshot += keys.size();
+    }
+
+    private Location append(final byte[] key, final ByteBuffer value) throws IOException {
+        var valueLength = value != null ? value.remaining() : DELETED;
+        var recordLength = HEADER_LENGTH + key.length + Math.max(valueLength, 0);
+        if (buffer.remaining() < recordLength) {
+            drain();
+        }
+
+        recordCrc.reset();
+        recordCrc.update(key);
+        if (value != null) {
+            recordCrc.update(value.duplicate());
+        }
+        var dataChecksum = (int) recordCrc.getValue();
+
+        var valuePosition = length() + HEADER_LENGTH + key.length;
+        var record = recordLength <= buffer.capacity() ? buffer : ByteBuffer.allocate(recordLength);
+        record.putInt(key.length).putInt(valueLength).putInt(dataChecksum)
+                .putInt(headerChecksum(key.length, valueLength, dataChecksum))
+                .put(key);
+        if (value != null) {
+            record.put(value);
+        }
+
+        if (record != buffer) {
+            // Too large to buffer, so written directly to the file
+            record.flip();
+            write(record);
+        }
+
+        return value != null ? new Location(valuePosition, valueLength) : null;
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        write(buffer);
+        buffer.clear();
+    }
+
+    private void write(final ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            fileLength += channel.write(bytes);
+        }
+    }
+
+    private void discard(final long length) throws IOException {
+        if (length >= fileLength) {
+            buffer.position(Math.toIntExact(Math.min(length - fileLength, buffer.position())));
+            return;
+        }
+
+        buffer.clear();
+        channel.truncate(length);
+        fileLength = length;
+        channel.position(length);
+    }
+
+    /**
+     * Current value of a ledger key.
+     * @param channelName Channel name.
+     * @param namespace Ledger namespace, which is the chaincode name.
+     * @param key Ledger key.
+     * @return The value, or empty if the key does not exist.
+     * @throws IOException if the value cannot be read.
+     */
+    public synchronized Optional<byte[]> get(final String channelName, final String namespace, final String key)
+            throws IOException {
+        var location = index.get(toIndexKey(channelName, namespace, key));
+        return location != null ? Optional.of(read(location)) : Optional.empty();
+    }
+
+    /**
+     * Current values of a range of ledger keys within a namespace, in key order.
+     * @param channelName Channel name.
+     * @param namespace Ledger namespace, which is the chaincode name.
+     * @param startKey First key in the range.
+     * @param endKey Key following the range, which is excluded, or an empty string for all keys from the start key.
+     * @return Values by ledger key.
+     * @throws IOException if the values cannot be read.
+     */
+    public synchronized SortedMap<String, byte[]> scan(final String channelName, final String namespace,
+                                                       final String startKey, final String endKey) throws IOException {
+        var prefix = toIndexKey(channelName, namespace, "");
+        var end = endKey.isEmpty()
+                ? channelName + SEPARATOR + namespace + (char) (SEPARATOR + 1)
+                : prefix + endKey;
+
+        var results = new TreeMap<String, byte[]>();
+        var start = prefix + startKey;
+        if (start.compareTo(end) >= 0) {
+            return results;
+        }
+
+        for (var entry : index.subMap(start, end).entrySet()) {
+            results.put(entry.getKey().substring(prefix.length()), read(entry.getValue()));
+        }
+        return results;
+    }
+
+    private byte[] read(final Location location) throws IOException {
+        var value = new byte[location.length];
+        if (location.position >= fileLength) {
+            // Still in the buffer
+            var buffered = buffer.duplicate();
+            buffered.position(Math.toIntExact(location.position - fileLength));
+            buffered.get(value);
+            return value;
+        }
+
+        var bytes = ByteBuffer.wrap(value);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, location.position + bytes.position()) < 0) {
+                throw new EOFException("Value of length " + location.length + " at position " + location.position
+                        + " exceeds store length " + fileLength);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public synchronized long length() {
+        return fileLength + buffer.position();
+    }
+
+    /**
+     * {@inheritDoc} The index is also saved once enough records have been appended since it was last saved.
+     */
+    @Override
+    public synchronized void sync() throws IOException {
+        drain();
+        channel.force(false);
+        if (recordsSinceSnapshot >= Math.max(index.size(), MIN_SNAPSHOT_RECORDS)) {
+            saveSnapshot();
+        }
+    }
+
+    /**
+     * {@inheritDoc} The index is rebuilt from the remaining records.
+     */
+    @Override
+    public synchronized void truncate(final long length) throws IOException {
+        if (length >= length()) {
+            return;
+        }
+
+        drain();
+        if (length < snapshotLength) {
+            Files.deleteIfExists(snapshotFile);
+        }
+        channel.truncate(length);
+        load();
+    }
+
+    /**
+     * Write any buffered records to the file and close it. The writer also saves the index if any records have been
+     * appended since it was last saved.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (writable && recordsSinceSnapshot > 0) {
+                drain();
+                channel.force(false);
+                saveSnapshot();
+            } else if (buffer.position() > 0) {
+                drain();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Position and length of a value in the store.
+     */
+    private static final class Location {
+        private final long position;
+        private final int length;
+
+        Location(final long position, final int length) {
+            this.position = position;
+            this.length = length;
+        }
+    }
+}
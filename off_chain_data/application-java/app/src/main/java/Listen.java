@@ -4,28 +4,45 @@
  * SPDX-License-Identifier: Apache-2.0
  */
 
-import com.google.gson.Gson;
 import io.grpc.Channel;
 import org.hyperledger.fabric.client.FileCheckpointer;
+import parser.Block;
 import parser.BlockParser;
 
 import java.io.IOException;
-import java.io.StringWriter;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.security.InvalidKeyException;
 import java.security.cert.CertificateException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public final class Listen implements Command {
     private static final Path CHECKPOINT_FILE = Paths.get(Utils.getEnvOrDefault("CHECKPOINT_FILE", "checkpoint.json"));
-    private static final Path STORE_FILE = Paths.get(Utils.getEnvOrDefault("STORE_FILE", "store.log"));
+    private static final String STORE_TYPE = Utils.getEnvOrDefault("STORE_TYPE", "log");
+    private static final Path STORE_FILE = Paths.get(Utils.getEnvOrDefault("STORE_FILE", getDefaultStoreFile()));
+    private static final long STORE_SEGMENT_BYTES = Utils.getEnvOrDefault("STORE_SEGMENT_BYTES", Long::parseUnsignedLong, 256L * 1024 * 1024);
+    private static final Path STORE_COMMIT_FILE = Paths.get(Utils.getEnvOrDefault("STORE_COMMIT_FILE", STORE_FILE + ".commit"));
+    private static final int STORE_COMMIT_BLOCKS = Utils.getEnvOrDefault("STORE_COMMIT_BLOCKS", Integer::parseUnsignedInt, 1);
+    private static final int STORE_COMMIT_TRANSACTIONS = Utils.getEnvOrDefault("STORE_COMMIT_TRANSACTIONS", Integer::parseUnsignedInt, 0);
     private static final int SIMULATED_FAILURE_COUNT = Utils.getEnvOrDefault("SIMULATED_FAILURE_COUNT", Integer::parseUnsignedInt, 0);
+    private static final int PARSER_THREADS = Utils.getEnvOrDefault("PARSER_THREADS", Integer::parseUnsignedInt,
+            Runtime.getRuntime().availableProcessors());
+    private static final int PIPELINE_QUEUE_SIZE = Utils.getEnvOrDefault("PIPELINE_QUEUE_SIZE", Integer::parseUnsignedInt, 16);
+    private static final int PIPELINE_METRICS_SECONDS = Utils.getEnvOrDefault("PIPELINE_METRICS_SECONDS", Integer::parseUnsignedInt, 10);
+    private static final List<String> SUBSCRIBED_NAMESPACES = Utils.getEnvOrDefault("SUBSCRIBED_NAMESPACES", Listen::parseList, List.of());
+    private static final List<String> SUBSCRIBED_KEY_PREFIXES = Utils.getEnvOrDefault("SUBSCRIBED_KEY_PREFIXES", Listen::parseList, List.of());
 
     private static final long START_BLOCK = 0L;
-    private static final Gson GSON = new Gson();
 
     private int transactionCount = 0; // Used only to simulate failures
 
@@ -33,41 +50,121 @@ public final class Listen implements Command {
     public void run(final Channel grpcChannel)
             throws CertificateException, IOException, InvalidKeyException {
         try (var gateway = Connections.newGatewayBuilder(grpcChannel).connect();
-             var checkpointer = new FileCheckpointer(CHECKPOINT_FILE)) {
+             var fileCheckpointer = new FileCheckpointer(CHECKPOINT_FILE);
+             var store = newStore();
+             // Checkpoints only advance once the store writes of the checkpointed transactions are committed
+             var checkpointer = new StoreCheckpointer(fileCheckpointer, store, STORE_COMMIT_FILE, STORE_COMMIT_BLOCKS,
+                     STORE_COMMIT_TRANSACTIONS)) {
             var network = gateway.getNetwork(Connections.CHANNEL_NAME);
 
             System.out.println("Starting event listening from block " + Long.toUnsignedString(checkpointer.getBlockNumber().orElse(START_BLOCK)));
             System.out.println(checkpointer.getTransactionId()
                     .map(transactionId -> "Last processed transaction ID within block: " + transactionId)
                     .orElse("No last processed transaction ID"));
+            var subscription = new Subscription(Set.copyOf(SUBSCRIBED_NAMESPACES), SUBSCRIBED_KEY_PREFIXES);
+            System.out.println("Subscribed to " + subscription);
             if (SIMULATED_FAILURE_COUNT > 0) {
                 System.out.println("Simulating a write failure every " + SIMULATED_FAILURE_COUNT + " transactions");
             }
 
+            // Blocks are received, parsed, have their writes extracted, and are stored on separate threads, connected by
+            // bounded queues so that a slow store holds back receiving of further blocks. Transactions within each block
+            // are parsed concurrently, while blocks are still processed in order.
+            var parserPool = new ForkJoinPool(PARSER_THREADS);
+            var metricsLogger = Executors.newSingleThreadScheduledExecutor();
+            var resumeBlockNumber = checkpointer.getBlockNumber().orElse(START_BLOCK);
+            var resumeTransactionIndex = checkpointer.getTransactionIndex();
+            var resumeTransactionId = checkpointer.getTransactionId();
+            Store offChainStore = (blockNumber, transactionId, writes) -> {
+                simulateFailureIfRequired();
+                store.store(blockNumber, transactionId, writes);
+            };
+
+            // A failed stage closes the block events, so that listening stops even if no more blocks are received
             try (var blocks = network.newBlockEventsRequest()
-                    .startBlock(START_BLOCK) // Used only if there is no checkpoint block number
-                    .checkpoint(checkpointer)
-                    .build()
-                    .getEvents()) {
-                blocks.forEachRemaining(blockProto -> {
-                    var block = BlockParser.parseBlock(blockProto);
-                    var processor = new BlockProcessor(block, checkpointer, this::applyWritesToOffChainStore);
-                    processor.process();
-                });
+                         .startBlock(START_BLOCK) // Used only if there is no checkpoint block number
+                         .checkpoint(checkpointer)
+                         .build()
+                         .getEvents();
+                 var pipeline = Pipeline.<org.hyperledger.fabric.protos.common.Block>newBuilder(PIPELINE_QUEUE_SIZE)
+                    .stage("parse", blockProto -> parseBlock(blockProto, parserPool, subscription))
+                    .stage("extract", block -> {
+                        var processor = new BlockProcessor(block, checkpointer, subscription, offChainStore);
+                        if (block.getNumber() == resumeBlockNumber) {
+                            extractWrites(processor, resumeTransactionIndex, resumeTransactionId);
+                        } else {
+                            extractWrites(processor, OptionalInt.empty(), Optional.empty());
+                        }
+                        return processor;
+                    })
+                    .stage("store", processor -> {
+                        processor.process();
+                        return null;
+                    })
+                    .onFailure(e -> blocks.close())
+                    .build()) {
+                if (PIPELINE_METRICS_SECONDS > 0) {
+                    metricsLogger.scheduleAtFixedRate(() -> System.out.println("\nPipeline " + pipeline.getMetrics()),
+                            PIPELINE_METRICS_SECONDS, PIPELINE_METRICS_SECONDS, TimeUnit.SECONDS);
+                }
+
+                pipeline.submitAll(blocks);
+            } finally {
+                metricsLogger.shutdownNow();
+                parserPool.shutdownNow();
             }
         }
     }
 
-    private void applyWritesToOffChainStore(final long blockNumber, final String transactionId, final List<Write> writes) throws IOException {
-        simulateFailureIfRequired();
+    private static String getDefaultStoreFile() {
+        switch (STORE_TYPE) {
+            case "keyvalue":
+                return GetLocalAssets.DEFAULT_STORE_FILE;
+            case "segmented":
+                return "store";
+            default:
+                return "store.log";
+        }
+    }
 
-        try (var writer = new StringWriter()) {
-            for (var write : writes) {
-                GSON.toJson(write, writer);
-                writer.append('\n');
-            }
+    private static LogStore newStore() throws IOException {
+        switch (STORE_TYPE) {
+            case "log":
+                return new FileStore(STORE_FILE);
+            case "keyvalue":
+                return new KeyValueStore(STORE_FILE);
+            case "segmented":
+                return new SegmentedStore(STORE_FILE, STORE_SEGMENT_BYTES);
+            default:
+                throw new IllegalArgumentException("Unknown store type: " + STORE_TYPE);
+        }
+    }
+
+    private static List<String> parseList(final String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(element -> !element.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    private static Block parseBlock(final org.hyperledger.fabric.protos.common.Block blockProto, final ExecutorService parserPool,
+                                    final Subscription subscription) {
+        // Read/write sets of unsubscribed namespaces are skipped without being decoded
+        var block = BlockParser.parseBlock(blockProto, parserPool, subscription::includesNamespace);
+        try {
+            block.getTransactions();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return block;
+    }
 
-            Files.writeString(STORE_FILE, writer.toString(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    private static void extractWrites(final BlockProcessor processor, final OptionalInt lastTransactionIndex,
+                                      final Optional<String> lastTransactionId) {
+        try {
+            processor.extractWrites(lastTransactionIndex, lastTransactionId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
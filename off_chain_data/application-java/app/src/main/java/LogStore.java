@@ -0,0 +1,35 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import java.io.IOException;
+
+/**
+ * Store kept in an append-only file, so that any writes after a given length can be discarded.
+ */
+public interface LogStore extends Store, AutoCloseable {
+    /**
+     * Length of the store, including buffered writes.
+     * @return A length in bytes.
+     */
+    long length();
+
+    /**
+     * Write any buffered writes to the file, and force them to the storage device.
+     * @throws IOException if an I/O error occurs.
+     */
+    void sync() throws IOException;
+
+    /**
+     * Discard everything in the store after the specified length, such as writes that were not committed before a
+     * failure.
+     * @param length A length in bytes.
+     * @throws IOException if an I/O error occurs.
+     */
+    void truncate(long length) throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Processes items in a sequence of stages, each running on its own thread. Stages are connected by bounded queues, so
+ * {@link #submit(Object)} blocks while processing falls behind, and each stage handles items in the order they were
+ * submitted. The first failure of any stage stops every stage and is thrown to the submitter.
+ * @param <T> Type of submitted items.
+ */
+public final class Pipeline<T> implements AutoCloseable {
+    private static final Object END = new Object();
+    private static final long POLL_MILLIS = 100;
+
+    private final StageMetrics receiveMetrics = new StageMetrics("receive", null);
+    private final BlockingQueue<Object> input;
+    private final List<Stage> stages = new ArrayList<>();
+    private final ExecutorService executor;
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final Consumer<? super RuntimeException> failureListener;
+    private volatile boolean closed = false;
+
+    private Pipeline(final int queueCapacity, final List<String> names, final List<Function<Object, Object>> functions,
+                     final Consumer<? super RuntimeException> failureListener) {
+        this.failureListener = failureListener;
+        input = new ArrayBlockingQueue<>(queueCapacity);
+        var queue = input;
+        for (var i = 0; i < names.size(); i++) {
+            var output = i < names.size() - 1 ? new ArrayBlockingQueue<>(queueCapacity) : null;
+            stages.add(new Stage(new StageMetrics(names.get(i), queue), functions.get(i), output));
+            queue = output;
+        }
+
+        executor = Executors.newFixedThreadPool(stages.size(), runnable -> new Thread(runnable, "pipeline"));
+        stages.forEach(executor::execute);
+    }
+
+    /**
+     * Create a builder for a pipeline. Each queue between stages holds up to {@code queueCapacity} items.
+     * @param queueCapacity Maximum number of items waiting for each stage.
+     * @return A pipeline builder.
+     * @param <T> Type of submitted items.
+     */
+    public static <T> Builder<T, T> newBuilder(final int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least one: " + queueCapacity);
+        }
+        return new Builder<>(queueCapacity);
+    }
+
+    /**
+     * Pass an item to the first stage, waiting while its queue is full.
+     * @param item An item to process.
+     * @throws RuntimeException the failure of any stage, after which no more items are processed.
+     */
+    public void submit(final T item) {
+        var start = System.nanoTime();
+        put(input, item);
+        receiveMetrics.record(System.nanoTime() - start);
+        throwIfFailed();
+    }
+
+    /**
+     * Submit every item of an iterator, then wait until they have all been processed by every stage. If a stage fails
+     * while the iterator is waiting for its next item, the failure listener can end the iteration, for example by
+     * closing the iterator, and the stage failure is thrown in preference to any exception from the iterator.
+     * @param items Items to process.
+     * @throws RuntimeException the failure of any stage, after which no more items are processed.
+     */
+    public void submitAll(final Iterator<? extends T> items) {
+        try {
+            while (items.hasNext()) {
+                submit(items.next());
+            }
+        } catch (RuntimeException e) {
+            var stageFailure = failure.get();
+            if (stageFailure == null || stageFailure == e) {
+                throw e;
+            }
+            stageFailure.addSuppressed(e);
+            throw stageFailure;
+        }
+        finish();
+    }
+
+    /**
+     * Wait until all submitted items have been processed by every stage.
+     * @throws RuntimeException the failure of any stage.
+     */
+    public void finish() {
+        put(input, END);
+        closeExecutor();
+        throwIfFailed();
+    }
+
+    /**
+     * Metrics of each stage, starting with the receiving of submitted items. The latency of receiving is the time that
+     * {@link #submit(Object)} waits for the first stage to accept an item.
+     * @return Stage metrics.
+     */
+    public List<StageMetrics> getMetrics() {
+        var metrics = new ArrayList<StageMetrics>();
+        metrics.add(receiveMetrics);
+        stages.forEach(stage -> metrics.add(stage.metrics));
+        return Collections.unmodifiableList(metrics);
+    }
+
+    /**
+     * Stop all stages once they complete their current item, without processing any queued items.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        closeExecutor();
+    }
+
+    private void closeExecutor() {
+        executor.shutdown();
+        try {
+            // Stages stop when their input ends, the pipeline is closed or any stage fails
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void throwIfFailed() {
+        var e = failure.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    private void fail(final String stageName, final Throwable cause) {
+        var e = cause instanceof RuntimeException
+                ? (RuntimeException) cause
+                : new IllegalStateException("Pipeline stage " + stageName + " failed: " + cause, cause);
+        if (!failure.compareAndSet(null, e)) {
+            return;
+        }
+
+        try {
+            failureListener.accept(e);
+        } catch (RuntimeException listenerFailure) {
+            e.addSuppressed(listenerFailure);
+        }
+    }
+
+    private boolean isStopped() {
+        return closed || failure.get() != null || Thread.currentThread().isInterrupted();
+    }
+
+    private void put(final BlockingQueue<Object> queue, final Object item) {
+        try {
+            var accepted = queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS);
+            while (!accepted && !isStopped()) {
+                accepted = queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Object take(final BlockingQueue<Object> queue) {
+        try {
+            var item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            while (item == null && !isStopped()) {
+                item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            return item != null ? item : END;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return END;
+        }
+    }
+
+    private final class Stage implements Runnable {
+        private final StageMetrics metrics;
+        private final Function<Object, Object> function;
+        private final BlockingQueue<Object> output;
+
+        Stage(final StageMetrics metrics, final Function<Object, Object> function, final BlockingQueue<Object> output) {
+            this.metrics = metrics;
+            this.function = function;
+            this.output = output;
+        }
+
+        @Override
+        public void run() {
+            Thread.currentThread().setName("pipeline-" + metrics.getName());
+            try {
+                for (var item = take(metrics.queue); item != END && !isStopped(); item = take(metrics.queue)) {
+                    var start = System.nanoTime();
+                    var result = function.apply(item);
+                    metrics.record(System.nanoTime() - start);
+
+                    if (output != null) {
+                        put(output, result);
+                    }
+                }
+
+                if (output != null) {
+                    put(output, END);
+                }
+            } catch (Throwable t) { // Errors must also stop the pipeline rather than silently end this stage
+                fail(metrics.getName(), t);
+            }
+        }
+    }
+
+    /**
+     * Builds a pipeline from a sequence of stages.
+     * @param <T> Type of submitted items.
+     * @param <O> Output type of the last stage.
+     */
+    public static final class Builder<T, O> {
+        private final int queueCapacity;
+        private final List<String> names = new ArrayList<>();
+        private final List<Function<Object, Object>> functions = new ArrayList<>();
+        private Consumer<? super RuntimeException> failureListener = e -> { };
+
+        private Builder(final int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        /**
+         * Add a stage that processes the output of the previous stage.
+         * @param name Stage name, used in metrics.
+         * @param function Processing of each item, which may return null from the last stage.
+         * @return This builder, with the output type of the added stage.
+         * @param <N> Output type of the added stage.
+         */
+        @SuppressWarnings("unchecked")
+        public <N> Builder<T, N> stage(final String name, final Function<? super O, ? extends N> function) {
+            names.add(name);
+            functions.add(item -> function.apply((O) item));
+            return (Builder<T, N>) this;
+        }
+
+        /**
+         * Set an action to run when a stage first fails, on the thread of the failed stage. It should not block, and
+         * can close the source of submitted items so that a submitter waiting for the next item sees the failure
+         * promptly. Errors are passed to the action, and thrown to the submitter, wrapped in an
+         * {@link IllegalStateException}.
+         * @param listener Action run with the failure.
+         * @return This builder.
+         */
+        public Builder<T, O> onFailure(final Consumer<? super RuntimeException> listener) {
+            failureListener = listener;
+            return this;
+        }
+
+        /**
+         * Start the stages of the pipeline.
+         * @return A running pipeline.
+         */
+        public Pipeline<T> build() {
+            if (names.isEmpty()) {
+                throw new IllegalStateException("No pipeline stages");
+            }
+            return new Pipeline<>(queueCapacity, names, functions, failureListener);
+        }
+    }
+
+    /**
+     * Queue depth and latency of a pipeline stage.
+     */
+    public static final class StageMetrics {
+        private final String name;
+        private final BlockingQueue<Object> queue;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        StageMetrics(final String name, final BlockingQueue<Object> queue) {
+            this.name = name;
+            this.queue = queue;
+        }
+
+        private void record(final long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        /**
+         * Stage name.
+         * @return A name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Number of items waiting for the stage.
+         * @return A queue depth, which is always zero for receiving.
+         */
+        public int getQueueDepth() {
+            return queue != null ? queue.size() : 0;
+        }
+
+        /**
+         * Number of items handled by the stage.
+         * @return An item count.
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * Mean time taken to handle an item.
+         * @return A duration.
+         */
+        public Duration getAverageLatency() {
+            var n = count.get();
+            return Duration.ofNanos(n > 0 ? totalNanos.get() / n : 0);
+        }
+
+        /**
+         * Longest time taken to handle an item.
+         * @return A duration.
+         */
+        public Duration getMaxLatency() {
+            return Duration.ofNanos(maxNanos.get());
+        }
+
+        @Override
+        public String toString() {
+            var queueDepth = queue != null ? "queue " + getQueueDepth() + ", " : "";
+            return name + ": " + queueDepth + getCount() + " items, latency avg " + toMillis(getAverageLatency())
+                    + " ms, max " + toMillis(getMaxLatency()) + " ms";
+        }
+
+        private static String toMillis(final Duration duration) {
+            return String.format("%.3f", duration.toNanos() / 1e6); // checkstyle:ignore-line:MagicNumber
+        }
+    }
+}
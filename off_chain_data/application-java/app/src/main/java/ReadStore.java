@@ -0,0 +1,90 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import io.grpc.Channel;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read the ledger writes recorded by the listener with {@code STORE_TYPE=segmented}, as a downstream consumer would,
+ * without calling the peer. The transactions from {@code START_BLOCK} onward are replayed, and then, for
+ * {@code TAIL_SECONDS} seconds, new transactions are read as the listener stores them. The time spent reading is
+ * reported in milliseconds.
+ */
+public final class ReadStore implements Command {
+    private static final Path STORE_FILE = Paths.get(Utils.getEnvOrDefault("STORE_FILE", "store"));
+    private static final long START_BLOCK = Utils.getEnvOrDefault("START_BLOCK", Long::parseUnsignedLong, 0L);
+    private static final int TAIL_SECONDS = Utils.getEnvOrDefault("TAIL_SECONDS", Integer::parseUnsignedInt, 0);
+    private static final long POLL_MILLIS = 100;
+
+    @Override
+    public void run(final Channel grpcChannel) throws IOException, InterruptedException {
+        var reader = new StoreLogReader(STORE_FILE);
+
+        var start = System.nanoTime();
+        var cursor = reader.fromBlock(START_BLOCK);
+        var replayed = new Progress();
+        while (cursor.hasNext()) {
+            replayed.add(cursor.next());
+        }
+        System.out.println("Replayed " + replayed + " from block " + Long.toUnsignedString(START_BLOCK) + " in "
+                + toMillis(System.nanoTime() - start) + " ms");
+
+        if (TAIL_SECONDS == 0) {
+            return;
+        }
+
+        System.out.println("Reading new transactions for " + TAIL_SECONDS + " seconds");
+        var tailed = new Progress();
+        var readNanos = 0L;
+        var maxPollNanos = 0L;
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TAIL_SECONDS);
+        while (deadline - System.nanoTime() > 0) {
+            var pollStart = System.nanoTime();
+            while (cursor.hasNext()) {
+                var record = cursor.next();
+                var writeCount = tailed.add(record);
+                System.out.println("Block " + Long.toUnsignedString(record.getBlockNumber()) + ", transaction "
+                        + record.getTransactionId() + ": " + writeCount + " writes");
+            }
+            var pollNanos = System.nanoTime() - pollStart;
+            readNanos += pollNanos;
+            maxPollNanos = Math.max(maxPollNanos, pollNanos);
+
+            Thread.sleep(POLL_MILLIS);
+        }
+        System.out.println("Tailed " + tailed + " in " + toMillis(readNanos) + " ms of reading, longest poll "
+                + toMillis(maxPollNanos) + " ms");
+    }
+
+    private static String toMillis(final long nanos) {
+        return String.format("%.3f", nanos / 1e6); // checkstyle:ignore-line:MagicNumber
+    }
+
+    /**
+     * Number of transactions and writes read.
+     */
+    private static final class Progress {
+        private long transactions = 0;
+        private long writes = 0;
+
+        // Parses the writes of a transaction, as a consumer would, and returns how many there are
+        int add(final StoreLogReader.Record record) {
+            var writeCount = record.getWrites().size();
+            transactions++;
+            writes += writeCount;
+            return writeCount;
+        }
+
+        @Override
+        public String toString() {
+            return transactions + " transactions with " + writes + " writes";
+        }
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.google.gson.Gson;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Store that appends the writes of each transaction as a record to a sequence of segment files in a directory, with a
+ * sparse index by block number, so that {@link StoreLogReader} can replay from any block without reading the whole
+ * log.
+ *
+ * <p>Segments are named by the position of their first record, which is the total length of all previous segments, and
+ * a new segment is started once a segment reaches the segment size. A record header is the record length, block
+ * number, transaction ID length, CRC-32 of the rest of the record, and CRC-32 of the header's other fields, as
+ * big-endian integers of 4, 8, 4, 4 and 4 bytes. It is followed by the UTF-8 transaction ID and the writes as lines of
+ * JSON, in the same format as {@link FileStore}. Each segment has an index file of 16-byte entries, each a block number
+ * and record position: one for the first record of each block in the segment, and at most every
+ * {@value #INDEX_INTERVAL} bytes within a block.
+ *
+ * <p>Records are accumulated in a buffer, and are only guaranteed to be in the segment files, and on the storage
+ * device, after {@link #sync()}. The index of the last segment is rebuilt from its records when the store is opened.
+ * Only a damaged record at the very end of the last segment, left by a failure while writing, is removed then, in the
+ * same way as by {@link KeyValueStore}; any other damaged record stops the store from opening.
+ */
+public final class SegmentedStore implements LogStore {
+    static final String LOG_SUFFIX = ".log";
+    static final String INDEX_SUFFIX = ".index";
+    static final int RECORD_HEADER_LENGTH = Integer.BYTES + Long.BYTES + 3 * Integer.BYTES;
+    static final int CHECKSUMMED_HEADER_LENGTH = RECORD_HEADER_LENGTH - Integer.BYTES;
+    static final int INDEX_ENTRY_LENGTH = 2 * Long.BYTES;
+    static final int INDEX_INTERVAL = 64 * 1024;
+
+    private static final Gson GSON = new Gson();
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int SEGMENT_NAME_DIGITS = 20;
+    private static final int READ_CHUNK_SIZE = 8192;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer indexBuffer = ByteBuffer.allocate(BUFFER_SIZE / INDEX_ENTRY_LENGTH * INDEX_ENTRY_LENGTH);
+    private final StringBuilder lines = new StringBuilder();
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_LENGTH);
+
+    private FileChannel segment;
+    private FileChannel index;
+    private long segmentBase;
+    private long segmentLength;
+    private long lastIndexedBlock;
+    private long lastIndexedPosition = -1;
+
+    /**
+     * Open a store, creating the directory if it does not exist.
+     * @param directory Directory of segment files.
+     * @param segmentSize Size at which a new segment is started, which must be less than 2 GiB so that segments can be
+     *                    memory-mapped.
+     * @throws IOException if the store cannot be opened.
+     */
+    public SegmentedStore(final Path directory, final long segmentSize) throws IOException {
+        if (segmentSize < 1 || segmentSize >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must be between 1 byte and 2 GiB: " + segmentSize);
+        }
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        var segments = listSegments(directory);
+        openSegment(segments.isEmpty() ? 0 : segments.get(segments.size() - 1), Long.MAX_VALUE);
+    }
+
+    /**
+     * Positions of the segments in a store directory, in order.
+     * @param directory Directory of segment files.
+     * @return Segment positions.
+     * @throws IOException if the directory cannot be read.
+     */
+    static List<Long> listSegments(final Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(LOG_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - LOG_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    static Path segmentFile(final Path directory, final long base, final String suffix) {
+        var name = String.format("%0" + SEGMENT_NAME_DIGITS + "d", base);
+        return directory.resolve(name + suffix);
+    }
+
+    /**
+     * Checksum of the fields of a record header before the header checksum.
+     * @param bytes Buffer containing the header, whose position and limit are not changed.
+     * @param position Position of the header in the buffer.
+     * @param crc Checksum to reuse.
+     * @return Header checksum.
+     */
+    static int headerChecksum(final ByteBuffer bytes, final int position, final CRC32 crc) {
+        crc.reset();
+        crc.update(bytes.duplicate().limit(position + CHECKSUMMED_HEADER_LENGTH).position(position));
+        return (int) crc.getValue();
+    }
+
+    private void openSegment(final long base, final long maxLength) throws IOException {
+        // Keep only complete records up to the maximum length, and rebuild the segment index from them
+        segmentBase = base;
+        segment = FileChannel.open(segmentFile(directory, base, LOG_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = FileChannel.open(segmentFile(directory, base, INDEX_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segmentLength = 0;
+        lastIndexedPosition = -1;
+        buffer.clear();
+        indexBuffer.clear();
+
+        var size = Math.min(segment.size(), maxLength);
+        var records = new DataInputStream(new BufferedInputStream(Channels.newInputStream(segment.position(0))));
+        var chunk = new byte[READ_CHUNK_SIZE];
+        while (size - segmentLength >= RECORD_HEADER_LENGTH) {
+            var recordLength = loadRecord(records, size, chunk);
+            if (recordLength < 0) {
+                break; // Damaged final record, left by a failure while writing
+            }
+            segmentLength += recordLength;
+        }
+
+        if (segmentLength < size) {
+            System.err.println("Removing damaged record of " + (size - segmentLength) + " bytes at end of "
+                    + segmentFile(directory, base, LOG_SUFFIX));
+        }
+        segment.truncate(segmentLength);
+        segment.position(segmentLength);
+        drainIndex();
+    }
+
+    // Indexes the record at the end of the segment's loaded records, returning its length, or -1 if it is the damaged
+    // final record of the segment
+    private long loadRecord(final DataInputStream in, final long size, final byte[] chunk) throws IOException {
+        var position = segmentBase + segmentLength;
+        in.readFully(header.array());
+        var recordLength = header.getInt(0);
+        var blockNumber = header.getLong(Integer.BYTES);
+        var transactionIdLength = header.getInt(Integer.BYTES + Long.BYTES);
+        var dataChecksum = header.getInt(2 * Integer.BYTES + Long.BYTES);
+        var headerChecksum = header.getInt(CHECKSUMMED_HEADER_LENGTH);
+        if (headerChecksum != headerChecksum(header, 0, crc)) {
+            // The end of the segment may have been allocated but not written before a failure
+            if ((recordLength | blockNumber | transactionIdLength | dataChecksum | headerChecksum) == 0
+                    && isZeros(in, size - segmentLength - RECORD_HEADER_LENGTH, chunk)) {
+                return -1;
+            }
+            throw new IOException("Corrupt record header at position " + position + " of store segment " + segmentBase);
+        }
+        if (transactionIdLength < 0 || recordLength < RECORD_HEADER_LENGTH + transactionIdLength) {
+            throw new IOException("Invalid record header at position " + position + " of store segment " + segmentBase);
+        }
+        if (recordLength > size - segmentLength) {
+            return -1; // Incomplete final record, which extends beyond the end of the segment
+        }
+
+        crc.reset();
+        checksum(in, recordLength - RECORD_HEADER_LENGTH, chunk);
+        if ((int) crc.getValue() != dataChecksum) {
+            if (segmentLength + recordLength == size) {
+                return -1; // Final record only partly written before a failure
+            }
+            throw new IOException("Corrupt record at position " + position + " of store segment " + segmentBase);
+        }
+
+        addIndexEntry(blockNumber, position);
+        return recordLength;
+    }
+
+    // Adds the next bytes of the stream to the checksum
+    private void checksum(final DataInputStream in, final long length, final byte[] chunk) throws IOException {
+        var remaining = length;
+        while (remaining > 0) {
+            var count = (int) Math.min(remaining, chunk.length);
+            in.readFully(chunk, 0, count);
+            crc.update(chunk, 0, count);
+            remaining -= count;
+        }
+    }
+
+    private static boolean isZeros(final DataInputStream in, final long length, final byte[] chunk) throws IOException {
+        var remaining = length;
+        while (remaining > 0) {
+            var count = (int) Math.min(remaining, chunk.length);
+            in.readFully(chunk, 0, count);
+            for (var i = 0; i < count; i++) {
+                if (chunk[i] != 0) {
+                    return false;
+                }
+            }
+            remaining -= count;
+        }
+        return true;
+    }
+
+    @Override
+    public void store(final long blockNumber, final String transactionId, final List<Write> writes) throws IOException {
+        lines.setLength(0);
+        for (var write : writes) {
+            GSON.toJson(write, lines);
+            lines.append('\n');
+        }
+        var transactionIdBytes = transactionId.getBytes(StandardCharsets.UTF_8);
+        var writesBytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+        var recordLength = RECORD_HEADER_LENGTH + transactionIdBytes.length + writesBytes.length;
+
+        var start = length();
+        try {
+            if (start > segmentBase && start - segmentBase + recordLength > segmentSize) {
+                roll();
+            }
+
+            if (recordLength > buffer.remaining()) {
+                drain();
+            }
+
+            crc.reset();
+            crc.update(transactionIdBytes);
+            crc.update(writesBytes);
+            var dataChecksum = (int) crc.getValue();
+
+            addIndexEntry(blockNumber, length());
+            var record = recordLength <= buffer.remaining() ? buffer : ByteBuffer.allocate(recordLength);
+            var headerPosition = record.position();
+            record.putInt(recordLength)
+                    .putLong(blockNumber)
+                    .putInt(transactionIdBytes.length)
+                    .putInt(dataChecksum);
+            record.putInt(headerChecksum(record, headerPosition, crc))
+                    .put(transactionIdBytes)
+                    .put(writesBytes);
+            if (record != buffer) {
+                // Too large to buffer, so written directly to the segment
+                record.flip();
+                write(record);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Do not leave part of the transaction's writes in the store
+            truncate(start);
+            throw e;
+        }
+    }
+
+    private void addIndexEntry(final long blockNumber, final long position) throws IOException {
+        var isIndexed = lastIndexedPosition >= 0
+                && blockNumber == lastIndexedBlock
+                && position - lastIndexedPosition < INDEX_INTERVAL;
+        if (isIndexed) {
+            return;
+        }
+
+        if (!indexBuffer.hasRemaining()) {
+            drainIndex();
+        }
+        indexBuffer.putLong(blockNumber).putLong(position);
+        lastIndexedBlock = blockNumber;
+        lastIndexedPosition = position;
+    }
+
+    private void roll() throws IOException {
+        sync();
+        segment.close();
+        index.close();
+        openSegment(length(), 0);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        write(buffer);
+        buffer.clear();
+        // Index entries are written after their records, so that they never refer beyond the end of the segment
+        drainIndex();
+    }
+
+    private void write(final ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            segmentLength += segment.write(bytes);
+        }
+    }
+
+    private void drainIndex() throws IOException {
+        indexBuffer.flip();
+        while (indexBuffer.hasRemaining()) {
+            index.write(indexBuffer);
+        }
+        indexBuffer.clear();
+    }
+
+    @Override
+    public long length() {
+        return segmentBase + segmentLength + buffer.position();
+    }
+
+    @Override
+    public void sync() throws IOException {
+        drain();
+        segment.force(false);
+        index.force(false);
+    }
+
+    /**
+     * {@inheritDoc} Any later segments are deleted, and the index of the segment containing the new end of the store is
+     * rebuilt.
+     */
+    @Override
+    public void truncate(final long length) throws IOException {
+        if (length >= length()) {
+            return;
+        }
+
+        drain();
+        segment.close();
+        index.close();
+
+        var base = 0L;
+        for (var segmentPosition : listSegments(directory)) {
+            if (segmentPosition <= length) {
+                base = segmentPosition;
+            } else {
+                Files.delete(segmentFile(directory, segmentPosition, LOG_SUFFIX));
+                Files.deleteIfExists(segmentFile(directory, segmentPosition, INDEX_SUFFIX));
+            }
+        }
+
+        openSegment(base, length - base);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            segment.close();
+            index.close();
+        }
+    }
+
+    /**
+     * Index entries of a segment, as alternating block numbers and record positions.
+     * @param directory Directory of segment files.
+     * @param base Segment position.
+     * @return Index entries in order.
+     * @throws IOException if the index cannot be read.
+     */
+    static long[] readIndex(final Path directory, final long base) throws IOException {
+        var file = segmentFile(directory, base, INDEX_SUFFIX);
+        if (!Files.exists(file)) {
+            return new long[0];
+        }
+
+        var bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        var entries = new long[bytes.remaining() / INDEX_ENTRY_LENGTH * 2];
+        bytes.asLongBuffer().get(entries);
+        return entries;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import org.hyperledger.fabric.client.ChaincodeEvent;
+import org.hyperledger.fabric.client.Checkpointer;
+import org.hyperledger.fabric.client.FileCheckpointer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+
+/**
+ * Checkpointer that advances a {@link FileCheckpointer} only once the writes of the checkpointed transactions are on
+ * the storage device, so that group commits of the store are exactly-once with respect to the checkpoint.
+ *
+ * <p>Every {@code commitBlocks} blocks, and optionally every {@code commitTransactions} transactions, the store is
+ * synced, its length is recorded in a commit log next to the checkpoint position it matches, and only then is the
+ * checkpoint advanced. On restart, anything in the store beyond the length recorded for the persisted checkpoint
+ * position is discarded, since those transactions will be received and stored again. The commit log is replaced
+ * atomically, by renaming a synced temporary file over it, so it always holds a complete record of a commit.
+ *
+ * <p>The commit log also records the index within its block of the last processed transaction, which the file
+ * checkpointer does not store, so that processing can resume at that index without looking up the transaction ID.
+ */
+public final class StoreCheckpointer implements Checkpointer, AutoCloseable {
+    private static final Gson GSON = new Gson();
+
+    private final FileCheckpointer checkpointer;
+    private final LogStore store;
+    private final Path commitLog;
+    private final Path commitLogTemp;
+    private final int commitBlocks;
+    private final int commitTransactions;
+
+    private OptionalLong blockNumber;
+    private OptionalInt transactionIndex = OptionalInt.empty();
+    private Optional<String> transactionId;
+    private Commit committed;
+    private Commit pending;
+    private int uncommittedBlocks = 0;
+    private int uncommittedTransactions = 0;
+
+    /**
+     * Create a checkpointer that commits the store at block boundaries.
+     * @param checkpointer Persisted checkpoint, advanced on each commit.
+     * @param store Store of the processed transactions' writes.
+     * @param commitLogFile File recording the length of the store at each commit.
+     * @param commitBlocks Number of blocks processed between commits.
+     * @param commitTransactions Number of transactions processed before a commit within a block, or zero to only commit
+     *                           at block boundaries.
+     * @throws IOException if the commit log cannot be read or written, or is corrupt, or the store is shorter than its
+     *                     committed length.
+     */
+    public StoreCheckpointer(final FileCheckpointer checkpointer, final LogStore store, final Path commitLogFile,
+                             final int commitBlocks, final int commitTransactions) throws IOException {
+        if (commitBlocks < 1) {
+            throw new IllegalArgumentException("Commit interval must be at least one block: " + commitBlocks);
+        }
+        if (commitTransactions < 0) {
+            throw new IllegalArgumentException("Commit interval must not be negative: " + commitTransactions);
+        }
+
+        this.checkpointer = checkpointer;
+        this.store = store;
+        this.commitBlocks = commitBlocks;
+        this.commitTransactions = commitTransactions;
+        blockNumber = checkpointer.getBlockNumber();
+        transactionId = checkpointer.getTransactionId();
+        commitLog = commitLogFile;
+        commitLogTemp = commitLogFile.resolveSibling(commitLogFile.getFileName() + ".tmp");
+
+        recover();
+    }
+
+    private void recover() throws IOException {
+        for (var commit : readCommitLog()) {
+            if (commit.isAt(blockNumber, transactionId)) {
+                var length = store.length();
+                if (length < commit.storeLength) {
+                    throw new IOException("Store of length " + length + " is shorter than its committed length "
+                            + commit.storeLength + " at block " + blockNumber);
+                }
+                store.truncate(commit.storeLength);
+                if (commit.transactionIndex != null) {
+                    transactionIndex = OptionalInt.of(commit.transactionIndex);
+                }
+                break;
+            }
+        }
+
+        committed = new Commit(blockNumber, transactionIndex, transactionId, store.length());
+        writeCommitLog(List.of(committed));
+    }
+
+    private List<Commit> readCommitLog() throws IOException {
+        // Only the first JSON value is read, so trailing content left by earlier versions, which overwrote the commit
+        // log in place, is ignored
+        try (var reader = new JsonReader(Files.newBufferedReader(commitLog, StandardCharsets.UTF_8))) {
+            var commits = GSON.<Commit[]>fromJson(reader, Commit[].class);
+            return commits != null ? List.of(commits) : List.of();
+        } catch (NoSuchFileException e) {
+            return List.of();
+        } catch (JsonParseException e) {
+            // Without the commit log, writes beyond the checkpoint cannot be discarded and would be stored twice
+            throw new IOException("Corrupt commit log " + commitLog + "; restore it or remove the store and checkpoint",
+                    e);
+        }
+    }
+
+    private void writeCommitLog(final List<Commit> commits) throws IOException {
+        var bytes = ByteBuffer.wrap(GSON.toJson(commits).getBytes(StandardCharsets.UTF_8));
+        try (var temp = FileChannel.open(commitLogTemp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining()) {
+                temp.write(bytes);
+            }
+            temp.force(false);
+        }
+        Files.move(commitLogTemp, commitLog, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void checkpointBlock(final long blockNumber) throws IOException {
+        this.blockNumber = OptionalLong.of(blockNumber + 1);
+        this.transactionIndex = OptionalInt.empty();
+        this.transactionId = Optional.empty();
+        pending = new Commit(this.blockNumber, transactionIndex, transactionId, store.length());
+
+        if (++uncommittedBlocks >= commitBlocks) {
+            commit();
+        }
+    }
+
+    @Override
+    public void checkpointTransaction(final long blockNumber, final String transactionId) throws IOException {
+        checkpointTransaction(blockNumber, OptionalInt.empty(), transactionId);
+    }
+
+    /**
+     * Checkpoint a successfully processed transaction, along with its index within the block.
+     * @param blockNumber Block number.
+     * @param transactionIndex Index of the transaction within the block.
+     * @param transactionId Transaction ID.
+     * @throws IOException if the checkpoint is committed and an I/O error occurs.
+     */
+    public void checkpointTransaction(final long blockNumber, final int transactionIndex, final String transactionId)
+            throws IOException {
+        checkpointTransaction(blockNumber, OptionalInt.of(transactionIndex), transactionId);
+    }
+
+    private void checkpointTransaction(final long blockNumber, final OptionalInt transactionIndex, final String transactionId)
+            throws IOException {
+        this.blockNumber = OptionalLong.of(blockNumber);
+        this.transactionIndex = transactionIndex;
+        this.transactionId = Optional.of(transactionId);
+        pending = new Commit(this.blockNumber, transactionIndex, this.transactionId, store.length());
+
+        if (commitTransactions > 0 && ++uncommittedTransactions >= commitTransactions) {
+            commit();
+        }
+    }
+
+    @Override
+    public void checkpointChaincodeEvent(final ChaincodeEvent event) throws IOException {
+        checkpointTransaction(event.getBlockNumber(), event.getTransactionId());
+    }
+
+    @Override
+    public OptionalLong getBlockNumber() {
+        return blockNumber;
+    }
+
+    @Override
+    public Optional<String> getTransactionId() {
+        return transactionId;
+    }
+
+    /**
+     * Index within the block of the last processed transaction, if known.
+     * @return A transaction index.
+     */
+    public OptionalInt getTransactionIndex() {
+        return transactionIndex;
+    }
+
+    /**
+     * Make the writes of all checkpointed transactions durable, then advance the file checkpointer to the last of them.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void commit() throws IOException {
+        if (pending == null) {
+            return;
+        }
+
+        store.sync();
+        writeCommitLog(List.of(committed, pending));
+
+        if (pending.transactionId != null) {
+            checkpointer.checkpointTransaction(pending.blockNumber, pending.transactionId);
+        } else {
+            checkpointer.checkpointBlock(pending.blockNumber - 1);
+        }
+        checkpointer.sync();
+
+        committed = pending;
+        pending = null;
+        uncommittedBlocks = 0;
+        uncommittedTransactions = 0;
+    }
+
+    /**
+     * Commits the transactions checkpointed so far, including those processed before a failure. The store and file
+     * checkpointer are not closed.
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        commit();
+    }
+
+    /**
+     * Length of the store when the checkpoint was at a given position.
+     */
+    private static final class Commit {
+        private final Long blockNumber;
+        private final Integer transactionIndex;
+        private final String transactionId;
+        private final long storeLength;
+
+        Commit(final OptionalLong blockNumber, final OptionalInt transactionIndex, final Optional<String> transactionId,
+               final long storeLength) {
+            this.blockNumber = blockNumber.isPresent() ? blockNumber.getAsLong() : null;
+            this.transactionIndex = transactionIndex.isPresent() ? transactionIndex.getAsInt() : null;
+            this.transactionId = transactionId.orElse(null);
+            this.storeLength = storeLength;
+        }
+
+        boolean isAt(final OptionalLong blockNumber, final Optional<String> transactionId) {
+            var block = blockNumber.isPresent() ? blockNumber.getAsLong() : null;
+            return Objects.equals(this.blockNumber, block) && Objects.equals(this.transactionId, transactionId.orElse(null));
+        }
+    }
+}
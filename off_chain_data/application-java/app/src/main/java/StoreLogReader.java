@@ -0,0 +1,366 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Reads the transaction records of a {@link SegmentedStore} through memory-mapped segment files. Reading can start
+ * from any block, located using the segment indexes, or after a given transaction, and can continue while the store is
+ * being written, to tail the log. The indexes and mappings of segments that are complete, since a later segment has
+ * been started, are cached.
+ *
+ * <p>Records that have not yet been committed by the {@link StoreCheckpointer} may be read, and are removed if the
+ * writer fails and recovers, which truncates the segments. A cursor checks that its segment has not been truncated
+ * whenever it runs out of mapped records, and throws {@link IllegalStateException} if it has, as it does if a
+ * truncation races with reading the mapped records. Readers should stop before the writer is restarted after a
+ * failure, and a new reader should then be created to resume from a committed position. A record whose header does
+ * not match its checksum, other than a zero-filled end of the segment that has not yet been written, also causes
+ * {@link IllegalStateException}.
+ */
+public final class StoreLogReader {
+    private static final Gson GSON = new Gson();
+
+    private final Path directory;
+    private final Map<Long, long[]> completeIndexes = new ConcurrentHashMap<>();
+    private final Map<Long, MappedByteBuffer> completeSegments = new ConcurrentHashMap<>();
+
+    public StoreLogReader(final Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Read the records of transactions in the specified block and all later blocks.
+     * @param blockNumber A block number.
+     * @return A cursor positioned at the first record in or after the block.
+     * @throws IOException if the store cannot be read.
+     */
+    public Cursor fromBlock(final long blockNumber) throws IOException {
+        var segments = SegmentedStore.listSegments(directory);
+        for (var i = segments.size() - 1; i >= 0; i--) {
+            var base = segments.get(i);
+            var entries = i < segments.size() - 1 ? getCompleteIndex(base) : SegmentedStore.readIndex(directory, base);
+
+            // Records of the block might start in the previous segment unless this segment starts with an earlier block
+            if (i == 0 || entries.length > 0 && Long.compareUnsigned(entries[0], blockNumber) < 0) {
+                return new Cursor(base, seek(entries, base, blockNumber), blockNumber);
+            }
+        }
+
+        return new Cursor(0, 0, blockNumber);
+    }
+
+    private long[] getCompleteIndex(final long base) throws IOException {
+        var entries = completeIndexes.get(base);
+        if (entries == null) {
+            entries = SegmentedStore.readIndex(directory, base);
+            completeIndexes.put(base, entries);
+        }
+        return entries;
+    }
+
+    private static long seek(final long[] entries, final long base, final long blockNumber) {
+        // The first record in or after the block is at the first index entry for the block or a later block, if that is
+        // in the index, since every block has an index entry for its first record in each segment. Otherwise, read from
+        // the last entry before the block.
+        var low = 0;
+        var high = entries.length / 2;
+        while (low < high) {
+            var mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(entries[mid * 2], blockNumber) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        if (low < entries.length / 2) {
+            return entries[low * 2 + 1];
+        }
+        return low > 0 ? entries[low * 2 - 1] : base;
+    }
+
+    /**
+     * Read the records of transactions after the specified transaction, such as the last transaction that was
+     * processed by a downstream consumer.
+     * @param blockNumber Block number of the transaction.
+     * @param transactionId Transaction ID.
+     * @return A cursor positioned after the transaction.
+     * @throws IOException if the store cannot be read.
+     * @throws IllegalArgumentException if the transaction is not in the store.
+     */
+    public Cursor afterTransaction(final long blockNumber, final String transactionId) throws IOException {
+        var cursor = fromBlock(blockNumber);
+        while (cursor.hasNext()) {
+            var record = cursor.next();
+            if (record.getBlockNumber() != blockNumber) {
+                break;
+            }
+            if (record.getTransactionId().equals(transactionId)) {
+                return cursor;
+            }
+        }
+
+        throw new IllegalArgumentException("Transaction " + transactionId + " not found in block "
+                + Long.toUnsignedString(blockNumber));
+    }
+
+    /**
+     * Read the records of all transactions from a position previously returned by {@link Cursor#getPosition()}.
+     * @param position A record position.
+     * @return A cursor positioned at the record.
+     * @throws IOException if the store cannot be read.
+     */
+    public Cursor fromPosition(final long position) throws IOException {
+        var base = 0L;
+        for (var segmentPosition : SegmentedStore.listSegments(directory)) {
+            if (segmentPosition <= position) {
+                base = segmentPosition;
+            }
+        }
+        return new Cursor(base, position, 0);
+    }
+
+    /**
+     * Iterates over the records in the store from a given position. When there are no more records, {@link #hasNext()}
+     * returns {@code false}, but returns {@code true} again once more records are written.
+     */
+    public final class Cursor implements Iterator<Record> {
+        private final long minBlockNumber;
+        private final CRC32 crc = new CRC32();
+        private long segmentBase;
+        private MappedByteBuffer segment;
+        private Record next;
+
+        private Cursor(final long segmentBase, final long position, final long minBlockNumber) throws IOException {
+            this.minBlockNumber = minBlockNumber;
+            this.segmentBase = segmentBase;
+            map();
+            segment.position(Math.toIntExact(Math.min(position - segmentBase, segment.limit())));
+        }
+
+        private void map() throws IOException {
+            var position = segment != null ? segment.position() : 0;
+            segment = completeSegments.get(segmentBase);
+            if (segment == null) {
+                var file = SegmentedStore.segmentFile(directory, segmentBase, SegmentedStore.LOG_SUFFIX);
+                try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            }
+
+            // Each cursor reads through its own view of a cached mapping
+            segment = (MappedByteBuffer) segment.duplicate();
+            segment.position(Math.min(position, segment.limit()));
+        }
+
+        private void completeSegment() throws IOException {
+            if (!completeSegments.containsKey(segmentBase)) {
+                segment = null;
+                map();
+                completeSegments.put(segmentBase, segment);
+            }
+        }
+
+        /**
+         * Position of the next record, from which reading can later be resumed.
+         * @return A record position.
+         */
+        public long getPosition() {
+            return next != null ? next.position : segmentBase + segment.position();
+        }
+
+        /**
+         * {@inheritDoc}
+         * @throws IllegalStateException if the segment being read has been truncated by the writer, or contains a
+         *                               corrupt record.
+         */
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null) {
+                    next = readRecord();
+                    if (next == null && !advance()) {
+                        return false;
+                    }
+                    if (next != null && Long.compareUnsigned(next.blockNumber, minBlockNumber) < 0) {
+                        next = null;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InternalError e) {
+                // Reading a mapping beyond the end of its file faults, and the fault is raised as an InternalError
+                checkNotTruncated(segmentSizeOrLimit(), e);
+                throw e;
+            }
+        }
+
+        @Override
+        public Record next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var result = next;
+            next = null;
+            return result;
+        }
+
+        private Record readRecord() {
+            var position = segment.position();
+            if (segment.limit() - position < SegmentedStore.RECORD_HEADER_LENGTH) {
+                return null;
+            }
+            var headerChecksum = segment.getInt(position + SegmentedStore.CHECKSUMMED_HEADER_LENGTH);
+            if (headerChecksum != SegmentedStore.headerChecksum(segment, position, crc)) {
+                if (isZeros(position, SegmentedStore.RECORD_HEADER_LENGTH)) {
+                    return null; // Allocated but not yet written
+                }
+                throw new IllegalStateException("Corrupt record header at position " + (segmentBase + position)
+                        + " of store segment " + segmentBase);
+            }
+            var recordLength = segment.getInt(position);
+            if (recordLength > segment.limit() - position) {
+                return null; // Not yet completely written
+            }
+
+            var blockNumber = segment.getLong(position + Integer.BYTES);
+            var transactionIdLength = segment.getInt(position + Integer.BYTES + Long.BYTES);
+            var transactionIdBytes = new byte[transactionIdLength];
+            segment.position(position + SegmentedStore.RECORD_HEADER_LENGTH);
+            segment.get(transactionIdBytes);
+
+            var writes = segment.slice();
+            writes.limit(recordLength - SegmentedStore.RECORD_HEADER_LENGTH - transactionIdLength);
+            segment.position(position + recordLength);
+
+            var transactionId = new String(transactionIdBytes, StandardCharsets.UTF_8);
+            return new Record(segmentBase + position, blockNumber, transactionId, writes);
+        }
+
+        private boolean isZeros(final int position, final int length) {
+            for (var i = position; i < position + length; i++) {
+                if (segment.get(i) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Map any more of the current segment that has been written, or move to the next segment once the current one
+         * is complete. The segment is only mapped again if its file has grown.
+         * @return {@code true} if there may be more records to read; otherwise {@code false}.
+         */
+        private boolean advance() throws IOException {
+            var size = segmentSize();
+            checkNotTruncated(size, null);
+            if (size > segment.limit()) {
+                map();
+                return true;
+            }
+
+            for (var segmentPosition : SegmentedStore.listSegments(directory)) {
+                if (segmentPosition > segmentBase) {
+                    // A later segment is only started once this one is complete, so all its records have been read
+                    completeSegment();
+                    segmentBase = segmentPosition;
+                    segment = null;
+                    map();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private long segmentSize() throws IOException {
+            try {
+                return Files.size(SegmentedStore.segmentFile(directory, segmentBase, SegmentedStore.LOG_SUFFIX));
+            } catch (NoSuchFileException e) {
+                return 0; // Removed by truncating the store to an earlier segment
+            }
+        }
+
+        private long segmentSizeOrLimit() {
+            try {
+                return segmentSize();
+            } catch (IOException e) {
+                return segment.limit();
+            }
+        }
+
+        private void checkNotTruncated(final long size, final Throwable cause) {
+            if (size >= segment.limit()) {
+                return;
+            }
+
+            // Cached data of the segment, and of any later segments, is no longer valid
+            completeSegments.keySet().removeIf(base -> base >= segmentBase);
+            completeIndexes.keySet().removeIf(base -> base >= segmentBase);
+            throw new IllegalStateException("Store segment " + segmentBase + " was truncated from " + segment.limit()
+                    + " to " + size + " bytes by the writer; create a new reader to resume from a committed position",
+                    cause);
+        }
+    }
+
+    /**
+     * Writes of a transaction in the store.
+     */
+    public static final class Record {
+        private final long position;
+        private final long blockNumber;
+        private final String transactionId;
+        private final ByteBuffer writes;
+
+        private Record(final long position, final long blockNumber, final String transactionId, final ByteBuffer writes) {
+            this.position = position;
+            this.blockNumber = blockNumber;
+            this.transactionId = transactionId;
+            this.writes = writes;
+        }
+
+        public long getBlockNumber() {
+            return blockNumber;
+        }
+
+        public String getTransactionId() {
+            return transactionId;
+        }
+
+        /**
+         * Parse the writes of the transaction.
+         * @return Ledger writes.
+         */
+        public List<Write> getWrites() {
+            var lines = StandardCharsets.UTF_8.decode(writes.duplicate()).toString().split("\n");
+            var results = new ArrayList<Write>(lines.length);
+            for (var line : lines) {
+                if (!line.isEmpty()) {
+                    results.add(GSON.fromJson(line, Write.class));
+                }
+            }
+            return results;
+        }
+    }
+}
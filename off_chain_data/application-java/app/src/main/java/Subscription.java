@@ -0,0 +1,71 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Selects the ledger writes that the listener processes: writes to the subscribed namespaces, or to all non-system
+ * chaincode namespaces if none are subscribed, whose keys start with one of the subscribed key prefixes, or any key if
+ * no prefixes are subscribed. Namespaces are selected before their read/write sets are decoded.
+ */
+public final class Subscription {
+    // Typically we should ignore read/write sets that apply to system chaincode namespaces.
+    private static final Set<String> SYSTEM_CHAINCODE_NAMES = Set.of(
+            "_lifecycle",
+            "cscc",
+            "escc",
+            "lscc",
+            "qscc",
+            "vscc"
+    );
+
+    private final Set<String> namespaces;
+    private final List<String> keyPrefixes;
+
+    /**
+     * Create a subscription.
+     * @param namespaces Subscribed namespaces, which are chaincode names, or empty for all non-system chaincodes.
+     * @param keyPrefixes Subscribed key prefixes, or empty for all keys.
+     */
+    public Subscription(final Set<String> namespaces, final List<String> keyPrefixes) {
+        this.namespaces = Set.copyOf(namespaces);
+        this.keyPrefixes = List.copyOf(keyPrefixes);
+    }
+
+    /**
+     * Whether writes to a namespace are subscribed.
+     * @param namespace Ledger namespace, which is the chaincode name.
+     * @return {@code true} if the namespace is subscribed; otherwise {@code false}.
+     */
+    public boolean includesNamespace(final String namespace) {
+        return namespaces.isEmpty() ? !SYSTEM_CHAINCODE_NAMES.contains(namespace) : namespaces.contains(namespace);
+    }
+
+    /**
+     * Whether writes to a key within a subscribed namespace are subscribed.
+     * @param key Ledger key.
+     * @return {@code true} if the key is subscribed; otherwise {@code false}.
+     */
+    public boolean includesKey(final String key) {
+        if (keyPrefixes.isEmpty()) {
+            return true;
+        }
+
+        for (var prefix : keyPrefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "namespaces " + (namespaces.isEmpty() ? "(all non-system)" : namespaces)
+                + ", key prefixes " + (keyPrefixes.isEmpty() ? "(all)" : keyPrefixes);
+    }
+}
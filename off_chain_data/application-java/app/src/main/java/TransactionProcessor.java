@@ -10,39 +10,42 @@ import parser.Transaction;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 public final class TransactionProcessor {
-    // Typically we should ignore read/write sets that apply to system chaincode namespaces.
-    private static final Set<String> SYSTEM_CHAINCODE_NAMES = Set.of(
-            "_lifecycle",
-            "cscc",
-            "escc",
-            "lscc",
-            "qscc",
-            "vscc"
-    );
-
     private final long blockNumber;
     private final Transaction transaction;
+    private final Subscription subscription;
     private final Store store;
+    private List<Write> writes;
 
-    public TransactionProcessor(final Transaction transaction, final long blockNumber, final Store store) {
+    public TransactionProcessor(final Transaction transaction, final long blockNumber, final Subscription subscription,
+                                final Store store) {
         this.blockNumber = blockNumber;
         this.transaction = transaction;
+        this.subscription = subscription;
         this.store = store;
     }
 
-    private static boolean isSystemChaincode(final String chaincodeName) {
-        return SYSTEM_CHAINCODE_NAMES.contains(chaincodeName);
+    /**
+     * Read the writes of the transaction, so that they do not need to be read when it is processed.
+     * @throws InvalidProtocolBufferException if the transaction cannot be parsed.
+     */
+    public void extractWrites() throws InvalidProtocolBufferException {
+        writes = getWrites();
+    }
+
+    public String getTransactionId() throws InvalidProtocolBufferException {
+        return transaction.getChannelHeader().getTxId();
     }
 
     public void process() throws IOException {
-        var transactionId = transaction.getChannelHeader().getTxId();
+        var transactionId = getTransactionId();
 
-        var writes = getWrites();
+        if (writes == null) {
+            extractWrites();
+        }
         if (writes.isEmpty()) {
-            System.out.println("Skipping read-only or system transaction " + transactionId);
+            System.out.println("Skipping read-only, system or unsubscribed transaction " + transactionId);
             return;
         }
 
@@ -56,13 +59,15 @@ public final class TransactionProcessor {
         var writes = new ArrayList<Write>();
         for (var readWriteSet : transaction.getNamespaceReadWriteSets()) {
             var namespace = readWriteSet.getNamespace();
-            if (isSystemChaincode(namespace)) {
+            if (!subscription.includesNamespace(namespace)) {
                 continue;
             }
 
-            readWriteSet.getReadWriteSet().getWritesList().stream()
-                    .map(write -> new Write(channelName, namespace, write))
-                    .forEach(writes::add);
+            for (var write : readWriteSet.getReadWriteSet().getWritesList()) {
+                if (subscription.includesKey(write.getKey())) {
+                    writes.add(new Write(channelName, namespace, write));
+                }
+            }
         }
 
         return writes;
@@ -4,26 +4,32 @@
  * SPDX-License-Identifier: Apache-2.0
  */
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.protobuf.ByteString;
 import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KVWrite;
 
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Base64;
 
 /**
- * Description of a ledger write that can be applied to an off-chain data store.
+ * Description of a ledger write that can be applied to an off-chain data store. The value is kept as the bytes
+ * received from the peer, and is only decoded as a string when the write is serialized to JSON.
  */
+@JsonAdapter(Write.JsonFormat.class)
 public final class Write {
     private final String channelName;
     private final String namespace;
-    private final String key;
-    private final boolean isDelete;
-    private final String value; // Store as String for readability when serialized to JSON.
+    private final KVWrite write;
 
     public Write(final String channelName, final String namespace, final KVWrite write) {
         this.channelName = channelName;
         this.namespace = namespace;
-        this.key = write.getKey();
-        this.isDelete = write.getIsDelete();
-        this.value = write.getValue().toString(StandardCharsets.UTF_8);
+        this.write = write;
     }
 
     /**
@@ -39,7 +45,7 @@ public final class Write {
      * @return A ledger key.
      */
     public String getKey() {
-        return key;
+        return write.getKey();
     }
 
     /**
@@ -47,7 +53,7 @@ public final class Write {
      * @return {@code true} if the ledger key is being deleted; otherwise {@code false}.
      */
     public boolean isDelete() {
-        return isDelete;
+        return write.getIsDelete();
     }
 
     /**
@@ -60,9 +66,84 @@ public final class Write {
 
     /**
      * If {@link #isDelete()}` is {@code false}, the value written to the key; otherwise ignored.
-     * @return A ledger value.
+     * @return A copy of the ledger value.
      */
     public byte[] getValue() {
-        return value.getBytes(StandardCharsets.UTF_8);
+        return write.getValue().toByteArray();
+    }
+
+    /**
+     * The value written to the key, without copying it.
+     * @return A read-only view of the ledger value.
+     */
+    public ByteBuffer getValueBuffer() {
+        return write.getValue().asReadOnlyByteBuffer();
+    }
+
+    /**
+     * The value written to the key, without copying it.
+     * @return A stream of the ledger value.
+     */
+    public InputStream getValueStream() {
+        return write.getValue().newInput();
+    }
+
+    /**
+     * JSON format of a write, with the same properties as in earlier versions. A value that is not valid UTF-8 text is
+     * written as a {@code valueBase64} property instead of {@code value}, so that it is not corrupted.
+     */
+    static final class JsonFormat extends TypeAdapter<Write> {
+        private static final String CHANNEL_NAME = "channelName";
+        private static final String NAMESPACE = "namespace";
+        private static final String KEY = "key";
+        private static final String IS_DELETE = "isDelete";
+        private static final String VALUE = "value";
+        private static final String VALUE_BASE64 = "valueBase64";
+
+        @Override
+        public void write(final JsonWriter out, final Write write) throws IOException {
+            out.beginObject();
+            out.name(CHANNEL_NAME).value(write.channelName);
+            out.name(NAMESPACE).value(write.namespace);
+            out.name(KEY).value(write.getKey());
+            out.name(IS_DELETE).value(write.isDelete());
+            var value = write.write.getValue();
+            if (value.isValidUtf8()) {
+                out.name(VALUE).value(value.toStringUtf8());
+            } else {
+                out.name(VALUE_BASE64).value(Base64.getEncoder().encodeToString(value.toByteArray()));
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Write read(final JsonReader in) throws IOException {
+            String channelName = null;
+            String namespace = null;
+            var write = KVWrite.newBuilder();
+
+            in.beginObject();
+            while (in.hasNext()) {
+                var name = in.nextName();
+                if (CHANNEL_NAME.equals(name)) {
+                    channelName = in.nextString();
+                } else if (NAMESPACE.equals(name)) {
+                    namespace = in.nextString();
+                } else if (KEY.equals(name)) {
+                    write.setKey(in.nextString());
+                } else if (IS_DELETE.equals(name)) {
+                    write.setIsDelete(in.nextBoolean());
+                } else if (VALUE.equals(name)) {
+                    write.setValue(ByteString.copyFromUtf8(in.nextString()));
+                } else if (VALUE_BASE64.equals(name)) {
+                    write.setValue(ByteString.copyFrom(Base64.getDecoder().decode(in.nextString())));
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+
+            return new Write(channelName, namespace, write.build());
+        }
     }
 }
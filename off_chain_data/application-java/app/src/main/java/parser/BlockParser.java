@@ -6,9 +6,39 @@
 
 package parser;
 
+import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
+
 public final class BlockParser {
+    private static final Predicate<String> ALL_NAMESPACES = namespace -> true;
+
     public static Block parseBlock(final org.hyperledger.fabric.protos.common.Block block) {
-        return new ParsedBlock(block);
+        return new ParsedBlock(block, null, ALL_NAMESPACES);
+    }
+
+    /**
+     * Parse a block whose transactions are decoded concurrently on an executor when first requested. Transactions
+     * keep their order within the block.
+     * @param block Block protobuf message.
+     * @param executor Executor on which to decode transactions, whose thread count bounds the concurrency.
+     * @return A parsed block.
+     */
+    public static Block parseBlock(final org.hyperledger.fabric.protos.common.Block block, final ExecutorService executor) {
+        return new ParsedBlock(block, executor, ALL_NAMESPACES);
+    }
+
+    /**
+     * Parse a block whose transactions are decoded concurrently on an executor when first requested, including only
+     * the read/write sets of selected namespaces. The read/write sets of other namespaces are never decoded, so a
+     * listener interested in few namespaces avoids most of the cost of parsing.
+     * @param block Block protobuf message.
+     * @param executor Executor on which to decode transactions, whose thread count bounds the concurrency.
+     * @param namespaceFilter Selects the namespaces whose read/write sets are included.
+     * @return A parsed block.
+     */
+    public static Block parseBlock(final org.hyperledger.fabric.protos.common.Block block, final ExecutorService executor,
+                                   final Predicate<String> namespaceFilter) {
+        return new ParsedBlock(block, executor, namespaceFilter);
     }
 
     private BlockParser() { }
@@ -0,0 +1,43 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package parser;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.util.Objects;
+
+/**
+ * Value that is parsed when first requested, at most once even if requested concurrently. Once parsed, the value costs
+ * only a volatile read. If parsing fails, the failure is thrown to the caller, and parsing is attempted again on the
+ * next request.
+ * @param <T> Value type.
+ */
+final class Lazy<T> {
+    private volatile T value;
+
+    /**
+     * Get the value, parsing it if it has not already been parsed. Concurrent callers wait for a single parse.
+     * @param call Parses the value, which must not be {@code null}.
+     * @return The value.
+     * @throws InvalidProtocolBufferException if parsing fails.
+     */
+    T get(final Utils.ProtoCall<T> call) throws InvalidProtocolBufferException {
+        var result = value;
+        if (result != null) {
+            return result;
+        }
+
+        synchronized (this) {
+            result = value;
+            if (result == null) {
+                result = Objects.requireNonNull(call.call());
+                value = result;
+            }
+            return result;
+        }
+    }
+}
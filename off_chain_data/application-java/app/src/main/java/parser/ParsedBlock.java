@@ -6,6 +6,7 @@
 
 package parser;
 
+import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import org.hyperledger.fabric.protos.common.BlockMetadataIndex;
 import org.hyperledger.fabric.protos.common.Envelope;
@@ -14,16 +15,25 @@ import org.hyperledger.fabric.protos.peer.TxValidationCode;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 class ParsedBlock implements Block {
+    // Enough transactions per parsing task to outweigh the cost of scheduling it
+    private static final int TRANSACTIONS_PER_TASK = 16;
+
     private final org.hyperledger.fabric.protos.common.Block block;
-    private final AtomicReference<List<Transaction>> cachedTransactions = new AtomicReference<>();
+    private final ExecutorService executor;
+    private final Predicate<String> namespaceFilter;
+    private final Lazy<List<Transaction>> cachedTransactions = new Lazy<>();
 
-    ParsedBlock(final org.hyperledger.fabric.protos.common.Block block) {
+    ParsedBlock(final org.hyperledger.fabric.protos.common.Block block, final ExecutorService executor,
+                final Predicate<String> namespaceFilter) {
         this.block = block;
+        this.executor = executor;
+        this.namespaceFilter = namespaceFilter;
     }
 
     @Override
@@ -33,20 +43,7 @@ class ParsedBlock implements Block {
 
     @Override
     public List<Transaction> getTransactions() throws InvalidProtocolBufferException {
-        return Utils.getCachedProto(cachedTransactions, () -> {
-            var validationCodes = getTransactionValidationCodes();
-            var payloads = getPayloads();
-
-            var transactions = new ArrayList<Transaction>();
-            for (int i = 0; i < payloads.size(); i++) {
-                var payload = new ParsedPayload(payloads.get(i), validationCodes.get(i));
-                if (payload.isEndorserTransaction()) {
-                    transactions.add(new ParsedTransaction(payload));
-                }
-            }
-
-            return transactions;
-        });
+        return cachedTransactions.get(() -> executor != null ? parseTransactionsConcurrently() : parseTransactions());
     }
 
     @Override
@@ -54,6 +51,81 @@ class ParsedBlock implements Block {
         return block;
     }
 
+    private List<Transaction> parseTransactions() throws InvalidProtocolBufferException {
+        var validationCodes = getTransactionValidationCodes();
+        var payloads = getPayloads();
+
+        var transactions = new ArrayList<Transaction>();
+        for (int i = 0; i < payloads.size(); i++) {
+            var payload = new ParsedPayload(payloads.get(i), validationCodes.get(i));
+            if (payload.isEndorserTransaction()) {
+                transactions.add(new ParsedTransaction(payload, namespaceFilter));
+            }
+        }
+
+        return transactions;
+    }
+
+    private List<Transaction> parseTransactionsConcurrently() throws InvalidProtocolBufferException {
+        var validationCodes = getTransactionValidationCodes();
+        var envelopes = block.getData().getDataList();
+
+        var calls = new ArrayList<Utils.ProtoCall<List<ParsedTransaction>>>();
+        for (int start = 0; start < envelopes.size(); start += TRANSACTIONS_PER_TASK) {
+            var end = Math.min(start + TRANSACTIONS_PER_TASK, envelopes.size());
+            var taskEnvelopes = envelopes.subList(start, end);
+            var taskValidationCodes = validationCodes.subList(start, end);
+            calls.add(() -> parseTransactions(taskEnvelopes, taskValidationCodes, namespaceFilter));
+        }
+
+        var transactions = new ArrayList<Transaction>();
+        for (var taskTransactions : Utils.invokeAll(executor, calls)) {
+            transactions.addAll(taskTransactions);
+        }
+
+        return transactions;
+    }
+
+    private static List<ParsedTransaction> parseTransactions(final List<ByteString> envelopes, final List<TxValidationCode> validationCodes,
+                                                             final Predicate<String> namespaceFilter)
+            throws InvalidProtocolBufferException {
+        var transactions = new ArrayList<ParsedTransaction>();
+        for (int i = 0; i < envelopes.size(); i++) {
+            var transaction = parseTransaction(envelopes.get(i), validationCodes.get(i), namespaceFilter);
+            if (transaction != null) {
+                transactions.add(transaction);
+            }
+        }
+
+        return transactions;
+    }
+
+    /**
+     * Parse a transaction in full, down to its read/write sets of selected namespaces if it is valid, so that no parsing
+     * is left for the caller to do one transaction at a time.
+     * @param envelopeBytes Serialized transaction envelope.
+     * @param validationCode Validation code of the transaction.
+     * @param namespaceFilter Selects the namespaces whose read/write sets are included.
+     * @return The transaction, or {@code null} if it is not an endorser transaction.
+     * @throws InvalidProtocolBufferException if the envelope or its headers fail to parse.
+     */
+    private static ParsedTransaction parseTransaction(final ByteString envelopeBytes, final TxValidationCode validationCode,
+                                                      final Predicate<String> namespaceFilter)
+            throws InvalidProtocolBufferException {
+        var envelope = Envelope.parseFrom(envelopeBytes);
+        var payload = new ParsedPayload(Payload.parseFrom(envelope.getPayload()), validationCode);
+        if (!payload.isEndorserTransaction()) {
+            return null;
+        }
+
+        var transaction = new ParsedTransaction(payload, namespaceFilter);
+        if (transaction.isValid()) {
+            transaction.preloadReadWriteSets();
+        }
+
+        return transaction;
+    }
+
     private List<Payload> getPayloads() throws InvalidProtocolBufferException {
         var payloads = new ArrayList<Payload>();
 
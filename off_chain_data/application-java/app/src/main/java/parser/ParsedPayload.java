@@ -13,13 +13,11 @@ import org.hyperledger.fabric.protos.common.Payload;
 import org.hyperledger.fabric.protos.common.SignatureHeader;
 import org.hyperledger.fabric.protos.peer.TxValidationCode;
 
-import java.util.concurrent.atomic.AtomicReference;
-
 class ParsedPayload {
     private final Payload payload;
     private final TxValidationCode statusCode;
-    private final AtomicReference<ChannelHeader> cachedChannelHeader = new AtomicReference<>();
-    private final AtomicReference<SignatureHeader> cachedSignatureHeader = new AtomicReference<>();
+    private final Lazy<ChannelHeader> cachedChannelHeader = new Lazy<>();
+    private final Lazy<SignatureHeader> cachedSignatureHeader = new Lazy<>();
 
     ParsedPayload(final Payload payload, final TxValidationCode statusCode) {
         this.payload = payload;
@@ -27,11 +25,11 @@ class ParsedPayload {
     }
 
     public ChannelHeader getChannelHeader() throws InvalidProtocolBufferException {
-        return Utils.getCachedProto(cachedChannelHeader, () -> ChannelHeader.parseFrom(payload.getHeader().getChannelHeader()));
+        return cachedChannelHeader.get(() -> ChannelHeader.parseFrom(payload.getHeader().getChannelHeader()));
     }
 
     public SignatureHeader getSignatureHeader() throws InvalidProtocolBufferException {
-        return Utils.getCachedProto(cachedSignatureHeader, () -> SignatureHeader.parseFrom(payload.getHeader().getSignatureHeader()));
+        return cachedSignatureHeader.get(() -> SignatureHeader.parseFrom(payload.getHeader().getSignatureHeader()));
     }
 
     public TxValidationCode getValidationCode() {
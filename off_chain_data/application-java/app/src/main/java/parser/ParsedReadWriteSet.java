@@ -12,20 +12,21 @@ import org.hyperledger.fabric.protos.ledger.rwset.TxReadWriteSet;
 import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KVRWSet;
 
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 class ParsedReadWriteSet implements NamespaceReadWriteSet {
     private final NsReadWriteSet readWriteSet;
-    private final AtomicReference<KVRWSet> cachedReadWriteSet = new AtomicReference<>();
+    private final Lazy<KVRWSet> cachedReadWriteSet = new Lazy<>();
 
-    static List<ParsedReadWriteSet> fromTxReadWriteSet(final TxReadWriteSet readWriteSet) {
+    static List<ParsedReadWriteSet> fromTxReadWriteSet(final TxReadWriteSet readWriteSet, final Predicate<String> namespaceFilter) {
         var dataModel = readWriteSet.getDataModel();
         if (dataModel != TxReadWriteSet.DataModel.KV) {
             throw new IllegalArgumentException("Unexpected read/write set data model: " + dataModel.name());
         }
 
         return readWriteSet.getNsRwsetList().stream()
+                .filter(namespaceReadWriteSet -> namespaceFilter.test(namespaceReadWriteSet.getNamespace()))
                 .map(ParsedReadWriteSet::new)
                 .collect(Collectors.toList());
     }
@@ -41,7 +42,7 @@ class ParsedReadWriteSet implements NamespaceReadWriteSet {
 
     @Override
     public KVRWSet getReadWriteSet() throws InvalidProtocolBufferException {
-        return Utils.getCachedProto(cachedReadWriteSet, () -> KVRWSet.parseFrom(readWriteSet.getRwset()));
+        return cachedReadWriteSet.get(() -> KVRWSet.parseFrom(readWriteSet.getRwset()));
     }
 
     @Override
@@ -13,15 +13,17 @@ import org.hyperledger.fabric.protos.peer.TxValidationCode;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 final class ParsedTransaction implements Transaction {
     private final ParsedPayload payload;
-    private final AtomicReference<List<NamespaceReadWriteSet>> cachedNamespaceReadWriteSets = new AtomicReference<>();
+    private final Predicate<String> namespaceFilter;
+    private final Lazy<List<NamespaceReadWriteSet>> cachedNamespaceReadWriteSets = new Lazy<>();
 
-    ParsedTransaction(final ParsedPayload payload) {
+    ParsedTransaction(final ParsedPayload payload, final Predicate<String> namespaceFilter) {
         this.payload = payload;
+        this.namespaceFilter = namespaceFilter;
     }
 
     @Override
@@ -46,7 +48,21 @@ final class ParsedTransaction implements Transaction {
 
     @Override
     public List<NamespaceReadWriteSet> getNamespaceReadWriteSets() throws InvalidProtocolBufferException {
-        return Utils.getCachedProto(cachedNamespaceReadWriteSets, () -> new ArrayList<>(getReadWriteSets()));
+        return cachedNamespaceReadWriteSets.get(() -> new ArrayList<>(getReadWriteSets()));
+    }
+
+    /**
+     * Parse and cache the read/write sets ahead of their use. Any that fail to parse are left to fail when requested,
+     * as they would have without preloading.
+     */
+    void preloadReadWriteSets() {
+        try {
+            for (var readWriteSet : getNamespaceReadWriteSets()) {
+                readWriteSet.getReadWriteSet();
+            }
+        } catch (InvalidProtocolBufferException | IllegalArgumentException e) {
+            // Not cached, so parsed again and reported on request
+        }
     }
 
     @Override
@@ -57,7 +73,7 @@ final class ParsedTransaction implements Transaction {
     private List<ParsedReadWriteSet> getReadWriteSets() throws InvalidProtocolBufferException {
         var results = new ArrayList<ParsedReadWriteSet>();
         for (var action : getTransactionActions()) {
-            results.addAll(action.getReadWriteSets());
+            results.addAll(action.getReadWriteSets(namespaceFilter));
         }
 
         return results;
@@ -14,6 +14,7 @@ import org.hyperledger.fabric.protos.peer.ProposalResponsePayload;
 import org.hyperledger.fabric.protos.peer.TransactionAction;
 
 import java.util.List;
+import java.util.function.Predicate;
 
 final class ParsedTransactionAction {
     private final TransactionAction transactionAction;
@@ -22,8 +23,8 @@ final class ParsedTransactionAction {
         this.transactionAction = transactionAction;
     }
 
-    public List<ParsedReadWriteSet> getReadWriteSets() throws InvalidProtocolBufferException {
-        return ParsedReadWriteSet.fromTxReadWriteSet(getTxReadWriteSet());
+    public List<ParsedReadWriteSet> getReadWriteSets(final Predicate<String> namespaceFilter) throws InvalidProtocolBufferException {
+        return ParsedReadWriteSet.fromTxReadWriteSet(getTxReadWriteSet(), namespaceFilter);
     }
 
     private TxReadWriteSet getTxReadWriteSet() throws InvalidProtocolBufferException {
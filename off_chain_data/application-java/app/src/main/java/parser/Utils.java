@@ -8,10 +8,13 @@ package parser;
 
 import com.google.protobuf.InvalidProtocolBufferException;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionException;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Supplier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 final class Utils {
     public interface ProtoCall<T> extends Callable<T> {
@@ -19,32 +22,50 @@ final class Utils {
         T call() throws InvalidProtocolBufferException;
     }
 
-    public static <T> T getCachedProto(final AtomicReference<T> cache, final ProtoCall<T> call) throws InvalidProtocolBufferException {
+    /**
+     * Run calls concurrently on an executor.
+     * @param executor Executor on which to run the calls.
+     * @param calls Calls to run.
+     * @return The results of the calls, in the same order as the calls.
+     * @param <T> Result type.
+     * @throws InvalidProtocolBufferException if any call fails to parse a protobuf message.
+     */
+    public static <T> List<T> invokeAll(final ExecutorService executor, final List<? extends ProtoCall<T>> calls)
+            throws InvalidProtocolBufferException {
+        List<Future<T>> futures;
         try {
-            return cache.updateAndGet(current -> current != null ? current : asSupplier(call).get());
-        } catch (CompletionException e) {
-            var cause = e.getCause();
-            if (cause instanceof InvalidProtocolBufferException) {
-                throw (InvalidProtocolBufferException) cause;
-            }
-            if (cause instanceof RuntimeException) {
-                throw (RuntimeException) cause;
-            }
-            if (cause instanceof Error) {
-                throw (Error) cause;
-            }
-            throw e;
+            futures = executor.invokeAll(calls);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
         }
-    }
 
-    public static <T> Supplier<T> asSupplier(final Callable<T> call) {
-        return () -> {
+        var results = new ArrayList<T>(futures.size());
+        for (var future : futures) {
             try {
-                return call.call();
-            } catch (Exception e) {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
                 throw new CompletionException(e);
+            } catch (ExecutionException e) {
+                throw rethrow(e.getCause(), new CompletionException(e.getCause()));
             }
-        };
+        }
+
+        return results;
+    }
+
+    private static RuntimeException rethrow(final Throwable cause, final RuntimeException wrapper) throws InvalidProtocolBufferException {
+        if (cause instanceof InvalidProtocolBufferException) {
+            throw (InvalidProtocolBufferException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw wrapper;
     }
 
     private Utils() { }
@@ -0,0 +1,232 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KVWrite;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a {@link KeyValueStore} reopens from its index snapshot, and only discards a damaged record at the end of
+ * its file.
+ */
+public final class KeyValueStoreTest {
+    private static final String CHANNEL_NAME = "mychannel";
+    private static final String NAMESPACE = "basic";
+    private static final int CORRUPT_KEY_LENGTH = 0x7fff0000;
+    private static final int ZERO_TAIL_LENGTH = 100;
+
+    private Path file;
+    private Path snapshot;
+
+    @BeforeEach
+    void setUp(@TempDir final Path dir) {
+        file = dir.resolve("state.db");
+        snapshot = dir.resolve("state.db.index");
+    }
+
+    @Test
+    void reopensFromSnapshotAndLaterRecords() throws IOException {
+        try (var store = new KeyValueStore(file)) {
+            store.store(0, "tx0", List.of(put("asset1", "red"), put("asset2", "blue")));
+        }
+        assertTrue(Files.exists(snapshot));
+
+        // Records appended after the snapshot, without closing the store
+        var store = new KeyValueStore(file);
+        store.store(1, "tx1", List.of(put("asset1", "green"), delete("asset2")));
+        store.sync();
+
+        try (var reader = KeyValueStore.openReadOnly(file)) {
+            assertEquals(Optional.of("green"), get(reader, "asset1"));
+            assertEquals(Optional.empty(), get(reader, "asset2"));
+        }
+        store.close();
+    }
+
+    @Test
+    void ignoresSnapshotOfReplacedStore() throws IOException {
+        try (var store = new KeyValueStore(file)) {
+            store.store(0, "tx0", List.of(put("asset1", "red")));
+        }
+        var staleSnapshot = Files.readAllBytes(snapshot);
+        Files.delete(file);
+        try (var store = new KeyValueStore(file)) {
+            store.store(0, "tx0", List.of(put("asset2", "blue"), put("asset3", "blue")));
+        }
+        Files.write(snapshot, staleSnapshot);
+
+        try (var reader = KeyValueStore.openReadOnly(file)) {
+            assertEquals(Optional.empty(), get(reader, "asset1"));
+            assertEquals(Optional.of("blue"), get(reader, "asset2"));
+        }
+    }
+
+    @Test
+    void truncationBelowSnapshotRebuildsIndex() throws IOException {
+        long length;
+        try (var store = new KeyValueStore(file)) {
+            store.store(0, "tx0", List.of(put("asset1", "red")));
+            length = store.length();
+            store.store(1, "tx1", List.of(put("asset1", "green")));
+        }
+
+        try (var store = new KeyValueStore(file)) {
+            store.truncate(length);
+            assertFalse(Files.exists(snapshot));
+            assertEquals(Optional.of("red"), get(store, "asset1"));
+        }
+    }
+
+    @Test
+    void removesIncompleteRecordAtEnd() throws IOException {
+        long length;
+        try (var store = new KeyValueStore(file)) {
+            store.store(0, "tx0", List.of(put("asset1", "red")));
+            length = store.length();
+            store.store(1, "tx1", List.of(put("asset2", "blue")));
+        }
+        Files.delete(snapshot);
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 1);
+        }
+
+        try (var store = new KeyValueStore(file)) {
+            assertEquals(length, store.length());
+            assertEquals(length, Files.size(file));
+            assertEquals(Optional.of("red"), get(store, "asset1"));
+            assertEquals(Optional.empty(), get(store, "asset2"));
+        }
+    }
+
+    @Test
+    void rejectsCorruptRecordBeforeEnd() throws IOException {
+        try (var store = new KeyValueStore(file)) {
+            store.store(0, "tx0", List.of(put("asset1", "red"), put("asset2", "blue")));
+        }
+        Files.delete(snapshot);
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // A negative key length, in the header of the first record
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, Integer.MIN_VALUE), 0);
+        }
+        var size = Files.size(file);
+
+        assertThrows(IOException.class, () -> new KeyValueStore(file));
+        assertEquals(size, Files.size(file));
+    }
+
+    @Test
+    void removesCorruptFinalRecord() throws IOException {
+        long length;
+        try (var store = new KeyValueStore(file)) {
+            store.store(0, "tx0", List.of(put("asset1", "red")));
+            length = store.length();
+            store.store(1, "tx1", List.of(put("asset2", "blue")));
+        }
+        Files.delete(snapshot);
+        // The last byte of the value of the final record
+        flipByte(Files.size(file) - 1);
+
+        try (var store = new KeyValueStore(file)) {
+            assertEquals(length, store.length());
+            assertEquals(Optional.of("red"), get(store, "asset1"));
+            assertEquals(Optional.empty(), get(store, "asset2"));
+        }
+    }
+
+    @Test
+    void removesZeroFilledEnd() throws IOException {
+        long length;
+        try (var store = new KeyValueStore(file)) {
+            store.store(0, "tx0", List.of(put("asset1", "red")));
+            length = store.length();
+        }
+        Files.delete(snapshot);
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(ZERO_TAIL_LENGTH), length);
+        }
+
+        try (var store = new KeyValueStore(file)) {
+            assertEquals(length, store.length());
+            assertEquals(length, Files.size(file));
+            assertEquals(Optional.of("red"), get(store, "asset1"));
+        }
+    }
+
+    @Test
+    void rejectsCorruptLengthBeforeEnd() throws IOException {
+        try (var store = new KeyValueStore(file)) {
+            store.store(0, "tx0", List.of(put("asset1", "red"), put("asset2", "blue")));
+        }
+        Files.delete(snapshot);
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // A key length extending beyond the end of the file, in the header of the first record
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, CORRUPT_KEY_LENGTH), 0);
+        }
+        var size = Files.size(file);
+
+        assertThrows(IOException.class, () -> new KeyValueStore(file));
+        assertThrows(IOException.class, () -> KeyValueStore.openReadOnly(file));
+        assertEquals(size, Files.size(file));
+    }
+
+    @Test
+    void rejectsCorruptValueBeforeEnd() throws IOException {
+        try (var store = new KeyValueStore(file)) {
+            store.store(0, "tx0", List.of(put("asset1", "red"), put("asset2", "blue")));
+        }
+        Files.delete(snapshot);
+        var bytes = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+        flipByte(bytes.indexOf("red"));
+        var size = Files.size(file);
+
+        assertThrows(IOException.class, () -> new KeyValueStore(file));
+        assertEquals(size, Files.size(file));
+    }
+
+    private void flipByte(final long position) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, position);
+            buffer.put(0, (byte) ~buffer.get(0));
+            channel.write(buffer.flip(), position);
+        }
+    }
+
+    private static Write put(final String key, final String value) {
+        return new Write(CHANNEL_NAME, NAMESPACE, KVWrite.newBuilder()
+                .setKey(key)
+                .setValue(ByteString.copyFromUtf8(value))
+                .build());
+    }
+
+    private static Write delete(final String key) {
+        return new Write(CHANNEL_NAME, NAMESPACE, KVWrite.newBuilder()
+                .setKey(key)
+                .setIsDelete(true)
+                .build());
+    }
+
+    private static Optional<String> get(final KeyValueStore store, final String key) throws IOException {
+        return store.get(CHANNEL_NAME, NAMESPACE, key).map(value -> new String(value, StandardCharsets.UTF_8));
+    }
+}
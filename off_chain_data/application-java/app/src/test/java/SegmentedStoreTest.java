@@ -0,0 +1,205 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.client.FileCheckpointer;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KVWrite;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a {@link SegmentedStore} rolls and truncates its segments, and only discards a damaged record at the end
+ * of its last segment.
+ */
+public final class SegmentedStoreTest {
+    private static final int SEGMENT_SIZE = 256;
+    private static final int BLOCK_COUNT = 10;
+    private static final int CORRUPT_RECORD_LENGTH = 0x7fff0000;
+    private static final int ZERO_TAIL_LENGTH = 100;
+
+    private Path dir;
+    private Path directory;
+
+    @BeforeEach
+    void setUp(@TempDir final Path tempDir) {
+        dir = tempDir;
+        directory = dir.resolve("store");
+    }
+
+    @Test
+    void rollsToSegmentsNamedByPosition() throws IOException {
+        long length;
+        try (var store = new SegmentedStore(directory, SEGMENT_SIZE)) {
+            storeBlocks(store, 0, BLOCK_COUNT);
+            length = store.length();
+        }
+
+        var segments = SegmentedStore.listSegments(directory);
+        assertTrue(segments.size() > 1, "segments: " + segments);
+        var position = 0L;
+        for (var base : segments) {
+            assertEquals(position, base);
+            var size = Files.size(segmentFile(base));
+            assertTrue(size <= SEGMENT_SIZE, "segment size: " + size);
+            position += size;
+        }
+        assertEquals(length, position);
+
+        try (var store = new SegmentedStore(directory, SEGMENT_SIZE)) {
+            assertEquals(length, store.length());
+        }
+    }
+
+    @Test
+    void truncateRemovesLaterSegments() throws IOException {
+        long length;
+        try (var store = new SegmentedStore(directory, SEGMENT_SIZE)) {
+            storeBlocks(store, 0, 2);
+            length = store.length();
+            storeBlocks(store, 2, BLOCK_COUNT);
+            store.sync();
+
+            store.truncate(length);
+            assertEquals(length, store.length());
+        }
+
+        var segments = SegmentedStore.listSegments(directory);
+        var last = segments.get(segments.size() - 1);
+        assertTrue(last <= length, "last segment: " + last);
+        assertEquals(length - last, Files.size(segmentFile(last)));
+
+        try (var store = new SegmentedStore(directory, SEGMENT_SIZE)) {
+            assertEquals(length, store.length());
+            storeBlocks(store, 2, BLOCK_COUNT);
+        }
+        try (var store = new SegmentedStore(directory, SEGMENT_SIZE)) {
+            assertEquals(length * BLOCK_COUNT / 2, store.length());
+        }
+    }
+
+    @Test
+    void removesCorruptFinalRecord() throws IOException {
+        long length;
+        try (var store = new SegmentedStore(directory, Integer.MAX_VALUE - 1)) {
+            storeBlocks(store, 0, 1);
+            length = store.length();
+            storeBlocks(store, 1, 2);
+        }
+        // The last byte of the writes of the final record
+        flipByte(segmentFile(0), Files.size(segmentFile(0)) - 1);
+
+        try (var store = new SegmentedStore(directory, Integer.MAX_VALUE - 1)) {
+            assertEquals(length, store.length());
+        }
+        assertEquals(length, Files.size(segmentFile(0)));
+    }
+
+    @Test
+    void removesZeroFilledEnd() throws IOException {
+        long length;
+        try (var store = new SegmentedStore(directory, Integer.MAX_VALUE - 1)) {
+            storeBlocks(store, 0, 2);
+            length = store.length();
+        }
+        try (var channel = FileChannel.open(segmentFile(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(ZERO_TAIL_LENGTH), length);
+        }
+
+        try (var store = new SegmentedStore(directory, Integer.MAX_VALUE - 1)) {
+            assertEquals(length, store.length());
+        }
+        assertEquals(length, Files.size(segmentFile(0)));
+    }
+
+    @Test
+    void rejectsCorruptLengthBeforeEnd() throws IOException {
+        try (var store = new SegmentedStore(directory, Integer.MAX_VALUE - 1)) {
+            storeBlocks(store, 0, 2);
+        }
+        try (var channel = FileChannel.open(segmentFile(0), StandardOpenOption.WRITE)) {
+            // A record length extending beyond the end of the segment, in the header of the first record
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, CORRUPT_RECORD_LENGTH), 0);
+        }
+        var size = Files.size(segmentFile(0));
+
+        assertThrows(IOException.class, () -> new SegmentedStore(directory, Integer.MAX_VALUE - 1));
+        assertEquals(size, Files.size(segmentFile(0)));
+    }
+
+    @Test
+    void rejectsCorruptRecordBeforeEnd() throws IOException {
+        try (var store = new SegmentedStore(directory, Integer.MAX_VALUE - 1)) {
+            storeBlocks(store, 0, 2);
+        }
+        var bytes = new String(Files.readAllBytes(segmentFile(0)), StandardCharsets.ISO_8859_1);
+        flipByte(segmentFile(0), bytes.indexOf("tx0"));
+        var size = Files.size(segmentFile(0));
+
+        assertThrows(IOException.class, () -> new SegmentedStore(directory, Integer.MAX_VALUE - 1));
+        assertEquals(size, Files.size(segmentFile(0)));
+    }
+
+    @Test
+    void storeShorterThanCommitIsRejected() throws IOException {
+        var checkpointFile = dir.resolve("checkpoint.json");
+        var commitLogFile = dir.resolve("store.commit");
+        try (var fileCheckpointer = new FileCheckpointer(checkpointFile);
+             var store = new SegmentedStore(directory, SEGMENT_SIZE)) {
+            var checkpointer = new StoreCheckpointer(fileCheckpointer, store, commitLogFile, 1, 0);
+            storeBlocks(store, 0, BLOCK_COUNT);
+            checkpointer.checkpointTransaction(BLOCK_COUNT - 1, 0, "tx" + (BLOCK_COUNT - 1));
+            checkpointer.checkpointBlock(BLOCK_COUNT - 1);
+            checkpointer.close();
+        }
+
+        // Committed records lost with the last segment
+        var segments = SegmentedStore.listSegments(directory);
+        Files.delete(segmentFile(segments.get(segments.size() - 1)));
+
+        try (var fileCheckpointer = new FileCheckpointer(checkpointFile);
+             var store = new SegmentedStore(directory, SEGMENT_SIZE)) {
+            assertThrows(IOException.class,
+                    () -> new StoreCheckpointer(fileCheckpointer, store, commitLogFile, 1, 0));
+        }
+    }
+
+    private void storeBlocks(final SegmentedStore store, final long from, final long to) throws IOException {
+        for (var blockNumber = from; blockNumber < to; blockNumber++) {
+            var write = KVWrite.newBuilder()
+                    .setKey("block" + blockNumber)
+                    .setValue(ByteString.copyFromUtf8("value"))
+                    .build();
+            store.store(blockNumber, "tx" + blockNumber, List.of(new Write("mychannel", "basic", write)));
+        }
+    }
+
+    private Path segmentFile(final long base) {
+        return SegmentedStore.segmentFile(directory, base, SegmentedStore.LOG_SUFFIX);
+    }
+
+    private static void flipByte(final Path file, final long position) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, position);
+            buffer.put(0, (byte) ~buffer.get(0));
+            channel.write(buffer.flip(), position);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.google.gson.Gson;
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.client.FileCheckpointer;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KVWrite;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Simulates the listener crashing at each point of a {@link StoreCheckpointer} commit, by restoring the files that the
+ * commit had not yet replaced, and checks that every ledger write is stored exactly once after restarting.
+ */
+public final class StoreCheckpointerTest {
+    private static final Gson GSON = new Gson();
+    private static final int COMMIT_BLOCKS = 100;
+
+    private Path dir;
+    private Path storeFile;
+    private Path checkpointFile;
+    private Path commitLogFile;
+
+    @BeforeEach
+    void setUp(@TempDir final Path tempDir) {
+        dir = tempDir;
+        storeFile = dir.resolve("store.log");
+        checkpointFile = dir.resolve("checkpoint.json");
+        commitLogFile = dir.resolve("store.log.commit");
+    }
+
+    @Test
+    void crashBeforeCommitLogIsReplaced() throws IOException {
+        var listener = new Listener();
+        listener.process(0);
+        listener.commit();
+        var checkpoint = Files.readAllBytes(checkpointFile);
+        var commitLog = Files.readAllBytes(commitLogFile);
+        listener.process(1);
+        listener.commit();
+        listener.crash();
+
+        // The store was synced, but the commit log was only partly written to its temporary file
+        Files.write(checkpointFile, checkpoint);
+        Files.write(commitLogFile, commitLog);
+        Files.writeString(dir.resolve("store.log.commit.tmp"), "[{\"blockNumber\":");
+
+        assertRecoversAfterBlock(0);
+    }
+
+    @Test
+    void crashBeforeCheckpointIsAdvanced() throws IOException {
+        var listener = new Listener();
+        listener.process(0);
+        listener.commit();
+        var checkpoint = Files.readAllBytes(checkpointFile);
+        listener.process(1);
+        listener.commit();
+        listener.crash();
+
+        Files.write(checkpointFile, checkpoint);
+
+        assertRecoversAfterBlock(0);
+    }
+
+    @Test
+    void crashAfterCheckpointIsAdvanced() throws IOException {
+        var listener = new Listener();
+        listener.process(0);
+        listener.commit();
+        listener.process(1);
+        listener.commit();
+        listener.crash();
+
+        assertRecoversAfterBlock(1);
+    }
+
+    @Test
+    void crashBeforeCommit() throws IOException {
+        var listener = new Listener();
+        listener.process(0);
+        listener.commit();
+        listener.process(1);
+        listener.crash();
+
+        assertRecoversAfterBlock(0);
+    }
+
+    @Test
+    void corruptCommitLogIsRejected() throws IOException {
+        var listener = new Listener();
+        listener.process(0);
+        listener.commit();
+        listener.crash();
+
+        Files.writeString(commitLogFile, "[{\"blockNumber\":");
+
+        assertThrows(IOException.class, Listener::new);
+    }
+
+    @Test
+    void storeShorterThanCommitIsRejected() throws IOException {
+        var listener = new Listener();
+        listener.process(0);
+        listener.commit();
+        listener.crash();
+
+        // Committed writes lost from the end of the store
+        Files.write(storeFile, new byte[0]);
+
+        assertThrows(IOException.class, Listener::new);
+    }
+
+    private void assertRecoversAfterBlock(final long blockNumber) throws IOException {
+        var listener = new Listener();
+        assertEquals(OptionalLong.of(blockNumber + 1), listener.checkpointer.getBlockNumber());
+        assertEquals(storedKeys(blockNumber), readStoredKeys());
+
+        for (var i = blockNumber + 1; i <= 1; i++) {
+            listener.process(i);
+        }
+        listener.close();
+        assertEquals(storedKeys(1), readStoredKeys());
+    }
+
+    private static List<String> storedKeys(final long lastBlockNumber) {
+        var keys = new ArrayList<String>();
+        for (var i = 0; i <= lastBlockNumber; i++) {
+            keys.add("block" + i);
+        }
+        return keys;
+    }
+
+    private List<String> readStoredKeys() throws IOException {
+        return Files.readAllLines(storeFile, StandardCharsets.UTF_8).stream()
+                .map(line -> GSON.fromJson(line, Write.class).getKey())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The store and checkpoints of a listener that commits only when asked.
+     */
+    private final class Listener {
+        private final FileCheckpointer fileCheckpointer;
+        private final FileStore store;
+        private final StoreCheckpointer checkpointer;
+
+        Listener() throws IOException {
+            fileCheckpointer = new FileCheckpointer(checkpointFile);
+            store = new FileStore(storeFile);
+            checkpointer = new StoreCheckpointer(fileCheckpointer, store, commitLogFile, COMMIT_BLOCKS, 0);
+        }
+
+        void process(final long blockNumber) throws IOException {
+            var write = KVWrite.newBuilder()
+                    .setKey("block" + blockNumber)
+                    .setValue(ByteString.copyFromUtf8("value"))
+                    .build();
+            store.store(blockNumber, "tx" + blockNumber, List.of(new Write("mychannel", "basic", write)));
+            checkpointer.checkpointTransaction(blockNumber, 0, "tx" + blockNumber);
+            checkpointer.checkpointBlock(blockNumber);
+        }
+
+        void commit() throws IOException {
+            checkpointer.commit();
+        }
+
+        // Stops without committing; any buffered store writes still reach the file, as if the operating system had
+        // written them out before the crash
+        void crash() throws IOException {
+            store.close();
+            fileCheckpointer.close();
+        }
+
+        void close() throws IOException {
+            checkpointer.close();
+            crash();
+        }
+    }
+}
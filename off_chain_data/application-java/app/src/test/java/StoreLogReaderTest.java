@@ -0,0 +1,171 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.google.protobuf.ByteString;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KVWrite;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a {@link StoreLogReader} finds records by block and transaction across the segments of a
+ * {@link SegmentedStore}, follows new records as they are written, and stops when its segment is truncated.
+ */
+public final class StoreLogReaderTest {
+    private static final int SEGMENT_SIZE = 512;
+    private static final int BLOCK_COUNT = 10;
+    private static final int TRANSACTIONS_PER_BLOCK = 3;
+    private static final long MIDDLE_BLOCK = BLOCK_COUNT / 2;
+
+    private Path directory;
+    private SegmentedStore store;
+    private StoreLogReader reader;
+
+    @BeforeEach
+    void setUp(@TempDir final Path dir) throws IOException {
+        directory = dir.resolve("store");
+        store = new SegmentedStore(directory, SEGMENT_SIZE);
+        reader = new StoreLogReader(directory);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    void readsFromBlockAcrossSegments() throws IOException {
+        storeBlocks(0, BLOCK_COUNT);
+        store.sync();
+        assertTrue(SegmentedStore.listSegments(directory).size() > 2);
+
+        for (var blockNumber = 0; blockNumber < BLOCK_COUNT; blockNumber++) {
+            assertEquals(transactionIds(blockNumber, 0, BLOCK_COUNT), readAll(reader.fromBlock(blockNumber)));
+        }
+        assertEquals(List.of(), readAll(reader.fromBlock(BLOCK_COUNT)));
+    }
+
+    @Test
+    void readsAfterTransaction() throws IOException {
+        storeBlocks(0, BLOCK_COUNT);
+        store.sync();
+
+        var cursor = reader.afterTransaction(MIDDLE_BLOCK, transactionId(MIDDLE_BLOCK, 1));
+        assertEquals(transactionIds(MIDDLE_BLOCK, 2, BLOCK_COUNT), readAll(cursor));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> reader.afterTransaction(MIDDLE_BLOCK, transactionId(MIDDLE_BLOCK + 1, 0)));
+    }
+
+    @Test
+    void resumesFromPosition() throws IOException {
+        storeBlocks(0, BLOCK_COUNT);
+        store.sync();
+
+        var cursor = reader.fromBlock(0);
+        for (var i = 0; i < TRANSACTIONS_PER_BLOCK * MIDDLE_BLOCK; i++) {
+            cursor.next();
+        }
+
+        assertEquals(transactionIds(MIDDLE_BLOCK, 0, BLOCK_COUNT), readAll(reader.fromPosition(cursor.getPosition())));
+    }
+
+    @Test
+    void followsNewRecords() throws IOException {
+        storeBlocks(0, 2);
+        store.sync();
+        var cursor = reader.fromBlock(0);
+        assertEquals(transactionIds(0, 0, 2), readAll(cursor));
+
+        storeBlocks(2, BLOCK_COUNT);
+        store.sync();
+
+        assertEquals(transactionIds(2, 0, BLOCK_COUNT), readAll(cursor));
+    }
+
+    @Test
+    void detectsTruncationAcrossSegments() throws IOException {
+        storeBlocks(0, 2);
+        store.sync();
+        var length = store.length();
+        storeBlocks(2, BLOCK_COUNT);
+        store.sync();
+        var cursor = reader.fromBlock(0);
+        readAll(cursor);
+
+        store.truncate(length);
+
+        assertThrows(IllegalStateException.class, cursor::hasNext);
+    }
+
+    @Test
+    void rejectsCorruptRecord() throws IOException {
+        storeBlocks(0, BLOCK_COUNT);
+        store.sync();
+        var cursor = reader.fromBlock(0);
+        cursor.next();
+        var file = SegmentedStore.segmentFile(directory, 0, SegmentedStore.LOG_SUFFIX);
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // The block number in the header of the second record
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, -1), cursor.getPosition() + Integer.BYTES);
+        }
+
+        assertThrows(IllegalStateException.class, () -> new StoreLogReader(directory).fromBlock(0).forEachRemaining(
+                record -> { }));
+    }
+
+    private void storeBlocks(final long from, final long to) throws IOException {
+        for (var blockNumber = from; blockNumber < to; blockNumber++) {
+            for (var i = 0; i < TRANSACTIONS_PER_BLOCK; i++) {
+                var write = KVWrite.newBuilder()
+                        .setKey("asset" + blockNumber + "." + i)
+                        .setValue(ByteString.copyFromUtf8("value"))
+                        .build();
+                store.store(blockNumber, transactionId(blockNumber, i),
+                        List.of(new Write("mychannel", "basic", write)));
+            }
+        }
+    }
+
+    private static String transactionId(final long blockNumber, final int index) {
+        return "tx" + blockNumber + "." + index;
+    }
+
+    private static List<String> transactionIds(final long from, final int fromIndex, final long to) {
+        var results = new ArrayList<String>();
+        for (var blockNumber = from; blockNumber < to; blockNumber++) {
+            for (var i = blockNumber == from ? fromIndex : 0; i < TRANSACTIONS_PER_BLOCK; i++) {
+                results.add(transactionId(blockNumber, i));
+            }
+        }
+        return results;
+    }
+
+    private static List<String> readAll(final StoreLogReader.Cursor cursor) {
+        var results = new ArrayList<String>();
+        while (cursor.hasNext()) {
+            var record = cursor.next();
+            results.add(record.getTransactionId());
+            assertEquals(1, record.getWrites().size());
+            assertFalse(record.getWrites().get(0).getKey().isEmpty());
+        }
+        return results;
+    }
+}
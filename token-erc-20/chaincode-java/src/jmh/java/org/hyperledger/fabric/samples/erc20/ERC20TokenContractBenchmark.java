@@ -0,0 +1,161 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.erc20;
+
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.samples.testing.InMemoryChaincodeStub;
+import org.hyperledger.fabric.samples.testing.TestIdentities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Drives each ERC20TokenContract transaction function against an {@link InMemoryChaincodeStub}.
+ * The Org1 minter holds the supply and has approved an Org2 spender; transfers go round-robin to
+ * {@code accounts} recipient accounts. Every operation is one transaction: the contract call
+ * followed by a commit.
+ *
+ * <p>Contexts are created once per trial, as the cost of parsing the client certificate would
+ * otherwise dominate; {@link #createContext()} measures that cost separately.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ERC20TokenContractBenchmark {
+
+  private static final long SUPPLY = Long.MAX_VALUE / 4;
+
+  /** Keeps the contract's INFO logging off the console while it is being measured. */
+  private static final Logger FABRIC_LOGGER = Logger.getLogger("org.hyperledger.fabric");
+
+  @Param({"1000"})
+  private int accounts;
+
+  private final ERC20TokenContract contract = new ERC20TokenContract();
+  private InMemoryChaincodeStub stub;
+  private Context minter;
+  private Context spender;
+  private String minterId;
+  private String spenderId;
+  private String[] recipients;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    FABRIC_LOGGER.setLevel(java.util.logging.Level.WARNING);
+
+    stub = new InMemoryChaincodeStub();
+    stub.setCreator(TestIdentities.ORG1_MSP, TestIdentities.ORG1_USER_CERT);
+    minter = new Context(stub);
+    stub.setCreator(TestIdentities.ORG2_MSP, TestIdentities.ORG2_USER_CERT);
+    spender = new Context(stub);
+    minterId = minter.getClientIdentity().getId();
+    spenderId = spender.getClientIdentity().getId();
+
+    contract.Initialize(minter, "some name", "SYMBOL", "2");
+    stub.commit();
+    contract.Mint(minter, SUPPLY);
+    stub.commit();
+    contract.Approve(minter, spenderId, SUPPLY);
+    stub.commit();
+    recipients = new String[accounts];
+    for (int i = 0; i < accounts; i++) {
+      recipients[i] = "account" + i;
+      contract.Transfer(minter, recipients[i], 1);
+      stub.commit();
+    }
+  }
+
+  private String nextRecipient() {
+    String recipient = recipients[next];
+    next = (next + 1) % accounts;
+    return recipient;
+  }
+
+  @Benchmark
+  public Context createContext() {
+    return contract.createContext(stub);
+  }
+
+  @Benchmark
+  public void mint() {
+    contract.Mint(minter, 1);
+    stub.commit();
+  }
+
+  @Benchmark
+  public void burn() {
+    contract.Burn(minter, 1);
+    stub.commit();
+  }
+
+  @Benchmark
+  public void transfer() {
+    contract.Transfer(minter, nextRecipient(), 1);
+    stub.commit();
+  }
+
+  @Benchmark
+  public void approve() {
+    contract.Approve(minter, spenderId, SUPPLY);
+    stub.commit();
+  }
+
+  @Benchmark
+  public void transferFrom() {
+    contract.TransferFrom(spender, minterId, nextRecipient(), 1);
+    stub.commit();
+  }
+
+  @Benchmark
+  public long balanceOf() {
+    long balance = contract.BalanceOf(minter, nextRecipient());
+    stub.commit();
+    return balance;
+  }
+
+  @Benchmark
+  public long clientAccountBalance() {
+    long balance = contract.ClientAccountBalance(minter);
+    stub.commit();
+    return balance;
+  }
+
+  @Benchmark
+  public long allowance() {
+    long allowance = contract.Allowance(minter, minterId, spenderId);
+    stub.commit();
+    return allowance;
+  }
+
+  @Benchmark
+  public long totalSupply() {
+    long totalSupply = contract.TotalSupply(minter);
+    stub.commit();
+    return totalSupply;
+  }
+
+  @Benchmark
+  public String tokenName() {
+    String name = contract.TokenName(minter);
+    stub.commit();
+    return name;
+  }
+}
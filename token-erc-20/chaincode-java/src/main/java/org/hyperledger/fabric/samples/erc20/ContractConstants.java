@@ -7,11 +7,13 @@ package org.hyperledger.fabric.samples.erc20;
 /** ERC20 constants for KEYS ,EVENTS and MSP */
 public enum ContractConstants {
   BALANCE_PREFIX("balance"),
+  BALANCE_CREDIT_PREFIX("balanceCredit"),
   ALLOWANCE_PREFIX("allowance"),
   NAME_KEY("name"),
   SYMBOL_KEY("symbolKey"),
   DECIMALS_KEY("decimals"),
   TOTAL_SUPPLY_KEY("totalSupply"),
+  DELTA_CREDITS_KEY("deltaCredits"),
   TRANSFER_EVENT("Transfer"),
   MINTER_ORG_MSPID("Org1MSP"),
   APPROVAL("Approval");
@@ -3,11 +3,12 @@
  */
 package org.hyperledger.fabric.samples.erc20;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.ALLOWANCE_PREFIX;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.APPROVAL;
+import static org.hyperledger.fabric.samples.erc20.ContractConstants.BALANCE_CREDIT_PREFIX;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.BALANCE_PREFIX;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.DECIMALS_KEY;
+import static org.hyperledger.fabric.samples.erc20.ContractConstants.DELTA_CREDITS_KEY;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.NAME_KEY;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.SYMBOL_KEY;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.TOTAL_SUPPLY_KEY;
@@ -21,7 +22,6 @@ import static org.hyperledger.fabric.samples.erc20.ContractErrors.NO_ALLOWANCE_F
 import static org.hyperledger.fabric.samples.erc20.ContractErrors.UNAUTHORIZED_SENDER;
 import static org.hyperledger.fabric.samples.erc20.utils.ContractUtility.stringIsNullOrEmpty;
 
-import com.owlike.genson.Genson;
 import org.hyperledger.fabric.Logger;
 import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.contract.ContractInterface;
@@ -33,9 +33,12 @@ import org.hyperledger.fabric.contract.annotation.License;
 import org.hyperledger.fabric.contract.annotation.Transaction;
 import org.hyperledger.fabric.samples.erc20.model.Approval;
 import org.hyperledger.fabric.samples.erc20.model.Transfer;
+import org.hyperledger.fabric.samples.erc20.utils.EventEncoder;
+import org.hyperledger.fabric.samples.shared.TokenMetadataCache;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
 import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
 
 @Contract(
     name = "erc20token",
@@ -56,11 +59,19 @@ import org.hyperledger.fabric.shim.ledger.CompositeKey;
 @Default
 public final class ERC20TokenContract implements ContractInterface {
 
+  /** Encodes events into a buffer reused by the transactions run on each thread. */
+  private static final ThreadLocal<EventEncoder> EVENT_ENCODER =
+      ThreadLocal.withInitial(EventEncoder::new);
+
   final Logger logger = Logger.getLogger(ERC20TokenContract.class);
 
+  /** Token options and the delta credit mode, which cannot change once they are set. */
+  private final TokenMetadataCache metadata = new TokenMetadataCache();
+
   /**
    * Mint creates new tokens and adds them to minter's account balance. This function triggers a
-   * Transfer event.
+   * Transfer event. The increase in total supply is recorded as a delta rather than by updating the
+   * total supply key, so that concurrent mints do not conflict on it.
    *
    * @param ctx the transaction context
    * @param amount of tokens to be minted
@@ -86,35 +97,16 @@ public final class ERC20TokenContract implements ContractInterface {
       throw new ChaincodeException(
           "Mint amount must be a positive integer", INVALID_AMOUNT.toString());
     }
-    CompositeKey balanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), minter);
-    String currentBalanceStr = stub.getStringState(balanceKey.toString());
-    // If minter current balance doesn't yet exist, we'll create it with a current balance of 0
-    long currentBalance = 0;
-    if (!stringIsNullOrEmpty(currentBalanceStr)) {
-      currentBalance = Long.parseLong(currentBalanceStr);
-    }
-    // Used safe math .
-    long updatedBalance = Math.addExact(currentBalance, amount);
-    stub.putStringState(balanceKey.toString(), String.valueOf(updatedBalance));
+    this.credit(stub, minter, amount, this.deltaCreditsEnabled(stub));
     // Increase totalSupply
-    String totalSupplyStr = stub.getStringState(TOTAL_SUPPLY_KEY.getValue());
-    long totalSupply = 0;
-    if (!stringIsNullOrEmpty(totalSupplyStr)) {
-      totalSupply = Long.parseLong(totalSupplyStr);
-    }
-    // Used safe math .
-    totalSupply = Math.addExact(totalSupply, amount);
-    stub.putStringState(TOTAL_SUPPLY_KEY.getValue(), String.valueOf(totalSupply));
+    this.addTotalSupplyDelta(stub, amount);
     Transfer transferEvent = new Transfer("0x0", minter, amount);
     stub.setEvent(TRANSFER_EVENT.getValue(), this.marshal(transferEvent));
-    logger.info(
-        String.format(
-            "minter account %s balance updated from %d to %d",
-            minter, currentBalance, updatedBalance));
   }
 
   /**
-   * Burn redeems tokens the minter's account balance. This function triggers a Transfer event.
+   * Burn redeems tokens the minter's account balance. This function triggers a Transfer event. As
+   * for Mint, the decrease in total supply is recorded as a delta.
    *
    * @param ctx the transaction context
    * @param amount amount of tokens to be burned
@@ -140,12 +132,12 @@ public final class ERC20TokenContract implements ContractInterface {
       throw new ChaincodeException(
           "Burn amount must be a positive integer", INVALID_AMOUNT.toString());
     }
+    boolean deltaCredits = this.deltaCreditsEnabled(stub);
     CompositeKey balanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), minter);
-    String currentBalanceStr = stub.getStringState(balanceKey.toString());
-    if (stringIsNullOrEmpty(currentBalanceStr)) {
+    Long currentBalance = this.readBalance(stub, minter, deltaCredits, deltaCredits);
+    if (currentBalance == null) {
       throw new ChaincodeException("The balance does not exist", BALANCE_NOT_FOUND.toString());
     }
-    long currentBalance = Long.parseLong(currentBalanceStr);
     // Check if the sender has enough tokens to burn.
 
     if (currentBalance < amount) {
@@ -155,12 +147,7 @@ public final class ERC20TokenContract implements ContractInterface {
     long updatedBalance = Math.subtractExact(currentBalance, amount);
     stub.putStringState(balanceKey.toString(), String.valueOf(updatedBalance));
     // Decrease totalSupply
-    String totalSupplyBytes = stub.getStringState(TOTAL_SUPPLY_KEY.getValue());
-    if (stringIsNullOrEmpty(totalSupplyBytes)) {
-      throw new ChaincodeException("TotalSupply does not exist", NOT_FOUND.toString());
-    }
-    long totalSupply = Math.subtractExact(Long.parseLong(totalSupplyBytes), amount);
-    stub.putStringState(TOTAL_SUPPLY_KEY.getValue(), String.valueOf(totalSupply));
+    this.addTotalSupplyDelta(stub, Math.negateExact(amount));
     // Emit the Transfer event
     final Transfer transferEvent = new Transfer(minter, "0x0", amount);
     stub.setEvent(TRANSFER_EVENT.getValue(), this.marshal(transferEvent));
@@ -201,14 +188,13 @@ public final class ERC20TokenContract implements ContractInterface {
     //check contract options are already set first to execute the function
     this.checkInitialized(ctx);
     ChaincodeStub stub = ctx.getStub();
-    CompositeKey balanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), owner);
-    String balance = stub.getStringState(balanceKey.toString());
-    if (stringIsNullOrEmpty(balance)) {
+    Long balance = this.readBalance(stub, owner, this.deltaCreditsEnabled(stub), false);
+    if (balance == null) {
       String errorMessage = String.format("Balance of the owner  %s not exists", owner);
       throw new ChaincodeException(errorMessage, NOT_FOUND.toString());
     }
-    logger.info(String.format("%s has balance of %s tokens", owner, balance));
-    return Long.parseLong(balance);
+    logger.info(String.format("%s has balance of %d tokens", owner, balance));
+    return balance;
   }
 
   /**
@@ -224,17 +210,40 @@ public final class ERC20TokenContract implements ContractInterface {
     // Get ID of submitting client identity
     ChaincodeStub stub = ctx.getStub();
     String clientAccountID = ctx.getClientIdentity().getId();
-    CompositeKey balanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), clientAccountID);
-    String balanceBytes = stub.getStringState(balanceKey.toString());
-    if (stringIsNullOrEmpty(balanceBytes)) {
+    Long balance = this.readBalance(stub, clientAccountID, this.deltaCreditsEnabled(stub), false);
+    if (balance == null) {
       String errorMessage = String.format("The account  %s does not exist", clientAccountID);
       throw new ChaincodeException(errorMessage, NOT_FOUND.toString());
     }
-    long balance = Long.parseLong(balanceBytes);
     logger.info(String.format("%s has balance of %d tokens", clientAccountID, balance));
     return balance;
   }
 
+  /**
+   * ConsolidateBalance folds the credits recorded for the requesting client's account in delta
+   * credit mode into its balance, keeping balance queries short. Transfers from the account do the
+   * same.
+   *
+   * @param ctx the transaction context
+   * @return the client account balance
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public long ConsolidateBalance(final Context ctx) {
+    //check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    ChaincodeStub stub = ctx.getStub();
+    String clientAccountID = ctx.getClientIdentity().getId();
+    Long balance = this.readBalance(stub, clientAccountID, true, true);
+    if (balance == null) {
+      String errorMessage = String.format("The account  %s does not exist", clientAccountID);
+      throw new ChaincodeException(errorMessage, NOT_FOUND.toString());
+    }
+    CompositeKey balanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), clientAccountID);
+    stub.putStringState(balanceKey.toString(), String.valueOf(balance));
+    logger.info(String.format("%s balance consolidated to %d tokens", clientAccountID, balance));
+    return balance;
+  }
+
   /**
    * ClientAccountID returns the id of the requesting client's account. In this implementation, the
    * client account ID is the clientId itself. Users can use this function to get their own account
@@ -251,7 +260,8 @@ public final class ERC20TokenContract implements ContractInterface {
   }
 
   /**
-   * Return the total token supply.
+   * Return the total token supply: the value of the total supply key plus the deltas recorded by
+   * Mint and Burn since it was last compacted.
    *
    * @param ctx the transaction context
    * @return the total token supply
@@ -260,12 +270,38 @@ public final class ERC20TokenContract implements ContractInterface {
   public long TotalSupply(final Context ctx) {
     //check contract options are already set first to execute the function
     this.checkInitialized(ctx);
-    String totalSupply = ctx.getStub().getStringState(TOTAL_SUPPLY_KEY.getValue());
-    if (stringIsNullOrEmpty(totalSupply)) {
-      throw new ChaincodeException("Total Supply  not found", NOT_FOUND.toString());
+    long totalSupply = this.readTotalSupply(ctx.getStub(), false);
+    logger.info(String.format("TotalSupply: %d tokens", totalSupply));
+    return totalSupply;
+  }
+
+  /**
+   * CompactTotalSupply folds the total supply deltas recorded by Mint and Burn into the total supply
+   * key and deletes them, keeping TotalSupply queries short. A mint or burn committed in the same
+   * block invalidates the compaction, which can simply be resubmitted; it never invalidates the mint
+   * or burn.
+   *
+   * @param ctx the transaction context
+   * @return the total token supply
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public long CompactTotalSupply(final Context ctx) {
+
+    // Check minter authorization - only the central banker that mints and burns tokens compacts
+    // the total supply
+    String clientMSPID = ctx.getClientIdentity().getMSPID();
+    if (!clientMSPID.equalsIgnoreCase(ContractConstants.MINTER_ORG_MSPID.getValue())) {
+      throw new ChaincodeException(
+          "Client is not authorized to compact total supply", UNAUTHORIZED_SENDER.toString());
     }
-    logger.info(String.format("TotalSupply: %s tokens", totalSupply));
-    return Long.parseLong(totalSupply);
+
+    //check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    ChaincodeStub stub = ctx.getStub();
+    long totalSupply = this.readTotalSupply(stub, true);
+    stub.putStringState(TOTAL_SUPPLY_KEY.getValue(), String.valueOf(totalSupply));
+    logger.info(String.format("TotalSupply compacted to %d tokens", totalSupply));
+    return totalSupply;
   }
 
   /**
@@ -381,40 +417,131 @@ public final class ERC20TokenContract implements ContractInterface {
       throw new ChaincodeException("Transfer amount cannot be negative", INVALID_AMOUNT.toString());
     }
     ChaincodeStub stub = ctx.getStub();
-    // Retrieve the current balance of the sender
+    boolean deltaCredits = this.deltaCreditsEnabled(stub);
+    // Retrieve the current balance of the sender, consolidating any credits in delta credit mode
     CompositeKey fromBalanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), from);
-    String fromCurrentBalanceStr = stub.getStringState(fromBalanceKey.toString());
-    if (stringIsNullOrEmpty(fromCurrentBalanceStr)) {
+    Long fromCurrentBalance = this.readBalance(stub, from, deltaCredits, deltaCredits);
+    if (fromCurrentBalance == null) {
       String errorMessage = String.format("Client account %s has no balance", from);
       throw new ChaincodeException(errorMessage, INSUFFICIENT_FUND.toString());
     }
-    long fromCurrentBalance = Long.parseLong(fromCurrentBalanceStr);
     // Check if the sender has enough tokens to spend.
     if (fromCurrentBalance < value) {
       String errorMessage = String.format("Client account %s has insufficient funds", from);
       throw new ChaincodeException(errorMessage, INSUFFICIENT_FUND.toString());
     }
-    // Retrieve the current balance of the recipient
-    CompositeKey toBalanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), to);
-    String toCurrentBalanceStr = stub.getStringState(toBalanceKey.toString());
-    long toCurrentBalance = 0;
-    // If recipient current balance doesn't yet exist, we'll create it with a
-    // current balance of 0
-    if (!stringIsNullOrEmpty(toCurrentBalanceStr)) {
-      toCurrentBalance = Long.parseLong(toCurrentBalanceStr.trim());
-    }
     // Update the balance
     long fromUpdatedBalance = Math.subtractExact(fromCurrentBalance, value);
-    long toUpdatedBalance = Math.addExact(toCurrentBalance, value);
     stub.putStringState(fromBalanceKey.toString(), String.valueOf(fromUpdatedBalance));
-    stub.putStringState(toBalanceKey.toString(), String.valueOf(toUpdatedBalance));
     logger.info(
         String.format(
             "client %s balance updated from %d to %d",
             from, fromCurrentBalance, fromUpdatedBalance));
+    this.credit(stub, to, value, deltaCredits);
+  }
+
+  /**
+   * Adds tokens to an account. In delta credit mode the credit is recorded under a composite key of
+   * the account and the transaction ID, without reading the balance, so that concurrent credits to
+   * the account do not conflict.
+   *
+   * @param stub the chaincode stub
+   * @param owner the account credited
+   * @param value the amount credited
+   * @param deltaCredits whether delta credit mode is enabled
+   */
+  private void credit(
+      final ChaincodeStub stub, final String owner, final long value, final boolean deltaCredits) {
+    if (deltaCredits) {
+      CompositeKey creditKey =
+          stub.createCompositeKey(BALANCE_CREDIT_PREFIX.getValue(), owner, stub.getTxId());
+      stub.putStringState(creditKey.toString(), String.valueOf(value));
+      logger.info(String.format("account %s credited with %d", owner, value));
+      return;
+    }
+    CompositeKey balanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), owner);
+    String currentBalanceStr = stub.getStringState(balanceKey.toString());
+    long currentBalance = 0;
+    // If current balance doesn't yet exist, we'll create it with a current balance of 0
+    if (!stringIsNullOrEmpty(currentBalanceStr)) {
+      currentBalance = Long.parseLong(currentBalanceStr.trim());
+    }
+    // Used safe math .
+    long updatedBalance = Math.addExact(currentBalance, value);
+    stub.putStringState(balanceKey.toString(), String.valueOf(updatedBalance));
     logger.info(
         String.format(
-            "recipient %s balance updated from %d to %d", to, toCurrentBalance, toUpdatedBalance));
+            "account %s balance updated from %d to %d", owner, currentBalance, updatedBalance));
+  }
+
+  /**
+   * Reads the balance of an account. In delta credit mode this is the balance key plus the credits
+   * recorded for the account.
+   *
+   * @param stub the chaincode stub
+   * @param owner the account
+   * @param deltaCredits whether delta credit mode is enabled
+   * @param consolidate whether to delete the credits read, in which case the caller must write the
+   *     balance back to the balance key
+   * @return the account balance, or null if the account does not exist
+   */
+  private Long readBalance(
+      final ChaincodeStub stub,
+      final String owner,
+      final boolean deltaCredits,
+      final boolean consolidate) {
+    CompositeKey balanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), owner);
+    String balanceStr = stub.getStringState(balanceKey.toString());
+    Long balance = stringIsNullOrEmpty(balanceStr) ? null : Long.parseLong(balanceStr.trim());
+    if (!deltaCredits) {
+      return balance;
+    }
+    CompositeKey creditKey = stub.createCompositeKey(BALANCE_CREDIT_PREFIX.getValue(), owner);
+    for (KeyValue credit : stub.getStateByPartialCompositeKey(creditKey)) {
+      long value = Long.parseLong(credit.getStringValue());
+      // Used safe math .
+      balance = balance == null ? value : Math.addExact(balance, value);
+      if (consolidate) {
+        stub.delState(credit.getKey());
+      }
+    }
+    return balance;
+  }
+
+  /**
+   * EnableDeltaCredits switches the contract to delta credit mode. In it, Mint, Transfer and
+   * TransferFrom record each credit to an account under a key of its own instead of updating the
+   * account balance, so that concurrent transfers to a popular account, such as a merchant, do not
+   * conflict. Balance queries add the credits to the balance, and transfers from the account or
+   * ConsolidateBalance fold them into it. The mode cannot be switched off, as balances then depend
+   * on it.
+   *
+   * @param ctx the transaction context
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public void EnableDeltaCredits(final Context ctx) {
+
+    // Check minter authorization - only the central banker can change how balances are recorded
+    String clientMSPID = ctx.getClientIdentity().getMSPID();
+    if (!clientMSPID.equalsIgnoreCase(ContractConstants.MINTER_ORG_MSPID.getValue())) {
+      throw new ChaincodeException(
+          "Client is not authorized to enable delta credits", UNAUTHORIZED_SENDER.toString());
+    }
+
+    //check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    ctx.getStub().putStringState(DELTA_CREDITS_KEY.getValue(), String.valueOf(true));
+    metadata.invalidate(ctx.getStub());
+  }
+
+  /**
+   * Returns whether delta credit mode has been enabled.
+   *
+   * @param stub the chaincode stub
+   * @return whether credits are recorded under keys of their own
+   */
+  private boolean deltaCreditsEnabled(final ChaincodeStub stub) {
+    return Boolean.parseBoolean(metadata.get(stub, DELTA_CREDITS_KEY.getValue()));
   }
 
   /**
@@ -438,7 +565,7 @@ public final class ERC20TokenContract implements ContractInterface {
     }
 
     //check contract options are not already set, client is not authorized to change them once intitialized
-    String tokenName = stub.getStringState(ContractConstants.NAME_KEY.getValue());
+    String tokenName = metadata.get(stub, ContractConstants.NAME_KEY.getValue());
     if (!stringIsNullOrEmpty(tokenName)) {
       throw new ChaincodeException("contract options are already set, client is not authorized to change them");
     }
@@ -446,6 +573,7 @@ public final class ERC20TokenContract implements ContractInterface {
     stub.putStringState(NAME_KEY.getValue(), name);
     stub.putStringState(SYMBOL_KEY.getValue(), symbol);
     stub.putStringState(DECIMALS_KEY.getValue(), decimals);
+    metadata.invalidate(stub);
   }
 
   /**
@@ -460,7 +588,7 @@ public final class ERC20TokenContract implements ContractInterface {
   public String TokenName(final Context ctx) {
     //check contract options are already set first to execute the function
     this.checkInitialized(ctx);
-    String tokenName = ctx.getStub().getStringState(ContractConstants.NAME_KEY.getValue());
+    String tokenName = metadata.get(ctx.getStub(), ContractConstants.NAME_KEY.getValue());
     if (stringIsNullOrEmpty(tokenName)) {
       throw new ChaincodeException("Token name not found", NOT_FOUND.toString());
     }
@@ -477,7 +605,7 @@ public final class ERC20TokenContract implements ContractInterface {
   public String TokenSymbol(final Context ctx) {
     //check contract options are already set first to execute the function
     this.checkInitialized(ctx);
-    String tokenSymbol = ctx.getStub().getStringState(SYMBOL_KEY.getValue());
+    String tokenSymbol = metadata.get(ctx.getStub(), SYMBOL_KEY.getValue());
     if (stringIsNullOrEmpty(tokenSymbol)) {
       throw new ChaincodeException("Token symbol not found", NOT_FOUND.toString());
     }
@@ -495,30 +623,80 @@ public final class ERC20TokenContract implements ContractInterface {
   public int Decimals(final Context ctx) {
     //check contract options are already set first to execute the function
     this.checkInitialized(ctx);
-    String decimals = ctx.getStub().getStringState(DECIMALS_KEY.getValue());
+    String decimals = metadata.get(ctx.getStub(), DECIMALS_KEY.getValue());
     if (stringIsNullOrEmpty(decimals)) {
       throw new ChaincodeException("Decimal not found", NOT_FOUND.toString());
     }
     return Integer.parseInt(decimals);
   }
   /**
-   * marshal the event data
+   * Records a change to the total supply under a composite key of the total supply prefix and the
+   * transaction ID. Each transaction writes its own key without reading the total supply, so
+   * transactions that change it do not conflict with each other.
+   *
+   * @param stub the chaincode stub
+   * @param delta the change in total supply
+   */
+  private void addTotalSupplyDelta(final ChaincodeStub stub, final long delta) {
+    CompositeKey deltaKey = stub.createCompositeKey(TOTAL_SUPPLY_KEY.getValue(), stub.getTxId());
+    stub.putStringState(deltaKey.toString(), String.valueOf(delta));
+  }
+
+  /**
+   * Sums the total supply key and the total supply deltas.
+   *
+   * @param stub the chaincode stub
+   * @param compact whether to delete the deltas read
+   * @return the total token supply
+   */
+  private long readTotalSupply(final ChaincodeStub stub, final boolean compact) {
+    String totalSupplyStr = stub.getStringState(TOTAL_SUPPLY_KEY.getValue());
+    boolean found = !stringIsNullOrEmpty(totalSupplyStr);
+    long totalSupply = found ? Long.parseLong(totalSupplyStr) : 0;
+    CompositeKey deltaKey = stub.createCompositeKey(TOTAL_SUPPLY_KEY.getValue());
+    for (KeyValue delta : stub.getStateByPartialCompositeKey(deltaKey)) {
+      // Used safe math .
+      totalSupply = Math.addExact(totalSupply, Long.parseLong(delta.getStringValue()));
+      found = true;
+      if (compact) {
+        stub.delState(delta.getKey());
+      }
+    }
+    if (!found) {
+      throw new ChaincodeException("Total Supply  not found", NOT_FOUND.toString());
+    }
+    return totalSupply;
+  }
+
+  /**
+   * marshal the Transfer event data
+   *
+   * @param transfer the event to marshal.
+   * @return marshalled event.
+   */
+  private byte[] marshal(final Transfer transfer) {
+    return EVENT_ENCODER.get().encode(transfer);
+  }
+
+  /**
+   * marshal the Approval event data
    *
-   * @param obj the object to marshal.
-   * @return marshalled object.
+   * @param approval the event to marshal.
+   * @return marshalled event.
    */
-  private byte[] marshal(final Object obj) {
-    return new Genson().serialize(obj).getBytes(UTF_8);
+  private byte[] marshal(final Approval approval) {
+    return EVENT_ENCODER.get().encode(approval);
   }
 
   /**
-   * Checks that contract options have been already initialized
+   * Checks that contract options have been already initialized. Once they have, this is answered
+   * from the metadata cache without a call to the peer.
    *
    * @param ctx the transaction context
    * @return the number of decimals
    */
   private void checkInitialized(final Context ctx) {
-    String tokenName = ctx.getStub().getStringState(ContractConstants.NAME_KEY.getValue());
+    String tokenName = metadata.get(ctx.getStub(), ContractConstants.NAME_KEY.getValue());
     if (stringIsNullOrEmpty(tokenName)) {
       throw new ChaincodeException("Contract options need to be set before calling any function, call Initialize() to initialize contract", NOT_FOUND.toString());
     }
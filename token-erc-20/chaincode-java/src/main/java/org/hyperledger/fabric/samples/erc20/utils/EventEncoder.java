@@ -0,0 +1,62 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.hyperledger.fabric.samples.erc20.utils;
+
+import org.hyperledger.fabric.samples.erc20.model.Approval;
+import org.hyperledger.fabric.samples.erc20.model.Transfer;
+import org.hyperledger.fabric.samples.shared.JsonWriter;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Encodes Transfer and Approval events as the same UTF-8 JSON that Genson produces for them, but
+ * without reflection or intermediate strings. Each event is written with a {@link JsonWriter}
+ * that is reused for the next one, so an encoder must not be shared between threads.
+ */
+public final class EventEncoder {
+
+  private static final byte[] TRANSFER_FROM = "{\"from\":".getBytes(UTF_8);
+  private static final byte[] TRANSFER_TO = ",\"to\":".getBytes(UTF_8);
+  private static final byte[] APPROVAL_OWNER = "{\"owner\":".getBytes(UTF_8);
+  private static final byte[] APPROVAL_SPENDER = ",\"spender\":".getBytes(UTF_8);
+  private static final byte[] VALUE = ",\"value\":".getBytes(UTF_8);
+
+  private final JsonWriter writer = new JsonWriter();
+
+  /**
+   * Encodes a Transfer event.
+   *
+   * @param transfer the event
+   * @return the JSON encoding of the event
+   */
+  public byte[] encode(final Transfer transfer) {
+    writer.reset();
+    writer.write(TRANSFER_FROM);
+    writer.writeString(transfer.getFrom());
+    writer.write(TRANSFER_TO);
+    writer.writeString(transfer.getTo());
+    writer.write(VALUE);
+    writer.writeLong(transfer.getValue());
+    writer.write('}');
+    return writer.toByteArray();
+  }
+
+  /**
+   * Encodes an Approval event.
+   *
+   * @param approval the event
+   * @return the JSON encoding of the event
+   */
+  public byte[] encode(final Approval approval) {
+    writer.reset();
+    writer.write(APPROVAL_OWNER);
+    writer.writeString(approval.getOwner());
+    writer.write(APPROVAL_SPENDER);
+    writer.writeString(approval.getSpender());
+    writer.write(VALUE);
+    writer.writeLong(approval.getValue());
+    writer.write('}');
+    return writer.toByteArray();
+  }
+}
@@ -5,22 +5,35 @@ package org.hyperledger.fabric.samples.erc20;
 
 import org.hyperledger.fabric.contract.ClientIdentity;
 import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.samples.testing.InMemoryChaincodeStub;
+import org.hyperledger.fabric.samples.testing.TestIdentities;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
 import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.ALLOWANCE_PREFIX;
+import static org.hyperledger.fabric.samples.erc20.ContractConstants.BALANCE_CREDIT_PREFIX;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.BALANCE_PREFIX;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.DECIMALS_KEY;
+import static org.hyperledger.fabric.samples.erc20.ContractConstants.DELTA_CREDITS_KEY;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.MINTER_ORG_MSPID;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.NAME_KEY;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.SYMBOL_KEY;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.TOTAL_SUPPLY_KEY;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -33,6 +46,20 @@ public class TokenERC20ContractTest {
       "x509::CN=User1@org2.example.com, L=San Francisco, ST=California,"
           + " C=US::CN=ca.org2.example.com, O=org2.example.com, L=San Francisco, ST=California, C=US";
 
+  private static KeyValue keyValue(final String key, final String value) {
+    KeyValue keyValue = mock(KeyValue.class);
+    when(keyValue.getKey()).thenReturn(key);
+    when(keyValue.getStringValue()).thenReturn(value);
+    return keyValue;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static QueryResultsIterator<KeyValue> results(final KeyValue... keyValues) {
+    QueryResultsIterator<KeyValue> results = mock(QueryResultsIterator.class);
+    when(results.iterator()).thenAnswer(invocation -> Arrays.asList(keyValues).iterator());
+    return results;
+  }
+
   @Nested
   class InvokeQueryERC20TokenOptionsTransaction {
 
@@ -100,6 +127,22 @@ public class TokenERC20ContractTest {
       assertThat(decimal).isEqualTo(18);
     }
 
+    @Test
+    public void whenTokenOptionsAreReadAgain() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = mock(ChaincodeStub.class);
+      when(ctx.getStub()).thenReturn(stub);
+      when(stub.getStringState(NAME_KEY.getValue())).thenReturn("ARBTToken");
+      when(stub.getStringState(SYMBOL_KEY.getValue())).thenReturn("ARBT");
+      contract.TokenName(ctx);
+      contract.TokenSymbol(ctx);
+      assertThat(contract.TokenName(ctx)).isEqualTo("ARBTToken");
+      assertThat(contract.TokenSymbol(ctx)).isEqualTo("ARBT");
+      verify(stub, times(1)).getStringState(NAME_KEY.getValue());
+      verify(stub, times(1)).getStringState(SYMBOL_KEY.getValue());
+    }
+
     @Test
     public void whenTokenDecimalNotExists() {
       ERC20TokenContract contract = new ERC20TokenContract();
@@ -123,8 +166,13 @@ public class TokenERC20ContractTest {
       when(ctx.getStub()).thenReturn(stub);
       when(stub.getStringState(NAME_KEY.getValue())).thenReturn("ARBTToken");
       when(stub.getStringState(TOTAL_SUPPLY_KEY.getValue())).thenReturn("222222222222");
+      CompositeKey deltaKey = mock(CompositeKey.class);
+      when(stub.createCompositeKey(TOTAL_SUPPLY_KEY.getValue())).thenReturn(deltaKey);
+      QueryResultsIterator<KeyValue> deltas =
+          results(keyValue("delta1", "100"), keyValue("delta2", "-50"));
+      when(stub.getStateByPartialCompositeKey(deltaKey)).thenReturn(deltas);
       long totalSupply = contract.TotalSupply(ctx);
-      assertThat(totalSupply).isEqualTo(222222222222L);
+      assertThat(totalSupply).isEqualTo(222222222272L);
     }
 
     @Test
@@ -135,6 +183,10 @@ public class TokenERC20ContractTest {
       when(ctx.getStub()).thenReturn(stub);
       when(stub.getStringState(NAME_KEY.getValue())).thenReturn("ARBTToken");
       when(stub.getStringState(TOTAL_SUPPLY_KEY.getValue())).thenReturn("");
+      CompositeKey deltaKey = mock(CompositeKey.class);
+      when(stub.createCompositeKey(TOTAL_SUPPLY_KEY.getValue())).thenReturn(deltaKey);
+      QueryResultsIterator<KeyValue> deltas = results();
+      when(stub.getStateByPartialCompositeKey(deltaKey)).thenReturn(deltas);
       Throwable thrown = catchThrowable(() -> contract.TotalSupply(ctx));
       assertThat(thrown)
           .isInstanceOf(ChaincodeException.class)
@@ -234,9 +286,14 @@ public class TokenERC20ContractTest {
       when(ck.toString()).thenReturn(BALANCE_PREFIX.getValue() + org1UserId);
       when(stub.getStringState(ck.toString())).thenReturn(null);
       when(ctx.getStub()).thenReturn(stub);
+      when(stub.getTxId()).thenReturn("tx1");
+      CompositeKey deltaKey = mock(CompositeKey.class);
+      when(stub.createCompositeKey(TOTAL_SUPPLY_KEY.getValue(), "tx1")).thenReturn(deltaKey);
+      when(deltaKey.toString()).thenReturn(TOTAL_SUPPLY_KEY.getValue() + "tx1");
       contract.Mint(ctx, 1000);
-      verify(stub).putStringState(TOTAL_SUPPLY_KEY.getValue(), "1000");
+      verify(stub).putStringState(deltaKey.toString(), "1000");
       verify(stub).putStringState(ck.toString(), "1000");
+      verify(stub, never()).getStringState(TOTAL_SUPPLY_KEY.getValue());
     }
 
     @Test
@@ -401,10 +458,83 @@ public class TokenERC20ContractTest {
       when(ck.toString()).thenReturn(BALANCE_PREFIX.getValue() + org1UserId);
       when(stub.getStringState(ck.toString())).thenReturn(null);
       when(ctx.getStub()).thenReturn(stub);
-      when(stub.getStringState(TOTAL_SUPPLY_KEY.getValue())).thenReturn("1000");
       when(stub.getStringState(ck.toString())).thenReturn("1000");
+      when(stub.getTxId()).thenReturn("tx1");
+      CompositeKey deltaKey = mock(CompositeKey.class);
+      when(stub.createCompositeKey(TOTAL_SUPPLY_KEY.getValue(), "tx1")).thenReturn(deltaKey);
+      when(deltaKey.toString()).thenReturn(TOTAL_SUPPLY_KEY.getValue() + "tx1");
       contract.Burn(ctx, 100);
-      verify(stub).putStringState(TOTAL_SUPPLY_KEY.getValue(), "900");
+      verify(stub).putStringState(deltaKey.toString(), "-100");
+      verify(stub).putStringState(ck.toString(), "900");
+    }
+
+    @Test
+    public void invokeCompactTotalSupplyTest() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = mock(ChaincodeStub.class);
+      ClientIdentity ci = mock(ClientIdentity.class);
+      when(ctx.getStub()).thenReturn(stub);
+      when(ctx.getClientIdentity()).thenReturn(ci);
+      when(ci.getMSPID()).thenReturn(MINTER_ORG_MSPID.getValue());
+      when(stub.getStringState(NAME_KEY.getValue())).thenReturn("ARBTToken");
+      when(stub.getStringState(TOTAL_SUPPLY_KEY.getValue())).thenReturn("1000");
+      CompositeKey deltaKey = mock(CompositeKey.class);
+      when(stub.createCompositeKey(TOTAL_SUPPLY_KEY.getValue())).thenReturn(deltaKey);
+      QueryResultsIterator<KeyValue> deltas =
+          results(keyValue("delta1", "100"), keyValue("delta2", "-50"));
+      when(stub.getStateByPartialCompositeKey(deltaKey)).thenReturn(deltas);
+      long totalSupply = contract.CompactTotalSupply(ctx);
+      assertThat(totalSupply).isEqualTo(1050);
+      verify(stub).putStringState(TOTAL_SUPPLY_KEY.getValue(), "1050");
+      verify(stub).delState("delta1");
+      verify(stub).delState("delta2");
+    }
+
+    @Test
+    public void invokeEnableDeltaCreditsTest() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = mock(ChaincodeStub.class);
+      ClientIdentity ci = mock(ClientIdentity.class);
+      when(ctx.getStub()).thenReturn(stub);
+      when(ctx.getClientIdentity()).thenReturn(ci);
+      when(ci.getMSPID()).thenReturn(MINTER_ORG_MSPID.getValue());
+      when(stub.getStringState(NAME_KEY.getValue())).thenReturn("ARBTToken");
+      contract.EnableDeltaCredits(ctx);
+      verify(stub).putStringState(DELTA_CREDITS_KEY.getValue(), "true");
+    }
+
+    @Test
+    public void whenEnableDeltaCreditsUnAuthorized() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = mock(ChaincodeStub.class);
+      ClientIdentity ci = mock(ClientIdentity.class);
+      when(ctx.getStub()).thenReturn(stub);
+      when(ctx.getClientIdentity()).thenReturn(ci);
+      when(ci.getMSPID()).thenReturn("Org2MSP");
+      Throwable thrown = catchThrowable(() -> contract.EnableDeltaCredits(ctx));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasNoCause()
+          .hasMessage("Client is not authorized to enable delta credits");
+    }
+
+    @Test
+    public void whenCompactTotalSupplyUnAuthorized() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = mock(ChaincodeStub.class);
+      ClientIdentity ci = mock(ClientIdentity.class);
+      when(ctx.getStub()).thenReturn(stub);
+      when(ctx.getClientIdentity()).thenReturn(ci);
+      when(ci.getMSPID()).thenReturn("Org2MSP");
+      Throwable thrown = catchThrowable(() -> contract.CompactTotalSupply(ctx));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasNoCause()
+          .hasMessage("Client is not authorized to compact total supply");
     }
 
     @Test
@@ -587,4 +717,166 @@ public class TokenERC20ContractTest {
           .hasMessage("Cannot transfer to and from same client account");
     }
   }
+
+  @Nested
+  class InMemoryLedger {
+
+    private final ERC20TokenContract contract = new ERC20TokenContract();
+    private final InMemoryChaincodeStub stub = new InMemoryChaincodeStub();
+    private Context minter;
+    private Context recipient;
+
+    @BeforeEach
+    public void initialize() {
+      stub.setCreator(TestIdentities.ORG1_MSP, TestIdentities.ORG1_USER_CERT);
+      minter = new Context(stub);
+      stub.setCreator(TestIdentities.ORG2_MSP, TestIdentities.ORG2_USER_CERT);
+      recipient = new Context(stub);
+      contract.Initialize(minter, "some name", "SYMBOL", "2");
+      stub.commit();
+      contract.Mint(minter, 1000);
+      stub.commit();
+    }
+
+    @Test
+    public void tokenOptionsAreNotReadFromTheLedgerOnceCached() {
+      contract.Decimals(minter);
+      stub.commit();
+
+      contract.TokenName(minter);
+      contract.Decimals(minter);
+      contract.ClientAccountBalance(minter);
+      InMemoryChaincodeStub.ReadWriteSet rwset = stub.endorse();
+
+      assertThat(rwset.getReads())
+          .doesNotContainKeys(NAME_KEY.getValue(), DECIMALS_KEY.getValue())
+          .containsKey(DELTA_CREDITS_KEY.getValue());
+    }
+
+    @Test
+    public void transferMovesBalance() {
+      contract.Transfer(minter, contract.ClientAccountID(recipient), 300);
+      stub.commit();
+
+      assertThat(contract.ClientAccountBalance(minter)).isEqualTo(700);
+      assertThat(contract.ClientAccountBalance(recipient)).isEqualTo(300);
+      assertThat(contract.TotalSupply(minter)).isEqualTo(1000);
+    }
+
+    @Test
+    public void concurrentMintsDoNotConflictOnTotalSupply() {
+      contract.Mint(minter, 10);
+      InMemoryChaincodeStub.ReadWriteSet first = stub.endorse();
+      contract.Mint(minter, 20);
+      InMemoryChaincodeStub.ReadWriteSet second = stub.endorse();
+
+      String minterBalanceKey =
+          stub.createCompositeKey(BALANCE_PREFIX.getValue(), contract.ClientAccountID(minter))
+              .toString();
+      assertThat(stub.commit(first).isValid()).isTrue();
+      assertThat(stub.commit(second).getConflicts()).containsExactly(minterBalanceKey);
+      assertThat(contract.TotalSupply(minter)).isEqualTo(1010);
+    }
+
+    @Test
+    public void compactionFoldsDeltasIntoTotalSupply() {
+      contract.Burn(minter, 100);
+      stub.commit();
+
+      assertThat(contract.CompactTotalSupply(minter)).isEqualTo(900);
+      stub.commit();
+
+      assertThat(stub.getStringState(TOTAL_SUPPLY_KEY.getValue())).isEqualTo("900");
+      assertThat(stub.getStateByPartialCompositeKey(stub.createCompositeKey(TOTAL_SUPPLY_KEY.getValue())))
+          .isEmpty();
+      assertThat(contract.TotalSupply(minter)).isEqualTo(900);
+    }
+
+    @Test
+    public void concurrentTransfersToOneAccountConflict() {
+      contract.Transfer(minter, contract.ClientAccountID(recipient), 300);
+      stub.commit();
+
+      contract.Transfer(minter, "merchant", 10);
+      InMemoryChaincodeStub.ReadWriteSet first = stub.endorse();
+      contract.Transfer(recipient, "merchant", 20);
+      InMemoryChaincodeStub.ReadWriteSet second = stub.endorse();
+
+      String merchantBalanceKey =
+          stub.createCompositeKey(BALANCE_PREFIX.getValue(), "merchant").toString();
+      assertThat(stub.commit(first).isValid()).isTrue();
+      assertThat(stub.commit(second).getConflicts()).containsExactly(merchantBalanceKey);
+    }
+
+    @Test
+    public void concurrentTransfersToOneAccountDoNotConflictWithDeltaCredits() {
+      contract.EnableDeltaCredits(minter);
+      stub.commit();
+      contract.Transfer(minter, contract.ClientAccountID(recipient), 300);
+      stub.commit();
+
+      contract.Transfer(minter, "merchant", 10);
+      InMemoryChaincodeStub.ReadWriteSet first = stub.endorse();
+      contract.Transfer(recipient, "merchant", 20);
+      InMemoryChaincodeStub.ReadWriteSet second = stub.endorse();
+
+      assertThat(stub.commit(first).isValid()).isTrue();
+      assertThat(stub.commit(second).isValid()).isTrue();
+      assertThat(contract.BalanceOf(minter, "merchant")).isEqualTo(30);
+      assertThat(contract.ClientAccountBalance(minter)).isEqualTo(690);
+      assertThat(contract.ClientAccountBalance(recipient)).isEqualTo(280);
+      assertThat(credits(contract.ClientAccountID(recipient))).isEmpty();
+      assertThat(credits("merchant")).hasSize(2);
+    }
+
+    @Test
+    public void consolidationFoldsCreditsIntoBalance() {
+      contract.EnableDeltaCredits(minter);
+      stub.commit();
+      contract.Transfer(minter, contract.ClientAccountID(recipient), 300);
+      stub.commit();
+      contract.Transfer(minter, contract.ClientAccountID(recipient), 200);
+      stub.commit();
+
+      assertThat(contract.ConsolidateBalance(recipient)).isEqualTo(500);
+      stub.commit();
+
+      assertThat(credits(contract.ClientAccountID(recipient))).isEmpty();
+      assertThat(contract.ClientAccountBalance(recipient)).isEqualTo(500);
+    }
+
+    private List<KeyValue> credits(final String owner) {
+      List<KeyValue> credits = new ArrayList<>();
+      stub.getStateByPartialCompositeKey(
+              stub.createCompositeKey(BALANCE_CREDIT_PREFIX.getValue(), owner))
+          .forEach(credits::add);
+      return credits;
+    }
+
+    @Test
+    public void concurrentMintInvalidatesCompaction() {
+      contract.CompactTotalSupply(minter);
+      InMemoryChaincodeStub.ReadWriteSet compaction = stub.endorse();
+      contract.Mint(minter, 10);
+      stub.commit();
+
+      assertThat(stub.commit(compaction).isValid()).isFalse();
+      assertThat(contract.TotalSupply(minter)).isEqualTo(1010);
+    }
+
+    @Test
+    public void transfersToDifferentAccountsConflictOnSenderBalance() {
+      contract.Transfer(minter, "alice", 1);
+      InMemoryChaincodeStub.ReadWriteSet first = stub.endorse();
+      contract.Transfer(minter, "bob", 1);
+      InMemoryChaincodeStub.ReadWriteSet second = stub.endorse();
+
+      String minterBalanceKey =
+          stub.createCompositeKey(BALANCE_PREFIX.getValue(), contract.ClientAccountID(minter))
+              .toString();
+      assertThat(stub.commit(first).isValid()).isTrue();
+      assertThat(stub.commit(second).getConflicts()).containsExactly(minterBalanceKey);
+      assertThat(stub.getConflictCounts()).containsEntry(minterBalanceKey, 1);
+    }
+  }
 }
@@ -0,0 +1,71 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.hyperledger.fabric.samples.erc20.utils;
+
+import com.owlike.genson.Genson;
+import org.hyperledger.fabric.samples.erc20.model.Approval;
+import org.hyperledger.fabric.samples.erc20.model.Transfer;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventEncoderTest {
+
+  private static final Genson GENSON = new Genson();
+
+  private static final String[] ACCOUNTS = {
+    "x509::CN=User0@org1.example.com, L=San Francisco, ST=California,"
+        + " C=US::CN=ca.org1.example.com, O=org1.example.com, L=San Francisco, ST=California, C=US",
+    "0x0",
+    "",
+    "quote\" backslash\\ slash/",
+    "\b\f\n\r\t\u0000\u001f\u007f",
+    "\u00e9\u20ac\ud83d\ude00",
+    "\u2028\u2029",
+    "unpaired \ud83d and \ude00",
+    null
+  };
+
+  private static final long[] VALUES = {0, 1, -1, 9, 10, 1234567890, Long.MAX_VALUE, Long.MIN_VALUE};
+
+  private final EventEncoder encoder = new EventEncoder();
+
+  @Test
+  public void encodesTransferAsGenson() {
+    for (String from : ACCOUNTS) {
+      for (long value : VALUES) {
+        Transfer transfer = new Transfer(from, "recipient", value);
+        assertThat(encoder.encode(transfer)).isEqualTo(GENSON.serialize(transfer).getBytes(UTF_8));
+        transfer = new Transfer("sender", from, value);
+        assertThat(encoder.encode(transfer)).isEqualTo(GENSON.serialize(transfer).getBytes(UTF_8));
+      }
+    }
+  }
+
+  @Test
+  public void encodesApprovalAsGenson() {
+    for (String owner : ACCOUNTS) {
+      for (long value : VALUES) {
+        Approval approval = new Approval(owner, "spender", value);
+        assertThat(encoder.encode(approval)).isEqualTo(GENSON.serialize(approval).getBytes(UTF_8));
+        approval = new Approval("owner", owner, value);
+        assertThat(encoder.encode(approval)).isEqualTo(GENSON.serialize(approval).getBytes(UTF_8));
+      }
+    }
+  }
+
+  @Test
+  public void growsBufferForLongAccounts() {
+    StringBuilder account = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      account.append("\u20ac\n");
+    }
+    Transfer transfer = new Transfer(account.toString(), account.toString(), 1);
+
+    assertThat(encoder.encode(transfer)).isEqualTo(GENSON.serialize(transfer).getBytes(UTF_8));
+    Transfer small = new Transfer("a", "b", 2);
+    assertThat(encoder.encode(small)).isEqualTo(GENSON.serialize(small).getBytes(UTF_8));
+  }
+}
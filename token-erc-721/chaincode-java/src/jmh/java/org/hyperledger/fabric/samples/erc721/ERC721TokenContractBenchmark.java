@@ -0,0 +1,244 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.erc721;
+
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.samples.erc721.models.NFT;
+import org.hyperledger.fabric.samples.erc721.models.Page;
+import org.hyperledger.fabric.samples.testing.InMemoryChaincodeStub;
+import org.hyperledger.fabric.samples.testing.TestIdentities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives each ERC721TokenContract transaction function against an {@link InMemoryChaincodeStub}.
+ * The Org1 minter starts out owning {@code tokens} tokens and an Org2 holder has approved the
+ * minter as an operator, so tokens can be transferred back and forth between the two. Every
+ * operation is one transaction: the contract call followed by a commit.
+ *
+ * <p>Contexts are created once per trial, as the cost of parsing the client certificate would
+ * otherwise dominate; {@link #createContext()} measures that cost separately.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ERC721TokenContractBenchmark {
+
+  /** Tokens per batch transaction; batch benchmarks report the time per token. */
+  private static final int BATCH_SIZE = 100;
+
+  @Param({"1000"})
+  private int tokens;
+
+  private final ERC721TokenContract contract = new ERC721TokenContract();
+  private InMemoryChaincodeStub stub;
+  private Context minter;
+  private String minterId;
+  private String holderId;
+  private String[] tokenIds;
+  private boolean[] withHolder;
+  private String batchTokenIdsJSON;
+  private boolean batchWithHolder;
+  private int next;
+  private int minted;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    stub = new InMemoryChaincodeStub();
+    stub.setCreator(TestIdentities.ORG1_MSP, TestIdentities.ORG1_USER_CERT);
+    minter = new Context(stub);
+    stub.setCreator(TestIdentities.ORG2_MSP, TestIdentities.ORG2_USER_CERT);
+    final Context holder = new Context(stub);
+    minterId = minter.getClientIdentity().getId();
+    holderId = holder.getClientIdentity().getId();
+
+    contract.Initialize(minter, "some name", "SYMBOL");
+    stub.commit();
+    contract.SetApprovalForAll(holder, minterId, true);
+    stub.commit();
+    tokenIds = new String[tokens];
+    withHolder = new boolean[tokens];
+    for (int i = 0; i < tokens; i++) {
+      tokenIds[i] = "token" + i;
+      contract.MintWithTokenURI(minter, tokenIds[i], "https://example.com/nft/" + i);
+      stub.commit();
+    }
+    final StringBuilder batch = new StringBuilder("[");
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      batch.append(i == 0 ? "\"" : ",\"").append(tokenIds[i]).append('"');
+    }
+    batchTokenIdsJSON = batch.append(']').toString();
+  }
+
+  private int nextToken() {
+    final int token = next;
+    next = (next + 1) % tokens;
+    return token;
+  }
+
+  @Benchmark
+  public Context createContext() {
+    return contract.createContext(stub);
+  }
+
+  @Benchmark
+  public NFT mintWithTokenURI() {
+    final NFT nft = contract.MintWithTokenURI(minter, "new" + minted++, "https://example.com/nft");
+    stub.commit();
+    return nft;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void mintBatch() {
+    final StringBuilder batch = new StringBuilder("[");
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      batch.append(i == 0 ? "{" : ",{")
+          .append("\"tokenId\":\"new")
+          .append(minted++)
+          .append("\",\"tokenURI\":\"https://example.com/nft\"}");
+    }
+    contract.MintBatch(minter, batch.append(']').toString());
+    stub.commit();
+  }
+
+  @Benchmark
+  public void mintAndBurn() {
+    final String tokenId = "new" + minted++;
+    contract.MintWithTokenURI(minter, tokenId, "https://example.com/nft");
+    stub.commit();
+    contract.Burn(minter, tokenId);
+    stub.commit();
+  }
+
+  @Benchmark
+  public void transferFrom() {
+    final int token = nextToken();
+    if (withHolder[token]) {
+      contract.TransferFrom(minter, holderId, minterId, tokenIds[token]);
+    } else {
+      contract.TransferFrom(minter, minterId, holderId, tokenIds[token]);
+    }
+    withHolder[token] = !withHolder[token];
+    stub.commit();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void transferFromBatch() {
+    if (batchWithHolder) {
+      contract.TransferFromBatch(minter, holderId, minterId, batchTokenIdsJSON);
+    } else {
+      contract.TransferFromBatch(minter, minterId, holderId, batchTokenIdsJSON);
+    }
+    batchWithHolder = !batchWithHolder;
+    stub.commit();
+  }
+
+  @Benchmark
+  public void approve() {
+    contract.Approve(minter, holderId, tokenIds[nextToken()]);
+    stub.commit();
+  }
+
+  @Benchmark
+  public void setApprovalForAll() {
+    contract.SetApprovalForAll(minter, holderId, true);
+    stub.commit();
+  }
+
+  @Benchmark
+  public boolean isApprovedForAll() {
+    final boolean approved = contract.IsApprovedForAll(minter, holderId, minterId);
+    stub.commit();
+    return approved;
+  }
+
+  @Benchmark
+  public String ownerOf() {
+    final String owner = contract.OwnerOf(minter, tokenIds[nextToken()]);
+    stub.commit();
+    return owner;
+  }
+
+  @Benchmark
+  public String getApproved() {
+    final String approved = contract.GetApproved(minter, tokenIds[nextToken()]);
+    stub.commit();
+    return approved;
+  }
+
+  @Benchmark
+  public String tokenURI() {
+    final String uri = contract.TokenURI(minter, tokenIds[nextToken()]);
+    stub.commit();
+    return uri;
+  }
+
+  @Benchmark
+  public long balanceOf() {
+    final long balance = contract.BalanceOf(minter, minterId);
+    stub.commit();
+    return balance;
+  }
+
+  @Benchmark
+  public long clientAccountBalance() {
+    final long balance = contract.ClientAccountBalance(minter);
+    stub.commit();
+    return balance;
+  }
+
+  @Benchmark
+  public long totalSupply() {
+    final long totalSupply = contract.TotalSupply(minter);
+    stub.commit();
+    return totalSupply;
+  }
+
+  @Benchmark
+  public Page tokensOfOwnerWithPagination() {
+    final Page page = contract.TokensOfOwnerWithPagination(minter, minterId, 100, "");
+    stub.commit();
+    return page;
+  }
+
+  @Benchmark
+  public Page tokensWithPagination() {
+    final Page page = contract.TokensWithPagination(minter, 100, "");
+    stub.commit();
+    return page;
+  }
+
+  @Benchmark
+  public Page ownersApprovingOperator() {
+    final Page page = contract.OwnersApprovingOperator(minter, minterId, 100, "");
+    stub.commit();
+    return page;
+  }
+
+  @Benchmark
+  public String name() {
+    final String name = contract.Name(minter);
+    stub.commit();
+    return name;
+  }
+}
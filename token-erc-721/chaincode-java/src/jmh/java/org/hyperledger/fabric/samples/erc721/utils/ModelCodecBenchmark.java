@@ -0,0 +1,62 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.erc721.utils;
+
+import com.owlike.genson.Genson;
+import org.hyperledger.fabric.samples.erc721.models.NFT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares ways of encoding and decoding an NFT owned by a client account ID: a new Genson per
+ * record and a JSONObject, as the contract used to do, against a {@link ModelCodec}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelCodecBenchmark {
+
+  private static final String ACCOUNT =
+      "x509::CN=User0@org1.example.com, L=San Francisco, ST=California,"
+          + " C=US::CN=ca.org1.example.com, O=org1.example.com, L=San Francisco, ST=California, C=US";
+
+  private final NFT nft = new NFT("token42", ACCOUNT, "https://example.com/nft/42", "");
+  private final byte[] nftJson = new Genson().serialize(nft).getBytes(UTF_8);
+  private final ModelCodec codec = new ModelCodec();
+
+  @Benchmark
+  public byte[] encodeWithGenson() {
+    return nft.toJSONString().getBytes(UTF_8);
+  }
+
+  @Benchmark
+  public byte[] encodeWithCodec() {
+    return codec.encode(nft);
+  }
+
+  @Benchmark
+  public NFT decodeWithJSONObject() {
+    return NFT.fromJSONString(new String(nftJson, UTF_8));
+  }
+
+  @Benchmark
+  public NFT decodeWithCodec() {
+    return codec.decodeNft(nftJson);
+  }
+}
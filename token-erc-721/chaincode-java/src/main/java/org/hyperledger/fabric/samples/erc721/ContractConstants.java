@@ -5,12 +5,18 @@ package org.hyperledger.fabric.samples.erc721;
 
 public enum ContractConstants {
   BALANCE("balance"),
+  BALANCE_COUNT("balanceCount"),
+  BALANCE_COUNTS_KEY("balanceCounts"),
   NFT("nft"),
+  SUPPLY_COUNT("supplyCount"),
+  SUPPLY_COUNTS_KEY("supplyCounts"),
   APPROVAL("approval"),
+  OPERATOR_APPROVAL("operatorApproval"),
   NAMEKEY("nameKey"),
   SYMBOLKEY("symbolKey"),
   APPROVE_FOR_ALL("ApproveForAll"),
   TRANSFER("Transfer"),
+  TRANSFER_BATCH("TransferBatch"),
   MINTER_ORG_MSP("Org1MSP");
   private final String prefix;
 
@@ -9,5 +9,7 @@ public enum ContractErrors {
   NO_OWNER_ASSIGNED,
   UNAUTHORIZED_SENDER,
   TOKEN_NONOWNER,
-  INVALID_TOKEN_OWNER
+  INVALID_TOKEN_OWNER,
+  INVALID_PAGE_SIZE,
+  INVALID_BATCH
 }
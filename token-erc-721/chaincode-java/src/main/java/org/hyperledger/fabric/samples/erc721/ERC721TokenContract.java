@@ -12,14 +12,31 @@ import org.hyperledger.fabric.contract.annotation.Info;
 import org.hyperledger.fabric.contract.annotation.License;
 import org.hyperledger.fabric.contract.annotation.Contact;
 import org.hyperledger.fabric.contract.annotation.Contract;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResponseMetadata;
 import org.hyperledger.fabric.samples.erc721.models.Approval;
 import org.hyperledger.fabric.samples.erc721.models.NFT;
+import org.hyperledger.fabric.samples.erc721.models.Page;
 import org.hyperledger.fabric.samples.erc721.models.Transfer;
+import org.hyperledger.fabric.samples.erc721.models.TransferBatch;
+import org.hyperledger.fabric.samples.erc721.utils.ModelCodec;
+import org.hyperledger.fabric.samples.erc721.utils.ShardedCounter;
+import org.hyperledger.fabric.samples.shared.TokenMetadataCache;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
 import org.hyperledger.fabric.shim.ledger.CompositeKey;
 import org.hyperledger.fabric.shim.ledger.KeyValue;
 import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hyperledger.fabric.samples.erc721.utils.ContractUtility.stringIsNullOrEmpty;
@@ -43,10 +60,38 @@ import static org.hyperledger.fabric.samples.erc721.utils.ContractUtility.string
 @Default
 public class ERC721TokenContract implements ContractInterface {
 
+  /** Encodes and decodes models with buffers reused by the transactions run on each thread. */
+  private static final ThreadLocal<ModelCodec> CODEC = ThreadLocal.withInitial(ModelCodec::new);
+
   /**
-   * BalanceOf counts all non-fungible tokens assigned to an owner.There is a key record for every
-   * non-fungible token in the format of balancePrefix.owner.tokenId. balanceOf() queries for and
-   * counts all records matching balancePrefix.owner.*
+   * Shards of each counter, which bounds the keys read to sum a counter while making concurrent
+   * updates of one counter pick the same shard, and so conflict, less often.
+   */
+  private static final int COUNTER_SHARDS = 16;
+
+  /** Largest page of tokens returned at once, bounding the memory used to endorse a query. */
+  private static final int MAX_PAGE_SIZE = 1000;
+
+  /** Most tokens minted or transferred by one batch transaction. */
+  private static final int MAX_BATCH_SIZE = 1000;
+
+  /** Token name and symbol, and whether counters are kept, which cannot change once set. */
+  private final TokenMetadataCache metadata = new TokenMetadataCache();
+
+  /** The number of non-fungible tokens of each owner. */
+  private final ShardedCounter balanceCounts =
+      new ShardedCounter(ContractConstants.BALANCE_COUNT.getValue(), COUNTER_SHARDS);
+
+  /** The number of non-fungible tokens tracked by this contract. */
+  private final ShardedCounter supplyCount =
+      new ShardedCounter(ContractConstants.SUPPLY_COUNT.getValue(), COUNTER_SHARDS);
+
+  /**
+   * BalanceOf counts all non-fungible tokens assigned to an owner. Each owner has a counter, kept
+   * in shards under keys in the format of balanceCountPrefix.owner.shard, that balanceOf() sums.
+   * Until MigrateBalanceCounts has backfilled the counters of a contract initialized before they
+   * were introduced, balanceOf() instead counts the key records for every non-fungible token in the
+   * format of balancePrefix.owner.tokenId, querying for all records matching balancePrefix.owner.*
    *
    * @param ctx the transaction context
    * @param owner An owner for whom to query the balance
@@ -57,6 +102,10 @@ public class ERC721TokenContract implements ContractInterface {
     //check contract options are already set first to execute the function
     this.checkInitialized(ctx);
     final ChaincodeStub stub = ctx.getStub();
+    if (Boolean.parseBoolean(
+        metadata.get(stub, ContractConstants.BALANCE_COUNTS_KEY.getValue()))) {
+      return balanceCounts.get(stub, owner);
+    }
     final CompositeKey balanceKey =
         stub.createCompositeKey(ContractConstants.BALANCE.getValue(), owner);
     final QueryResultsIterator<KeyValue> results = stub.getStateByPartialCompositeKey(balanceKey);
@@ -103,11 +152,11 @@ public class ERC721TokenContract implements ContractInterface {
     final ChaincodeStub stub = ctx.getStub();
     final CompositeKey approvalKey =
         stub.createCompositeKey(ContractConstants.APPROVAL.getValue(), owner, operator);
-    final String approvalJson = stub.getStringState(approvalKey.toString());
-    if (stringIsNullOrEmpty(approvalJson)) {
+    final byte[] approvalJson = stub.getState(approvalKey.toString());
+    if (approvalJson == null || approvalJson.length == 0) {
       return false;
     } else {
-      final Approval approval = Approval.fromJSONString(approvalJson);
+      final Approval approval = CODEC.get().decodeApproval(approvalJson);
       return approval.isApproved();
     }
   }
@@ -139,12 +188,13 @@ public class ERC721TokenContract implements ContractInterface {
 
     nft.setApproved(operator);
     final CompositeKey nftKey = stub.createCompositeKey(ContractConstants.NFT.getValue(), tokenId);
-    stub.putStringState(nftKey.toString(), nft.toJSONString());
+    stub.putState(nftKey.toString(), CODEC.get().encode(nft));
   }
 
   /**
    * Enables or disables approval for a third party ("operator") to manage all the message sender's
-   * assets.
+   * assets. Approved operators are also indexed by a key record in the format of
+   * operatorApprovalPrefix.operator.owner, which OwnersApprovingOperator lists.
    *
    * @param ctx the transaction context
    * @param operator A client to add to the set of authorized operators
@@ -159,9 +209,16 @@ public class ERC721TokenContract implements ContractInterface {
     final Approval nftApproval = new Approval(sender, operator, approved);
     final CompositeKey approvalKey =
         stub.createCompositeKey(ContractConstants.APPROVAL.getValue(), sender, operator);
-    stub.putStringState(approvalKey.toString(), nftApproval.toJSONString());
-    stub.setEvent(
-        ContractConstants.APPROVE_FOR_ALL.getValue(), nftApproval.toJSONString().getBytes(UTF_8));
+    final byte[] approvalJson = CODEC.get().encode(nftApproval);
+    stub.putState(approvalKey.toString(), approvalJson);
+    final CompositeKey operatorApprovalKey =
+        stub.createCompositeKey(ContractConstants.OPERATOR_APPROVAL.getValue(), operator, sender);
+    if (approved) {
+      stub.putStringState(operatorApprovalKey.toString(), Character.toString(Character.MIN_VALUE));
+    } else {
+      stub.delState(operatorApprovalKey.toString());
+    }
+    stub.setEvent(ContractConstants.APPROVE_FOR_ALL.getValue(), approvalJson);
   }
 
   /**
@@ -221,7 +278,7 @@ public class ERC721TokenContract implements ContractInterface {
     // Overwrite a non-fungible token to assign a new owner.
     nft.setOwner(to);
     final CompositeKey nftKey = stub.createCompositeKey(ContractConstants.NFT.getValue(), tokenId);
-    stub.putStringState(nftKey.toString(), nft.toJSONString());
+    stub.putState(nftKey.toString(), CODEC.get().encode(nft));
 
     // Remove a composite key from the balance of the current owner
     final CompositeKey balanceKeyFrom =
@@ -233,10 +290,15 @@ public class ERC721TokenContract implements ContractInterface {
         stub.createCompositeKey(ContractConstants.BALANCE.getValue(), to, tokenId);
     stub.putState(balanceKeyTo.toString(), Character.toString(Character.MIN_VALUE).getBytes(UTF_8));
 
+    // A transaction does not read its own writes, so both counters must be updated only once
+    if (!from.equals(to)) {
+      balanceCounts.add(stub, -1, from);
+      balanceCounts.add(stub, 1, to);
+    }
+
     // Emit the Transfer event
     final Transfer transferEvent = new Transfer(from, to, tokenId);
-    stub.setEvent(
-        ContractConstants.TRANSFER.getValue(), transferEvent.toJSONString().getBytes(UTF_8));
+    stub.setEvent(ContractConstants.TRANSFER.getValue(), CODEC.get().encode(transferEvent));
   }
 
   // ============== ERC721 metadata extension ===============
@@ -251,7 +313,7 @@ public class ERC721TokenContract implements ContractInterface {
   public String Name(final Context ctx) {
     //check contract options are already set first to execute the function
     this.checkInitialized(ctx);
-    return ctx.getStub().getStringState(ContractConstants.NAMEKEY.getValue());
+    return metadata.get(ctx.getStub(), ContractConstants.NAMEKEY.getValue());
   }
 
   /**
@@ -264,7 +326,7 @@ public class ERC721TokenContract implements ContractInterface {
   public String Symbol(final Context ctx) {
     //check contract options are already set first to execute the function
     this.checkInitialized(ctx);
-    return ctx.getStub().getStringState(ContractConstants.SYMBOLKEY.getValue());
+    return metadata.get(ctx.getStub(), ContractConstants.SYMBOLKEY.getValue());
   }
 
   /**
@@ -285,9 +347,11 @@ public class ERC721TokenContract implements ContractInterface {
   /** ============= ERC721 enumeration extension =============== * */
 
   /**
-   * Counts non-fungible tokens tracked by this contract. There is a key record for every
-   * non-fungible token in the format of nftPrefix.tokenId. The function queries for and counts all
-   * records matching nftPrefix.*
+   * Counts non-fungible tokens tracked by this contract. Minting and burning update a supply
+   * counter, kept in shards under keys in the format of supplyCountPrefix.shard, that
+   * totalSupply() sums by reading at most one key per shard. Until RepairTotalSupply has backfilled the counter of a contract
+   * initialized before it was introduced, totalSupply() instead counts the key records for every
+   * non-fungible token.
    *
    * @param ctx the transaction context
    * @return count of valid non-fungible tokens tracked by this contract,where each one of them has
@@ -298,17 +362,114 @@ public class ERC721TokenContract implements ContractInterface {
     //check contract options are already set first to execute the function
     this.checkInitialized(ctx);
     final ChaincodeStub stub = ctx.getStub();
-    final CompositeKey nftKey = stub.createCompositeKey(ContractConstants.NFT.getValue());
-    final QueryResultsIterator<KeyValue> iterator = stub.getStateByPartialCompositeKey(nftKey);
-    long totalSupply = 0;
-    for (KeyValue result : iterator) {
-      if (!stringIsNullOrEmpty(result.getStringValue())) {
-        totalSupply++;
-      }
+    if (Boolean.parseBoolean(metadata.get(stub, ContractConstants.SUPPLY_COUNTS_KEY.getValue()))) {
+      return supplyCount.get(stub);
+    }
+    return this.countNfts(stub);
+  }
+
+  /**
+   * Checks the supply counter against the key records for every non-fungible token.
+   *
+   * @param ctx the transaction context
+   * @return true if the counter is kept and matches the number of records, false otherwise
+   */
+  @Transaction(intent = Transaction.TYPE.EVALUATE)
+  public boolean VerifyTotalSupply(final Context ctx) {
+    //check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    final ChaincodeStub stub = ctx.getStub();
+    return Boolean.parseBoolean(metadata.get(stub, ContractConstants.SUPPLY_COUNTS_KEY.getValue()))
+        && supplyCount.get(stub) == this.countNfts(stub);
+  }
+
+  /**
+   * Rebuilds the supply counter from the key records for every non-fungible token, backfilling it
+   * for a contract initialized before it was introduced or repairing it if VerifyTotalSupply fails.
+   *
+   * @param ctx the transaction context
+   * @return count of valid non-fungible tokens tracked by this contract
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public long RepairTotalSupply(final Context ctx) {
+    //check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    final String clientMSPID = ctx.getClientIdentity().getMSPID();
+    if (!clientMSPID.equalsIgnoreCase(ContractConstants.MINTER_ORG_MSP.getValue())) {
+      throw new ChaincodeException(
+          "Client is not authorized to repair the total supply",
+          ContractErrors.UNAUTHORIZED_SENDER.toString());
     }
+    final ChaincodeStub stub = ctx.getStub();
+    final long totalSupply = this.countNfts(stub);
+    supplyCount.clear(stub);
+    supplyCount.set(stub, totalSupply);
+    stub.putStringState(ContractConstants.SUPPLY_COUNTS_KEY.getValue(), String.valueOf(true));
+    metadata.invalidate(stub);
     return totalSupply;
   }
 
+  /**
+   * Lists the non-fungible tokens assigned to an owner a page at a time, from the key records for
+   * every non-fungible token in the format of balancePrefix.owner.tokenId.
+   *
+   * @param ctx the transaction context
+   * @param owner An owner for whom to list the tokens
+   * @param pageSize the maximum number of tokens to return, at most 1000
+   * @param bookmark the bookmark returned by the previous page, or empty for the first page
+   * @return the identifiers of the tokens in the page and the bookmark for the next page
+   */
+  @Transaction(intent = Transaction.TYPE.EVALUATE)
+  public Page TokensOfOwnerWithPagination(
+      final Context ctx, final String owner, final int pageSize, final String bookmark) {
+    //check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    final ChaincodeStub stub = ctx.getStub();
+    final CompositeKey balanceKey =
+        stub.createCompositeKey(ContractConstants.BALANCE.getValue(), owner);
+    return this.page(stub, balanceKey, pageSize, bookmark);
+  }
+
+  /**
+   * Lists the non-fungible tokens tracked by this contract a page at a time, from the key records
+   * for every non-fungible token in the format of nftPrefix.tokenId.
+   *
+   * @param ctx the transaction context
+   * @param pageSize the maximum number of tokens to return, at most 1000
+   * @param bookmark the bookmark returned by the previous page, or empty for the first page
+   * @return the identifiers of the tokens in the page and the bookmark for the next page
+   */
+  @Transaction(intent = Transaction.TYPE.EVALUATE)
+  public Page TokensWithPagination(
+      final Context ctx, final int pageSize, final String bookmark) {
+    //check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    final ChaincodeStub stub = ctx.getStub();
+    final CompositeKey nftKey = stub.createCompositeKey(ContractConstants.NFT.getValue());
+    return this.page(stub, nftKey, pageSize, bookmark);
+  }
+
+  /**
+   * Lists the owners who approved an operator to manage all their assets a page at a time, from
+   * the key records in the format of operatorApprovalPrefix.operator.owner.
+   *
+   * @param ctx the transaction context
+   * @param operator An operator for whom to list the owners
+   * @param pageSize the maximum number of owners to return, at most 1000
+   * @param bookmark the bookmark returned by the previous page, or empty for the first page
+   * @return the owners in the page and the bookmark for the next page
+   */
+  @Transaction(intent = Transaction.TYPE.EVALUATE)
+  public Page OwnersApprovingOperator(
+      final Context ctx, final String operator, final int pageSize, final String bookmark) {
+    //check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    final ChaincodeStub stub = ctx.getStub();
+    final CompositeKey operatorApprovalKey =
+        stub.createCompositeKey(ContractConstants.OPERATOR_APPROVAL.getValue(), operator);
+    return this.page(stub, operatorApprovalKey, pageSize, bookmark);
+  }
+
   /** ============== Extended Functions for this sample =============== * */
 
   /**
@@ -332,13 +493,17 @@ public class ERC721TokenContract implements ContractInterface {
     }
 
     //check contract options are not already set, client is not authorized to change them once intitialized
-    String tokenName = stub.getStringState(ContractConstants.NAMEKEY.getValue());
+    String tokenName = metadata.get(stub, ContractConstants.NAMEKEY.getValue());
     if (!stringIsNullOrEmpty(tokenName)) {
       throw new ChaincodeException("contract options are already set, client is not authorized to change them");
     }
 
     stub.putStringState(ContractConstants.NAMEKEY.getValue(), name);
     stub.putStringState(ContractConstants.SYMBOLKEY.getValue(), symbol);
+    // There are no tokens yet, so the counters need no backfill
+    stub.putStringState(ContractConstants.BALANCE_COUNTS_KEY.getValue(), String.valueOf(true));
+    stub.putStringState(ContractConstants.SUPPLY_COUNTS_KEY.getValue(), String.valueOf(true));
+    metadata.invalidate(stub);
   }
 
   /**
@@ -371,16 +536,17 @@ public class ERC721TokenContract implements ContractInterface {
     }
     final NFT nft = new NFT(tokenId, minter, tokenURI, "");
     final CompositeKey nftKey = stub.createCompositeKey(ContractConstants.NFT.getValue(), tokenId);
-    stub.putStringState(nftKey.toString(), nft.toJSONString());
+    stub.putState(nftKey.toString(), CODEC.get().encode(nft));
     // A composite key would be balancePrefix.owner.tokenId, which enables partial
     // composite key query to find and count all records matching balance.owner.*
     // An empty value would represent a delete, so we simply insert the null character.
     final CompositeKey balanceKey =
         stub.createCompositeKey(ContractConstants.BALANCE.getValue(), minter, tokenId);
     stub.putStringState(balanceKey.toString(), Character.toString(Character.MIN_VALUE));
+    balanceCounts.add(stub, 1, minter);
+    supplyCount.add(stub, 1);
     final Transfer transferEvent = new Transfer("0x0", minter, tokenId);
-    stub.setEvent(
-        ContractConstants.TRANSFER.getValue(), transferEvent.toJSONString().getBytes(UTF_8));
+    stub.setEvent(ContractConstants.TRANSFER.getValue(), CODEC.get().encode(transferEvent));
     return nft;
   }
 
@@ -411,9 +577,243 @@ public class ERC721TokenContract implements ContractInterface {
     final CompositeKey balanceKey =
         stub.createCompositeKey(ContractConstants.BALANCE.getValue(), owner, tokenId);
     stub.delState(balanceKey.toString());
+    balanceCounts.add(stub, -1, owner);
+    supplyCount.add(stub, -1);
     final Transfer transferEvent = new Transfer(owner, "0x0", tokenId);
-    stub.setEvent(
-        ContractConstants.TRANSFER.getValue(), transferEvent.toJSONString().getBytes(UTF_8));
+    stub.setEvent(ContractConstants.TRANSFER.getValue(), CODEC.get().encode(transferEvent));
+  }
+
+  /**
+   * Mints a batch of new non-fungible tokens in a single transaction. All the tokens are validated
+   * before any is written, so the whole batch fails if one of them is already minted, and a single
+   * TransferBatch event is emitted for the batch instead of a Transfer event per token.
+   *
+   * @param ctx the transaction context
+   * @param tokensJSON JSON array of objects with the tokenId and tokenURI of each token, at most
+   *     1000 of them
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public void MintBatch(final Context ctx, final String tokensJSON) {
+    //check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    final String clientMSPID = ctx.getClientIdentity().getMSPID();
+    final ChaincodeStub stub = ctx.getStub();
+    // Check minter authorization this sample assumes Org1 is the issuer with privilege to mint a
+    // new token
+    if (!clientMSPID.equalsIgnoreCase(ContractConstants.MINTER_ORG_MSP.getValue())) {
+      throw new ChaincodeException(
+          "Client is not authorized to set the name and symbol of the token",
+          ContractErrors.UNAUTHORIZED_SENDER.toString());
+    }
+    final String minter = ctx.getClientIdentity().getId();
+    final JSONArray tokens = this.parseBatch(tokensJSON);
+    final String[] tokenIds = new String[tokens.length()];
+    final String[] tokenURIs = new String[tokens.length()];
+    final Set<String> batchTokenIds = new HashSet<>();
+    for (int i = 0; i < tokenIds.length; i++) {
+      try {
+        final JSONObject token = tokens.getJSONObject(i);
+        tokenIds[i] = token.getString("tokenId");
+        tokenURIs[i] = token.getString("tokenURI");
+      } catch (JSONException e) {
+        throw new ChaincodeException(
+            String.format("Invalid token %d in the batch: %s", i, e.getMessage()),
+            ContractErrors.INVALID_BATCH.toString());
+      }
+      // A transaction does not read its own writes, so a repeated token would be minted twice
+      if (!batchTokenIds.add(tokenIds[i]) || this._nftExists(ctx, tokenIds[i])) {
+        throw new ChaincodeException(
+            String.format("The token %s is already minted.", tokenIds[i]),
+            ContractErrors.TOKEN_ALREADY_EXITS.toString());
+      }
+    }
+
+    final String balanceValue = Character.toString(Character.MIN_VALUE);
+    for (int i = 0; i < tokenIds.length; i++) {
+      final NFT nft = new NFT(tokenIds[i], minter, tokenURIs[i], "");
+      final CompositeKey nftKey =
+          stub.createCompositeKey(ContractConstants.NFT.getValue(), tokenIds[i]);
+      stub.putState(nftKey.toString(), CODEC.get().encode(nft));
+      final CompositeKey balanceKey =
+          stub.createCompositeKey(ContractConstants.BALANCE.getValue(), minter, tokenIds[i]);
+      stub.putStringState(balanceKey.toString(), balanceValue);
+    }
+    balanceCounts.add(stub, tokenIds.length, minter);
+    supplyCount.add(stub, tokenIds.length);
+
+    final TransferBatch transferEvent = new TransferBatch("0x0", minter, tokenIds);
+    stub.setEvent(ContractConstants.TRANSFER_BATCH.getValue(), CODEC.get().encode(transferEvent));
+  }
+
+  /**
+   * Transfers the ownership of a batch of non-fungible tokens from one owner to another owner in a
+   * single transaction. The sender must be allowed to transfer every token as by TransferFrom, and
+   * all the tokens are validated before any is written, so the whole batch fails if one of them
+   * cannot be transferred. A single TransferBatch event is emitted for the batch instead of a
+   * Transfer event per token.
+   *
+   * @param ctx the transaction context
+   * @param from the current owner of the non-fungible tokens
+   * @param to the new token owner
+   * @param tokenIdsJSON JSON array of the non-fungible tokens to transfer, at most 1000 of them
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public void TransferFromBatch(
+      final Context ctx, final String from, final String to, final String tokenIdsJSON) {
+    //check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    final String sender = ctx.getClientIdentity().getId();
+    final ChaincodeStub stub = ctx.getStub();
+    final JSONArray batch = this.parseBatch(tokenIdsJSON);
+    final String[] tokenIds = new String[batch.length()];
+    final NFT[] nfts = new NFT[batch.length()];
+    final Set<String> batchTokenIds = new HashSet<>();
+    final Map<String, Boolean> operatorApprovals = new HashMap<>();
+    for (int i = 0; i < tokenIds.length; i++) {
+      try {
+        tokenIds[i] = batch.getString(i);
+      } catch (JSONException e) {
+        throw new ChaincodeException(
+            String.format("Invalid token %d in the batch: %s", i, e.getMessage()),
+            ContractErrors.INVALID_BATCH.toString());
+      }
+      if (!batchTokenIds.add(tokenIds[i])) {
+        throw new ChaincodeException(
+            String.format("The token %s is repeated in the batch.", tokenIds[i]),
+            ContractErrors.INVALID_BATCH.toString());
+      }
+      nfts[i] = this._readNft(ctx, tokenIds[i]);
+      final String owner = nfts[i].getOwner();
+      if (!owner.equalsIgnoreCase(sender)
+          && !nfts[i].getApproved().equalsIgnoreCase(sender)
+          && !operatorApprovals.computeIfAbsent(
+              owner, tokenOwner -> this.IsApprovedForAll(ctx, tokenOwner, sender))) {
+        final String errorMessage =
+            String.format(
+                "The sender %s is not the current owner nor an authorized operator of the token %s.",
+                sender, tokenIds[i]);
+        throw new ChaincodeException(errorMessage, ContractErrors.UNAUTHORIZED_SENDER.toString());
+      }
+      if (!owner.equalsIgnoreCase(from)) {
+        throw new ChaincodeException(
+            String.format(
+                "The from %s is not the current owner of the token %s.", from, tokenIds[i]),
+            ContractErrors.INVALID_TOKEN_OWNER.toString());
+      }
+    }
+
+    final byte[] balanceValue = Character.toString(Character.MIN_VALUE).getBytes(UTF_8);
+    for (int i = 0; i < tokenIds.length; i++) {
+      nfts[i].setApproved("");
+      nfts[i].setOwner(to);
+      final CompositeKey nftKey =
+          stub.createCompositeKey(ContractConstants.NFT.getValue(), tokenIds[i]);
+      stub.putState(nftKey.toString(), CODEC.get().encode(nfts[i]));
+      final CompositeKey balanceKeyFrom =
+          stub.createCompositeKey(ContractConstants.BALANCE.getValue(), from, tokenIds[i]);
+      stub.delState(balanceKeyFrom.toString());
+      final CompositeKey balanceKeyTo =
+          stub.createCompositeKey(ContractConstants.BALANCE.getValue(), to, tokenIds[i]);
+      stub.putState(balanceKeyTo.toString(), balanceValue);
+    }
+    if (!from.equals(to)) {
+      balanceCounts.add(stub, -tokenIds.length, from);
+      balanceCounts.add(stub, tokenIds.length, to);
+    }
+
+    final TransferBatch transferEvent = new TransferBatch(from, to, tokenIds);
+    stub.setEvent(ContractConstants.TRANSFER_BATCH.getValue(), CODEC.get().encode(transferEvent));
+  }
+
+  /**
+   * Backfills the balance counters of a contract initialized before they were introduced, after
+   * which BalanceOf reads them instead of counting the balance records of an owner. The counters
+   * are rebuilt from the balance records of every owner, in the format of
+   * balancePrefix.owner.tokenId, so running this again repairs them.
+   *
+   * @param ctx the transaction context
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public void MigrateBalanceCounts(final Context ctx) {
+    //check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    final String clientMSPID = ctx.getClientIdentity().getMSPID();
+    if (!clientMSPID.equalsIgnoreCase(ContractConstants.MINTER_ORG_MSP.getValue())) {
+      throw new ChaincodeException(
+          "Client is not authorized to migrate balance counts",
+          ContractErrors.UNAUTHORIZED_SENDER.toString());
+    }
+    final ChaincodeStub stub = ctx.getStub();
+    balanceCounts.clear(stub);
+
+    // Balance records are returned in key order, so those of an owner are adjacent
+    final CompositeKey balanceKey = stub.createCompositeKey(ContractConstants.BALANCE.getValue());
+    String owner = null;
+    long balance = 0;
+    for (KeyValue result : stub.getStateByPartialCompositeKey(balanceKey)) {
+      if (stringIsNullOrEmpty(result.getStringValue())) {
+        continue;
+      }
+      final String resultOwner = stub.splitCompositeKey(result.getKey()).getAttributes().get(0);
+      if (!resultOwner.equals(owner)) {
+        if (owner != null) {
+          balanceCounts.set(stub, balance, owner);
+        }
+        owner = resultOwner;
+        balance = 0;
+      }
+      balance++;
+    }
+    if (owner != null) {
+      balanceCounts.set(stub, balance, owner);
+    }
+
+    stub.putStringState(ContractConstants.BALANCE_COUNTS_KEY.getValue(), String.valueOf(true));
+    metadata.invalidate(stub);
+  }
+
+  /**
+   * Backfills the operator index of a contract that recorded approvals before it was introduced,
+   * after which OwnersApprovingOperator lists every owner. The index is rebuilt from the approval
+   * records of every owner, in the format of approvalPrefix.owner.operator, so running this again
+   * repairs it.
+   *
+   * @param ctx the transaction context
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public void MigrateOperatorApprovals(final Context ctx) {
+    //check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    final String clientMSPID = ctx.getClientIdentity().getMSPID();
+    if (!clientMSPID.equalsIgnoreCase(ContractConstants.MINTER_ORG_MSP.getValue())) {
+      throw new ChaincodeException(
+          "Client is not authorized to migrate operator approvals",
+          ContractErrors.UNAUTHORIZED_SENDER.toString());
+    }
+    final ChaincodeStub stub = ctx.getStub();
+    final CompositeKey operatorApprovalKey =
+        stub.createCompositeKey(ContractConstants.OPERATOR_APPROVAL.getValue());
+    for (KeyValue result : stub.getStateByPartialCompositeKey(operatorApprovalKey)) {
+      stub.delState(result.getKey());
+    }
+
+    final byte[] indexValue = Character.toString(Character.MIN_VALUE).getBytes(UTF_8);
+    final CompositeKey approvalKey = stub.createCompositeKey(ContractConstants.APPROVAL.getValue());
+    for (KeyValue result : stub.getStateByPartialCompositeKey(approvalKey)) {
+      final byte[] approvalJson = result.getValue();
+      if (approvalJson == null || approvalJson.length == 0) {
+        continue;
+      }
+      final Approval approval = CODEC.get().decodeApproval(approvalJson);
+      if (approval.isApproved()) {
+        final CompositeKey indexKey =
+            stub.createCompositeKey(
+                ContractConstants.OPERATOR_APPROVAL.getValue(),
+                approval.getOperator(),
+                approval.getOwner());
+        stub.putState(indexKey.toString(), indexValue);
+      }
+    }
   }
 
   /**
@@ -454,12 +854,92 @@ public class ERC721TokenContract implements ContractInterface {
   private NFT _readNft(final Context ctx, final String tokenId) {
     final ChaincodeStub stub = ctx.getStub();
     final CompositeKey nftKey = stub.createCompositeKey(ContractConstants.NFT.getValue(), tokenId);
-    final String nft = stub.getStringState(nftKey.toString());
-    if (stringIsNullOrEmpty(nft)) {
+    final byte[] nft = stub.getState(nftKey.toString());
+    if (nft == null || nft.length == 0) {
       final String errorMessage = String.format("Token with id  %s not found!.", tokenId);
       throw new ChaincodeException(errorMessage, ContractErrors.TOKEN_NOT_FOUND.toString());
     }
-    return NFT.fromJSONString(nft);
+    return CODEC.get().decodeNft(nft);
+  }
+
+  /**
+   * Parses the JSON array of a batch transaction.
+   *
+   * @param batchJSON the JSON array
+   * @return the parsed array, with between 1 and 1000 elements
+   */
+  private JSONArray parseBatch(final String batchJSON) {
+    final JSONArray batch;
+    try {
+      batch = new JSONArray(batchJSON);
+    } catch (JSONException e) {
+      throw new ChaincodeException(
+          String.format("Invalid batch: %s", e.getMessage()),
+          ContractErrors.INVALID_BATCH.toString());
+    }
+    if (batch.length() == 0 || batch.length() > MAX_BATCH_SIZE) {
+      throw new ChaincodeException(
+          String.format(
+              "Batch size %d must be between 1 and %d", batch.length(), MAX_BATCH_SIZE),
+          ContractErrors.INVALID_BATCH.toString());
+    }
+    return batch;
+  }
+
+  /**
+   * Reads a page of the key records matching a partial composite key.
+   *
+   * @param stub the chaincode stub
+   * @param partialKey the leading attributes of the keys
+   * @param pageSize the maximum number of records to read, at most 1000
+   * @param bookmark the bookmark returned by the previous page, or empty for the first page
+   * @return the last attribute of each key, such as a token ID, and the bookmark for the next page
+   */
+  private Page page(
+      final ChaincodeStub stub,
+      final CompositeKey partialKey,
+      final int pageSize,
+      final String bookmark) {
+    if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+      throw new ChaincodeException(
+          String.format("Page size %d must be between 1 and %d", pageSize, MAX_PAGE_SIZE),
+          ContractErrors.INVALID_PAGE_SIZE.toString());
+    }
+    try (QueryResultsIteratorWithMetadata<KeyValue> results =
+        stub.getStateByPartialCompositeKeyWithPagination(partialKey, pageSize, bookmark)) {
+      final List<String> items = new ArrayList<>(pageSize);
+      for (KeyValue result : results) {
+        final List<String> attributes = stub.splitCompositeKey(result.getKey()).getAttributes();
+        items.add(attributes.get(attributes.size() - 1));
+      }
+      final QueryResponseMetadata responseMetadata = results.getMetadata();
+      return new Page(
+          items.toArray(new String[0]),
+          responseMetadata.getFetchedRecordsCount(),
+          responseMetadata.getBookmark());
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ChaincodeException("Failed to close the query results: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Counts the key records for every non-fungible token, in the format of nftPrefix.tokenId.
+   *
+   * @param stub the chaincode stub
+   * @return count of valid non-fungible tokens tracked by this contract
+   */
+  private long countNfts(final ChaincodeStub stub) {
+    final CompositeKey nftKey = stub.createCompositeKey(ContractConstants.NFT.getValue());
+    final QueryResultsIterator<KeyValue> iterator = stub.getStateByPartialCompositeKey(nftKey);
+    long totalSupply = 0;
+    for (KeyValue result : iterator) {
+      if (!stringIsNullOrEmpty(result.getStringValue())) {
+        totalSupply++;
+      }
+    }
+    return totalSupply;
   }
 
   /**
@@ -472,18 +952,19 @@ public class ERC721TokenContract implements ContractInterface {
   private boolean _nftExists(final Context ctx, final String tokenId) {
     final ChaincodeStub stub = ctx.getStub();
     final CompositeKey nftKey = stub.createCompositeKey(ContractConstants.NFT.getValue(), tokenId);
-    final String nft = stub.getStringState(nftKey.toString());
-    return ((stringIsNullOrEmpty(nft)) ? false : true);
+    final byte[] nft = stub.getState(nftKey.toString());
+    return nft != null && nft.length > 0;
   }
 
   /**
-   * Checks that contract options have been already initialized
+   * Checks that contract options have been already initialized. Once they have, this is answered
+   * from the metadata cache without a call to the peer.
    *
    * @param ctx the transaction context
    * @return the number of decimals
    */
   private void checkInitialized(final Context ctx) {
-    String tokenName = ctx.getStub().getStringState(ContractConstants.NAMEKEY.getValue());
+    String tokenName = metadata.get(ctx.getStub(), ContractConstants.NAMEKEY.getValue());
     if (stringIsNullOrEmpty(tokenName)) {
       throw new ChaincodeException("Contract options need to be set before calling any function, call Initialize() to initialize contract", ContractErrors.TOKEN_NOT_FOUND.toString());
     }
@@ -0,0 +1,86 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.hyperledger.fabric.samples.erc721.models;
+
+import com.owlike.genson.Genson;
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+/**
+ * A page of a paginated listing, such as the token IDs of an owner or the owners approving an
+ * operator, with the bookmark to pass in for the next page.
+ */
+@DataType()
+public final class Page {
+
+  @Property()
+  @JsonProperty("items")
+  private String[] items;
+
+  @Property()
+  @JsonProperty("fetchedRecordsCount")
+  private int fetchedRecordsCount;
+
+  @Property()
+  @JsonProperty("bookmark")
+  private String bookmark;
+
+  /** Default Constructor of the class. */
+  public Page() {
+    super();
+  }
+
+  /**
+   * Constructor of the class
+   *
+   * @param items the items in the page
+   * @param fetchedRecordsCount the number of records fetched for the page
+   * @param bookmark the bookmark of the next page, empty if this is the last one
+   */
+  public Page(
+      @JsonProperty("items") final String[] items,
+      @JsonProperty("fetchedRecordsCount") final int fetchedRecordsCount,
+      @JsonProperty("bookmark") final String bookmark) {
+    super();
+    this.items = items;
+    this.fetchedRecordsCount = fetchedRecordsCount;
+    this.bookmark = bookmark;
+  }
+
+  /** @return the items in the page, in the order of their keys */
+  public String[] getItems() {
+    return items;
+  }
+
+  /** @param items the items in the page */
+  public void setItems(final String[] items) {
+    this.items = items;
+  }
+
+  /** @return the number of records fetched for the page */
+  public int getFetchedRecordsCount() {
+    return fetchedRecordsCount;
+  }
+
+  /** @param fetchedRecordsCount the number of records fetched for the page */
+  public void setFetchedRecordsCount(final int fetchedRecordsCount) {
+    this.fetchedRecordsCount = fetchedRecordsCount;
+  }
+
+  /** @return the bookmark of the next page, empty if this is the last one */
+  public String getBookmark() {
+    return bookmark;
+  }
+
+  /** @param bookmark the bookmark of the next page, empty if this is the last one */
+  public void setBookmark(final String bookmark) {
+    this.bookmark = bookmark;
+  }
+
+  /** @return the page as a JSON string */
+  public String toJSONString() {
+    return new Genson().serialize(this).toString();
+  }
+}
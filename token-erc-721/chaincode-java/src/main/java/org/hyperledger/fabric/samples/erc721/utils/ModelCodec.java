@@ -0,0 +1,386 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.hyperledger.fabric.samples.erc721.utils;
+
+import org.hyperledger.fabric.samples.erc721.models.Approval;
+import org.hyperledger.fabric.samples.erc721.models.NFT;
+import org.hyperledger.fabric.samples.erc721.models.Transfer;
+import org.hyperledger.fabric.samples.erc721.models.TransferBatch;
+import org.hyperledger.fabric.samples.shared.JsonWriter;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Encodes the models stored in the world state or emitted as events as the same UTF-8 JSON that
+ * Genson produces for them, and decodes NFT and Approval records, without reflection or an
+ * intermediate JSONObject. Models are written with a {@link JsonWriter} that is reused for the
+ * next one, so a codec must not be shared between threads.
+ *
+ * <p>Decoding accepts any JSON object: properties may come in any order, unknown properties are
+ * skipped and missing ones are left null, or false.
+ */
+public final class ModelCodec {
+
+  private static final byte[] NFT_APPROVED = "{\"approved\":".getBytes(UTF_8);
+  private static final byte[] NFT_OWNER = ",\"owner\":".getBytes(UTF_8);
+  private static final byte[] NFT_TOKEN_ID = ",\"tokenId\":".getBytes(UTF_8);
+  private static final byte[] NFT_TOKEN_URI = ",\"tokenURI\":".getBytes(UTF_8);
+  private static final byte[] APPROVAL_OPERATOR = ",\"operator\":".getBytes(UTF_8);
+  private static final byte[] APPROVAL_OWNER = ",\"owner\":".getBytes(UTF_8);
+  private static final byte[] TRANSFER_FROM = "{\"from\":".getBytes(UTF_8);
+  private static final byte[] TRANSFER_TO = ",\"to\":".getBytes(UTF_8);
+  private static final byte[] TRANSFER_TOKEN_ID = ",\"tokenId\":".getBytes(UTF_8);
+  private static final byte[] TRANSFER_TOKEN_IDS = ",\"tokenIds\":".getBytes(UTF_8);
+  private static final byte[] NULL = "null".getBytes(UTF_8);
+  private static final byte[] TRUE = "true".getBytes(UTF_8);
+  private static final byte[] FALSE = "false".getBytes(UTF_8);
+
+  private static final byte[] APPROVED = "approved".getBytes(UTF_8);
+  private static final byte[] OWNER = "owner".getBytes(UTF_8);
+  private static final byte[] OPERATOR = "operator".getBytes(UTF_8);
+  private static final byte[] TOKEN_ID = "tokenId".getBytes(UTF_8);
+  private static final byte[] TOKEN_URI = "tokenURI".getBytes(UTF_8);
+
+  private final JsonWriter writer = new JsonWriter();
+
+  private final StringBuilder chars = new StringBuilder();
+  private byte[] json;
+  private int position;
+  private boolean firstProperty;
+
+  /**
+   * Encodes a non-fungible token.
+   *
+   * @param nft the token
+   * @return the JSON encoding of the token
+   */
+  public byte[] encode(final NFT nft) {
+    writer.reset();
+    writer.write(NFT_APPROVED);
+    writer.writeString(nft.getApproved());
+    writer.write(NFT_OWNER);
+    writer.writeString(nft.getOwner());
+    writer.write(NFT_TOKEN_ID);
+    writer.writeString(nft.getTokenId());
+    writer.write(NFT_TOKEN_URI);
+    writer.writeString(nft.getTokenURI());
+    writer.write('}');
+    return writer.toByteArray();
+  }
+
+  /**
+   * Encodes an operator approval.
+   *
+   * @param approval the approval
+   * @return the JSON encoding of the approval
+   */
+  public byte[] encode(final Approval approval) {
+    writer.reset();
+    writer.write(NFT_APPROVED);
+    writer.write(approval.isApproved() ? TRUE : FALSE);
+    writer.write(APPROVAL_OPERATOR);
+    writer.writeString(approval.getOperator());
+    writer.write(APPROVAL_OWNER);
+    writer.writeString(approval.getOwner());
+    writer.write('}');
+    return writer.toByteArray();
+  }
+
+  /**
+   * Encodes a Transfer event.
+   *
+   * @param transfer the event
+   * @return the JSON encoding of the event
+   */
+  public byte[] encode(final Transfer transfer) {
+    writer.reset();
+    writer.write(TRANSFER_FROM);
+    writer.writeString(transfer.getFrom());
+    writer.write(TRANSFER_TO);
+    writer.writeString(transfer.getTo());
+    writer.write(TRANSFER_TOKEN_ID);
+    writer.writeString(transfer.getTokenId());
+    writer.write('}');
+    return writer.toByteArray();
+  }
+
+  /**
+   * Encodes a TransferBatch event.
+   *
+   * @param transfer the event
+   * @return the JSON encoding of the event
+   */
+  public byte[] encode(final TransferBatch transfer) {
+    writer.reset();
+    writer.write(TRANSFER_FROM);
+    writer.writeString(transfer.getFrom());
+    writer.write(TRANSFER_TO);
+    writer.writeString(transfer.getTo());
+    writer.write(TRANSFER_TOKEN_IDS);
+    final String[] tokenIds = transfer.getTokenIds();
+    if (tokenIds == null) {
+      writer.writeNull();
+    } else {
+      writer.write('[');
+      for (int i = 0; i < tokenIds.length; i++) {
+        if (i > 0) {
+          writer.write(',');
+        }
+        writer.writeString(tokenIds[i]);
+      }
+      writer.write(']');
+    }
+    writer.write('}');
+    return writer.toByteArray();
+  }
+
+  /**
+   * Decodes a non-fungible token.
+   *
+   * @param bytes the JSON encoding of the token
+   * @return the token
+   * @throws IllegalArgumentException if the bytes are not a JSON object
+   */
+  public NFT decodeNft(final byte[] bytes) {
+    final NFT nft = new NFT();
+    beginObject(bytes);
+    while (nextProperty()) {
+      if (propertyIs(TOKEN_ID)) {
+        nft.setTokenId(readString());
+      } else if (propertyIs(OWNER)) {
+        nft.setOwner(readString());
+      } else if (propertyIs(TOKEN_URI)) {
+        nft.setTokenURI(readString());
+      } else if (propertyIs(APPROVED)) {
+        nft.setApproved(readString());
+      } else {
+        skipValue();
+      }
+    }
+    return nft;
+  }
+
+  /**
+   * Decodes an operator approval.
+   *
+   * @param bytes the JSON encoding of the approval
+   * @return the approval
+   * @throws IllegalArgumentException if the bytes are not a JSON object
+   */
+  public Approval decodeApproval(final byte[] bytes) {
+    final Approval approval = new Approval();
+    beginObject(bytes);
+    while (nextProperty()) {
+      if (propertyIs(OWNER)) {
+        approval.setOwner(readString());
+      } else if (propertyIs(OPERATOR)) {
+        approval.setOperator(readString());
+      } else if (propertyIs(APPROVED)) {
+        approval.setApproved(readBoolean());
+      } else {
+        skipValue();
+      }
+    }
+    return approval;
+  }
+
+  private void beginObject(final byte[] bytes) {
+    json = bytes;
+    position = 0;
+    firstProperty = true;
+    expect('{');
+  }
+
+  /**
+   * Moves to the next property of the object, leaving the position at the start of its name.
+   *
+   * @return false at the end of the object
+   */
+  private boolean nextProperty() {
+    skipWhitespace();
+    if (peek() == '}') {
+      position++;
+      return false;
+    }
+    if (!firstProperty) {
+      expect(',');
+      skipWhitespace();
+    }
+    firstProperty = false;
+    if (peek() != '"') {
+      throw invalid();
+    }
+    return true;
+  }
+
+  /**
+   * Consumes the name of a property and the following colon if it is the given name.
+   *
+   * @param name the name, which has no characters that need escaping
+   */
+  private boolean propertyIs(final byte[] name) {
+    final int end = position + name.length + 1;
+    if (end >= json.length || json[end] != '"' || !matches(position + 1, name)) {
+      return false;
+    }
+    position = end + 1;
+    expect(':');
+    return true;
+  }
+
+  private boolean matches(final int offset, final byte[] bytes) {
+    if (offset + bytes.length > json.length) {
+      return false;
+    }
+    for (int i = 0; i < bytes.length; i++) {
+      if (json[offset + i] != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String readString() {
+    skipWhitespace();
+    if (peek() == 'n') {
+      expectLiteral(NULL);
+      return null;
+    }
+    expect('"');
+    final int start = position;
+    boolean ascii = true;
+    while (peek() != '"') {
+      final byte b = json[position];
+      if (b == '\\') {
+        return readEscapedString(start);
+      }
+      ascii &= b >= 0;
+      position++;
+    }
+    position++;
+    return new String(json, start, position - 1 - start, ascii ? ISO_8859_1 : UTF_8);
+  }
+
+  private String readEscapedString(final int start) {
+    chars.setLength(0);
+    int segment = start;
+    while (peek() != '"') {
+      if (json[position] != '\\') {
+        position++;
+        continue;
+      }
+      chars.append(new String(json, segment, position - segment, UTF_8));
+      position++;
+      final byte escaped = peek();
+      position++;
+      switch (escaped) {
+        case 'b':
+          chars.append('\b');
+          break;
+        case 'f':
+          chars.append('\f');
+          break;
+        case 'n':
+          chars.append('\n');
+          break;
+        case 'r':
+          chars.append('\r');
+          break;
+        case 't':
+          chars.append('\t');
+          break;
+        case 'u':
+          if (position + 4 > json.length) {
+            throw invalid();
+          }
+          chars.append((char) Integer.parseInt(new String(json, position, 4, ISO_8859_1), 16));
+          position += 4;
+          break;
+        case '"':
+        case '\\':
+        case '/':
+          chars.append((char) escaped);
+          break;
+        default:
+          throw invalid();
+      }
+      segment = position;
+    }
+    chars.append(new String(json, segment, position - segment, UTF_8));
+    position++;
+    return chars.toString();
+  }
+
+  private boolean readBoolean() {
+    skipWhitespace();
+    if (peek() == 't') {
+      expectLiteral(TRUE);
+      return true;
+    }
+    expectLiteral(FALSE);
+    return false;
+  }
+
+  /** Consumes the name of an unknown property, then its value, whatever its type. */
+  private void skipValue() {
+    readString();
+    expect(':');
+    int depth = 0;
+    while (true) {
+      final byte b = peek();
+      if (b == '"') {
+        readString();
+      } else if (b == '{' || b == '[') {
+        depth++;
+        position++;
+      } else if (b == '}' || b == ']' || b == ',') {
+        if (depth == 0) {
+          return;
+        }
+        depth -= b == ',' ? 0 : 1;
+        position++;
+      } else {
+        position++;
+      }
+    }
+  }
+
+  private void expect(final char c) {
+    skipWhitespace();
+    if (peek() != c) {
+      throw invalid();
+    }
+    position++;
+  }
+
+  private void expectLiteral(final byte[] literal) {
+    if (!matches(position, literal)) {
+      throw invalid();
+    }
+    position += literal.length;
+  }
+
+  private void skipWhitespace() {
+    while (position < json.length
+        && (json[position] == ' '
+            || json[position] == '\t'
+            || json[position] == '\n'
+            || json[position] == '\r')) {
+      position++;
+    }
+  }
+
+  private byte peek() {
+    if (position >= json.length) {
+      throw invalid();
+    }
+    return json[position];
+  }
+
+  private IllegalArgumentException invalid() {
+    return new IllegalArgumentException(
+        String.format("Invalid JSON object at offset %d", position));
+  }
+}
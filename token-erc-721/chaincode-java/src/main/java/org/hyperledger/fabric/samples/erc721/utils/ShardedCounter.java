@@ -0,0 +1,104 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.hyperledger.fabric.samples.erc721.utils;
+
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static org.hyperledger.fabric.samples.erc721.utils.ContractUtility.stringIsNullOrEmpty;
+
+/**
+ * A counter kept in the world state as a fixed number of shards, under composite keys of the
+ * form objectType.attributes.shard. Each transaction adds to the shard picked by its transaction
+ * ID, so two concurrent transactions updating the same counter only conflict if they happen to
+ * pick the same shard, and reading the counter sums at most that many keys however large it is.
+ */
+public final class ShardedCounter {
+
+  private final String objectType;
+  private final int shards;
+
+  /**
+   * @param objectType the object type of the shard keys
+   * @param shards the number of shards of each counter
+   */
+  public ShardedCounter(final String objectType, final int shards) {
+    this.objectType = objectType;
+    this.shards = shards;
+  }
+
+  /**
+   * Adds to a counter.
+   *
+   * @param stub the chaincode stub
+   * @param delta the amount to add, possibly negative
+   * @param attributes the attributes identifying the counter
+   */
+  public void add(final ChaincodeStub stub, final long delta, final String... attributes) {
+    final String shardKey = shardKey(stub, attributes).toString();
+    final String shardValue = stub.getStringState(shardKey);
+    final long value = (stringIsNullOrEmpty(shardValue) ? 0 : Long.parseLong(shardValue)) + delta;
+    if (value == 0) {
+      stub.delState(shardKey);
+    } else {
+      stub.putStringState(shardKey, Long.toString(value));
+    }
+  }
+
+  /**
+   * Sets a counter by writing a single shard. The other shards of the counter must already be
+   * deleted in the same transaction, as by {@link #clear(ChaincodeStub)}.
+   *
+   * @param stub the chaincode stub
+   * @param value the value of the counter
+   * @param attributes the attributes identifying the counter
+   */
+  public void set(final ChaincodeStub stub, final long value, final String... attributes) {
+    if (value != 0) {
+      stub.putStringState(shardKey(stub, attributes).toString(), Long.toString(value));
+    }
+  }
+
+  /**
+   * Reads a counter.
+   *
+   * @param stub the chaincode stub
+   * @param attributes the attributes identifying the counter
+   * @return the sum of its shards
+   */
+  public long get(final ChaincodeStub stub, final String... attributes) {
+    final CompositeKey counterKey = stub.createCompositeKey(objectType, attributes);
+    final QueryResultsIterator<KeyValue> results = stub.getStateByPartialCompositeKey(counterKey);
+    long value = 0;
+    for (KeyValue result : results) {
+      value += Long.parseLong(result.getStringValue());
+    }
+    return value;
+  }
+
+  /**
+   * Deletes the shards of every counter of the object type.
+   *
+   * @param stub the chaincode stub
+   */
+  public void clear(final ChaincodeStub stub) {
+    final CompositeKey counterKey = stub.createCompositeKey(objectType);
+    for (KeyValue result : stub.getStateByPartialCompositeKey(counterKey)) {
+      stub.delState(result.getKey());
+    }
+  }
+
+  private CompositeKey shardKey(final ChaincodeStub stub, final String... attributes) {
+    // A peer transaction ID is a hex digest, whose hash code spreads transactions evenly
+    final int shard = Math.floorMod(Objects.hashCode(stub.getTxId()), shards);
+    final String[] shardAttributes = Arrays.copyOf(attributes, attributes.length + 1);
+    shardAttributes[attributes.length] = Integer.toString(shard);
+    return stub.createCompositeKey(objectType, shardAttributes);
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.hyperledger.fabric.samples.shared;
+
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes UTF-8 JSON into a buffer that is reused for the next value, escaping strings the same way
+ * as Genson, without reflection or intermediate strings. The copy returned by {@link
+ * #toByteArray()} is the only allocation; a writer must therefore not be shared between threads.
+ *
+ * <p>The ERC20 and ERC721 samples each build on their own and carry the same copy of this class.
+ * Edit the one in token-erc-20, then run ci/scripts/sync-java-test-fixtures.sh to copy it.
+ */
+public final class JsonWriter {
+
+  private static final int INITIAL_CAPACITY = 512;
+
+  private static final byte[] NULL = "null".getBytes(UTF_8);
+  private static final byte[] MIN_LONG = String.valueOf(Long.MIN_VALUE).getBytes(UTF_8);
+  private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(UTF_8);
+
+  /** Escaped as they end a line in JavaScript. */
+  private static final char LINE_SEPARATOR = 0x2028;
+  private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+  /** Longest encoding of a single char: a \\uXXXX escape. */
+  private static final int MAX_BYTES_PER_CHAR = 6;
+
+  private byte[] buffer = new byte[INITIAL_CAPACITY];
+  private int length;
+
+  /** Discards what was written, keeping the buffer for the next value. */
+  public void reset() {
+    length = 0;
+  }
+
+  /**
+   * @return a copy of what was written since the last reset
+   */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(buffer, length);
+  }
+
+  /**
+   * Writes bytes as they are, such as a property name with its quotes and colon.
+   *
+   * @param bytes the bytes
+   */
+  public void write(final byte[] bytes) {
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, length, bytes.length);
+    length += bytes.length;
+  }
+
+  /**
+   * Writes an ASCII character as it is, such as a bracket or a comma.
+   *
+   * @param c the character
+   */
+  public void write(final char c) {
+    ensureCapacity(1);
+    buffer[length++] = (byte) c;
+  }
+
+  /** Writes null. */
+  public void writeNull() {
+    write(NULL);
+  }
+
+  /**
+   * Writes a quoted JSON string, escaping the same characters as Genson.
+   *
+   * @param value the string, written as null if null
+   */
+  public void writeString(final String value) {
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    ensureCapacity(value.length() * MAX_BYTES_PER_CHAR + 2);
+    buffer[length++] = '"';
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        buffer[length++] = '\\';
+        buffer[length++] = (byte) c;
+      } else if (c < 0x20) {
+        writeControl(c);
+      } else if (c < 0x80) {
+        buffer[length++] = (byte) c;
+      } else if (c < 0x800) {
+        buffer[length++] = (byte) (0xc0 | c >> 6);
+        buffer[length++] = (byte) (0x80 | c & 0x3f);
+      } else if (c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+        writeUnicodeEscape(c);
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        buffer[length++] = (byte) (0xf0 | codePoint >> 18);
+        buffer[length++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+        buffer[length++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+        buffer[length++] = (byte) (0x80 | codePoint & 0x3f);
+      } else if (Character.isSurrogate(c)) {
+        // Unpaired surrogates cannot be encoded, String.getBytes replaces them the same way
+        buffer[length++] = '?';
+      } else {
+        buffer[length++] = (byte) (0xe0 | c >> 12);
+        buffer[length++] = (byte) (0x80 | c >> 6 & 0x3f);
+        buffer[length++] = (byte) (0x80 | c & 0x3f);
+      }
+    }
+    buffer[length++] = '"';
+  }
+
+  /**
+   * Writes a JSON number.
+   *
+   * @param value the number
+   */
+  public void writeLong(final long value) {
+    if (value == Long.MIN_VALUE) {
+      write(MIN_LONG);
+      return;
+    }
+    ensureCapacity(MIN_LONG.length);
+    long remaining = value;
+    if (remaining < 0) {
+      buffer[length++] = '-';
+      remaining = -remaining;
+    }
+    int digits = 1;
+    for (long power = 10; digits < 19 && remaining >= power; power *= 10) {
+      digits++;
+    }
+    for (int i = length + digits - 1; i >= length; i--) {
+      buffer[i] = (byte) ('0' + remaining % 10);
+      remaining /= 10;
+    }
+    length += digits;
+  }
+
+  private void ensureCapacity(final int additional) {
+    if (length + additional > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + additional));
+    }
+  }
+
+  private void writeControl(final char c) {
+    switch (c) {
+      case '\b':
+        buffer[length++] = '\\';
+        buffer[length++] = 'b';
+        break;
+      case '\f':
+        buffer[length++] = '\\';
+        buffer[length++] = 'f';
+        break;
+      case '\n':
+        buffer[length++] = '\\';
+        buffer[length++] = 'n';
+        break;
+      case '\r':
+        buffer[length++] = '\\';
+        buffer[length++] = 'r';
+        break;
+      case '\t':
+        buffer[length++] = '\\';
+        buffer[length++] = 't';
+        break;
+      default:
+        writeUnicodeEscape(c);
+    }
+  }
+
+  private void writeUnicodeEscape(final char c) {
+    buffer[length++] = '\\';
+    buffer[length++] = 'u';
+    buffer[length++] = HEX_DIGITS[c >> 12 & 0xf];
+    buffer[length++] = HEX_DIGITS[c >> 8 & 0xf];
+    buffer[length++] = HEX_DIGITS[c >> 4 & 0xf];
+    buffer[length++] = HEX_DIGITS[c & 0xf];
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.hyperledger.fabric.samples.shared;
+
+import org.hyperledger.fabric.shim.ChaincodeStub;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches world state keys that cannot change once they are set, such as the token name and symbol,
+ * for the life of the chaincode process, saving the transactions that read them a call to the peer.
+ * Values are cached per channel, and only once they are set, as a key that is not yet set may be by
+ * a later transaction. The transaction that sets them invalidates the channel's values; a read
+ * racing with it caches into the discarded generation of values rather than the new one.
+ *
+ * <p>The ERC20 and ERC721 samples each build on their own and carry the same copy of this class.
+ * Edit the one in token-erc-20, then run ci/scripts/sync-java-test-fixtures.sh to copy it.
+ */
+public final class TokenMetadataCache {
+
+  private final ConcurrentMap<String, ConcurrentMap<String, String>> channels =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Returns the value of a key, reading it from the world state unless it is cached.
+   *
+   * @param stub the chaincode stub
+   * @param key the key
+   * @return the value, which is null or empty if the key is not set
+   */
+  public String get(final ChaincodeStub stub, final String key) {
+    ConcurrentMap<String, String> values =
+        channels.computeIfAbsent(channelOf(stub), channel -> new ConcurrentHashMap<>());
+    String value = values.get(key);
+    if (value == null) {
+      value = stub.getStringState(key);
+      if (value != null && !value.isEmpty()) {
+        values.put(key, value);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Discards the cached values of the stub's channel. Called by the transactions that set them.
+   *
+   * @param stub the chaincode stub
+   */
+  public void invalidate(final ChaincodeStub stub) {
+    channels.remove(channelOf(stub));
+  }
+
+  private static String channelOf(final ChaincodeStub stub) {
+    // Stubs outside a peer, as in unit tests, may have no channel ID
+    return Objects.toString(stub.getChannelId(), "");
+  }
+}
@@ -4,6 +4,11 @@ import org.hyperledger.fabric.contract.ClientIdentity;
 import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.samples.erc721.models.Approval;
 import org.hyperledger.fabric.samples.erc721.models.NFT;
+import org.hyperledger.fabric.samples.erc721.models.Page;
+import org.hyperledger.fabric.samples.erc721.models.TransferBatch;
+import org.hyperledger.fabric.samples.erc721.utils.ShardedCounter;
+import org.hyperledger.fabric.samples.testing.InMemoryChaincodeStub;
+import org.hyperledger.fabric.samples.testing.TestIdentities;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
 import org.hyperledger.fabric.shim.ledger.CompositeKey;
@@ -20,9 +25,12 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -75,6 +83,23 @@ public class ERC721TokenContractTest {
     }
   }
 
+  /** Mocks the key of the balance counter shard that a stub without a transaction ID updates. */
+  private static CompositeKey mockBalanceCountKey(final ChaincodeStub stub, final String owner) {
+    CompositeKey ck = mock(CompositeKey.class);
+    when(ck.toString()).thenReturn(ContractConstants.BALANCE_COUNT.getValue() + owner + "0");
+    when(stub.createCompositeKey(ContractConstants.BALANCE_COUNT.getValue(), owner, "0"))
+        .thenReturn(ck);
+    return ck;
+  }
+
+  /** Mocks the key of the supply counter shard that a stub without a transaction ID updates. */
+  private static CompositeKey mockSupplyCountKey(final ChaincodeStub stub) {
+    CompositeKey ck = mock(CompositeKey.class);
+    when(ck.toString()).thenReturn(ContractConstants.SUPPLY_COUNT.getValue() + "0");
+    when(stub.createCompositeKey(ContractConstants.SUPPLY_COUNT.getValue(), "0")).thenReturn(ck);
+    return ck;
+  }
+
   @Nested
   class InvokeERC721TokenBalanceOf {
 
@@ -96,6 +121,76 @@ public class ERC721TokenContractTest {
       assertThat(balance).isEqualTo(2);
     }
 
+    @Test
+    public void invokeToGetTokenBalanceFromCounters() {
+      ERC721TokenContract contract = new ERC721TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = mock(ChaincodeStub.class);
+      List<KeyValue> list = new ArrayList<>();
+      when(stub.getStringState(ContractConstants.NAMEKEY.getValue())).thenReturn("ARBTToken");
+      when(stub.getStringState(ContractConstants.BALANCE_COUNTS_KEY.getValue())).thenReturn("true");
+      list.add(new MockKeyValue("balanceCount_Alice_3", "3"));
+      list.add(new MockKeyValue("balanceCount_Alice_7", "-1"));
+      when(ctx.getStub()).thenReturn(stub);
+      CompositeKey countKey = mock(CompositeKey.class);
+      when(stub.createCompositeKey(ContractConstants.BALANCE_COUNT.getValue(), "Alice"))
+          .thenReturn(countKey);
+      when(stub.getStateByPartialCompositeKey(countKey))
+          .thenReturn(new MockAssetResultsIterator(list));
+      long balance = contract.BalanceOf(ctx, "Alice");
+      assertThat(balance).isEqualTo(2);
+    }
+
+    @Test
+    public void whenPageSizeIsOutOfBounds() {
+      ERC721TokenContract contract = new ERC721TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = mock(ChaincodeStub.class);
+      when(ctx.getStub()).thenReturn(stub);
+      when(stub.getStringState(ContractConstants.NAMEKEY.getValue())).thenReturn("ARBTToken");
+      Throwable thrown = catchThrowable(() -> contract.TokensWithPagination(ctx, 0, ""));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage("Page size 0 must be between 1 and 1000");
+      thrown = catchThrowable(() -> contract.TokensOfOwnerWithPagination(ctx, "Alice", 1001, ""));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage("Page size 1001 must be between 1 and 1000");
+    }
+
+    @Test
+    public void whenRepairTotalSupplyUnauthorized() {
+      ERC721TokenContract contract = new ERC721TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = mock(ChaincodeStub.class);
+      when(ctx.getStub()).thenReturn(stub);
+      when(stub.getStringState(ContractConstants.NAMEKEY.getValue())).thenReturn("ARBTToken");
+      ClientIdentity ci = mock(ClientIdentity.class);
+      when(ctx.getClientIdentity()).thenReturn(ci);
+      when(ci.getMSPID()).thenReturn("Org2MSP");
+      Throwable thrown = catchThrowable(() -> contract.RepairTotalSupply(ctx));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage("Client is not authorized to repair the total supply");
+    }
+
+    @Test
+    public void whenMigrateBalanceCountsUnauthorized() {
+      ERC721TokenContract contract = new ERC721TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = mock(ChaincodeStub.class);
+      when(ctx.getStub()).thenReturn(stub);
+      when(stub.getStringState(ContractConstants.NAMEKEY.getValue())).thenReturn("ARBTToken");
+      ClientIdentity ci = mock(ClientIdentity.class);
+      when(ctx.getClientIdentity()).thenReturn(ci);
+      when(ci.getMSPID()).thenReturn("Org2MSP");
+      Throwable thrown = catchThrowable(() -> contract.MigrateBalanceCounts(ctx));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage("Client is not authorized to migrate balance counts");
+      verify(stub, never()).putStringState(ContractConstants.BALANCE_COUNTS_KEY.getValue(), "true");
+    }
+
     @Test
     public void invokeToGetOwnerOf() {
       ERC721TokenContract contract = new ERC721TokenContract();
@@ -107,7 +202,7 @@ public class ERC721TokenContractTest {
       when(stub.getStringState(ContractConstants.NAMEKEY.getValue())).thenReturn("ARBTToken");
       when(ck.toString()).thenReturn(ContractConstants.NFT.getValue() + "101");
       when(stub.createCompositeKey(ContractConstants.NFT.getValue(), "101")).thenReturn(ck);
-      when(stub.getStringState(ck.toString())).thenReturn(nft.toJSONString());
+      when(stub.getState(ck.toString())).thenReturn(nft.toJSONString().getBytes(UTF_8));
       String owner = contract.OwnerOf(ctx, "101");
       assertThat(owner).isEqualTo(nft.getOwner());
     }
@@ -135,7 +230,7 @@ public class ERC721TokenContractTest {
       CompositeKey ck1 = mock(CompositeKey.class);
       when(ck1.toString()).thenReturn(ContractConstants.NFT.getValue() + "101");
       when(this.stub.createCompositeKey(ContractConstants.NFT.getValue(), "101")).thenReturn(ck1);
-      when(stub.getStringState(ck1.toString())).thenReturn(currentNFT.toJSONString());
+      when(stub.getState(ck1.toString())).thenReturn(currentNFT.toJSONString().getBytes(UTF_8));
       CompositeKey ck2 = mock(CompositeKey.class);
       when(ck2.toString()).thenReturn(ContractConstants.BALANCE.getValue() + "Alice" + "101");
       when(stub.createCompositeKey(ContractConstants.BALANCE.getValue(), "Alice", "101"))
@@ -145,6 +240,8 @@ public class ERC721TokenContractTest {
       when(ck3.toString()).thenReturn(ContractConstants.BALANCE.getValue() + "Bob" + "101");
       when(stub.createCompositeKey(ContractConstants.BALANCE.getValue(), "Bob", "101"))
           .thenReturn(ck3);
+      mockBalanceCountKey(stub, "Alice");
+      mockBalanceCountKey(stub, "Bob");
     }
 
     @Test
@@ -155,14 +252,18 @@ public class ERC721TokenContractTest {
       when(ck.toString()).thenReturn(ContractConstants.APPROVAL.getValue() + "Alice" + "Alice");
       when(this.stub.createCompositeKey(ContractConstants.APPROVAL.getValue(), "Alice", "Alice"))
           .thenReturn(ck);
-      when(this.stub.getStringState(ck.toString())).thenReturn(approval.toJSONString());
+      when(this.stub.getState(ck.toString())).thenReturn(approval.toJSONString().getBytes(UTF_8));
       ClientIdentity ci = null;
       ci = mock(ClientIdentity.class);
       when(ci.getId()).thenReturn("Alice");
       when(this.ctx.getClientIdentity()).thenReturn(ci);
       contract.TransferFrom(this.ctx, "Alice", "Bob", "101");
       verify(stub)
-          .putStringState(ContractConstants.NFT.getValue() + "101", this.updatedNFT.toJSONString());
+          .putState(
+              ContractConstants.NFT.getValue() + "101",
+              this.updatedNFT.toJSONString().getBytes(UTF_8));
+      verify(stub).putStringState(ContractConstants.BALANCE_COUNT.getValue() + "Alice0", "-1");
+      verify(stub).putStringState(ContractConstants.BALANCE_COUNT.getValue() + "Bob0", "1");
     }
 
     @Test
@@ -173,14 +274,16 @@ public class ERC721TokenContractTest {
       when(ck.toString()).thenReturn(ContractConstants.APPROVAL.getValue() + "Alice" + "Charlie");
       when(this.stub.createCompositeKey(ContractConstants.APPROVAL.getValue(), "Alice", "Charlie"))
           .thenReturn(ck);
-      when(this.stub.getStringState(ck.toString())).thenReturn(approval.toJSONString());
+      when(this.stub.getState(ck.toString())).thenReturn(approval.toJSONString().getBytes(UTF_8));
       ClientIdentity ci = null;
       ci = mock(ClientIdentity.class);
       when(ci.getId()).thenReturn("Charlie");
       when(this.ctx.getClientIdentity()).thenReturn(ci);
       contract.TransferFrom(this.ctx, "Alice", "Bob", "101");
       verify(stub)
-          .putStringState(ContractConstants.NFT.getValue() + "101", this.updatedNFT.toJSONString());
+          .putState(
+              ContractConstants.NFT.getValue() + "101",
+              this.updatedNFT.toJSONString().getBytes(UTF_8));
     }
 
     @Test
@@ -191,14 +294,16 @@ public class ERC721TokenContractTest {
       when(ck.toString()).thenReturn(ContractConstants.APPROVAL.getValue() + "Alice" + "Dave");
       when(this.stub.createCompositeKey(ContractConstants.APPROVAL.getValue(), "Alice", "Dave"))
           .thenReturn(ck);
-      when(this.stub.getStringState(ck.toString())).thenReturn(approval.toJSONString());
+      when(this.stub.getState(ck.toString())).thenReturn(approval.toJSONString().getBytes(UTF_8));
       ClientIdentity ci = null;
       ci = mock(ClientIdentity.class);
       when(ci.getId()).thenReturn("Dave");
       when(this.ctx.getClientIdentity()).thenReturn(ci);
       contract.TransferFrom(this.ctx, "Alice", "Bob", "101");
       verify(stub)
-          .putStringState(ContractConstants.NFT.getValue() + "101", this.updatedNFT.toJSONString());
+          .putState(
+              ContractConstants.NFT.getValue() + "101",
+              this.updatedNFT.toJSONString().getBytes(UTF_8));
     }
 
     @Test
@@ -208,7 +313,7 @@ public class ERC721TokenContractTest {
       when(ck.toString()).thenReturn(ContractConstants.APPROVAL.getValue() + "Alice" + "Dev");
       when(this.stub.createCompositeKey(ContractConstants.APPROVAL.getValue(), "Alice", "Dev"))
           .thenReturn(ck);
-      when(this.stub.getStringState(ck.toString())).thenReturn(approval.toJSONString());
+      when(this.stub.getState(ck.toString())).thenReturn(approval.toJSONString().getBytes(UTF_8));
       ClientIdentity ci = null;
       ci = mock(ClientIdentity.class);
       when(ci.getId()).thenReturn("Dev");
@@ -233,7 +338,7 @@ public class ERC721TokenContractTest {
       when(ck.toString()).thenReturn(ContractConstants.APPROVAL.getValue() + "Alice" + "Alice");
       when(this.stub.createCompositeKey(ContractConstants.APPROVAL.getValue(), "Alice", "Alice"))
           .thenReturn(ck);
-      when(this.stub.getStringState(ck.toString())).thenReturn(approval.toJSONString());
+      when(this.stub.getState(ck.toString())).thenReturn(approval.toJSONString().getBytes(UTF_8));
       ClientIdentity ci = null;
       ci = mock(ClientIdentity.class);
       when(ci.getId()).thenReturn("Alice");
@@ -263,7 +368,7 @@ public class ERC721TokenContractTest {
       CompositeKey ck = mock(CompositeKey.class);
       when(ck.toString()).thenReturn(ContractConstants.NFT.getValue() + "101");
       when(stub.createCompositeKey(ContractConstants.NFT.getValue(), "101")).thenReturn(ck);
-      when(stub.getStringState(ck.toString())).thenReturn(nft.toJSONString());
+      when(stub.getState(ck.toString())).thenReturn(nft.toJSONString().getBytes(UTF_8));
       ClientIdentity ci = null;
       ci = mock(ClientIdentity.class);
       when(ci.getId()).thenReturn("Alice");
@@ -275,9 +380,9 @@ public class ERC721TokenContractTest {
       ERC721TokenContract contract = new ERC721TokenContract();
       contract.Approve(ctx, "Bob", "101");
       verify(stub)
-          .putStringState(
+          .putState(
               ContractConstants.NFT.getValue() + "101",
-              new NFT("101", "Alice", "http://test.com", "Bob").toJSONString());
+              new NFT("101", "Alice", "http://test.com", "Bob").toJSONString().getBytes(UTF_8));
     }
 
     @Test
@@ -294,16 +399,27 @@ public class ERC721TokenContractTest {
       when(stub.createCompositeKey(ContractConstants.APPROVAL.getValue(), "Alice", "Bob"))
           .thenReturn(ck1);
       when(ck1.toString()).thenReturn(ContractConstants.APPROVAL.getValue() + "Alice" + "Bob");
+      CompositeKey ck2 = mock(CompositeKey.class);
+      when(stub.createCompositeKey(ContractConstants.OPERATOR_APPROVAL.getValue(), "Bob", "Alice"))
+          .thenReturn(ck2);
+      when(ck2.toString())
+          .thenReturn(ContractConstants.OPERATOR_APPROVAL.getValue() + "Bob" + "Alice");
       ERC721TokenContract contract = new ERC721TokenContract();
       NFT nft = new NFT("101", "Alice", "http://test.com", "");
       CompositeKey ck = mock(CompositeKey.class);
       when(ck.toString()).thenReturn(ContractConstants.NFT.getValue() + "101");
       when(stub.createCompositeKey(ContractConstants.NFT.getValue(), "101")).thenReturn(ck);
-      when(stub.getStringState(ck.toString())).thenReturn(nft.toJSONString());
+      when(stub.getState(ck.toString())).thenReturn(nft.toJSONString().getBytes(UTF_8));
       contract.SetApprovalForAll(ctx, "Bob", true);
 
       verify(stub)
-          .putStringState(ck1.toString(), new Approval("Alice", "Bob", true).toJSONString());
+          .putState(
+              ck1.toString(), new Approval("Alice", "Bob", true).toJSONString().getBytes(UTF_8));
+      verify(stub).putStringState(ck2.toString(), "\u0000");
+
+      contract.SetApprovalForAll(ctx, "Bob", false);
+
+      verify(stub).delState(ck2.toString());
     }
 
     @Test
@@ -323,7 +439,7 @@ public class ERC721TokenContractTest {
       CompositeKey ck = mock(CompositeKey.class);
       when(ck.toString()).thenReturn(ContractConstants.NFT.getValue() + "101");
       when(stub.createCompositeKey(ContractConstants.NFT.getValue(), "101")).thenReturn(ck);
-      when(stub.getStringState(ck.toString())).thenReturn(nft.toJSONString());
+      when(stub.getState(ck.toString())).thenReturn(nft.toJSONString().getBytes(UTF_8));
       String approved = contract.GetApproved(ctx, "101");
       assertThat(approved).isEqualTo("Bob");
     }
@@ -344,7 +460,7 @@ public class ERC721TokenContractTest {
       when(ck.toString()).thenReturn(ContractConstants.APPROVAL.getValue() + "Alice" + "Bob");
       when(stub.createCompositeKey(ContractConstants.APPROVAL.getValue(), "Alice", "Bob"))
           .thenReturn(ck);
-      when(stub.getStringState(ck.toString())).thenReturn(approval.toJSONString());
+      when(stub.getState(ck.toString())).thenReturn(approval.toJSONString().getBytes(UTF_8));
       boolean response = contract.IsApprovedForAll(ctx, "Alice", "Bob");
       assertThat(response).isEqualTo(true);
     }
@@ -376,6 +492,18 @@ public class ERC721TokenContractTest {
       assertThat(name).isEqualTo("ANFT");
     }
 
+    @Test
+    public void invokeGetNameAgain() {
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = mock(ChaincodeStub.class);
+      when(ctx.getStub()).thenReturn(stub);
+      when(stub.getStringState(ContractConstants.NAMEKEY.getValue())).thenReturn("AmadoueNFT");
+      ERC721TokenContract contract = new ERC721TokenContract();
+      contract.Name(ctx);
+      assertThat(contract.Name(ctx)).isEqualTo("AmadoueNFT");
+      verify(stub, times(1)).getStringState(ContractConstants.NAMEKEY.getValue());
+    }
+
     @Test
     public void invokeTokenURI() {
       Context ctx = mock(Context.class);
@@ -387,7 +515,7 @@ public class ERC721TokenContractTest {
       CompositeKey ck = mock(CompositeKey.class);
       when(ck.toString()).thenReturn(ContractConstants.NFT.getValue() + "101");
       when(stub.createCompositeKey(ContractConstants.NFT.getValue(), "101")).thenReturn(ck);
-      when(stub.getStringState(ck.toString())).thenReturn(nft.toJSONString());
+      when(stub.getState(ck.toString())).thenReturn(nft.toJSONString().getBytes(UTF_8));
       String response = contract.TokenURI(ctx, "101");
       assertThat(response).isEqualTo("http://test.com");
     }
@@ -432,12 +560,15 @@ public class ERC721TokenContractTest {
       CompositeKey ck = mock(CompositeKey.class);
       when(ck.toString()).thenReturn(ContractConstants.NFT.getValue() + "101");
       when(stub.createCompositeKey(ContractConstants.NFT.getValue(), "101")).thenReturn(ck);
-      when(stub.getStringState(ck.toString())).thenReturn(null);
+      when(stub.getState(ck.toString())).thenReturn(null);
 
       CompositeKey ck2 = mock(CompositeKey.class);
       when(ck2.toString()).thenReturn(ContractConstants.BALANCE.getValue() + "Alice" + "101");
       when(stub.createCompositeKey(ContractConstants.BALANCE.getValue(), "Alice", "101"))
           .thenReturn(ck2);
+      CompositeKey ck3 = mockBalanceCountKey(stub, "Alice");
+      CompositeKey ck4 = mockSupplyCountKey(stub);
+      when(stub.getStringState(ck4.toString())).thenReturn("41");
       ClientIdentity ci = null;
       ci = mock(ClientIdentity.class);
       when(ctx.getClientIdentity()).thenReturn(ci);
@@ -446,8 +577,10 @@ public class ERC721TokenContractTest {
       ERC721TokenContract contract = new ERC721TokenContract();
       final NFT response = contract.MintWithTokenURI(ctx, "101", "DummyURI");
 
-      verify(stub).putStringState(ck.toString(), nft.toJSONString());
+      verify(stub).putState(ck.toString(), nft.toJSONString().getBytes(UTF_8));
       verify(stub).putStringState(ck2.toString(), "\u0000");
+      verify(stub).putStringState(ck3.toString(), "1");
+      verify(stub).putStringState(ck4.toString(), "42");
       assertThat(response.toJSONString()).isEqualTo(nft.toJSONString());
     }
 
@@ -461,7 +594,7 @@ public class ERC721TokenContractTest {
       CompositeKey ck = mock(CompositeKey.class);
       when(ck.toString()).thenReturn(ContractConstants.NFT.getValue() + "101");
       when(stub.createCompositeKey(ContractConstants.NFT.getValue(), "101")).thenReturn(ck);
-      when(stub.getStringState(ck.toString())).thenReturn(nft.toJSONString());
+      when(stub.getState(ck.toString())).thenReturn(nft.toJSONString().getBytes(UTF_8));
       ClientIdentity ci = null;
       ci = mock(ClientIdentity.class);
       when(ctx.getClientIdentity()).thenReturn(ci);
@@ -488,11 +621,15 @@ public class ERC721TokenContractTest {
       CompositeKey ck = mock(CompositeKey.class);
       when(ck.toString()).thenReturn(ContractConstants.NFT.getValue() + "101");
       when(stub.createCompositeKey(ContractConstants.NFT.getValue(), "101")).thenReturn(ck);
-      when(stub.getStringState(ck.toString())).thenReturn(nft.toJSONString());
+      when(stub.getState(ck.toString())).thenReturn(nft.toJSONString().getBytes(UTF_8));
       CompositeKey ck2 = mock(CompositeKey.class);
       when(ck2.toString()).thenReturn(ContractConstants.BALANCE.getValue() + "Alice" + "101");
       when(stub.createCompositeKey(ContractConstants.BALANCE.getValue(), "Alice", "101"))
           .thenReturn(ck2);
+      CompositeKey ck3 = mockBalanceCountKey(stub, "Alice");
+      when(stub.getStringState(ck3.toString())).thenReturn("1");
+      CompositeKey ck4 = mockSupplyCountKey(stub);
+      when(stub.getStringState(ck4.toString())).thenReturn("42");
       ClientIdentity ci = null;
       ci = mock(ClientIdentity.class);
       when(ctx.getClientIdentity()).thenReturn(ci);
@@ -502,6 +639,432 @@ public class ERC721TokenContractTest {
       contract.Burn(ctx, "101");
       verify(stub).delState(ck.toString());
       verify(stub).delState(ck2.toString());
+      verify(stub).delState(ck3.toString());
+      verify(stub).putStringState(ck4.toString(), "41");
+    }
+  }
+
+  @Nested
+  class InMemoryLedger {
+
+    /** Shards of each counter kept by the contract. */
+    private static final int COUNTER_SHARDS = 16;
+
+    private final ERC721TokenContract contract = new ERC721TokenContract();
+    private final InMemoryChaincodeStub stub = new InMemoryChaincodeStub();
+    private Context minter;
+    private Context holder;
+    private String minterId;
+    private String holderId;
+
+    @BeforeEach
+    public void initialize() {
+      stub.setCreator(TestIdentities.ORG1_MSP, TestIdentities.ORG1_USER_CERT);
+      minter = new Context(stub);
+      stub.setCreator(TestIdentities.ORG2_MSP, TestIdentities.ORG2_USER_CERT);
+      holder = new Context(stub);
+      minterId = minter.getClientIdentity().getId();
+      holderId = holder.getClientIdentity().getId();
+      contract.Initialize(minter, "some name", "SYMBOL");
+      stub.commit();
+      for (int i = 0; i < 3; i++) {
+        contract.MintWithTokenURI(minter, "token" + i, "https://example.com/nft/" + i);
+        stub.commit();
+      }
+    }
+
+    @Test
+    public void countsFollowMintTransferAndBurn() {
+      contract.TransferFrom(minter, minterId, holderId, "token0");
+      stub.commit();
+      contract.Burn(minter, "token1");
+      stub.commit();
+
+      assertThat(contract.BalanceOf(minter, minterId)).isEqualTo(1);
+      assertThat(contract.BalanceOf(minter, holderId)).isEqualTo(1);
+      assertThat(contract.ClientAccountBalance(holder)).isEqualTo(1);
+      assertThat(contract.TotalSupply(minter)).isEqualTo(2);
+      assertThat(contract.OwnerOf(minter, "token0")).isEqualTo(holderId);
+    }
+
+    @Test
+    public void totalSupplyConflictsWithConcurrentMint() {
+      contract.TotalSupply(minter);
+      stub.commit();
+      contract.TotalSupply(minter);
+      InMemoryChaincodeStub.ReadWriteSet reader = stub.endorse();
+      contract.MintWithTokenURI(minter, "token3", "https://example.com/nft/3");
+      stub.commit();
+
+      final String supplyCountKey =
+          stub.createCompositeKey(ContractConstants.SUPPLY_COUNT.getValue()).toString();
+      assertThat(stub.commit(reader).getConflicts())
+          .hasSize(1)
+          .allMatch(key -> key.startsWith(supplyCountKey));
+    }
+
+    @Test
+    public void totalSupplyDoesNotReadTokens() {
+      contract.TotalSupply(minter);
+      stub.commit();
+      contract.TotalSupply(minter);
+      InMemoryChaincodeStub.ReadWriteSet reader = stub.endorse();
+
+      final String supplyCountKey =
+          stub.createCompositeKey(ContractConstants.SUPPLY_COUNT.getValue()).toString();
+      assertThat(reader.getReads()).isNotEmpty();
+      assertThat(reader.getReads().keySet()).allMatch(key -> key.startsWith(supplyCountKey));
+      assertThat(contract.VerifyTotalSupply(minter)).isTrue();
+    }
+
+    @Test
+    public void totalSupplyReadsAtMostOneKeyPerShard() {
+      for (int i = 3; i < 100; i++) {
+        contract.MintWithTokenURI(minter, "token" + i, "https://example.com/nft/" + i);
+        stub.commit();
+      }
+
+      assertThat(contract.TotalSupply(minter)).isEqualTo(100);
+      InMemoryChaincodeStub.ReadWriteSet reader = stub.endorse();
+      final String supplyCountKey =
+          stub.createCompositeKey(ContractConstants.SUPPLY_COUNT.getValue()).toString();
+      assertThat(reader.getReads().keySet().stream().filter(key -> key.startsWith(supplyCountKey))
+              .count())
+          .isBetween(1L, (long) COUNTER_SHARDS);
+    }
+
+    @Test
+    public void repairBackfillsTotalSupply() {
+      // Roll back to a contract initialized before the supply counter was kept
+      final ShardedCounter counter =
+          new ShardedCounter(ContractConstants.SUPPLY_COUNT.getValue(), 1);
+      counter.clear(stub);
+      stub.delState(ContractConstants.SUPPLY_COUNTS_KEY.getValue());
+      stub.commit();
+      final ERC721TokenContract upgraded = new ERC721TokenContract();
+      upgraded.Burn(minter, "token0");
+      stub.commit();
+
+      assertThat(upgraded.TotalSupply(minter)).isEqualTo(2);
+      assertThat(upgraded.VerifyTotalSupply(minter)).isFalse();
+
+      assertThat(upgraded.RepairTotalSupply(minter)).isEqualTo(2);
+      stub.commit();
+      upgraded.MintWithTokenURI(minter, "token3", "https://example.com/nft/3");
+      stub.commit();
+
+      assertThat(upgraded.TotalSupply(minter)).isEqualTo(3);
+      assertThat(upgraded.VerifyTotalSupply(minter)).isTrue();
+    }
+
+    @Test
+    public void initializedCheckIsNotInReadSet() {
+      contract.OwnerOf(minter, "token0");
+      InMemoryChaincodeStub.ReadWriteSet reader = stub.endorse();
+
+      assertThat(reader.getReads())
+          .containsOnlyKeys(
+              stub.createCompositeKey(ContractConstants.NFT.getValue(), "token0").toString());
+    }
+
+    @Test
+    public void balanceOfIgnoresOtherOwners() {
+      contract.BalanceOf(minter, holderId);
+      InMemoryChaincodeStub.ReadWriteSet reader = stub.endorse();
+      contract.MintWithTokenURI(minter, "token3", "https://example.com/nft/3");
+      stub.commit();
+
+      assertThat(stub.commit(reader).isValid()).isTrue();
+    }
+
+    @Test
+    public void balanceOfDoesNotReadBalanceRecords() {
+      contract.BalanceOf(minter, holderId);
+      stub.commit();
+      contract.BalanceOf(minter, minterId);
+      InMemoryChaincodeStub.ReadWriteSet reader = stub.endorse();
+
+      assertThat(reader.getReads()).isNotEmpty();
+      assertThat(reader.getReads().keySet())
+          .allMatch(key -> key.startsWith(
+              stub.createCompositeKey(ContractConstants.BALANCE_COUNT.getValue()).toString()));
+    }
+
+    @Test
+    public void concurrentMintsToOneOwnerOnOtherShardsDoNotConflict() {
+      contract.MintWithTokenURI(minter, "token3", "https://example.com/nft/3");
+      InMemoryChaincodeStub.ReadWriteSet first = stub.endorse();
+      contract.MintWithTokenURI(minter, "token4", "https://example.com/nft/4");
+      InMemoryChaincodeStub.ReadWriteSet second = stub.endorse();
+
+      assertThat(stub.commit(first).isValid()).isTrue();
+      assertThat(stub.commit(second).isValid()).isTrue();
+      assertThat(contract.BalanceOf(minter, minterId)).isEqualTo(5);
+    }
+
+    @Test
+    public void concurrentMintsToOneOwnerOnTheSameShardConflict() {
+      // More concurrent mints than shards, so at least two of them pick the same shard
+      final List<InMemoryChaincodeStub.ReadWriteSet> mints = new ArrayList<>();
+      for (int i = 3; i < 3 + COUNTER_SHARDS + 1; i++) {
+        contract.MintWithTokenURI(minter, "token" + i, "https://example.com/nft/" + i);
+        mints.add(stub.endorse());
+      }
+
+      long committed = mints.stream().filter(mint -> stub.commit(mint).isValid()).count();
+      assertThat(committed).isBetween(1L, (long) COUNTER_SHARDS);
+      assertThat(contract.BalanceOf(minter, minterId)).isEqualTo(3 + committed);
+    }
+
+    @Test
+    public void balanceOfReadsAtMostOneKeyPerShard() {
+      for (int i = 3; i < 100; i++) {
+        contract.MintWithTokenURI(minter, "token" + i, "https://example.com/nft/" + i);
+        stub.commit();
+      }
+
+      assertThat(contract.BalanceOf(minter, minterId)).isEqualTo(100);
+      InMemoryChaincodeStub.ReadWriteSet reader = stub.endorse();
+      final String balanceCountKey =
+          stub.createCompositeKey(ContractConstants.BALANCE_COUNT.getValue()).toString();
+      assertThat(reader.getReads().keySet().stream().filter(key -> key.startsWith(balanceCountKey))
+              .count())
+          .isBetween(1L, (long) COUNTER_SHARDS);
+    }
+
+    @Test
+    public void tokensOfOwnerArePagedByBookmark() {
+      contract.TransferFrom(minter, minterId, holderId, "token1");
+      stub.commit();
+
+      Page first = contract.TokensOfOwnerWithPagination(minter, minterId, 1, "");
+      assertThat(first.getItems()).containsExactly("token0");
+      assertThat(first.getFetchedRecordsCount()).isEqualTo(1);
+      Page second =
+          contract.TokensOfOwnerWithPagination(minter, minterId, 1, first.getBookmark());
+      assertThat(second.getItems()).containsExactly("token2");
+      assertThat(second.getBookmark()).isEmpty();
+      assertThat(contract.TokensOfOwnerWithPagination(minter, holderId, 10, "").getItems())
+          .containsExactly("token1");
+    }
+
+    @Test
+    public void tokensArePagedByBookmark() {
+      Page first = contract.TokensWithPagination(minter, 2, "");
+      assertThat(first.getItems()).containsExactly("token0", "token1");
+      Page second = contract.TokensWithPagination(minter, 2, first.getBookmark());
+      assertThat(second.getItems()).containsExactly("token2");
+      assertThat(second.getBookmark()).isEmpty();
+    }
+
+    @Test
+    public void ownersApprovingOperatorArePagedByBookmark() {
+      contract.SetApprovalForAll(minter, "operator", true);
+      stub.commit();
+      contract.SetApprovalForAll(holder, "operator", true);
+      stub.commit();
+      contract.SetApprovalForAll(holder, "other operator", true);
+      stub.commit();
+
+      Page first = contract.OwnersApprovingOperator(minter, "operator", 1, "");
+      assertThat(first.getItems()).hasSize(1);
+      Page second =
+          contract.OwnersApprovingOperator(minter, "operator", 1, first.getBookmark());
+      assertThat(second.getItems()).hasSize(1);
+      assertThat(second.getBookmark()).isEmpty();
+      assertThat(new String[] {first.getItems()[0], second.getItems()[0]})
+          .containsExactlyInAnyOrder(minterId, holderId);
+
+      contract.SetApprovalForAll(minter, "operator", false);
+      stub.commit();
+
+      assertThat(contract.OwnersApprovingOperator(minter, "operator", 10, "").getItems())
+          .containsExactly(holderId);
+      assertThat(contract.OwnersApprovingOperator(minter, "other operator", 10, "").getItems())
+          .containsExactly(holderId);
+    }
+
+    @Test
+    public void mintBatchMintsEveryToken() {
+      contract.MintBatch(
+          minter,
+          "[{\"tokenId\":\"token3\",\"tokenURI\":\"https://example.com/nft/3\"},"
+              + "{\"tokenId\":\"token4\",\"tokenURI\":\"https://example.com/nft/4\"}]");
+      final TransferBatch event = TransferBatch.fromBytes(stub.getEvent().getPayload().toByteArray());
+      assertThat(stub.getEvent().getEventName()).isEqualTo("TransferBatch");
+      stub.commit();
+
+      assertThat(event.getFrom()).isEqualTo("0x0");
+      assertThat(event.getTo()).isEqualTo(minterId);
+      assertThat(event.getTokenIds()).containsExactly("token3", "token4");
+      assertThat(contract.BalanceOf(minter, minterId)).isEqualTo(5);
+      assertThat(contract.TotalSupply(minter)).isEqualTo(5);
+      assertThat(contract.TokenURI(minter, "token4")).isEqualTo("https://example.com/nft/4");
+      assertThat(contract.TokensOfOwnerWithPagination(minter, minterId, 10, "").getItems())
+          .containsExactly("token0", "token1", "token2", "token3", "token4");
+    }
+
+    @Test
+    public void mintBatchRejectsMintedAndRepeatedTokens() {
+      Throwable thrown =
+          catchThrowable(
+              () -> contract.MintBatch(
+                  minter,
+                  "[{\"tokenId\":\"token3\",\"tokenURI\":\"uri\"},"
+                      + "{\"tokenId\":\"token0\",\"tokenURI\":\"uri\"}]"));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage("The token token0 is already minted.");
+      thrown =
+          catchThrowable(
+              () -> contract.MintBatch(
+                  minter,
+                  "[{\"tokenId\":\"token3\",\"tokenURI\":\"uri\"},"
+                      + "{\"tokenId\":\"token3\",\"tokenURI\":\"uri\"}]"));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage("The token token3 is already minted.");
+
+      assertThat(stub.endorse().getWrites()).isEmpty();
+    }
+
+    @Test
+    public void batchesMustBeNonEmptyJsonArrays() {
+      assertThat(catchThrowable(() -> contract.MintBatch(minter, "[]")))
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage("Batch size 0 must be between 1 and 1000");
+      assertThat(catchThrowable(() -> contract.MintBatch(minter, "[\"token3\"]")))
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessageStartingWith("Invalid token 0 in the batch");
+      assertThat(catchThrowable(() -> contract.TransferFromBatch(minter, minterId, holderId, "{")))
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessageStartingWith("Invalid batch");
+    }
+
+    @Test
+    public void transferFromBatchMovesEveryToken() {
+      contract.TransferFromBatch(minter, minterId, holderId, "[\"token0\",\"token2\"]");
+      final TransferBatch event = TransferBatch.fromBytes(stub.getEvent().getPayload().toByteArray());
+      stub.commit();
+
+      assertThat(event.getFrom()).isEqualTo(minterId);
+      assertThat(event.getTo()).isEqualTo(holderId);
+      assertThat(event.getTokenIds()).containsExactly("token0", "token2");
+      assertThat(contract.BalanceOf(minter, minterId)).isEqualTo(1);
+      assertThat(contract.BalanceOf(minter, holderId)).isEqualTo(2);
+      assertThat(contract.OwnerOf(minter, "token2")).isEqualTo(holderId);
+      assertThat(contract.TokensOfOwnerWithPagination(minter, holderId, 10, "").getItems())
+          .containsExactly("token0", "token2");
+    }
+
+    @Test
+    public void transferFromBatchByOperator() {
+      contract.TransferFromBatch(minter, minterId, holderId, "[\"token0\",\"token1\"]");
+      stub.commit();
+      contract.SetApprovalForAll(holder, minterId, true);
+      stub.commit();
+
+      contract.TransferFromBatch(minter, holderId, minterId, "[\"token0\",\"token1\"]");
+      stub.commit();
+
+      assertThat(contract.BalanceOf(minter, minterId)).isEqualTo(3);
+      assertThat(contract.BalanceOf(minter, holderId)).isZero();
+    }
+
+    @Test
+    public void transferFromBatchRejectsTokensNotOwnedBySender() {
+      contract.TransferFrom(minter, minterId, holderId, "token1");
+      stub.commit();
+
+      Throwable thrown =
+          catchThrowable(
+              () -> contract.TransferFromBatch(
+                  minter, minterId, holderId, "[\"token0\",\"token1\"]"));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage(
+              String.format(
+                  "The sender %s is not the current owner nor an authorized operator of the token %s.",
+                  minterId, "token1"));
+      thrown =
+          catchThrowable(
+              () -> contract.TransferFromBatch(
+                  minter, minterId, holderId, "[\"token0\",\"token0\"]"));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage("The token token0 is repeated in the batch.");
+
+      assertThat(stub.endorse().getWrites()).isEmpty();
+    }
+
+    @Test
+    public void transferToSelfKeepsBalance() {
+      contract.TransferFrom(minter, minterId, minterId, "token0");
+      stub.commit();
+
+      assertThat(contract.BalanceOf(minter, minterId)).isEqualTo(3);
+    }
+
+    @Test
+    public void migrationBackfillsBalanceCounts() {
+      // Roll back to a contract initialized before balance counters were kept
+      final ShardedCounter counters =
+          new ShardedCounter(ContractConstants.BALANCE_COUNT.getValue(), 1);
+      counters.clear(stub);
+      stub.delState(ContractConstants.BALANCE_COUNTS_KEY.getValue());
+      stub.commit();
+      final ERC721TokenContract upgraded = new ERC721TokenContract();
+      upgraded.TransferFrom(minter, minterId, holderId, "token0");
+      stub.commit();
+
+      assertThat(upgraded.BalanceOf(minter, holderId)).isEqualTo(1);
+      assertThat(counters.get(stub, minterId)).isEqualTo(-1);
+
+      upgraded.MigrateBalanceCounts(minter);
+      stub.commit();
+      upgraded.TransferFrom(holder, holderId, minterId, "token0");
+      stub.commit();
+
+      assertThat(upgraded.BalanceOf(minter, minterId)).isEqualTo(3);
+      assertThat(upgraded.BalanceOf(minter, holderId)).isZero();
+      assertThat(stub.getStringState(ContractConstants.BALANCE_COUNTS_KEY.getValue()))
+          .isEqualTo("true");
+    }
+
+    @Test
+    public void migrationBackfillsOperatorApprovals() {
+      contract.SetApprovalForAll(holder, "operator", true);
+      contract.SetApprovalForAll(minter, "revoked operator", true);
+      stub.commit();
+      contract.SetApprovalForAll(minter, "revoked operator", false);
+      stub.commit();
+      // Roll back to a contract that recorded approvals before they were indexed by operator
+      final CompositeKey operatorApprovalKey =
+          stub.createCompositeKey(ContractConstants.OPERATOR_APPROVAL.getValue());
+      for (KeyValue result : stub.getStateByPartialCompositeKey(operatorApprovalKey)) {
+        stub.delState(result.getKey());
+      }
+      stub.commit();
+
+      assertThat(contract.OwnersApprovingOperator(minter, "operator", 10, "").getItems())
+          .isEmpty();
+
+      contract.MigrateOperatorApprovals(minter);
+      stub.commit();
+
+      assertThat(contract.OwnersApprovingOperator(minter, "operator", 10, "").getItems())
+          .containsExactly(holderId);
+      assertThat(contract.OwnersApprovingOperator(minter, "revoked operator", 10, "").getItems())
+          .isEmpty();
+    }
+
+    @Test
+    public void whenMigrateOperatorApprovalsUnauthorized() {
+      Throwable thrown = catchThrowable(() -> contract.MigrateOperatorApprovals(holder));
+
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage("Client is not authorized to migrate operator approvals");
     }
   }
 }
@@ -0,0 +1,138 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.hyperledger.fabric.samples.erc721.utils;
+
+import com.owlike.genson.Genson;
+import org.hyperledger.fabric.samples.erc721.models.Approval;
+import org.hyperledger.fabric.samples.erc721.models.NFT;
+import org.hyperledger.fabric.samples.erc721.models.Transfer;
+import org.hyperledger.fabric.samples.erc721.models.TransferBatch;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class ModelCodecTest {
+
+  private static final Genson GENSON = new Genson();
+
+  private static final String[] VALUES = {
+    "x509::CN=User0@org1.example.com, L=San Francisco, ST=California,"
+        + " C=US::CN=ca.org1.example.com, O=org1.example.com, L=San Francisco, ST=California, C=US",
+    "0x0",
+    "",
+    "quote\" backslash\\ slash/",
+    "\b\f\n\r\t\u0000\u001f\u007f",
+    "\u00e9\u20ac\ud83d\ude00",
+    "\u2028\u2029",
+    null
+  };
+
+  private final ModelCodec codec = new ModelCodec();
+
+  @Test
+  public void encodesNftAsGenson() {
+    for (String value : VALUES) {
+      NFT nft = new NFT(value, "owner", "https://example.com/nft", "");
+      assertThat(codec.encode(nft)).isEqualTo(GENSON.serialize(nft).getBytes(UTF_8));
+      nft = new NFT("101", value, "https://example.com/nft", "");
+      assertThat(codec.encode(nft)).isEqualTo(GENSON.serialize(nft).getBytes(UTF_8));
+      nft = new NFT("101", "owner", value, "");
+      assertThat(codec.encode(nft)).isEqualTo(GENSON.serialize(nft).getBytes(UTF_8));
+      nft = new NFT("101", "owner", "https://example.com/nft", value);
+      assertThat(codec.encode(nft)).isEqualTo(GENSON.serialize(nft).getBytes(UTF_8));
+    }
+  }
+
+  @Test
+  public void encodesApprovalAsGenson() {
+    for (String value : VALUES) {
+      Approval approval = new Approval(value, "operator", true);
+      assertThat(codec.encode(approval)).isEqualTo(GENSON.serialize(approval).getBytes(UTF_8));
+      approval = new Approval("owner", value, false);
+      assertThat(codec.encode(approval)).isEqualTo(GENSON.serialize(approval).getBytes(UTF_8));
+    }
+  }
+
+  @Test
+  public void encodesTransfersAsGenson() {
+    for (String value : VALUES) {
+      Transfer transfer = new Transfer(value, "to", "101");
+      assertThat(codec.encode(transfer)).isEqualTo(GENSON.serialize(transfer).getBytes(UTF_8));
+      transfer = new Transfer("from", value, value);
+      assertThat(codec.encode(transfer)).isEqualTo(GENSON.serialize(transfer).getBytes(UTF_8));
+      TransferBatch batch = new TransferBatch(value, "to", new String[] {"101", value});
+      assertThat(codec.encode(batch)).isEqualTo(GENSON.serialize(batch).getBytes(UTF_8));
+    }
+    TransferBatch empty = new TransferBatch("from", "to", new String[0]);
+    assertThat(codec.encode(empty)).isEqualTo(GENSON.serialize(empty).getBytes(UTF_8));
+  }
+
+  @Test
+  public void growsBufferForLongValues() {
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      value.append("\u20ac\n");
+    }
+    NFT nft = new NFT("101", value.toString(), value.toString(), "");
+
+    assertThat(codec.encode(nft)).isEqualTo(GENSON.serialize(nft).getBytes(UTF_8));
+    NFT small = new NFT("102", "owner", "uri", "");
+    assertThat(codec.encode(small)).isEqualTo(GENSON.serialize(small).getBytes(UTF_8));
+  }
+
+  @Test
+  public void decodesEncodedModels() {
+    for (String value : VALUES) {
+      NFT nft = codec.decodeNft(codec.encode(new NFT(value, value, value, value)));
+      assertThat(nft.getTokenId()).isEqualTo(value);
+      assertThat(nft.getOwner()).isEqualTo(value);
+      assertThat(nft.getTokenURI()).isEqualTo(value);
+      assertThat(nft.getApproved()).isEqualTo(value);
+
+      Approval approval = codec.decodeApproval(codec.encode(new Approval(value, value, true)));
+      assertThat(approval.getOwner()).isEqualTo(value);
+      assertThat(approval.getOperator()).isEqualTo(value);
+      assertThat(approval.isApproved()).isTrue();
+    }
+  }
+
+  @Test
+  public void decodesModelsWrittenByOtherEncoders() {
+    NFT nft =
+        codec.decodeNft(
+            (" { \"tokenURI\" : \"uri\\u00e9\" ,\"extra\":{\"a\":[1,\"}\",{}],\"b\":null},"
+                    + "\"owner\":\"Alice\\/Bob\",\"tokenId\":\"101\"\n}")
+                .getBytes(UTF_8));
+    assertThat(nft.getTokenId()).isEqualTo("101");
+    assertThat(nft.getOwner()).isEqualTo("Alice/Bob");
+    assertThat(nft.getTokenURI()).isEqualTo("uri\u00e9");
+    assertThat(nft.getApproved()).isNull();
+
+    Approval approval =
+        codec.decodeApproval(
+            "{\"owner\":\"Alice\",\"count\":3,\"operator\":\"Bob\",\"approved\":true}"
+                .getBytes(UTF_8));
+    assertThat(approval.getOwner()).isEqualTo("Alice");
+    assertThat(approval.getOperator()).isEqualTo("Bob");
+    assertThat(approval.isApproved()).isTrue();
+  }
+
+  @Test
+  public void rejectsInvalidJson() {
+    String[] invalid = {
+      "", "[]", "{", "{\"owner\"}", "{\"owner\":\"Alice\"", "{\"owner\":\"\\x\"}", "{,}"
+    };
+    for (String json : invalid) {
+      Throwable thrown = catchThrowable(() -> codec.decodeNft(json.getBytes(UTF_8)));
+      assertThat(thrown).isInstanceOf(IllegalArgumentException.class);
+    }
+    Throwable thrown =
+        catchThrowable(() -> codec.decodeApproval("{\"approved\":yes}".getBytes(UTF_8)));
+    assertThat(thrown)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Invalid JSON object at offset 12");
+  }
+}